@@ -2,6 +2,9 @@ package com.chessbot.bot;
 
 import com.chessbot.handlers.ChessCommandHandler;
 import com.chessbot.service.KeyboardService;
+import com.chessbot.service.LobbyService;
+import com.chessbot.service.TelegramNotificationService;
+import com.chessbot.util.CallbackCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -18,6 +21,8 @@ public class BotFasade {
 
     private final ChessCommandHandler commandHandler;
     private final KeyboardService keyboardService;
+    private final LobbyService lobbyService;
+    private final TelegramNotificationService notificationService;
 
     /**
      * 🎯 ГЛАВНЫЙ МЕТОД ОБРАБОТКИ ОБНОВЛЕНИЙ.........
@@ -50,8 +55,21 @@ public class BotFasade {
 
             log.info("💬 Сообщение от @{} (chatId: {}): {}", userName, chatId, text);
 
+            // Лобби отвечает страницей с кнопками листания
+            if (isListGames(text)) {
+                LobbyService.LobbyPage page = lobbyService.page(text);
+                SendMessage message = createSendMessage(chatId, page.text());
+                message.setReplyMarkup(page.keyboard());
+                return message;
+            }
+
             // Обрабатываем команду
-            String responseText = commandHandler.handleCommand(chatId, text, userName);
+            String responseText = commandHandler.handleCommand(chatId, text, userName,
+                    update.getMessage().getMessageId());
+            if (responseText == null) {
+                // Команда ответила сама (например, /analyze ведет свое сообщение, /board правит живую доску)
+                return null;
+            }
 
             // Создаем SendMessage с ответом
             SendMessage message = createSendMessage(chatId, responseText);
@@ -71,9 +89,23 @@ public class BotFasade {
 
     /**
      * 🔘 ОБРАБОТКА CALLBACK-ЗАПРОСОВ
+     * На каждое нажатие уходит AnswerCallbackQuery, в том числе при ошибке
      */
     private SendMessage handleCallbackQuery(Update update) {
         CallbackQuery callbackQuery = update.getCallbackQuery();
+        String notice = null;
+        try {
+            return routeCallbackQuery(update, callbackQuery);
+        } catch (Exception e) {
+            log.error("Ошибка обработки callback: {}", e.getMessage(), e);
+            notice = "❌ Произошла ошибка";
+            return createErrorMessage(update);
+        } finally {
+            notificationService.answerCallbackQuery(callbackQuery.getId(), notice);
+        }
+    }
+
+    private SendMessage routeCallbackQuery(Update update, CallbackQuery callbackQuery) {
         Long chatId = callbackQuery.getMessage().getChatId();
         String callbackData = callbackQuery.getData();
         String userName = callbackQuery.getFrom().getUserName();
@@ -85,20 +117,42 @@ public class BotFasade {
 
         log.info("🔘 Callback от @{} (chatId: {}): {}", userName, chatId, callbackData);
 
-        try {
-            // Обрабатываем callback как обычную команду
-            String responseText = commandHandler.handleCommand(chatId, callbackData, userName);
-            SendMessage message = createSendMessage(chatId, responseText);
+        // Листание лобби правит то же сообщение, а не шлет новое
+        if (isListGames(callbackData)) {
+            LobbyService.LobbyPage page = lobbyService.page(callbackData);
+            notificationService.editMessage(chatId, callbackQuery.getMessage().getMessageId(),
+                    page.text(), page.keyboard());
+            return null;
+        }
 
-            // Удаляем inline клавиатуру после нажатия
-            message.setReplyToMessageId(callbackQuery.getMessage().getMessageId());
+        // Кнопки доски: компактный код, разбирается без цепочки команд и правит ту же доску
+        if (CallbackCodec.isCompact(callbackData)) {
+            String responseText = commandHandler.handleBoardTap(chatId, callbackData,
+                    callbackQuery.getMessage().getMessageId(), userName);
+            return responseText != null ? createSendMessage(chatId, responseText) : null;
+        }
 
-            return message;
+        // Командой считаются только callback-и вида "/команда ..."
+        if (callbackData == null || !callbackData.startsWith("/")) {
+            log.debug("Callback без обработчика: {}", callbackData);
+            return null;
+        }
 
-        } catch (Exception e) {
-            log.error("Ошибка обработки callback: {}", e.getMessage(), e);
-            return createErrorMessage(update);
+        // Обрабатываем callback как обычную команду
+        String responseText = commandHandler.handleCommand(chatId, callbackData, userName);
+        if (responseText == null) {
+            return null;
         }
+        SendMessage message = createSendMessage(chatId, responseText);
+
+        // Удаляем inline клавиатуру после нажатия
+        message.setReplyToMessageId(callbackQuery.getMessage().getMessageId());
+
+        return message;
+    }
+
+    private static boolean isListGames(String text) {
+        return text != null && text.trim().toLowerCase().startsWith("/listgames");
     }
 
     /**
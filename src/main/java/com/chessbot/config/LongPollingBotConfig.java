@@ -1,6 +1,7 @@
 package com.chessbot.config;
 
 import com.chessbot.bot.BotFasade;
+import com.chessbot.service.TelegramRateLimiter;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +17,7 @@ import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 public  class LongPollingBotConfig extends TelegramLongPollingBot {
 
     private final BotFasade botFasade;
+    private final TelegramRateLimiter rateLimiter;
     private static final Logger logger = LoggerFactory.getLogger(LongPollingBotConfig.class);
 
     @Value("${telegram.bot.username}")
@@ -28,7 +30,10 @@ public  class LongPollingBotConfig extends TelegramLongPollingBot {
     public void onUpdateReceived(Update update) {
         logger.info("Received update: {}", update);
 
-        if (update.hasMessage() && update.getMessage().hasText()) {
+        // Нажатия inline-кнопок тоже идут в фасад, а не только текстовые сообщения
+        if (update.hasCallbackQuery() || (update.hasMessage() && update.getMessage().hasText())) {
+            // Ответ уходит сразу, но учитывается в общем лимите: рассылки уступают ему по факту
+            rateLimiter.charge();
             SendMessage sendMessage = botFasade.obrabotkaHandleUpdate(update);
             if (sendMessage != null) {
                 try {
@@ -41,7 +46,7 @@ public  class LongPollingBotConfig extends TelegramLongPollingBot {
                 }
             }
         } else {
-            logger.warn("Update doesn't contain text message: {}", update);
+            logger.warn("Update doesn't contain text message or callback: {}", update);
         }
     }
 
@@ -0,0 +1,17 @@
+package com.chessbot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// DTO для события игры, которое Chess API пушит по WebSocket
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GameEvent {
+    private String type;      // "MOVE", "PLAYER_JOINED", "DRAW_OFFER", "GAME_OVER", "RESIGN", "TIMEOUT"
+    private String gameId;
+    private Long playerId;    // игрок, который вызвал событие
+    private String notation;  // ход (только для MOVE)
+    private GameResponse game; // состояние игры после события
+}
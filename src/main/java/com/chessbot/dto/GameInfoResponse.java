@@ -12,4 +12,6 @@ public class GameInfoResponse {
     private String gameId;
     private String whitePlayerName;
     private String createdAt;
+    private Integer whitePlayerRating; // может не приходить от API
+    private String timeControl;        // "BLITZ", "RAPID", "CORRESPONDENCE" или null
 }
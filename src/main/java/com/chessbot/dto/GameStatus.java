@@ -0,0 +1,35 @@
+package com.chessbot.dto;
+
+// Статус игры, как его присылает Chess API
+public enum GameStatus {
+    WAITING,
+    ACTIVE,
+    CHECK,
+    CHECKMATE,
+    STALEMATE,
+    DRAW,
+    RESIGNED,
+    TIMEOUT,
+    UNKNOWN;
+
+    public boolean isActive() {
+        return this == ACTIVE || this == CHECK;
+    }
+
+    public boolean isFinished() {
+        return this == CHECKMATE || this == STALEMATE || this == DRAW
+                || this == RESIGNED || this == TIMEOUT;
+    }
+
+    /**
+     * Разбор строки из API, неизвестные значения превращаются в UNKNOWN
+     */
+    public static GameStatus of(String value) {
+        if (value == null) return null;
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+}
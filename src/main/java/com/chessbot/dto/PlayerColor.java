@@ -0,0 +1,23 @@
+package com.chessbot.dto;
+
+// Цвет игрока
+public enum PlayerColor {
+    WHITE,
+    BLACK;
+
+    public PlayerColor opposite() {
+        return this == WHITE ? BLACK : WHITE;
+    }
+
+    /**
+     * Разбор строки из API ("WHITE"/"BLACK", регистр не важен), null если не распознан
+     */
+    public static PlayerColor of(String value) {
+        if (value == null) return null;
+        return switch (value.trim().toUpperCase()) {
+            case "WHITE", "W" -> WHITE;
+            case "BLACK", "B" -> BLACK;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.chessbot.dto;
+
+import java.util.concurrent.TimeUnit;
+
+// Контроль времени партии: запас на партию и добавка за ход
+public enum TimeControl {
+    BLITZ("⚡ Блиц", TimeUnit.MINUTES.toMillis(3), TimeUnit.SECONDS.toMillis(2), false),
+    RAPID("🕐 Рапид", TimeUnit.MINUTES.toMillis(10), TimeUnit.SECONDS.toMillis(5), false),
+    // Заочные шахматы: на каждый ход свой срок, неиспользованное время не копится
+    CORRESPONDENCE("📬 Заочная", TimeUnit.DAYS.toMillis(1), 0, true);
+
+    private final String title;
+    private final long initialMillis;
+    private final long incrementMillis;
+    private final boolean perMove;
+
+    TimeControl(String title, long initialMillis, long incrementMillis, boolean perMove) {
+        this.title = title;
+        this.initialMillis = initialMillis;
+        this.incrementMillis = incrementMillis;
+        this.perMove = perMove;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getInitialMillis() {
+        return initialMillis;
+    }
+
+    public long getIncrementMillis() {
+        return incrementMillis;
+    }
+
+    public boolean isPerMove() {
+        return perMove;
+    }
+
+    /**
+     * Запас времени после сделанного хода
+     */
+    public long afterMove(long remainingMillis) {
+        return perMove ? initialMillis : remainingMillis + incrementMillis;
+    }
+
+    /**
+     * "3+2", "10+5", "1 день/ход"
+     */
+    public String describe() {
+        if (perMove) {
+            return TimeUnit.MILLISECONDS.toDays(initialMillis) + " дн./ход";
+        }
+        return TimeUnit.MILLISECONDS.toMinutes(initialMillis) + "+" + TimeUnit.MILLISECONDS.toSeconds(incrementMillis);
+    }
+
+    /**
+     * Разбор аргумента команды, null если не распознан
+     */
+    public static TimeControl of(String value) {
+        if (value == null) return null;
+        return switch (value.trim().toLowerCase()) {
+            case "blitz", "блиц" -> BLITZ;
+            case "rapid", "рапид" -> RAPID;
+            case "correspondence", "corr", "заочная", "заочно" -> CORRESPONDENCE;
+            default -> null;
+        };
+    }
+}
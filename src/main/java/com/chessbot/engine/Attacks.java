@@ -0,0 +1,95 @@
+package com.chessbot.engine;
+
+/**
+ * ⚔️ Предвычисленные таблицы атак
+ * Прыжковые фигуры — готовые маски, дальнобойные — лучи с отсечением по первому блокеру
+ */
+final class Attacks {
+
+    static final long[] KNIGHT = new long[64];
+    static final long[] KING = new long[64];
+    static final long[][] PAWN = new long[2][64];
+
+    // Направления лучей: первые четыре идут к старшим битам, последние четыре — к младшим
+    private static final int NORTH = 0, EAST = 1, NORTH_EAST = 2, NORTH_WEST = 3;
+    private static final int SOUTH = 4, WEST = 5, SOUTH_EAST = 6, SOUTH_WEST = 7;
+    private static final int[][] DIRECTIONS = {
+            {1, 0}, {0, 1}, {1, 1}, {1, -1},
+            {-1, 0}, {0, -1}, {-1, 1}, {-1, -1}
+    };
+
+    private static final long[][] RAYS = new long[8][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int rank = square >>> 3;
+            int file = square & 7;
+
+            KNIGHT[square] = jumps(rank, file, new int[][]{
+                    {2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}});
+            KING[square] = jumps(rank, file, new int[][]{
+                    {1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}});
+            PAWN[Board.WHITE][square] = jumps(rank, file, new int[][]{{1, -1}, {1, 1}});
+            PAWN[Board.BLACK][square] = jumps(rank, file, new int[][]{{-1, -1}, {-1, 1}});
+
+            for (int dir = 0; dir < 8; dir++) {
+                long ray = 0;
+                int r = rank + DIRECTIONS[dir][0];
+                int f = file + DIRECTIONS[dir][1];
+                while (r >= 0 && r < 8 && f >= 0 && f < 8) {
+                    ray |= 1L << (r * 8 + f);
+                    r += DIRECTIONS[dir][0];
+                    f += DIRECTIONS[dir][1];
+                }
+                RAYS[dir][square] = ray;
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    static long rook(int square, long occupied) {
+        return positiveRay(NORTH, square, occupied) | positiveRay(EAST, square, occupied)
+                | negativeRay(SOUTH, square, occupied) | negativeRay(WEST, square, occupied);
+    }
+
+    static long bishop(int square, long occupied) {
+        return positiveRay(NORTH_EAST, square, occupied) | positiveRay(NORTH_WEST, square, occupied)
+                | negativeRay(SOUTH_EAST, square, occupied) | negativeRay(SOUTH_WEST, square, occupied);
+    }
+
+    static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    private static long positiveRay(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            ray ^= RAYS[dir][Long.numberOfTrailingZeros(blockers)];
+        }
+        return ray;
+    }
+
+    private static long negativeRay(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            ray ^= RAYS[dir][63 - Long.numberOfLeadingZeros(blockers)];
+        }
+        return ray;
+    }
+
+    private static long jumps(int rank, int file, int[][] offsets) {
+        long mask = 0;
+        for (int[] offset : offsets) {
+            int r = rank + offset[0];
+            int f = file + offset[1];
+            if (r >= 0 && r < 8 && f >= 0 && f < 8) {
+                mask |= 1L << (r * 8 + f);
+            }
+        }
+        return mask;
+    }
+}
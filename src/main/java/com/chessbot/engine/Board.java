@@ -0,0 +1,390 @@
+package com.chessbot.engine;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * ♟️ Позиция на битбордах
+ *
+ * Двенадцать битбордов (по одному на каждую фигуру каждого цвета) плюс mailbox
+ * для быстрого ответа "что стоит на клетке". Клетки: a1 = 0, h1 = 7, a8 = 56.
+ * Ходы делаются и отменяются на месте (makeMove / unmakeMove), Zobrist-ключ
+ * обновляется инкрементально.
+ */
+public final class Board {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int EMPTY = -1;
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    static final int CASTLE_WHITE_KING = 1;
+    static final int CASTLE_WHITE_QUEEN = 2;
+    static final int CASTLE_BLACK_KING = 4;
+    static final int CASTLE_BLACK_QUEEN = 8;
+
+    static final String PIECE_CHARS = "PNBRQKpnbrqk";
+
+    // Какие права на рокировку остаются, если с клетки (или на клетку) пошла фигура
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static final long[][] PIECE_KEYS = new long[12][64];
+    static final long[] CASTLING_KEYS = new long[16];
+    static final long[] EP_KEYS = new long[8];
+    static final long SIDE_KEY;
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[4] = 15 & ~(CASTLE_WHITE_KING | CASTLE_WHITE_QUEEN);
+        CASTLING_MASK[7] = 15 & ~CASTLE_WHITE_KING;
+        CASTLING_MASK[0] = 15 & ~CASTLE_WHITE_QUEEN;
+        CASTLING_MASK[60] = 15 & ~(CASTLE_BLACK_KING | CASTLE_BLACK_QUEEN);
+        CASTLING_MASK[63] = 15 & ~CASTLE_BLACK_KING;
+        CASTLING_MASK[56] = 15 & ~CASTLE_BLACK_QUEEN;
+
+        // Фиксированное зерно: ключи одинаковы между запусками (важно для журналов и кэшей)
+        SplittableRandom random = new SplittableRandom(0x5EEDC0DEL);
+        for (long[] keys : PIECE_KEYS) {
+            for (int i = 0; i < 64; i++) keys[i] = random.nextLong();
+        }
+        for (int i = 0; i < 16; i++) CASTLING_KEYS[i] = random.nextLong();
+        for (int i = 0; i < 8; i++) EP_KEYS[i] = random.nextLong();
+        SIDE_KEY = random.nextLong();
+    }
+
+    final long[] pieces = new long[12];
+    final long[] colors = new long[2];
+    long occupied;
+    final int[] squares = new int[64];
+
+    int sideToMove = WHITE;
+    int castling;
+    int epSquare = -1; // ставится, только если взятие на проходе действительно возможно
+    int halfmoveClock;
+    int fullmoveNumber = 1;
+    long key;
+
+    // Стек отмены ходов
+    private int ply;
+    private int[] undoMove = new int[128];
+    private int[] undoCaptured = new int[128];
+    private int[] undoState = new int[128]; // castling | (epSquare + 1) << 4 | halfmoveClock << 11
+    private long[] undoKey = new long[128];
+
+    public Board() {
+        Arrays.fill(squares, EMPTY);
+    }
+
+    public static Board startPosition() {
+        return Fen.parse(START_FEN);
+    }
+
+    public static Board fromFen(String fen) {
+        return Fen.parse(fen);
+    }
+
+    public String toFen() {
+        return Fen.format(this);
+    }
+
+    /**
+     * Полная копия, включая историю (нужна для определения повторений)
+     */
+    public Board copy() {
+        Board copy = new Board();
+        System.arraycopy(pieces, 0, copy.pieces, 0, 12);
+        System.arraycopy(colors, 0, copy.colors, 0, 2);
+        System.arraycopy(squares, 0, copy.squares, 0, 64);
+        copy.occupied = occupied;
+        copy.sideToMove = sideToMove;
+        copy.castling = castling;
+        copy.epSquare = epSquare;
+        copy.halfmoveClock = halfmoveClock;
+        copy.fullmoveNumber = fullmoveNumber;
+        copy.key = key;
+        copy.ply = ply;
+        copy.undoMove = Arrays.copyOf(undoMove, undoMove.length);
+        copy.undoCaptured = Arrays.copyOf(undoCaptured, undoCaptured.length);
+        copy.undoState = Arrays.copyOf(undoState, undoState.length);
+        copy.undoKey = Arrays.copyOf(undoKey, undoKey.length);
+        return copy;
+    }
+
+    // ---------------------------------------------------------------- доступ
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public long key() {
+        return key;
+    }
+
+    public int pieceAt(int square) {
+        return squares[square];
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public static int pieceType(int piece) {
+        return piece % 6;
+    }
+
+    public static int pieceColor(int piece) {
+        return piece / 6;
+    }
+
+    public static int piece(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static char pieceChar(int piece) {
+        return piece == EMPTY ? '.' : PIECE_CHARS.charAt(piece);
+    }
+
+    public int kingSquare(int color) {
+        long king = pieces[color * 6 + KING];
+        return king != 0 ? Long.numberOfTrailingZeros(king) : -1;
+    }
+
+    public boolean inCheck() {
+        int king = kingSquare(sideToMove);
+        return king >= 0 && isSquareAttacked(king, sideToMove ^ 1);
+    }
+
+    public boolean isSquareAttacked(int square, int byColor) {
+        int base = byColor * 6;
+        return (Attacks.PAWN[byColor ^ 1][square] & pieces[base + PAWN]) != 0
+                || (Attacks.KNIGHT[square] & pieces[base + KNIGHT]) != 0
+                || (Attacks.KING[square] & pieces[base + KING]) != 0
+                || (Attacks.bishop(square, occupied) & (pieces[base + BISHOP] | pieces[base + QUEEN])) != 0
+                || (Attacks.rook(square, occupied) & (pieces[base + ROOK] | pieces[base + QUEEN])) != 0;
+    }
+
+    // ---------------------------------------------------------------- ходы
+
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int promotion = Move.promotion(move);
+        int us = sideToMove;
+        int them = us ^ 1;
+        int piece = squares[from];
+        int captured = flag == Move.FLAG_EN_PASSANT ? them * 6 + PAWN : squares[to];
+
+        pushUndo(move, captured);
+
+        key ^= CASTLING_KEYS[castling];
+        if (epSquare >= 0) {
+            key ^= EP_KEYS[epSquare & 7];
+        }
+
+        if (captured != EMPTY) {
+            int captureSquare = flag == Move.FLAG_EN_PASSANT ? (us == WHITE ? to - 8 : to + 8) : to;
+            removePiece(captured, captureSquare);
+            key ^= PIECE_KEYS[captured][captureSquare];
+        }
+
+        removePiece(piece, from);
+        key ^= PIECE_KEYS[piece][from];
+        int placed = promotion != 0 ? us * 6 + promotion : piece;
+        addPiece(placed, to);
+        key ^= PIECE_KEYS[placed][to];
+
+        if (flag == Move.FLAG_CASTLE) {
+            int rook = us * 6 + ROOK;
+            int rookFrom = to > from ? to + 1 : to - 2;
+            int rookTo = to > from ? to - 1 : to + 1;
+            removePiece(rook, rookFrom);
+            addPiece(rook, rookTo);
+            key ^= PIECE_KEYS[rook][rookFrom] ^ PIECE_KEYS[rook][rookTo];
+        }
+
+        castling &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        key ^= CASTLING_KEYS[castling];
+
+        epSquare = -1;
+        if (flag == Move.FLAG_DOUBLE_PUSH) {
+            int ep = (from + to) >>> 1;
+            if ((Attacks.PAWN[us][ep] & pieces[them * 6 + PAWN]) != 0) {
+                epSquare = ep;
+                key ^= EP_KEYS[ep & 7];
+            }
+        }
+
+        halfmoveClock = (pieceType(piece) == PAWN || captured != EMPTY) ? 0 : halfmoveClock + 1;
+        if (us == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove = them;
+        key ^= SIDE_KEY;
+    }
+
+    public void unmakeMove() {
+        ply--;
+        int move = undoMove[ply];
+        int captured = undoCaptured[ply];
+        popState();
+
+        sideToMove ^= 1;
+        int us = sideToMove;
+        if (us == BLACK) {
+            fullmoveNumber--;
+        }
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+
+        int placed = squares[to];
+        removePiece(placed, to);
+        addPiece(Move.isPromotion(move) ? us * 6 + PAWN : placed, from);
+
+        if (flag == Move.FLAG_CASTLE) {
+            int rook = us * 6 + ROOK;
+            int rookFrom = to > from ? to + 1 : to - 2;
+            int rookTo = to > from ? to - 1 : to + 1;
+            removePiece(rook, rookTo);
+            addPiece(rook, rookFrom);
+        }
+
+        if (captured != EMPTY) {
+            int captureSquare = flag == Move.FLAG_EN_PASSANT ? (us == WHITE ? to - 8 : to + 8) : to;
+            addPiece(captured, captureSquare);
+        }
+    }
+
+    /**
+     * Пустой ход (для null-move pruning)
+     */
+    void makeNullMove() {
+        pushUndo(Move.NONE, EMPTY);
+        if (epSquare >= 0) {
+            key ^= EP_KEYS[epSquare & 7];
+            epSquare = -1;
+        }
+        halfmoveClock++;
+        sideToMove ^= 1;
+        key ^= SIDE_KEY;
+    }
+
+    void unmakeNullMove() {
+        ply--;
+        popState();
+        sideToMove ^= 1;
+    }
+
+    // ---------------------------------------------------------------- ничьи
+
+    /**
+     * Позиция уже встречалась (с тем же игроком на ходу) с момента последнего необратимого хода
+     */
+    public boolean isRepetition() {
+        return repetitionCount() >= 1;
+    }
+
+    public int repetitionCount() {
+        int count = 0;
+        int limit = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 2; i >= limit; i -= 2) {
+            if (undoKey[i] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isInsufficientMaterial() {
+        long heavy = pieces[PAWN] | pieces[ROOK] | pieces[QUEEN]
+                | pieces[6 + PAWN] | pieces[6 + ROOK] | pieces[6 + QUEEN];
+        if (heavy != 0) {
+            return false;
+        }
+        long minors = pieces[KNIGHT] | pieces[BISHOP] | pieces[6 + KNIGHT] | pieces[6 + BISHOP];
+        return Long.bitCount(minors) <= 1;
+    }
+
+    /**
+     * Ничья по правилам: 50 ходов, троекратное повторение, недостаточно материала
+     */
+    public boolean isDrawByRule() {
+        return halfmoveClock >= 100 || repetitionCount() >= 2 || isInsufficientMaterial();
+    }
+
+    // ---------------------------------------------------------------- служебное
+
+    void addPiece(int piece, int square) {
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        colors[piece / 6] |= bit;
+        occupied |= bit;
+        squares[square] = piece;
+    }
+
+    void removePiece(int piece, int square) {
+        long bit = ~(1L << square);
+        pieces[piece] &= bit;
+        colors[piece / 6] &= bit;
+        occupied &= bit;
+        squares[square] = EMPTY;
+    }
+
+    /**
+     * Пересчитать Zobrist-ключ с нуля (после разбора FEN)
+     */
+    void recomputeKey() {
+        long k = 0;
+        for (int square = 0; square < 64; square++) {
+            if (squares[square] != EMPTY) {
+                k ^= PIECE_KEYS[squares[square]][square];
+            }
+        }
+        k ^= CASTLING_KEYS[castling];
+        if (epSquare >= 0) {
+            k ^= EP_KEYS[epSquare & 7];
+        }
+        if (sideToMove == BLACK) {
+            k ^= SIDE_KEY;
+        }
+        key = k;
+    }
+
+    private void pushUndo(int move, int captured) {
+        if (ply == undoMove.length) {
+            int capacity = ply * 2;
+            undoMove = Arrays.copyOf(undoMove, capacity);
+            undoCaptured = Arrays.copyOf(undoCaptured, capacity);
+            undoState = Arrays.copyOf(undoState, capacity);
+            undoKey = Arrays.copyOf(undoKey, capacity);
+        }
+        undoMove[ply] = move;
+        undoCaptured[ply] = captured;
+        undoState[ply] = castling | ((epSquare + 1) << 4) | (halfmoveClock << 11);
+        undoKey[ply] = key;
+        ply++;
+    }
+
+    private void popState() {
+        int state = undoState[ply];
+        castling = state & 15;
+        epSquare = ((state >>> 4) & 127) - 1;
+        halfmoveClock = state >>> 11;
+        key = undoKey[ply];
+    }
+}
@@ -0,0 +1,168 @@
+package com.chessbot.engine;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 🤖 Встроенный шахматный движок
+ *
+ * Поиск идет на отдельном ограниченном пуле (по умолчанию ядра - 1), чтобы расчет
+ * не отнимал потоки у обработки апдейтов Telegram. Сильные уровни запускают
+ * несколько потоков на одну позицию (Lazy SMP): все они пишут в общую таблицу
+ * транспозиций, а ход берется у главного.
+ *
+ * Фоновый анализ идет на своем, еще меньшем пуле без очереди: когда все его потоки
+ * заняты, новый анализ сразу отклоняется и не отбирает процессор у партий.
+ */
+@Slf4j
+@Service
+public class EngineService {
+
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final ThreadPoolExecutor pool;
+    private final ThreadPoolExecutor analysisPool;
+    private final TranspositionTable table;
+    private final int threads;
+    private final int analysisThreads;
+
+    public EngineService(@Value("${chess.engine.threads:0}") int configuredThreads,
+                         @Value("${chess.engine.hash-mb:32}") int hashMegabytes,
+                         @Value("${chess.engine.analysis-threads:0}") int configuredAnalysisThreads) {
+        this.threads = configuredThreads > 0
+                ? configuredThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.analysisThreads = configuredAnalysisThreads > 0
+                ? configuredAnalysisThreads
+                : Math.max(1, threads / 2);
+        this.table = new TranspositionTable(hashMegabytes);
+
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                namedThreadFactory("engine-", Thread.NORM_PRIORITY - 1),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+
+        this.analysisPool = new ThreadPoolExecutor(analysisThreads, analysisThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                namedThreadFactory("engine-analysis-", Thread.MIN_PRIORITY),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.analysisPool.allowCoreThreadTimeOut(true);
+
+        log.info("♟️ Движок: {} поток(ов) для партий, {} для анализа, таблица транспозиций {} МБ",
+                threads, analysisThreads, hashMegabytes);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getAnalysisThreads() {
+        return analysisThreads;
+    }
+
+    /**
+     * Запустить поиск по копии позиции (исходную доску можно менять дальше)
+     */
+    public SearchHandle search(Board position, SearchLimits limits) {
+        return search(position, limits, null);
+    }
+
+    public SearchHandle search(Board position, SearchLimits limits, SearchListener listener) {
+        SearchControl control = new SearchControl(limits);
+        CompletableFuture<SearchResult> result = new CompletableFuture<>();
+        Board root = position.copy();
+        int helpers = Math.min(limits.threads(), threads) - 1;
+
+        try {
+            pool.execute(() -> runMain(root, limits, control, helpers, listener, result));
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ Очередь движка переполнена, поиск отклонен");
+            result.completeExceptionally(e);
+        }
+        return new SearchHandle(result, control);
+    }
+
+    /**
+     * Фоновый анализ: один поток на позицию, отдельный пул без очереди.
+     * Если все потоки анализа заняты — RejectedExecutionException сразу, а не ожидание.
+     */
+    public SearchHandle analyze(Board position, SearchLimits limits, SearchListener listener) {
+        SearchControl control = new SearchControl(limits);
+        CompletableFuture<SearchResult> result = new CompletableFuture<>();
+        Board root = position.copy();
+        analysisPool.execute(() -> runMain(root, limits, control, 0, listener, result));
+        return new SearchHandle(result, control);
+    }
+
+    private void runMain(Board root, SearchLimits limits, SearchControl control, int helpers,
+                         SearchListener listener, CompletableFuture<SearchResult> result) {
+        long startNanos = System.nanoTime();
+        control.start();
+        table.nextGeneration();
+
+        List<Searcher> helperSearchers = new ArrayList<>(helpers);
+        for (int i = 0; i < helpers; i++) {
+            Searcher helper = new Searcher(root.copy(), table, control, false);
+            int startDepth = 1 + (i + 1) % 2;
+            try {
+                pool.execute(() -> {
+                    if (!control.isStopped()) {
+                        helper.iterate(limits.maxDepth(), startDepth, startNanos);
+                    }
+                });
+                helperSearchers.add(helper);
+            } catch (RejectedExecutionException e) {
+                // Пул занят другими партиями — считаем в меньшее число потоков
+                break;
+            }
+        }
+
+        try {
+            Searcher main = new Searcher(root, table, control, true, listener);
+            SearchResult found = main.iterate(limits.maxDepth(), 1, startNanos);
+            control.stop();
+
+            long nodes = found.nodes();
+            for (Searcher helper : helperSearchers) {
+                nodes += helper.nodes();
+            }
+            result.complete(new SearchResult(found.bestMove(), found.score(), found.depth(), nodes,
+                    found.timeMillis(), found.pv()));
+        } catch (Exception e) {
+            control.stop();
+            log.error("❌ Ошибка поиска: {}", e.getMessage(), e);
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix, int priority) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            // Поиск — фоновая работа, ответы пользователям важнее
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+        analysisPool.shutdownNow();
+    }
+}
@@ -0,0 +1,127 @@
+package com.chessbot.engine;
+
+/**
+ * ⚖️ Статическая оценка позиции
+ *
+ * Материал + таблицы "фигура-клетка" (упрощенная схема Михневского).
+ * Для короля две таблицы — миддлшпиль и эндшпиль, между ними плавный переход
+ * по количеству оставшихся фигур. Оценка в сантипешках со стороны того, кто ходит.
+ */
+public final class Evaluator {
+
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    private static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+    private static final int MAX_PHASE = 24;
+
+    // Таблицы записаны "как доска видна белым": первая строка — восьмая горизонталь
+    private static final int[] PAWN_TABLE = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0
+    };
+    private static final int[] KNIGHT_TABLE = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] BISHOP_TABLE = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] ROOK_TABLE = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0
+    };
+    private static final int[] QUEEN_TABLE = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20
+    };
+    private static final int[] KING_MIDDLE_TABLE = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20
+    };
+    private static final int[] KING_END_TABLE = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    private static final int[][] TABLES = {
+            PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_MIDDLE_TABLE
+    };
+
+    private Evaluator() {
+    }
+
+    public static int evaluate(Board board) {
+        int middle = 0;
+        int end = 0;
+        int phase = 0;
+
+        for (int piece = 0; piece < 12; piece++) {
+            int type = Board.pieceType(piece);
+            int color = Board.pieceColor(piece);
+            int sign = color == Board.WHITE ? 1 : -1;
+            long bits = board.pieces[piece];
+            while (bits != 0) {
+                int square = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                // Белым нужна зеркальная клетка: в таблице первая строка — восьмая горизонталь
+                int index = color == Board.WHITE ? square ^ 56 : square;
+                phase += PHASE_WEIGHTS[type];
+                if (type == Board.KING) {
+                    middle += sign * KING_MIDDLE_TABLE[index];
+                    end += sign * KING_END_TABLE[index];
+                } else {
+                    int value = PIECE_VALUES[type] + TABLES[type][index];
+                    middle += sign * value;
+                    end += sign * value;
+                }
+            }
+        }
+
+        phase = Math.min(phase, MAX_PHASE);
+        int score = (middle * phase + end * (MAX_PHASE - phase)) / MAX_PHASE;
+        return board.sideToMove == Board.WHITE ? score : -score;
+    }
+}
@@ -0,0 +1,150 @@
+package com.chessbot.engine;
+
+/**
+ * 📋 Разбор и запись FEN
+ *
+ * Принимает и урезанные строки, которые отдает API (только расстановка или
+ * расстановка + очередь хода): недостающие поля дополняются, права на рокировку
+ * выводятся из положения королей и ладей.
+ */
+final class Fen {
+
+    private Fen() {
+    }
+
+    static Board parse(String fen) {
+        if (fen == null || fen.isBlank()) {
+            throw new IllegalArgumentException("Пустой FEN");
+        }
+        String[] fields = fen.trim().split("\\s+");
+        Board board = new Board();
+
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int piece = Board.PIECE_CHARS.indexOf(c);
+                if (piece < 0 || rank < 0 || file > 7) {
+                    throw new IllegalArgumentException("Некорректный FEN: " + fen);
+                }
+                board.addPiece(piece, rank * 8 + file);
+                file++;
+            }
+        }
+        if (rank != 0 || Long.bitCount(board.pieces[Board.KING]) != 1
+                || Long.bitCount(board.pieces[6 + Board.KING]) != 1) {
+            throw new IllegalArgumentException("Некорректный FEN: " + fen);
+        }
+
+        board.sideToMove = fields.length > 1 && fields[1].equalsIgnoreCase("b") ? Board.BLACK : Board.WHITE;
+        // Шах стороне, которая не ходит, — недостижимая позиция: поиск первым ходом взял бы короля
+        if (board.isSquareAttacked(board.kingSquare(board.sideToMove ^ 1), board.sideToMove)) {
+            throw new IllegalArgumentException("Король стороны, которая не ходит, под шахом: " + fen);
+        }
+        board.castling = fields.length > 2 ? parseCastling(fields[2]) : 15;
+        board.castling &= possibleCastling(board);
+
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            int ep = Move.parseSquare(fields[3], 0);
+            int us = board.sideToMove;
+            // Оставляем только реально возможное взятие, чтобы ключ совпадал с ключом после двойного хода
+            if (ep >= 0 && (Attacks.PAWN[us ^ 1][ep] & board.pieces[us * 6 + Board.PAWN]) != 0) {
+                board.epSquare = ep;
+            }
+        }
+        board.halfmoveClock = fields.length > 4 ? parseInt(fields[4], 0) : 0;
+        board.fullmoveNumber = fields.length > 5 ? Math.max(1, parseInt(fields[5], 1)) : 1;
+        board.recomputeKey();
+        return board;
+    }
+
+    static String format(Board board) {
+        StringBuilder sb = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = board.squares[rank * 8 + file];
+                if (piece == Board.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(Board.pieceChar(piece));
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (rank > 0) {
+                sb.append('/');
+            }
+        }
+
+        sb.append(board.sideToMove == Board.WHITE ? " w " : " b ");
+        if (board.castling == 0) {
+            sb.append('-');
+        } else {
+            if ((board.castling & Board.CASTLE_WHITE_KING) != 0) sb.append('K');
+            if ((board.castling & Board.CASTLE_WHITE_QUEEN) != 0) sb.append('Q');
+            if ((board.castling & Board.CASTLE_BLACK_KING) != 0) sb.append('k');
+            if ((board.castling & Board.CASTLE_BLACK_QUEEN) != 0) sb.append('q');
+        }
+        sb.append(' ');
+        if (board.epSquare >= 0) {
+            Move.appendSquare(board.epSquare, sb);
+        } else {
+            sb.append('-');
+        }
+        sb.append(' ').append(board.halfmoveClock).append(' ').append(board.fullmoveNumber);
+        return sb.toString();
+    }
+
+    private static int parseCastling(String field) {
+        int rights = 0;
+        for (int i = 0; i < field.length(); i++) {
+            switch (field.charAt(i)) {
+                case 'K' -> rights |= Board.CASTLE_WHITE_KING;
+                case 'Q' -> rights |= Board.CASTLE_WHITE_QUEEN;
+                case 'k' -> rights |= Board.CASTLE_BLACK_KING;
+                case 'q' -> rights |= Board.CASTLE_BLACK_QUEEN;
+                default -> {
+                }
+            }
+        }
+        return rights;
+    }
+
+    // Права, совместимые с расстановкой: король и ладья должны стоять на исходных полях
+    private static int possibleCastling(Board board) {
+        int rights = 0;
+        int whiteKing = Board.piece(Board.WHITE, Board.KING);
+        int whiteRook = Board.piece(Board.WHITE, Board.ROOK);
+        int blackKing = Board.piece(Board.BLACK, Board.KING);
+        int blackRook = Board.piece(Board.BLACK, Board.ROOK);
+        if (board.squares[4] == whiteKing) {
+            if (board.squares[7] == whiteRook) rights |= Board.CASTLE_WHITE_KING;
+            if (board.squares[0] == whiteRook) rights |= Board.CASTLE_WHITE_QUEEN;
+        }
+        if (board.squares[60] == blackKing) {
+            if (board.squares[63] == blackRook) rights |= Board.CASTLE_BLACK_KING;
+            if (board.squares[56] == blackRook) rights |= Board.CASTLE_BLACK_QUEEN;
+        }
+        return rights;
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.chessbot.engine;
+
+/**
+ * ♟️ Кодирование хода в int
+ * <pre>
+ * биты 0-5   — клетка "откуда" (a1 = 0, h8 = 63)
+ * биты 6-11  — клетка "куда"
+ * биты 12-14 — фигура превращения (Board.KNIGHT..Board.QUEEN, 0 — нет)
+ * биты 15-16 — флаг: обычный, двойной ход пешки, взятие на проходе, рокировка
+ * </pre>
+ * Для хранения истории ход сжимается до 16 бит (compact): остаются "откуда", "куда"
+ * и превращение, а флаг восстанавливается по позиции (MoveGenerator.findLegal).
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int FLAG_NORMAL = 0;
+    public static final int FLAG_DOUBLE_PUSH = 1;
+    public static final int FLAG_EN_PASSANT = 2;
+    public static final int FLAG_CASTLE = 3;
+
+    public static final int COMPACT_MASK = 0x7FFF;
+
+    private static final char[] PROMOTION_CHARS = {' ', 'n', 'b', 'r', 'q'};
+
+    private Move() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, int flag, int promotion) {
+        return from | (to << 6) | (promotion << 12) | (flag << 15);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 15) & 3;
+    }
+
+    public static boolean isPromotion(int move) {
+        return promotion(move) != 0;
+    }
+
+    /**
+     * 16-битная форма хода: биты 0-14 без флага
+     */
+    public static short compact(int move) {
+        return (short) (move & COMPACT_MASK);
+    }
+
+    /**
+     * Ход в координатной нотации ("e2e4", "e2-e4", "e7e8q", "e7-e8=Q") в 16-битной форме
+     * без позиции; -1, если текст не координатный
+     */
+    public static int parseCompact(CharSequence text) {
+        int from = parseSquare(text, 0);
+        if (from < 0) {
+            return -1;
+        }
+        int i = 2;
+        while (i < text.length() && (text.charAt(i) == '-' || text.charAt(i) == 'x')) {
+            i++;
+        }
+        int to = parseSquare(text, i);
+        if (to < 0) {
+            return -1;
+        }
+        i += 2;
+        if (i < text.length() && text.charAt(i) == '=') {
+            i++;
+        }
+        int promotion = 0;
+        if (i < text.length()) {
+            promotion = switch (Character.toLowerCase(text.charAt(i))) {
+                case 'n' -> Board.KNIGHT;
+                case 'b' -> Board.BISHOP;
+                case 'r' -> Board.ROOK;
+                case 'q' -> Board.QUEEN;
+                default -> 0;
+            };
+        }
+        return of(from, to, FLAG_NORMAL, promotion);
+    }
+
+    /**
+     * Записать ход в координатной нотации (e2e4, e7e8q) без создания строк
+     */
+    public static void appendUci(int move, StringBuilder out) {
+        appendSquare(from(move), out);
+        appendSquare(to(move), out);
+        if (isPromotion(move)) {
+            out.append(PROMOTION_CHARS[promotion(move)]);
+        }
+    }
+
+    public static String toUci(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendUci(move, sb);
+        return sb.toString();
+    }
+
+    public static void appendSquare(int square, StringBuilder out) {
+        out.append((char) ('a' + (square & 7))).append((char) ('1' + (square >>> 3)));
+    }
+
+    public static String squareName(int square) {
+        StringBuilder sb = new StringBuilder(2);
+        appendSquare(square, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Индекс клетки по имени ("e4" -> 28), -1 если имя некорректно
+     */
+    public static int parseSquare(CharSequence text, int offset) {
+        if (text.length() < offset + 2) return -1;
+        char file = Character.toLowerCase(text.charAt(offset));
+        char rank = text.charAt(offset + 1);
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') return -1;
+        return (rank - '1') * 8 + (file - 'a');
+    }
+}
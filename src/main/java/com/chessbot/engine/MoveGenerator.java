@@ -0,0 +1,197 @@
+package com.chessbot.engine;
+
+/**
+ * 🧭 Генератор ходов
+ *
+ * Сначала строятся псевдолегальные ходы (без проверки, остается ли король под шахом),
+ * затем легальность проверяется сделать-отменить. Для поиска этого достаточно:
+ * большая часть псевдолегальных ходов отсекается раньше, чем до них дойдет очередь.
+ */
+public final class MoveGenerator {
+
+    private static final int[] PROMOTIONS = {Board.QUEEN, Board.KNIGHT, Board.ROOK, Board.BISHOP};
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Все легальные ходы позиции
+     */
+    public static void generateLegal(Board board, MoveList list) {
+        generate(board, list, false);
+        int kept = 0;
+        for (int i = 0; i < list.size; i++) {
+            int move = list.moves[i];
+            if (isLegal(board, move)) {
+                list.moves[kept++] = move;
+            }
+        }
+        list.size = kept;
+    }
+
+    public static MoveList legalMoves(Board board) {
+        MoveList list = new MoveList();
+        generateLegal(board, list);
+        return list;
+    }
+
+    /**
+     * Легальный ход позиции по 16-битной форме (Move.compact); Move.NONE, если такого нет.
+     * Превращение без указанной фигуры (ход записан как "e7-e8") считается превращением в ферзя.
+     */
+    public static int findLegal(Board board, int compact) {
+        MoveList legal = legalMoves(board);
+        int wanted = compact & Move.COMPACT_MASK;
+        int queening = wanted | (Board.QUEEN << 12);
+        for (int i = 0; i < legal.size; i++) {
+            int candidate = legal.moves[i] & Move.COMPACT_MASK;
+            if (candidate == wanted || (!Move.isPromotion(wanted) && candidate == queening)) {
+                return legal.moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    public static boolean hasLegalMove(Board board) {
+        MoveList list = new MoveList();
+        generate(board, list, false);
+        for (int i = 0; i < list.size; i++) {
+            if (isLegal(board, list.moves[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Псевдолегальный ход не оставляет своего короля под боем
+     */
+    public static boolean isLegal(Board board, int move) {
+        int us = board.sideToMove;
+        board.makeMove(move);
+        int king = board.kingSquare(us);
+        boolean legal = king < 0 || !board.isSquareAttacked(king, us ^ 1);
+        board.unmakeMove();
+        return legal;
+    }
+
+    /**
+     * Псевдолегальные ходы; capturesOnly — только взятия и превращения (для quiescence)
+     */
+    public static void generate(Board board, MoveList list, boolean capturesOnly) {
+        list.size = 0;
+        int us = board.sideToMove;
+        int them = us ^ 1;
+        long own = board.colors[us];
+        long enemy = board.colors[them];
+        long targets = capturesOnly ? enemy : ~own;
+
+        generatePawnMoves(board, list, us, enemy, capturesOnly);
+
+        long knights = board.pieces[us * 6 + Board.KNIGHT];
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            addAll(list, from, Attacks.KNIGHT[from] & targets);
+        }
+
+        long diagonal = board.pieces[us * 6 + Board.BISHOP] | board.pieces[us * 6 + Board.QUEEN];
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            diagonal &= diagonal - 1;
+            addAll(list, from, Attacks.bishop(from, board.occupied) & targets);
+        }
+
+        long straight = board.pieces[us * 6 + Board.ROOK] | board.pieces[us * 6 + Board.QUEEN];
+        while (straight != 0) {
+            int from = Long.numberOfTrailingZeros(straight);
+            straight &= straight - 1;
+            addAll(list, from, Attacks.rook(from, board.occupied) & targets);
+        }
+
+        int king = board.kingSquare(us);
+        if (king >= 0) {
+            addAll(list, king, Attacks.KING[king] & targets);
+            if (!capturesOnly) {
+                generateCastling(board, list, us, king);
+            }
+        }
+    }
+
+    private static void generatePawnMoves(Board board, MoveList list, int us, long enemy, boolean capturesOnly) {
+        long pawns = board.pieces[us * 6 + Board.PAWN];
+        int forward = us == Board.WHITE ? 8 : -8;
+        int startRank = us == Board.WHITE ? 1 : 6;
+        int lastRank = us == Board.WHITE ? 7 : 0;
+
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+
+            int to = from + forward;
+            if (board.squares[to] == Board.EMPTY) {
+                if ((to >>> 3) == lastRank) {
+                    addPromotions(list, from, to);
+                } else if (!capturesOnly) {
+                    list.add(Move.of(from, to));
+                    int jump = to + forward;
+                    if ((from >>> 3) == startRank && board.squares[jump] == Board.EMPTY) {
+                        list.add(Move.of(from, jump, Move.FLAG_DOUBLE_PUSH, 0));
+                    }
+                }
+            }
+
+            long captures = Attacks.PAWN[us][from] & enemy;
+            while (captures != 0) {
+                int target = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                if ((target >>> 3) == lastRank) {
+                    addPromotions(list, from, target);
+                } else {
+                    list.add(Move.of(from, target));
+                }
+            }
+
+            if (board.epSquare >= 0 && (Attacks.PAWN[us][from] & (1L << board.epSquare)) != 0) {
+                list.add(Move.of(from, board.epSquare, Move.FLAG_EN_PASSANT, 0));
+            }
+        }
+    }
+
+    private static void generateCastling(Board board, MoveList list, int us, int king) {
+        int rights = board.castling;
+        int them = us ^ 1;
+        if (us == Board.WHITE) {
+            if ((rights & Board.CASTLE_WHITE_KING) != 0 && (board.occupied & 0x60L) == 0
+                    && !board.isSquareAttacked(4, them) && !board.isSquareAttacked(5, them)) {
+                list.add(Move.of(king, 6, Move.FLAG_CASTLE, 0));
+            }
+            if ((rights & Board.CASTLE_WHITE_QUEEN) != 0 && (board.occupied & 0x0EL) == 0
+                    && !board.isSquareAttacked(4, them) && !board.isSquareAttacked(3, them)) {
+                list.add(Move.of(king, 2, Move.FLAG_CASTLE, 0));
+            }
+        } else {
+            if ((rights & Board.CASTLE_BLACK_KING) != 0 && (board.occupied & (0x60L << 56)) == 0
+                    && !board.isSquareAttacked(60, them) && !board.isSquareAttacked(61, them)) {
+                list.add(Move.of(king, 62, Move.FLAG_CASTLE, 0));
+            }
+            if ((rights & Board.CASTLE_BLACK_QUEEN) != 0 && (board.occupied & (0x0EL << 56)) == 0
+                    && !board.isSquareAttacked(60, them) && !board.isSquareAttacked(59, them)) {
+                list.add(Move.of(king, 58, Move.FLAG_CASTLE, 0));
+            }
+        }
+    }
+
+    private static void addPromotions(MoveList list, int from, int to) {
+        for (int promotion : PROMOTIONS) {
+            list.add(Move.of(from, to, Move.FLAG_NORMAL, promotion));
+        }
+    }
+
+    private static void addAll(MoveList list, int from, long targets) {
+        while (targets != 0) {
+            list.add(Move.of(from, Long.numberOfTrailingZeros(targets)));
+            targets &= targets - 1;
+        }
+    }
+}
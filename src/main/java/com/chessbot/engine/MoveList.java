@@ -0,0 +1,68 @@
+package com.chessbot.engine;
+
+import java.util.Arrays;
+
+/**
+ * 📃 Список ходов на примитивном массиве
+ * Переиспользуется между вызовами генератора, чтобы поиск не выделял память на каждом узле
+ */
+public final class MoveList {
+
+    final int[] moves = new int[256];
+    final int[] scores = new int[256];
+    int size;
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    void add(int move) {
+        moves[size++] = move;
+    }
+
+    /**
+     * Поднять на позицию index ход с наибольшей оценкой (ленивая сортировка выбором)
+     */
+    int pickBest(int index) {
+        int best = index;
+        for (int i = index + 1; i < size; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = moves[index];
+            moves[index] = moves[best];
+            moves[best] = move;
+            int score = scores[index];
+            scores[index] = scores[best];
+            scores[best] = score;
+        }
+        return moves[index];
+    }
+}
@@ -0,0 +1,230 @@
+package com.chessbot.engine;
+
+/**
+ * ✍️ Запись и разбор ходов
+ *
+ * SAN (Nf3, exd5, O-O, e8=Q+) и координатная форма, которую понимает бот
+ * ("e2e4", "e2-e4", "e7e8q", "e7e8=Q"). Разбор всегда сверяется со списком
+ * легальных ходов, поэтому возвращает только ход, который можно сделать.
+ */
+public final class Notation {
+
+    private static final String PIECE_LETTERS = " NBRQK";
+
+    private Notation() {
+    }
+
+    /**
+     * Записать ход в SAN (ход должен быть легальным в этой позиции)
+     */
+    public static void appendSan(Board board, int move, StringBuilder out) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = board.squares[from];
+        int type = Board.pieceType(piece);
+
+        if (Move.flag(move) == Move.FLAG_CASTLE) {
+            out.append(to > from ? "O-O" : "O-O-O");
+        } else {
+            boolean capture = board.squares[to] != Board.EMPTY || Move.flag(move) == Move.FLAG_EN_PASSANT;
+            if (type == Board.PAWN) {
+                if (capture) {
+                    out.append((char) ('a' + (from & 7)));
+                }
+            } else {
+                out.append(PIECE_LETTERS.charAt(type));
+                appendDisambiguation(board, move, type, out);
+            }
+            if (capture) {
+                out.append('x');
+            }
+            Move.appendSquare(to, out);
+            if (Move.isPromotion(move)) {
+                out.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move)));
+            }
+        }
+
+        board.makeMove(move);
+        if (board.inCheck()) {
+            out.append(MoveGenerator.hasLegalMove(board) ? '+' : '#');
+        }
+        board.unmakeMove();
+    }
+
+    public static String toSan(Board board, int move) {
+        StringBuilder sb = new StringBuilder(8);
+        appendSan(board, move, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Найти легальный ход по тексту пользователя; Move.NONE — ход не распознан или невозможен
+     */
+    public static int parseMove(Board board, String text) {
+        if (text == null) {
+            return Move.NONE;
+        }
+        String s = text.trim();
+        while (!s.isEmpty() && "+#!?".indexOf(s.charAt(s.length() - 1)) >= 0) {
+            s = s.substring(0, s.length() - 1);
+        }
+        if (s.isEmpty()) {
+            return Move.NONE;
+        }
+
+        MoveList legal = MoveGenerator.legalMoves(board);
+        int coordinate = parseCoordinate(legal, s);
+        if (coordinate != Move.NONE) {
+            return coordinate;
+        }
+        return parseSan(board, legal, s);
+    }
+
+    private static int parseCoordinate(MoveList legal, String s) {
+        int from = Move.parseSquare(s, 0);
+        if (from < 0) {
+            return Move.NONE;
+        }
+        int i = 2;
+        while (i < s.length() && (s.charAt(i) == '-' || s.charAt(i) == ' ' || s.charAt(i) == 'x')) {
+            i++;
+        }
+        int to = Move.parseSquare(s, i);
+        if (to < 0) {
+            return Move.NONE;
+        }
+        i += 2;
+        if (i < s.length() && s.charAt(i) == '=') {
+            i++;
+        }
+        int promotion = i < s.length() ? promotionType(s.charAt(i)) : 0;
+        return findUnique(legal, from, to, promotion);
+    }
+
+    private static int findUnique(MoveList legal, int from, int to, int promotion) {
+        for (int i = 0; i < legal.size; i++) {
+            int move = legal.moves[i];
+            if (Move.from(move) != from || Move.to(move) != to) {
+                continue;
+            }
+            // Без явной фигуры превращения подразумеваем ферзя
+            int wanted = Move.isPromotion(move) && promotion == 0 ? Board.QUEEN : promotion;
+            if (Move.promotion(move) == wanted) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    private static int parseSan(Board board, MoveList legal, String s) {
+        String san = s.replace('0', 'O');
+        if (san.equals("O-O") || san.equals("O-O-O")) {
+            boolean kingSide = san.length() == 3;
+            for (int i = 0; i < legal.size; i++) {
+                int move = legal.moves[i];
+                if (Move.flag(move) == Move.FLAG_CASTLE && (Move.to(move) > Move.from(move)) == kingSide) {
+                    return move;
+                }
+            }
+            return Move.NONE;
+        }
+
+        int promotion = 0;
+        int eq = s.indexOf('=');
+        if (eq >= 0) {
+            promotion = eq + 1 < s.length() ? promotionType(s.charAt(eq + 1)) : 0;
+            s = s.substring(0, eq);
+        } else if (s.length() > 2 && Character.isLetter(s.charAt(s.length() - 1))
+                && Character.isDigit(s.charAt(s.length() - 2))) {
+            promotion = promotionType(s.charAt(s.length() - 1));
+            s = s.substring(0, s.length() - 1);
+        }
+
+        int type = Board.PAWN;
+        int letter = s.isEmpty() ? -1 : PIECE_LETTERS.indexOf(s.charAt(0));
+        if (letter > 0) {
+            type = letter;
+            s = s.substring(1);
+        }
+        s = s.replace("x", "").replace("-", "").replace(":", "");
+        if (s.length() < 2) {
+            return Move.NONE;
+        }
+        int to = Move.parseSquare(s, s.length() - 2);
+        if (to < 0) {
+            return Move.NONE;
+        }
+        String hint = s.substring(0, s.length() - 2);
+
+        int found = Move.NONE;
+        for (int i = 0; i < legal.size; i++) {
+            int move = legal.moves[i];
+            int from = Move.from(move);
+            if (Move.to(move) != to || Board.pieceType(board.squares[from]) != type) {
+                continue;
+            }
+            int wanted = Move.isPromotion(move) && promotion == 0 ? Board.QUEEN : promotion;
+            if (Move.promotion(move) != wanted || !matchesHint(from, hint)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                return Move.NONE; // неоднозначно
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    private static boolean matchesHint(int from, String hint) {
+        for (int i = 0; i < hint.length(); i++) {
+            char c = hint.charAt(i);
+            if (c >= 'a' && c <= 'h' && (from & 7) != c - 'a') {
+                return false;
+            }
+            if (c >= '1' && c <= '8' && (from >>> 3) != c - '1') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendDisambiguation(Board board, int move, int type, StringBuilder out) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        MoveList legal = MoveGenerator.legalMoves(board);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < legal.size; i++) {
+            int other = legal.moves[i];
+            int otherFrom = Move.from(other);
+            if (otherFrom == from || Move.to(other) != to
+                    || Board.pieceType(board.squares[otherFrom]) != type) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= (otherFrom & 7) == (from & 7);
+            sameRank |= (otherFrom >>> 3) == (from >>> 3);
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            out.append((char) ('a' + (from & 7)));
+        } else if (!sameRank) {
+            out.append((char) ('1' + (from >>> 3)));
+        } else {
+            Move.appendSquare(from, out);
+        }
+    }
+
+    private static int promotionType(char c) {
+        return switch (Character.toLowerCase(c)) {
+            case 'q' -> Board.QUEEN;
+            case 'r' -> Board.ROOK;
+            case 'b' -> Board.BISHOP;
+            case 'n' -> Board.KNIGHT;
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.chessbot.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 🧮 Perft — подсчет узлов дерева ходов до заданной глубины
+ *
+ * Эталон корректности генератора: для стандартных позиций числа известны точно,
+ * любая ошибка в рокировке, взятии на проходе или превращении меняет счет.
+ * Последний уровень считается "оптом" (размер списка легальных ходов).
+ */
+public final class Perft {
+
+    private Perft() {
+    }
+
+    public static long count(Board board, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return count(board, depth, lists);
+    }
+
+    private static long count(Board board, int depth, MoveList[] lists) {
+        MoveList list = lists[depth];
+        MoveGenerator.generateLegal(board, list);
+        if (depth == 1) {
+            return list.size;
+        }
+        long nodes = 0;
+        for (int i = 0; i < list.size; i++) {
+            board.makeMove(list.moves[i]);
+            nodes += count(board, depth - 1, lists);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Тот же подсчет, но ходы корня раздаются по потокам (у каждого своя копия доски)
+     */
+    public static long countParallel(Board board, int depth, int threads) {
+        if (depth <= 1 || threads <= 1) {
+            return count(board, depth);
+        }
+        MoveList root = MoveGenerator.legalMoves(board);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "perft");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> parts = new ArrayList<>(root.size);
+            for (int i = 0; i < root.size; i++) {
+                int move = root.moves[i];
+                parts.add(pool.submit(() -> {
+                    Board copy = board.copy();
+                    copy.makeMove(move);
+                    return count(copy, depth - 1);
+                }));
+            }
+            long nodes = 0;
+            for (Future<Long> part : parts) {
+                nodes += part.get();
+            }
+            return nodes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("perft interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("perft failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Разбивка по ходам корня — для поиска расхождения с эталонным движком
+     */
+    public static Map<String, Long> divide(Board board, int depth) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        MoveList root = MoveGenerator.legalMoves(board);
+        for (int i = 0; i < root.size; i++) {
+            int move = root.moves[i];
+            board.makeMove(move);
+            result.put(Move.toUci(move), count(board, depth - 1));
+            board.unmakeMove();
+        }
+        return result;
+    }
+}
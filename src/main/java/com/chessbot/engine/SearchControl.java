@@ -0,0 +1,44 @@
+package com.chessbot.engine;
+
+/**
+ * 🚦 Общий для всех потоков одного поиска флаг остановки и бюджет времени/узлов
+ */
+final class SearchControl {
+
+    private final long timeMillis;
+    private final long maxNodes;
+    private volatile long deadlineNanos = Long.MAX_VALUE;
+    private volatile boolean stopped;
+
+    SearchControl(SearchLimits limits) {
+        this.timeMillis = limits.timeMillis();
+        this.maxNodes = limits.maxNodes();
+    }
+
+    /**
+     * Часы запускаются, когда поиск реально начался, а не когда задача встала в очередь
+     */
+    void start() {
+        if (timeMillis > 0) {
+            deadlineNanos = System.nanoTime() + timeMillis * 1_000_000L;
+        }
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Проверка раз в несколько тысяч узлов: System.nanoTime не бесплатный
+     */
+    boolean check(long nodes) {
+        if (!stopped && ((maxNodes > 0 && nodes >= maxNodes) || System.nanoTime() >= deadlineNanos)) {
+            stopped = true;
+        }
+        return stopped;
+    }
+}
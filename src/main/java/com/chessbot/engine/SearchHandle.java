@@ -0,0 +1,30 @@
+package com.chessbot.engine;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 🎛️ Запущенный поиск: результат и возможность остановить его досрочно
+ * После stop() результат все равно придет — с последней завершенной глубины
+ */
+public final class SearchHandle {
+
+    private final CompletableFuture<SearchResult> result;
+    private final SearchControl control;
+
+    SearchHandle(CompletableFuture<SearchResult> result, SearchControl control) {
+        this.result = result;
+        this.control = control;
+    }
+
+    public CompletableFuture<SearchResult> result() {
+        return result;
+    }
+
+    public void stop() {
+        control.stop();
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+}
@@ -0,0 +1,38 @@
+package com.chessbot.engine;
+
+/**
+ * ⏱️ Ограничения поиска: время, глубина, узлы и число потоков
+ */
+public record SearchLimits(long timeMillis, int maxDepth, long maxNodes, int threads) {
+
+    public static final int MIN_LEVEL = 1;
+    public static final int MAX_LEVEL = 8;
+    public static final int DEFAULT_LEVEL = 3;
+
+    public SearchLimits {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth must be positive");
+        }
+        threads = Math.max(1, threads);
+    }
+
+    /**
+     * Уровень бота 1-8: слабые уровни режутся по глубине и узлам, сильные думают дольше и в несколько потоков
+     */
+    public static SearchLimits forLevel(int level) {
+        return switch (Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, level))) {
+            case 1 -> new SearchLimits(100, 1, 2_000, 1);
+            case 2 -> new SearchLimits(200, 2, 10_000, 1);
+            case 3 -> new SearchLimits(300, 3, 50_000, 1);
+            case 4 -> new SearchLimits(500, 4, 200_000, 1);
+            case 5 -> new SearchLimits(1_000, 6, 0, 1);
+            case 6 -> new SearchLimits(2_000, 8, 0, 2);
+            case 7 -> new SearchLimits(3_000, 16, 0, 4);
+            default -> new SearchLimits(5_000, Searcher.MAX_PLY - 1, 0, Integer.MAX_VALUE);
+        };
+    }
+
+    public static SearchLimits forTime(long timeMillis, int threads) {
+        return new SearchLimits(timeMillis, Searcher.MAX_PLY - 1, 0, threads);
+    }
+}
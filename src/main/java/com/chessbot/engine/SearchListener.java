@@ -0,0 +1,11 @@
+package com.chessbot.engine;
+
+/**
+ * 📈 Слушатель промежуточных результатов: вызывается после каждой завершенной глубины
+ * Вызов идет из потока поиска, поэтому обработчик должен быть быстрым и не блокироваться
+ */
+@FunctionalInterface
+public interface SearchListener {
+
+    void onIteration(SearchResult result);
+}
@@ -0,0 +1,35 @@
+package com.chessbot.engine;
+
+/**
+ * 🏁 Итог поиска (последняя полностью просчитанная итерация)
+ *
+ * @param bestMove лучший ход или Move.NONE, если ходов нет
+ * @param score    оценка в сантипешках со стороны того, кто ходит
+ * @param pv       главный вариант, начиная с bestMove
+ */
+public record SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] pv) {
+
+    public boolean hasMove() {
+        return bestMove != Move.NONE;
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Searcher.MATE - Searcher.MAX_PLY;
+    }
+
+    /**
+     * Мат в N ходов (положительно — ставим мы, отрицательно — нам), 0 если не мат
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Searcher.MATE - Math.abs(score);
+        int moves = (plies + 1) / 2;
+        return score > 0 ? moves : -moves;
+    }
+
+    public long nodesPerSecond() {
+        return timeMillis > 0 ? nodes * 1000 / timeMillis : nodes;
+    }
+}
@@ -0,0 +1,310 @@
+package com.chessbot.engine;
+
+import java.util.Arrays;
+
+/**
+ * 🔍 Поиск лучшего хода
+ *
+ * Negamax с альфа-бета отсечением в варианте PVS, итеративное углубление,
+ * quiescence по взятиям, null-move и сокращение поздних тихих ходов (LMR).
+ * Порядок ходов: ход из таблицы транспозиций, взятия (MVV-LVA), killer-ходы, history.
+ * Один экземпляр — один поток; несколько экземпляров делят TranspositionTable (Lazy SMP).
+ */
+final class Searcher {
+
+    static final int INFINITY = 32000;
+    static final int MATE = 31000;
+    static final int MAX_PLY = 128;
+
+    private static final int CHECK_INTERVAL = 2048;
+    private static final int NULL_MOVE_REDUCTION = 2;
+
+    private final Board board;
+    private final TranspositionTable table;
+    private final SearchControl control;
+    private final boolean main;
+    private final SearchListener listener;
+
+    private final MoveList[] lists = new MoveList[MAX_PLY];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[12][64];
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+
+    private long nodes;
+
+    Searcher(Board board, TranspositionTable table, SearchControl control, boolean main) {
+        this(board, table, control, main, null);
+    }
+
+    Searcher(Board board, TranspositionTable table, SearchControl control, boolean main, SearchListener listener) {
+        this.board = board;
+        this.table = table;
+        this.control = control;
+        this.main = main;
+        this.listener = listener;
+        for (int i = 0; i < MAX_PLY; i++) {
+            lists[i] = new MoveList();
+        }
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Итеративное углубление; startDepth > 1 у вспомогательных потоков разводит их по глубинам
+     */
+    SearchResult iterate(int maxDepth, int startDepth, long startNanos) {
+        SearchResult best = fallback(startNanos);
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (depth < startDepth) {
+                continue;
+            }
+            int score = search(depth, 0, -INFINITY, INFINITY, true);
+            if (control.isStopped() && depth > 1) {
+                break;
+            }
+            if (pvLength[0] > 0) {
+                best = new SearchResult(pvTable[0][0], score, depth, nodes, elapsedMillis(startNanos),
+                        Arrays.copyOf(pvTable[0], pvLength[0]));
+                if (listener != null) {
+                    listener.onIteration(best);
+                }
+            }
+            // Найденный мат глубже не уточнится
+            if (Math.abs(score) >= MATE - depth || control.isStopped()) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private int search(int depth, int ply, int alpha, int beta, boolean allowNull) {
+        pvLength[ply] = 0;
+        if (ply > 0 && (board.halfmoveClock >= 100 || board.isRepetition() || board.isInsufficientMaterial())) {
+            return 0;
+        }
+
+        boolean inCheck = board.inCheck();
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(ply, alpha, beta);
+        }
+        if (++nodes % CHECK_INTERVAL == 0 && control.check(main ? nodes : 0)) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluator.evaluate(board);
+        }
+
+        boolean pvNode = beta - alpha > 1;
+        long entry = table.probe(board.key);
+        int ttMove = Move.NONE;
+        if (entry != 0) {
+            ttMove = TranspositionTable.moveOf(entry);
+            if (!pvNode && ply > 0 && TranspositionTable.depthOf(entry) >= depth) {
+                int score = fromTable(TranspositionTable.scoreOf(entry), ply);
+                int bound = TranspositionTable.boundOf(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        if (allowNull && !pvNode && !inCheck && depth >= 3 && hasNonPawnMaterial()
+                && Evaluator.evaluate(board) >= beta) {
+            board.makeNullMove();
+            int score = -search(depth - 1 - NULL_MOVE_REDUCTION, ply + 1, -beta, -beta + 1, false);
+            board.unmakeNullMove();
+            if (control.isStopped()) {
+                return 0;
+            }
+            if (score >= beta) {
+                return beta;
+            }
+        }
+
+        MoveList list = lists[ply];
+        MoveGenerator.generate(board, list, false);
+        scoreMoves(list, ply, ttMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        int legal = 0;
+
+        for (int i = 0; i < list.size; i++) {
+            int move = list.pickBest(i);
+            boolean quiet = isQuiet(move);
+            int moving = board.squares[Move.from(move)];
+
+            board.makeMove(move);
+            if (board.isSquareAttacked(board.kingSquare(board.sideToMove ^ 1), board.sideToMove)) {
+                board.unmakeMove();
+                continue;
+            }
+            legal++;
+
+            int score;
+            if (legal == 1) {
+                score = -search(depth - 1, ply + 1, -beta, -alpha, true);
+            } else {
+                int reduction = depth >= 3 && legal > 4 && quiet && !inCheck && !board.inCheck() ? 1 : 0;
+                score = -search(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha, true);
+                if (score > alpha && (reduction > 0 || score < beta)) {
+                    score = -search(depth - 1, ply + 1, -beta, -alpha, true);
+                }
+            }
+            board.unmakeMove();
+
+            if (control.isStopped()) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+            }
+            if (alpha >= beta) {
+                if (quiet) {
+                    if (killers[ply][0] != move) {
+                        killers[ply][1] = killers[ply][0];
+                        killers[ply][0] = move;
+                    }
+                    history[moving][Move.to(move)] += depth * depth;
+                }
+                break;
+            }
+        }
+
+        if (legal == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                : bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT
+                : TranspositionTable.BOUND_UPPER;
+        table.store(board.key, bestMove, toTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (++nodes % CHECK_INTERVAL == 0 && control.check(main ? nodes : 0)) {
+            return 0;
+        }
+        int standPat = Evaluator.evaluate(board);
+        if (standPat >= beta || ply >= MAX_PLY - 1) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        MoveList list = lists[ply];
+        MoveGenerator.generate(board, list, true);
+        scoreMoves(list, ply, Move.NONE);
+
+        for (int i = 0; i < list.size; i++) {
+            int move = list.pickBest(i);
+            board.makeMove(move);
+            if (board.isSquareAttacked(board.kingSquare(board.sideToMove ^ 1), board.sideToMove)) {
+                board.unmakeMove();
+                continue;
+            }
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            board.unmakeMove();
+
+            if (control.isStopped()) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+            }
+        }
+        return alpha;
+    }
+
+    private void scoreMoves(MoveList list, int ply, int ttMove) {
+        for (int i = 0; i < list.size; i++) {
+            int move = list.moves[i];
+            int score;
+            if (move == ttMove) {
+                score = 1_000_000;
+            } else if (!isQuiet(move)) {
+                int victim = Move.flag(move) == Move.FLAG_EN_PASSANT
+                        ? Board.PAWN : Math.max(0, Board.pieceType(board.squares[Move.to(move)]));
+                int attacker = Board.pieceType(board.squares[Move.from(move)]);
+                score = 100_000 + Evaluator.PIECE_VALUES[victim] * 10 - attacker
+                        + (Move.isPromotion(move) ? Evaluator.PIECE_VALUES[Move.promotion(move)] : 0);
+            } else if (move == killers[ply][0]) {
+                score = 90_000;
+            } else if (move == killers[ply][1]) {
+                score = 80_000;
+            } else {
+                score = Math.min(history[board.squares[Move.from(move)]][Move.to(move)], 70_000);
+            }
+            list.scores[i] = score;
+        }
+    }
+
+    private boolean isQuiet(int move) {
+        return board.squares[Move.to(move)] == Board.EMPTY
+                && Move.flag(move) != Move.FLAG_EN_PASSANT
+                && !Move.isPromotion(move);
+    }
+
+    private boolean hasNonPawnMaterial() {
+        int base = board.sideToMove * 6;
+        return (board.pieces[base + Board.KNIGHT] | board.pieces[base + Board.BISHOP]
+                | board.pieces[base + Board.ROOK] | board.pieces[base + Board.QUEEN]) != 0;
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][0] = move;
+        int childLength = ply + 1 < MAX_PLY ? pvLength[ply + 1] : 0;
+        if (childLength > 0) {
+            System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, Math.min(childLength, MAX_PLY - 1));
+        }
+        pvLength[ply] = Math.min(childLength + 1, MAX_PLY);
+    }
+
+    // Оценки мата в таблице хранятся относительно узла, а не корня
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    /**
+     * Результат на случай, если не успели досчитать даже первую глубину: любой легальный ход
+     */
+    private SearchResult fallback(long startNanos) {
+        MoveList legal = MoveGenerator.legalMoves(board);
+        int move = legal.isEmpty() ? Move.NONE : legal.get(0);
+        int[] pv = move == Move.NONE ? new int[0] : new int[]{move};
+        return new SearchResult(move, 0, 0, 0, elapsedMillis(startNanos), pv);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,97 @@
+package com.chessbot.engine;
+
+import java.util.Arrays;
+
+/**
+ * 🧠 Таблица транспозиций
+ *
+ * Два параллельных long[]: в одном ключ XOR данные, в другом сами данные.
+ * Потоки поиска пишут и читают без блокировок; разорванная запись (ключ от одного
+ * потока, данные от другого) просто не пройдет проверку key ^ data == key позиции.
+ * <pre>
+ * данные: биты 0-16 — ход, 17-32 — оценка (+32768), 33-40 — глубина,
+ *         41-42 — тип границы, 43-50 — поколение поиска
+ * </pre>
+ */
+public final class TranspositionTable {
+
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private volatile int generation;
+
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(1024, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 26));
+        keys = new long[capacity];
+        data = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Новый поиск — старые записи становятся кандидатами на вытеснение
+     */
+    public void nextGeneration() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Упакованные данные записи или 0, если позиции в таблице нет
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        return entry != 0 && (keys[index] ^ entry) == key ? entry : 0;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) key & mask;
+        long existing = data[index];
+        boolean sameKey = existing != 0 && (keys[index] ^ existing) == key;
+        // Глубокие записи текущего поиска не затираем мелкими
+        if (existing != 0 && !sameKey && generationOf(existing) == generation && depthOf(existing) > depth) {
+            return;
+        }
+        if (sameKey && move == Move.NONE) {
+            move = moveOf(existing);
+        }
+        long entry = (move & 0x1FFFFL)
+                | ((long) (score + 32768) & 0xFFFFL) << 17
+                | ((long) Math.max(0, Math.min(depth, 255))) << 33
+                | ((long) bound) << 41
+                | ((long) generation) << 43;
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    public static int moveOf(long entry) {
+        return (int) (entry & 0x1FFFF);
+    }
+
+    public static int scoreOf(long entry) {
+        return (int) ((entry >>> 17) & 0xFFFF) - 32768;
+    }
+
+    public static int depthOf(long entry) {
+        return (int) ((entry >>> 33) & 0xFF);
+    }
+
+    public static int boundOf(long entry) {
+        return (int) ((entry >>> 41) & 3);
+    }
+
+    private static int generationOf(long entry) {
+        return (int) ((entry >>> 43) & 0xFF);
+    }
+}
@@ -0,0 +1,52 @@
+package com.chessbot.entity;
+
+import com.chessbot.dto.GameStatus;
+import com.chessbot.dto.PlayerColor;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 🧊 Сессия игрока в холодном слое (строка на игрока, игра — по game_id)
+ */
+@Entity
+@Table(name = "cold_sessions", indexes = @Index(name = "idx_cold_sessions_game", columnList = "game_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ColdSessionEntity {
+
+    @Id
+    @Column(name = "chat_id")
+    private Long chatId;
+
+    @Column(name = "game_id", nullable = false)
+    private String gameId;
+
+    @Column(name = "player_id", nullable = false)
+    private long playerId;
+
+    @Column(name = "opponent_name")
+    private String opponentName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "color", length = 8)
+    private PlayerColor color;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16)
+    private GameStatus status;
+
+    @Column(name = "last_activity_millis", nullable = false)
+    private long lastActivityMillis;
+
+    @Column(name = "session_version", nullable = false)
+    private long sessionVersion;
+}
@@ -1,13 +1,38 @@
 package com.chessbot.handlers;
 
 import com.chessbot.dto.GameResponse;
+import com.chessbot.dto.GameStatus;
+import com.chessbot.dto.PlayerColor;
+import com.chessbot.dto.TimeControl;
+import com.chessbot.engine.Board;
+import com.chessbot.service.AnalysisService;
 import com.chessbot.service.ApiClient;
+import com.chessbot.service.BoardImageService;
+import com.chessbot.service.BoardPrefetchService;
+import com.chessbot.service.BroadcastService;
+import com.chessbot.service.BotGameService;
+import com.chessbot.service.GameClockService;
+import com.chessbot.service.GameEventClient;
 import com.chessbot.service.GameSessionManager;
+import com.chessbot.service.HealthMonitor;
+import com.chessbot.service.KeyboardService;
+import com.chessbot.service.LiveBoardService;
+import com.chessbot.service.LobbyService;
+import com.chessbot.service.MatchmakingService;
+import com.chessbot.service.MoveHistoryStore;
+import com.chessbot.service.PositionCache;
+import com.chessbot.service.RatingCache;
+import com.chessbot.service.SpectatorService;
 import com.chessbot.service.TelegramNotificationService;
+import com.chessbot.service.TournamentService;
+import com.chessbot.util.CallbackCodec;
+import com.chessbot.util.MessageTemplate;
 import lombok.RequiredArgsConstructor;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -19,42 +44,268 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ChessCommandHandler {
 
+    // Длиннее — PGN уходит файлом: сообщение Telegram ограничено 4096 символами
+    private static final int MAX_INLINE_PGN = 3500;
+
+    private static final MessageTemplate START = MessageTemplate.compile("""
+            ♟️ *Привет, {userName}! Я шахматный бот.*
+
+            Я помогу тебе играть в шахматы с друзьями!
+
+            🎮 *Основные команды:*
+            /newgame - Создать новую игру
+            /newgame bot - Сыграть с ботом
+            /play - Найти соперника своего уровня
+            /listgames - Список игр, ожидающих игроков
+            /joingame [ID] - Присоединиться к игре
+            /move [ход] - Сделать ход
+            /board - Показать доску
+            /image - Доска картинкой
+            /watch [ID] - Смотреть чужую партию
+            /tournament - Турниры
+            /moves - Показать возможные ходы
+            /analyze - Анализ текущей позиции
+            /status - Статус сервера
+            /help - Помощь
+
+            🚀 *Начни игру:* /newgame
+            """);
+
+    private static final String HELP = """
+            📚 *Помощь по шахматному боту*
+
+            🎮 *Основные команды:*
+            • `/start` - Начало работы
+            • `/help` - Эта справка
+
+            🆕 *Создание и поиск игр:*
+            • `/newgame` - Создать новую игру
+            • `/newgame bot [1-8] [white|black]` - Партия с ботом (уровень и цвет)
+            • `/newgame blitz|rapid|correspondence` - Игра на часах (3+2, 10+5, 1 день на ход)
+            • `/play [blitz|rapid|correspondence]` - Найти соперника по рейтингу
+            • `/play stop` - Остановить поиск
+            • `/listgames` - Список игр ожидающих игроков
+            • `/joingame [ID]` - Присоединиться к игре
+
+            ♟️ *Игровой процесс:*
+            • `/move [ход]` - Сделать ход (e2-e4)
+            • `/board` - Показать текущую доску
+            • `/moves` - Показать возможные ходы
+            • `/analyze` - Анализ позиции движком
+            • `/analyze [FEN]` - Анализ произвольной позиции
+            • `/analyze stop` - Остановить анализ
+            • `/pgn [ID]` - Запись партии в PGN (без ID — последняя)
+            • `/image` - Доска картинкой
+
+            👀 *Трансляции:*
+            • `/watch [ID]` - Смотреть партию (доска обновляется сама)
+            • `/watch stop` - Остановить трансляцию
+
+            🏆 *Турниры:*
+            • `/tournament` - Открытые турниры
+            • `/tournament new swiss|arena` - Создать турнир
+            • `/tournament join [ID]` - Записаться
+            • `/tournament standings` - Таблица
+
+            🤝 *Завершение игры:*
+            • `/draw` - Предложить ничью
+            • `/draw accept` - Принять ничью
+            • `/draw decline` - Отклонить ничью
+            • `/resign` - Сдаться
+
+            ⚙️ *Системные команды:*
+            • `/status` - Статус сервера
+
+            📖 *Пример игры:*
+            1. Игрок 1: `/newgame`
+            2. Игрок 2: `/joingame ABC123`
+            3. Игрок 1: `/move e2-e4`
+            4. Игрок 2: `/move e7-e5`
+            5. И т.д...
+
+            🐛 *Проблемы?* Используйте `/status`
+            """;
+
+    private static final MessageTemplate PGN_NOT_FOUND = MessageTemplate.compile("❌ *Партия не найдена:* `{gameId}`");
+    private static final MessageTemplate PGN_INLINE = MessageTemplate.compile(
+            "📜 *PGN партии* `{gameId}`\n\n<pre>{pgn}</pre>");
+
+    private static final MessageTemplate GAME_CREATED = MessageTemplate.compile("""
+            🎉 *Игра создана!*
+
+            🆔 *ID игры:* `{gameId}`
+            🎮 *Создатель:* {userName}
+            📊 *Статус:* {status}
+            {clock:raw}
+
+            📋 *Что делать дальше:*
+            1. Отправьте этот ID другу: `{gameId}`
+            2. Друг отправляет: `/joingame {gameId}`
+            3. Вы начинаете игру первым!
+
+            ⏳ *Игра ждет второго игрока...*
+            """);
+    private static final MessageTemplate GAME_JOINED = MessageTemplate.compile("""
+            ✅ *Вы успешно присоединились к игре!*
+
+            🆔 *ID игры:* `{gameId}`
+            ♟️ *Ваш цвет:* {color}
+            📊 *Статус:* {status}
+
+            🎮 *Текущая доска:*
+            ```
+            {board}
+            ```
+
+            {turn:raw}
+
+            🎯 *Сделать ход:* `/move [ход]`
+            Пример: `/move e2-e4`
+            """);
+    private static final MessageTemplate DRAW_OFFERED = MessageTemplate.compile("""
+            🤝 *Ничья предложена!*
+
+            Ожидайте ответа от соперника.
+
+            📊 Статус: {status}
+            💬 Сообщение: {message}
+
+            Соперник может:
+            • Принять: `/draw accept`
+            • Отклонить: `/draw decline`
+            """);
+    private static final MessageTemplate DRAW_ACCEPTED = MessageTemplate.compile("""
+            🤝 *Ничья принята!*
+
+            🎉 Игра завершена вничью!
+
+            📊 Статус: {status}
+            💬 Сообщение: {message}
+
+            🎮 Начать новую игру: `/newgame`
+            """);
+    private static final MessageTemplate DRAW_DECLINED = MessageTemplate.compile("""
+            ❌ *Ничья отклонена!*
+
+            Игра продолжается.
+
+            💬 Сообщение: {message}
+
+            🎯 Продолжить игру: `/board`
+            """);
+    private static final MessageTemplate UNKNOWN_COMMAND = MessageTemplate.compile("""
+            🤔 *Неизвестная команда:* `{command}`
+
+            📋 *Доступные команды:*
+            /start - Начало работы
+            /newgame - Создать игру
+            /listgames - Список игр
+            /joingame [ID] - Присоединиться
+            /move [ход] - Сделать ход
+            /board - Показать доску
+            /status - Статус сервера
+            /help - Помощь
+
+            📖 *Пример:* `/newgame`
+            """);
+    // Отказ API с его пояснением и исключение с текстом: оба текста чужие, экранируются
+    private static final MessageTemplate FAILURE = MessageTemplate.compile("❌ *{title:raw}*\n\n{details}");
+    private static final MessageTemplate ERROR = MessageTemplate.compile("❌ *{title:raw}:* {details}");
+
     private final ApiClient apiClient;
     private final GameSessionManager sessionManager;
     private final TelegramNotificationService notificationService;
+    private final GameEventClient eventClient;
+    private final BoardPrefetchService prefetchService;
+    private final BotGameService botGameService;
+    private final AnalysisService analysisService;
+    private final PositionCache positionCache;
+    private final GameClockService clockService;
+    private final MatchmakingService matchmakingService;
+    private final RatingCache ratingCache;
+    private final LobbyService lobbyService;
+    private final MoveHistoryStore historyStore;
+    private final BoardImageService boardImageService;
+    private final InteractiveBoardHandler interactiveBoardHandler;
+    private final LiveBoardService liveBoardService;
+    private final KeyboardService keyboardService;
+    private final SpectatorService spectatorService;
+    private final TournamentService tournamentService;
+    private final BroadcastService broadcastService;
+    private final HealthMonitor healthMonitor;
+
     /**
      * 🎯 ГЛАВНЫЙ МЕТОД ОБРАБОТКИ КОМАНД
      */
     public String handleCommand(long chatId, String text, String userName) {
+        return handleCommand(chatId, text, userName, null);
+    }
+
+    /**
+     * @param messageId id сообщения с командой: по нему /board решает, править ли живую доску
+     */
+    public String handleCommand(long chatId, String text, String userName, Integer messageId) {
         log.info("Обработка команды: chatId={}, text='{}', user='{}'", chatId, text, userName);
 
         String textJoinGame=text;
         // Очищаем команду от лишних пробелов
         text = text.trim().toLowerCase();
 
+        // Пользователь пошел дальше — фоновый анализ старой позиции больше не нужен
+        if ((text.startsWith("/move") && !text.startsWith("/moves")) || text.startsWith("/newgame")
+                || text.startsWith("/joingame") || text.startsWith("/resign")) {
+            analysisService.cancel(chatId);
+        }
+        // Игру выбрали вручную — из очереди подбора выходим
+        if (text.startsWith("/newgame") || text.startsWith("/joingame")) {
+            matchmakingService.leave(chatId);
+        }
+
+        // Партия с ботом ведется локально, без Chess API
+        if (botGameService.hasGame(chatId)) {
+            String botReply = handleBotGameCommand(chatId, text, textJoinGame);
+            if (botReply != null) {
+                return botReply;
+            }
+        }
+
         // Обработка команд
         if (text.startsWith("/start")) {
             return handleStart(chatId, userName);
         } else if (text.startsWith("/help")) {
             return handleHelp();
         } else if (text.startsWith("/newgame")) {
-            return handleNewGame(chatId, userName);
+            return handleNewGame(chatId, text, userName);
+        } else if (text.startsWith("/play")) {
+            return matchmakingService.handlePlay(chatId, userName, text);
         } else if (text.startsWith("/listgames")) {
-            return handleListGames();
+            return handleListGames(text);
         } else if (text.startsWith("/joingame")) {
             return handleJoinGame(chatId, textJoinGame, userName);
+        } else if (text.startsWith("/moves")) {
+            return handleLegalMoves(chatId);
         } else if (text.startsWith("/move")) {
             return handleMove(chatId, textJoinGame, userName);
         } else if (text.startsWith("/board")) {
-            return handleBoard(chatId);
+            return handleBoard(chatId, messageId, false);
         } else if (text.startsWith("/status")) {
             return handleStatus();
         } else if (text.startsWith("/resign")) {
             return handleResign(chatId);
-        } else if (text.startsWith("/moves")) {
-            return handleLegalMoves(chatId);
         } else if (text.startsWith("/draw")) {
             return handleDraw(chatId, text, userName);
+        } else if (text.startsWith("/analyze")) {
+            return handleAnalyze(chatId, textJoinGame);
+        } else if (text.startsWith("/pgn")) {
+            return handlePgn(chatId, textJoinGame);
+        } else if (text.startsWith("/image")) {
+            return handleImage(chatId);
+        } else if (text.startsWith("/watch")) {
+            return spectatorService.handleWatch(chatId, textJoinGame);
+        } else if (text.startsWith("/tournament")) {
+            return tournamentService.handleTournament(chatId, userName, textJoinGame);
+        } else if (text.startsWith("/broadcast")) {
+            return broadcastService.handleBroadcast(chatId, textJoinGame);
 
         } else if (text.startsWith("/resign")) {
             return handleResign(chatId);
@@ -64,74 +315,44 @@ public class ChessCommandHandler {
         }
     }
 
+    /**
+     * 🤖 КОМАНДЫ ВО ВРЕМЯ ПАРТИИ С БОТОМ (null — команда не относится к партии)
+     */
+    private String handleBotGameCommand(long chatId, String text, String originalText) {
+        if (text.startsWith("/moves")) {
+            return botGameService.handleLegalMoves(chatId);
+        } else if (text.startsWith("/move")) {
+            return botGameService.handleMove(chatId, originalText);
+        } else if (text.startsWith("/board")) {
+            return botGameService.handleBoard(chatId);
+        } else if (text.startsWith("/resign")) {
+            return botGameService.handleResign(chatId);
+        } else if (text.startsWith("/draw")) {
+            return botGameService.handleDraw(chatId);
+        } else if (text.startsWith("/newgame")) {
+            return botGameService.startGame(chatId, null, text);
+        }
+        return null;
+    }
+
     /**
      * 🏁 КОМАНДА /START
      */
     private String handleStart(long chatId, String userName) {
-        return """
-               ♟️ *Привет, %s! Я шахматный бот.*
-               
-               Я помогу тебе играть в шахматы с друзьями!
-               
-               🎮 *Основные команды:*
-               /newgame - Создать новую игру
-               /listgames - Список игр, ожидающих игроков
-               /joingame [ID] - Присоединиться к игре
-               /move [ход] - Сделать ход
-               /board - Показать доску
-               /moves - Показать возможные ходы
-               /status - Статус сервера
-               /help - Помощь
-               
-               🚀 *Начни игру:* /newgame
-               """.formatted(userName);
+        return START.render(userName);
     }
 
     /**
      * ❓ КОМАНДА /HELP
      */
     private String handleHelp() {
-        return """
-           📚 *Помощь по шахматному боту*
-           
-           🎮 *Основные команды:*
-           • `/start` - Начало работы
-           • `/help` - Эта справка
-           
-           🆕 *Создание и поиск игр:*
-           • `/newgame` - Создать новую игру
-           • `/listgames` - Список игр ожидающих игроков
-           • `/joingame [ID]` - Присоединиться к игре
-           
-           ♟️ *Игровой процесс:*
-           • `/move [ход]` - Сделать ход (e2-e4)
-           • `/board` - Показать текущую доску
-           • `/moves` - Показать возможные ходы
-           
-           🤝 *Завершение игры:*
-           • `/draw` - Предложить ничью
-           • `/draw accept` - Принять ничью
-           • `/draw decline` - Отклонить ничью
-           • `/resign` - Сдаться
-           
-           ⚙️ *Системные команды:*
-           • `/status` - Статус сервера
-           
-           📖 *Пример игры:*
-           1. Игрок 1: `/newgame`
-           2. Игрок 2: `/joingame ABC123`
-           3. Игрок 1: `/move e2-e4`
-           4. Игрок 2: `/move e7-e5`
-           5. И т.д...
-           
-           🐛 *Проблемы?* Используйте `/status`
-           """;
+        return HELP;
     }
 
     /**
      * 🆕 КОМАНДА /NEWGAME
      */
-    private String handleNewGame(long chatId, String userName) {
+    private String handleNewGame(long chatId, String text, String userName) {
         try {
             // Проверяем, нет ли уже активной игры
             if (sessionManager.hasActiveGame(chatId)) {
@@ -147,78 +368,52 @@ public class ChessCommandHandler {
                        """.formatted(currentGameId);
             }
 
+            // /newgame bot [уровень] [цвет] — партия со встроенным движком
+            String[] parts = text.split("\\s+");
+            if (parts.length > 1 && parts[1].equals("bot")) {
+                return botGameService.startGame(chatId, userName, text);
+            }
+            // /newgame blitz|rapid|correspondence — партия на часах
+            TimeControl timeControl = parts.length > 1 ? TimeControl.of(parts[1]) : null;
+
             // Создаем новую игру через API
             log.info("Создание новой игры для chatId={}, user={}", chatId, userName);
             GameResponse response = apiClient.createGame(chatId, userName);
 
             if (response == null || !Boolean.TRUE.equals(response.getSuccess())) {
-                return "❌ *Ошибка создания игры!*\n\n" +
-                        (response != null ? response.getMessage() : "Сервер не отвечает");
+                return FAILURE.render("Ошибка создания игры!", response != null ? response.getMessage() : "Сервер не отвечает");
             }
 
-            // Сохраняем сессию
-            sessionManager.createSession(response.getGameId(), chatId, chatId);
+            ratingCache.record(response);
+            // Сохраняем сессию (создатель игры ходит первым)
+            sessionManager.createSession(response.getGameId(), chatId, chatId,
+                    resolvePlayerColor(response, chatId, "WHITE"));
+            eventClient.subscribe(response.getGameId());
+            if (timeControl != null) {
+                clockService.register(response.getGameId(), timeControl);
+            }
 
-            return """
-                   🎉 *Игра создана!*
-                   
-                   🆔 *ID игры:* `%s`
-                   🎮 *Создатель:* %s
-                   📊 *Статус:* %s
-                   
-                   📋 *Что делать дальше:*
-                   1. Отправьте этот ID другу: `%s`
-                   2. Друг отправляет: `/joingame %s`
-                   3. Вы начинаете игру первым!
-                   
-                   ⏳ *Игра ждет второго игрока...*
-                   """.formatted(
+            return GAME_CREATED.render(
                     response.getGameId(),
                     userName,
                     response.getStatus(),
+                    timeControl != null
+                            ? "⏱ *Контроль:* " + timeControl.getTitle() + " " + timeControl.describe()
+                            : "",
                     response.getGameId(),
-                    response.getGameId()
-            );
+                    response.getGameId());
 
         } catch (Exception e) {
             log.error("Ошибка создания игры: {}", e.getMessage(), e);
-            return "❌ *Ошибка создания игры:* " + e.getMessage();
+            return ERROR.render("Ошибка создания игры", e.getMessage());
         }
     }
 
     /**
-     * 📋 КОМАНДА /LISTGAMES
+     * 📋 КОМАНДА /LISTGAMES (из фонового снимка лобби, без запроса к API)
      */
-    private String handleListGames() {
-        try {
-            List<com.chessbot.dto.GameInfoResponse> games = apiClient.getWaitingGames();
-
-            if (games.isEmpty()) {
-                return """
-                       🤷 *Нет игр, ожидающих игроков*
-                       
-                       Хотите сыграть? Создайте новую игру:
-                       `/newgame`
-                       """;
-            }
-
-            StringBuilder sb = new StringBuilder();
-            sb.append("📋 *Игры, ожидающие игроков:*\n\n");
-
-            for (com.chessbot.dto.GameInfoResponse game : games) {
-                sb.append("🎮 *Игра ID:* `").append(game.getGameId()).append("`\n");
-                sb.append("   👤 *Создатель:* ").append(game.getWhitePlayerName()).append("\n");
-                sb.append("   🕐 *Создана:* ").append(game.getCreatedAt()).append("\n");
-                sb.append("   🎯 *Присоединиться:* `/joingame ").append(game.getGameId()).append("`\n\n");
-            }
-
-            sb.append("🎯 *Выберите игру и присоединяйтесь!*");
-            return sb.toString();
-
-        } catch (Exception e) {
-            log.error("Ошибка получения списка игр: {}", e.getMessage(), e);
-            return "❌ *Ошибка получения списка игр:* " + e.getMessage();
-        }
+    private String handleListGames(String text) {
+        return lobbyService.page(text).text();
     }
 
     /**
@@ -258,48 +453,27 @@ public class ChessCommandHandler {
             GameResponse response = apiClient.joinGame(gameId, chatId, userName);
 
             if (response == null || !Boolean.TRUE.equals(response.getSuccess())) {
-                return "❌ *Ошибка присоединения к игре!*\n\n" +
-                        (response != null ? response.getMessage() : "Игра не найдена");
-            }
-
-            // Сохраняем сессию
-            sessionManager.createSession(gameId, chatId, chatId);
-
-            // Обновляем информацию о цвете
-            String playerColor = "WHITE";
-            if (response.getWhitePlayer() != null && response.getWhitePlayer().getId() != null) {
-                playerColor = response.getWhitePlayer().getId().equals(chatId) ? "WHITE" : "BLACK";
+                return FAILURE.render("Ошибка присоединения к игре!", response != null ? response.getMessage() : "Игра не найдена");
             }
 
+            ratingCache.record(response);
+            // Определяем цвет и сохраняем сессию
+            String playerColor = resolvePlayerColor(response, chatId, "WHITE");
+            sessionManager.createSession(gameId, chatId, chatId, playerColor);
             sessionManager.updateSession(chatId, playerColor, response.getStatus());
+            eventClient.subscribe(gameId);
+            clockService.start(gameId);
 
-            return """
-                   ✅ *Вы успешно присоединились к игре!*
-                   
-                   🆔 *ID игры:* `%s`
-                   ♟️ *Ваш цвет:* %s
-                   📊 *Статус:* %s
-                   
-                   🎮 *Текущая доска:*
-                   ```
-                   %s
-                   ```
-                   
-                   %s
-                   
-                   🎯 *Сделать ход:* `/move [ход]`
-                   Пример: `/move e2-e4`
-                   """.formatted(
+            return GAME_JOINED.render(
                     gameId,
                     playerColor,
                     response.getStatus(),
                     response.getBoard() != null ? response.getBoard() : "Доска не доступна",
-                    getTurnMessage(response)
-            );
+                    getTurnMessage(response));
 
         } catch (Exception e) {
             log.error("Ошибка присоединения к игре: {}", e.getMessage(), e);
-            return "❌ *Ошибка присоединения:* " + e.getMessage();
+            return ERROR.render("Ошибка присоединения", e.getMessage());
         }
     }
 
@@ -341,23 +515,36 @@ public class ChessCommandHandler {
             GameResponse response = apiClient.makeMove(gameId, chatId, notation);
 
             if (response == null || !Boolean.TRUE.equals(response.getSuccess())) {
-                return "❌ *Ошибка выполнения хода!*\n\n" +
-                        (response != null ? response.getMessage() : "Недопустимый ход");
+                return FAILURE.render("Ошибка выполнения хода!", response != null ? response.getMessage() : "Недопустимый ход");
             }
 
-            // Обновляем статус сессии
-            sessionManager.updateSession(chatId,
-                    sessionManager.getSession(chatId).getPlayerColor(),
-                    response.getStatus()
-            );
+            // Обновляем статус сессии (цвет остается прежним, атомарно)
+            sessionManager.updateStatus(chatId, response.getStatus());
+            historyStore.recordMove(gameId, notation, response);
+            // Игра могла вернуться из холодного слоя после перезапуска, когда на нее никто не был подписан
+            eventClient.subscribe(gameId);
+            if (isGameInProgress(response.getStatus())) {
+                clockService.onMove(gameId, response.getCurrentTurn());
+            } else {
+                clockService.stop(gameId);
+                historyStore.finishByStatus(gameId, response.getStatus(), response.getCurrentTurn());
+            }
             // 9. ⭐ ОТПРАВЛЯЕМ УВЕДОМЛЕНИЕ СОПЕРНИКУ
-            sendMoveNotificationToOpponent(chatId, response, notation, userName);
+            // Если поток событий подключен, соперника уведомит GameEventRouter
+            if (!eventClient.isConnected()) {
+                sendMoveNotificationToOpponent(chatId, response, notation, userName);
+            }
+            // Соперник почти сразу запросит доску: готовим ее заранее
+            prefetchService.invalidate(chatId);
+            if (isGameInProgress(response.getStatus())) {
+                prefetchService.prefetch(sessionManager.getOpponentChatId(chatId), gameId);
+            }
             // Формируем ответ
-            return formatMoveResponse(response, notation);
+            return withClock(gameId, formatMoveResponse(response, notation));
 
         } catch (Exception e) {
             log.error("Ошибка выполнения хода: {}", e.getMessage(), e);
-            return "❌ *Ошибка хода:* " + e.getMessage();
+            return ERROR.render("Ошибка хода", e.getMessage());
         }
     }
 
@@ -367,8 +554,8 @@ public class ChessCommandHandler {
     private void sendMoveNotificationToOpponent(Long playerChatId, GameResponse response,
                                                 String moveNotation, String playerName) {
         try {
-            // 1. Находим chatId соперника
-            Long opponentChatId = findOpponentChatId(playerChatId, response);
+            // 1. Находим chatId соперника по локальному индексу участников
+            Long opponentChatId = sessionManager.getOpponentChatId(playerChatId);
 
             if (opponentChatId == null) {
                 log.warn("⚠️ Не найден chatId соперника для игры {}", response.getGameId());
@@ -395,76 +582,124 @@ public class ChessCommandHandler {
     }
 
     /**
-     * Находит chatId соперника по ответу API
+     * ♟️ ОПРЕДЕЛЕНИЕ ЦВЕТА ИГРОКА ПО ОТВЕТУ API
      */
-    private Long findOpponentChatId(Long playerChatId, GameResponse response) {
-        try {
-            // playerChatId одновременно является и userId в вашей системе
+    private String resolvePlayerColor(GameResponse response, long chatId, String defaultColor) {
+        if (response.getWhitePlayer() != null && response.getWhitePlayer().getId() != null) {
+            return response.getWhitePlayer().getId().equals(chatId) ? "WHITE" : "BLACK";
+        }
+        if (response.getBlackPlayer() != null && response.getBlackPlayer().getId() != null) {
+            return response.getBlackPlayer().getId().equals(chatId) ? "BLACK" : "WHITE";
+        }
+        return defaultColor;
+    }
 
-            GameResponse.PlayerInfo white = response.getWhitePlayer();
-            GameResponse.PlayerInfo black = response.getBlackPlayer();
+    /**
+     * 🔄 КНОПКА "ОБНОВИТЬ" ПОД ДОСКОЙ (null — доска уже обновлена)
+     */
+    public String refreshBoard(long chatId, int boardMessageId) {
+        if (botGameService.hasGame(chatId)) {
+            return botGameService.handleBoard(chatId);
+        }
+        return handleBoard(chatId, boardMessageId, true);
+    }
 
-            // Проверяем, что информация об игроках есть
-            if (white == null || black == null) {
-                log.warn("Неполная информация об игроках в ответе API");
+    /**
+     * 👆 НАЖАТИЕ НА ДОСКУ: фигура, клетка, превращение, отмена, кнопки под доской
+     * (null — ответ уже на доске или кнопка устарела)
+     */
+    public String handleBoardTap(long chatId, String data, int boardMessageId, String userName) {
+        long packed = CallbackCodec.decode(data);
+        if (packed == CallbackCodec.INVALID) {
+            log.debug("Кнопка старого формата пропущена: {}", data);
+            return null;
+        }
+        switch (CallbackCodec.action(packed)) {
+            case CallbackCodec.REFRESH:
+                return refreshBoard(chatId, boardMessageId);
+            case CallbackCodec.LEGAL_MOVES:
+                return handleCommand(chatId, "/moves", userName);
+            case CallbackCodec.OFFER_DRAW:
+                return handleCommand(chatId, "/draw", userName);
+            case CallbackCodec.MOVES_PAGE:
+                // Листание меняет только клавиатуру; позиция ушла из кэша — кнопка устарела
+                InlineKeyboardMarkup page = keyboardService.movesPage(CallbackCodec.epoch(packed),
+                        CallbackCodec.from(packed));
+                if (page != null) {
+                    notificationService.editKeyboard(chatId, boardMessageId, page);
+                }
                 return null;
-            }
-
-            Long whiteId = white.getId() != null ? Long.parseLong(white.getId().toString()) : null;
-            Long blackId = black.getId() != null ? Long.parseLong(black.getId().toString()) : null;
-
-            // Если игрок - белые, то соперник - черные
-            if (whiteId != null && whiteId.equals(playerChatId)) {
-                return blackId;
-            }
-
-            // Если игрок - черные, то соперник - белые
-            if (blackId != null && blackId.equals(playerChatId)) {
-                return whiteId;
-            }
-
-            log.warn("Игрок {} не найден среди участников игры {}",
-                    playerChatId, response.getGameId());
+            default:
+                break;
+        }
 
+        InteractiveBoardHandler.Tap tap = interactiveBoardHandler.handleCallback(chatId, packed);
+        if (tap == null) {
             return null;
-
-        } catch (Exception e) {
-            log.error("Ошибка поиска соперника: {}", e.getMessage());
+        }
+        String gameId = sessionManager.getCurrentGameId(chatId);
+        if (gameId == null) {
+            return "❌ *У вас нет активной игры!*";
+        }
+        if (tap.keyboard() != null
+                && liveBoardService.showKeyboardIn(chatId, gameId, boardMessageId, tap.keyboard())) {
             return null;
         }
+        if (tap.move() == null) {
+            // Доска устарела (или клавиатуру не удалось поменять): перерисовываем ее на месте
+            return handleBoard(chatId, boardMessageId, true);
+        }
+
+        String reply = handleMove(chatId, "/move " + tap.move(), userName);
+        // Доска в том же сообщении переходит в новую позицию, итог хода — отдельным сообщением
+        handleBoard(chatId, boardMessageId, true);
+        return reply;
     }
+
     /**
-     * 📊 КОМАНДА /BOARD
+     * 📊 КОМАНДА /BOARD: живая доска с кнопками (null — доска уже показана)
+     *
+     * @param messageId    сообщение с командой или, если boardPressed, доска с нажатой кнопкой
+     * @param boardPressed обновить именно это сообщение
      */
-    private String handleBoard(long chatId) {
+    private String handleBoard(long chatId, Integer messageId, boolean boardPressed) {
         try {
-            String gameId = sessionManager.getCurrentGameId(chatId);
-            if (gameId == null) {
+            GameSessionManager.GameSession session = sessionManager.getSession(chatId);
+            if (session == null) {
                 return """
                        ❌ *У вас нет активной игры!*
                        
                        Посмотреть доступные игры: `/listgames`
                        """;
             }
+            String gameId = session.getGameId();
 
-            // Получаем текущее состояние игры
-            GameResponse response = apiClient.getGameState(gameId, chatId);
+            // Получаем текущее состояние игры (предзагруженное после хода соперника, если есть)
+            BoardPrefetchService.PrefetchedBoard prefetched = prefetchService.take(chatId, gameId);
+            GameResponse response = prefetched != null
+                    ? prefetched.getState()
+                    : apiClient.getGameState(gameId, chatId);
 
             if (response == null || !Boolean.TRUE.equals(response.getSuccess())) {
                 return "❌ *Ошибка получения доски!*";
             }
 
-            // Обновляем статус сессии
-            sessionManager.updateSession(chatId,
-                    sessionManager.getSession(chatId).getPlayerColor(),
-                    response.getStatus()
-            );
+            // Обновляем статус, только если пока шел запрос сессию никто не менял
+            // (иначе более свежий статус, например от хода, перезаписался бы этим ответом)
+            sessionManager.updateSessionIfVersion(chatId, session.getVersion(),
+                    current -> current.withStatus(GameStatus.of(response.getStatus())));
 
-            return formatBoardResponse(response);
+            InteractiveBoardHandler.BoardMessage board = interactiveBoardHandler.render(chatId, gameId, response,
+                    session.getPlayerColor(), prefetched);
+            String text = withClock(gameId, board.getText());
+            boolean shown = boardPressed
+                    ? liveBoardService.showIn(chatId, gameId, messageId, text, board.getKeyboard())
+                    : liveBoardService.show(chatId, gameId, messageId, text, board.getKeyboard());
+            return shown ? null : text;
 
         } catch (Exception e) {
             log.error("Ошибка получения доски: {}", e.getMessage(), e);
-            return "❌ *Ошибка:* " + e.getMessage();
+            return ERROR.render("Ошибка", e.getMessage());
         }
     }
 
@@ -473,7 +708,8 @@ public class ChessCommandHandler {
      */
     private String handleStatus() {
         try {
-            String apiStatus = apiClient.testApi();
+            // Доступность — из фоновых проверок HealthMonitor, без запроса в сеть
+            String apiStatus = healthMonitor.describeStatus();
 
             // Статистика бота
             int activeSessions = sessionManager.getActiveSessionsCount();
@@ -485,6 +721,11 @@ public class ChessCommandHandler {
                    
                    🤖 *Статистика бота:*
                    • Активных сессий: %d
+                   • Вытеснено в холодный слой: %d (поднято: %d)
+                   • Картинки досок: %s
+                   • Живые доски: %s
+                   • Трансляции: %s
+                   • Рассылка: %s
                    • Память: ~%dMB
                    
                    ⚙️ *Команды:*
@@ -494,12 +735,18 @@ public class ChessCommandHandler {
                    """.formatted(
                     apiStatus,
                     activeSessions,
+                    sessionManager.getDemotedCount(),
+                    sessionManager.getHydratedCount(),
+                    boardImageService.describeStats(),
+                    liveBoardService.describeStats(),
+                    spectatorService.describeStats(),
+                    broadcastService.describeStats(),
                     Runtime.getRuntime().totalMemory() / (1024 * 1024)
             );
 
         } catch (Exception e) {
             log.error("Ошибка проверки статуса: {}", e.getMessage(), e);
-            return "❌ *Ошибка проверки статуса:* " + e.getMessage();
+            return ERROR.render("Ошибка проверки статуса", e.getMessage());
         }
     }
 
@@ -529,8 +776,12 @@ public class ChessCommandHandler {
                 return "❌ *У вас нет активной игры!*";
             }
 
-            // Получаем возможные ходы из API
-            List<String> legalMoves = apiClient.getLegalMoves(gameId, chatId);
+            // Возможные ходы: из ответа API, иначе локальная генерация (только в свою очередь)
+            GameResponse state = apiClient.getGameState(gameId, chatId);
+            String playerColor = sessionManager.getPlayerColor(chatId);
+            List<String> legalMoves = state != null && Boolean.TRUE.equals(state.getSuccess())
+                    ? positionCache.legalMoves(state, playerColor)
+                    : List.of();
 
             if (legalMoves.isEmpty()) {
                 return """
@@ -545,52 +796,75 @@ public class ChessCommandHandler {
                    """;
             }
 
-            // Создаем форматированный список
-            StringBuilder movesList = new StringBuilder();
-            movesList.append("📋 *Возможные ходы:*\n\n");
-
-            int count = 0;
-            for (String move : legalMoves) {
-                movesList.append("• `").append(move).append("`\n");
-                count++;
-                if (count >= 20) { // Ограничиваем количество
-                    movesList.append("\n... и еще ").append(legalMoves.size() - 20).append(" ходов");
-                    break;
-                }
+            // Список по фигурам и первая страница кнопок; листание правит это же сообщение
+            KeyboardService.MovePages pages = keyboardService.movePages(gameId, state.getBoard(), legalMoves);
+            interactiveBoardHandler.track(chatId, gameId, pages.epoch(), legalMoves, playerColor);
+            if (notificationService.sendMessageReturningId(chatId, pages.text(), pages.pages().get(0)) == null) {
+                return pages.text();
             }
-
-            movesList.append("\n🎯 *Использование:* `/move [ход]`");
-            movesList.append("\n📖 *Пример:* `/move e2-e4`");
-
-            return movesList.toString();
+            return null;
 
         } catch (Exception e) {
             log.error("Ошибка получения возможных ходов: {}", e.getMessage(), e);
-            return "❌ *Ошибка:* " + e.getMessage();
+            return ERROR.render("Ошибка", e.getMessage());
         }
     }
 
 
 
+    /**
+     * 🔍 КОМАНДА /ANALYZE
+     * Без аргументов — текущая позиция партии, с FEN — произвольная позиция, stop — остановить.
+     * Результат приходит отдельным сообщением, которое обновляется по мере углубления.
+     */
+    private String handleAnalyze(long chatId, String text) {
+        try {
+            String[] parts = text.trim().split("\\s+", 2);
+            String argument = parts.length > 1 ? parts[1].trim() : "";
+
+            if (argument.equalsIgnoreCase("stop")) {
+                return analysisService.cancel(chatId)
+                        ? null
+                        : "🤷 *Нет запущенного анализа*";
+            }
+
+            Board position;
+            if (!argument.isEmpty()) {
+                position = Board.fromFen(argument);
+            } else if (botGameService.hasGame(chatId)) {
+                position = botGameService.currentPosition(chatId);
+            } else {
+                String gameId = sessionManager.getCurrentGameId(chatId);
+                if (gameId == null) {
+                    return """
+                           ❌ *Нечего анализировать!*
+
+                           • Во время партии: `/analyze`
+                           • Любая позиция: `/analyze [FEN]`
+                           """;
+                }
+                GameResponse response = apiClient.getGameState(gameId, chatId);
+                if (response == null || response.getBoard() == null) {
+                    return "❌ *Ошибка получения позиции!*";
+                }
+                position = PositionCache.positionOf(response.getBoard(), response.getCurrentTurn());
+            }
+
+            return analysisService.start(chatId, position);
+
+        } catch (IllegalArgumentException e) {
+            return ERROR.render("Некорректная позиция", e.getMessage());
+        } catch (Exception e) {
+            log.error("Ошибка запуска анализа: {}", e.getMessage(), e);
+            return ERROR.render("Ошибка анализа", e.getMessage());
+        }
+    }
+
     /**
      * 🤔 НЕИЗВЕСТНАЯ КОМАНДА
      */
     private String handleUnknownCommand(String text) {
-        return """
-               🤔 *Неизвестная команда:* `%s`
-               
-               📋 *Доступные команды:*
-               /start - Начало работы
-               /newgame - Создать игру
-               /listgames - Список игр
-               /joingame [ID] - Присоединиться
-               /move [ход] - Сделать ход
-               /board - Показать доску
-               /status - Статус сервера
-               /help - Помощь
-               
-               📖 *Пример:* `/newgame`
-               """.formatted(text);
+        return UNKNOWN_COMMAND.render(text);
     }
 
     /**
@@ -599,10 +873,14 @@ public class ChessCommandHandler {
     private String formatMoveResponse(GameResponse response, String notation) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("✅ *Ход выполнен:* `").append(notation).append("`\n\n");
+        sb.append("✅ *Ход выполнен:* `");
+        MessageTemplate.appendEscaped(sb, notation);
+        sb.append("`\n\n");
 
         if (response.getMessage() != null) {
-            sb.append("💬 *").append(response.getMessage()).append("*\n\n");
+            sb.append("💬 *");
+            MessageTemplate.appendEscaped(sb, response.getMessage());
+            sb.append("*\n\n");
         }
 
         sb.append("📊 *Статус:* ").append(response.getStatus()).append("\n");
@@ -616,7 +894,8 @@ public class ChessCommandHandler {
 
         // Информация о игроках
         if (response.getWhitePlayer() != null) {
-            sb.append("⚪ *Белые:* ").append(response.getWhitePlayer().getName());
+            sb.append("⚪ *Белые:* ");
+            MessageTemplate.appendEscaped(sb, String.valueOf(response.getWhitePlayer().getName()));
             if (response.getWhitePlayer().getRating() != null) {
                 sb.append(" (Рейтинг: ").append(response.getWhitePlayer().getRating()).append(")");
             }
@@ -624,7 +903,8 @@ public class ChessCommandHandler {
         }
 
         if (response.getBlackPlayer() != null) {
-            sb.append("⚫ *Черные:* ").append(response.getBlackPlayer().getName());
+            sb.append("⚫ *Черные:* ");
+            MessageTemplate.appendEscaped(sb, String.valueOf(response.getBlackPlayer().getName()));
             if (response.getBlackPlayer().getRating() != null) {
                 sb.append(" (Рейтинг: ").append(response.getBlackPlayer().getRating()).append(")");
             }
@@ -636,33 +916,6 @@ public class ChessCommandHandler {
         return sb.toString();
     }
 
-    /**
-     * 📊 ФОРМАТИРОВАНИЕ ОТВЕТА С ДОСКОЙ
-     */
-    private String formatBoardResponse(GameResponse response) {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("📊 *Текущее состояние игры*\n\n");
-
-        if (response.getMessage() != null) {
-            sb.append("💬 *").append(response.getMessage()).append("*\n\n");
-        }
-
-        sb.append("🆔 *ID:* `").append(response.getGameId()).append("`\n");
-        sb.append("📊 *Статус:* ").append(response.getStatus()).append("\n");
-        sb.append("♟️ *Очередь:* ").append(response.getCurrentTurn()).append("\n\n");
-
-        if (response.getBoard() != null) {
-            sb.append("🎮 *Доска:*\n```\n")
-                    .append(response.getBoard())
-                    .append("\n```\n\n");
-        }
-
-        sb.append("🎯 *Сделать ход:* `/move [ход]`\n");
-        sb.append("📖 *Пример:* `/move e2-e4`");
-
-        return sb.toString();
-    }
     /**
      * 🤝 КОМАНДА /DRAW
      */
@@ -695,7 +948,7 @@ public class ChessCommandHandler {
 
         } catch (Exception e) {
             log.error("Ошибка обработки ничьи: {}", e.getMessage(), e);
-            return "❌ *Ошибка:* " + e.getMessage();
+            return ERROR.render("Ошибка", e.getMessage());
         }
     }
 
@@ -703,25 +956,10 @@ public class ChessCommandHandler {
         GameResponse response = apiClient.offerDraw(gameId, chatId);
 
         if (response == null || !Boolean.TRUE.equals(response.getSuccess())) {
-            return "❌ *Не удалось предложить ничью!*\n" +
-                    (response != null ? response.getMessage() : "");
+            return FAILURE.render("Не удалось предложить ничью!", response != null ? response.getMessage() : "");
         }
 
-        return """
-               🤝 *Ничья предложена!*
-               
-               Ожидайте ответа от соперника.
-               
-               📊 Статус: %s
-               💬 Сообщение: %s
-               
-               Соперник может:
-               • Принять: `/draw accept`
-               • Отклонить: `/draw decline`
-               """.formatted(
-                response.getStatus(),
-                response.getMessage()
-        );
+        return DRAW_OFFERED.render(response.getStatus(), response.getMessage());
     }
 
     private String handleDrawResponse(long chatId, String gameId, String action) {
@@ -739,40 +977,100 @@ public class ChessCommandHandler {
         GameResponse response = apiClient.respondToDraw(gameId, chatId, accept);
 
         if (response == null || !Boolean.TRUE.equals(response.getSuccess())) {
-            return "❌ *Ошибка обработки ничьи!*\n" +
-                    (response != null ? response.getMessage() : "");
+            return FAILURE.render("Ошибка обработки ничьи!", response != null ? response.getMessage() : "");
         }
 
         if (accept) {
             // Игра завершена ничьей
+            historyStore.finish(gameId, MoveHistoryStore.Result.DRAW);
             sessionManager.removeSession(chatId);
 
-            return """
-                   🤝 *Ничья принята!*
-                   
-                   🎉 Игра завершена вничью!
-                   
-                   📊 Статус: %s
-                   💬 Сообщение: %s
-                   
-                   🎮 Начать новую игру: `/newgame`
-                   """.formatted(
-                    response.getStatus(),
-                    response.getMessage()
-            );
+            return DRAW_ACCEPTED.render(response.getStatus(), response.getMessage());
+        } else {
+            return DRAW_DECLINED.render(response.getMessage());
+        }
+    }
+
+
+    /**
+     * 📷 КОМАНДА /IMAGE: доска картинкой (null — картинка уже отправлена)
+     */
+    private String handleImage(long chatId) {
+        if (!boardImageService.isAvailable()) {
+            return "🖼️ *Картинки доски на сервере отключены.* Текстовая доска: `/board`";
+        }
+        String fen;
+        PlayerColor color;
+        String gameId;
+        Board botPosition = botGameService.currentPosition(chatId);
+        if (botPosition != null) {
+            fen = botPosition.toFen();
+            color = botGameService.humanColor(chatId);
+            gameId = botGameService.gameIdOf(chatId);
         } else {
+            GameSessionManager.GameSession session = sessionManager.getSession(chatId);
+            if (session == null) {
+                return "❌ *У вас нет активной игры!*\n\nНачать: `/newgame` или `/newgame bot`";
+            }
+            gameId = session.getGameId();
+            GameResponse response = apiClient.getGameState(gameId, chatId);
+            if (response == null || !Boolean.TRUE.equals(response.getSuccess()) || response.getBoard() == null) {
+                return "❌ *Ошибка получения доски!*";
+            }
+            fen = response.getBoard();
+            color = session.getColor();
+        }
+
+        boolean whiteBottom = color != PlayerColor.BLACK;
+        String caption = "♟️ Игра " + gameId + (whiteBottom ? " — вы играете белыми" : " — вы играете черными");
+        if (!boardImageService.sendBoard(chatId, fen, whiteBottom, historyStore.lastMove(gameId), caption)) {
+            return "❌ *Не удалось отправить картинку доски.* Текстовая доска: `/board`";
+        }
+        return null;
+    }
+
+    /**
+     * 📜 КОМАНДА /PGN [ID игры] (без ID — последняя партия игрока)
+     */
+    private String handlePgn(long chatId, String text) {
+        String[] parts = text.trim().split("\\s+");
+        String gameId = parts.length > 1 ? parts[1] : historyStore.lastGameOf(chatId);
+        if (gameId == null) {
             return """
-                   ❌ *Ничья отклонена!*
-                   
-                   Игра продолжается.
-                   
-                   💬 Сообщение: %s
-                   
-                   🎯 Продолжить игру: `/board`
-                   """.formatted(response.getMessage());
+                   ❌ *Нет сыгранных партий!*
+
+                   Использование: `/pgn [ID игры]`
+                   """;
+        }
+
+        StringBuilder pgn = new StringBuilder(1024);
+        if (!historyStore.writePgn(gameId, pgn)) {
+            return PGN_NOT_FOUND.render(gameId);
         }
+        if (pgn.length() > MAX_INLINE_PGN) {
+            boolean sent = notificationService.sendDocument(chatId, gameId + ".pgn",
+                    pgn.toString().getBytes(StandardCharsets.UTF_8), "📜 PGN партии " + gameId);
+            return sent ? "📜 *PGN партии отправлен файлом.*" : "❌ *Не удалось отправить PGN файлом.*";
+        }
+        return PGN_INLINE.render(gameId, pgn);
     }
 
+    /**
+     * ⏱ ДОБАВИТЬ ЧАСЫ К ОТВЕТУ (если партия с контролем времени)
+     */
+    private String withClock(String gameId, String text) {
+        String clock = clockService.describe(gameId);
+        return clock != null ? text + "\n\n" + clock : text;
+    }
+
+    /**
+     * ⏳ ИГРА ЕЩЕ ПРОДОЛЖАЕТСЯ
+     */
+    private boolean isGameInProgress(String status) {
+        return !"CHECKMATE".equals(status)
+                && !"STALEMATE".equals(status)
+                && !"DRAW".equals(status);
+    }
 
     /**
      * 🔄 СООБЩЕНИЕ О ОЧЕРЕДИ ХОДА
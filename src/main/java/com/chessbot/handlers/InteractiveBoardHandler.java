@@ -2,26 +2,68 @@ package com.chessbot.handlers;
 
 import com.chessbot.dto.GameResponse;
 import com.chessbot.service.ApiClient;
+import com.chessbot.service.BoardPrefetchService;
 import com.chessbot.service.GameSessionManager;
 import com.chessbot.service.InteractiveBoardService;
+import com.chessbot.service.PositionCache;
+import com.chessbot.util.CallbackCodec;
+import com.chessbot.util.ConcurrentLongMap;
+import com.chessbot.util.MessageTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 
 import java.util.*;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 🎮 Интерактивная доска и ввод хода двумя нажатиями
+ *
+ * Ввод хода — конечный автомат на чат: доска (IDLE) → нажата фигура, показаны ее целевые
+ * клетки (FROM_SELECTED) → нажата клетка; если это превращение — еще выбор фигуры
+ * (PROMOTION). Возможные ходы запоминаются при отрисовке доски, поэтому нажатия не ходят
+ * в API до самой отправки хода. Состояние — неизменяемые записи в ConcurrentLongMap,
+ * переходы атомарны, а отправку хода забирает ровно одно нажатие (remove по значению):
+ * двойной тап не отправит ход дважды. Брошенный ввод истекает через INPUT_TTL_MS.
+ * Кнопки несут эпоху позиции (CallbackCodec): нажатие на доску, с которой позиция
+ * уже ушла, молча отбрасывается.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class InteractiveBoardHandler {
 
+    private static final long INPUT_TTL_MS = 10 * 60_000;
+    private static final long SWEEP_INTERVAL_MS = 60_000;
+
     private final ApiClient apiClient;
     private final GameSessionManager sessionManager;
     private final InteractiveBoardService boardService;
+    private final BoardPrefetchService prefetchService;
+    private final PositionCache positionCache;
+
+    // Ввод хода по чатам: chatId -> текущее состояние автомата
+    private final ConcurrentLongMap<MoveInput> inputs = new ConcurrentLongMap<>();
+
+    private final ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "move-input-sweep");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    // Состояния выбора хода
-    private final Map<Long, String> selectedSquare = new HashMap<>();
+    @PostConstruct
+    public void start() {
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
 
     /**
      * 🎮 СОЗДАНИЕ ИНТЕРАКТИВНОЙ ДОСКИ (БЕЗОПАСНЫЙ ВАРИАНТ)
@@ -37,6 +79,12 @@ public class InteractiveBoardHandler {
                 );
             }
 
+            // Доска могла быть подготовлена заранее после хода соперника
+            BoardPrefetchService.PrefetchedBoard prefetched = prefetchService.take(chatId, gameId);
+            if (prefetched != null) {
+                return render(chatId, gameId, prefetched.getState(), sessionManager.getPlayerColor(chatId), prefetched);
+            }
+
             // Получаем состояние игры
             GameResponse response = apiClient.getGameState(gameId, chatId);
             if (response == null || !Boolean.TRUE.equals(response.getSuccess())) {
@@ -47,33 +95,7 @@ public class InteractiveBoardHandler {
                 );
             }
 
-            // Получаем цвет игрока
-            String playerColor = "WHITE";
-            GameSessionManager.GameSession session = sessionManager.getSession(chatId);
-            if (session != null && session.getPlayerColor() != null) {
-                playerColor = session.getPlayerColor();
-            }
-
-            // Получаем возможные ходы (если API поддерживает)
-            List<String> legalMoves = new ArrayList<>();
-            try {
-                legalMoves = apiClient.getLegalMoves(gameId, chatId);
-            } catch (Exception e) {
-                log.warn("Не удалось получить возможные ходы: {}", e.getMessage());
-            }
-
-            // Создаем интерактивную доску
-            InteractiveBoardService.InteractiveBoard interactiveBoard =
-                    boardService.createInteractiveBoard(
-                            response.getBoard(),
-                            playerColor,
-                            legalMoves
-                    );
-
-            // Форматируем сообщение
-            String message = formatBoardMessage(response, interactiveBoard.getBoardText());
-
-            return new BoardMessage(message, interactiveBoard.getKeyboard());
+            return render(chatId, gameId, response, sessionManager.getPlayerColor(chatId), null);
 
         } catch (Exception e) {
             log.error("Ошибка создания интерактивной доски: {}", e.getMessage(), e);
@@ -92,38 +114,178 @@ public class InteractiveBoardHandler {
     }
 
     /**
-     * 🔘 ОБРАБОТКА НАЖАТИЯ НА КЛЕТКУ (БЕЗОПАСНЫЙ ВАРИАНТ)
+     * 🎮 ИНТЕРАКТИВНАЯ ДОСКА ДЛЯ ПОЛУЧЕННОГО СОСТОЯНИЯ ИГРЫ
+     * Заодно начинает ввод хода заново: нажатия на эту доску сверяются с ее ходами
+     *
+     * @param prefetched доска, уже нарисованная предзагрузкой, или null
      */
-    public BoardMessage handleSquareClick(Long chatId, String square, String userName) {
-        try {
-            String gameId = sessionManager.getCurrentGameId(chatId);
-            if (gameId == null) {
-                return new BoardMessage("❌ *Игра не найдена!*", null);
+    public BoardMessage render(Long chatId, String gameId, GameResponse response, String playerColor,
+                               BoardPrefetchService.PrefetchedBoard prefetched) {
+        String color = playerColor != null ? playerColor : "WHITE";
+        InteractiveBoardService.InteractiveBoard interactiveBoard;
+        List<String> legalMoves;
+        if (prefetched != null) {
+            interactiveBoard = prefetched.getBoard();
+            legalMoves = prefetched.getLegalMoves();
+        } else {
+            // Возможные ходы: из уже полученного ответа или локально, без второго запроса
+            legalMoves = new ArrayList<>();
+            try {
+                legalMoves = positionCache.legalMoves(response, playerColor);
+            } catch (Exception e) {
+                log.warn("Не удалось получить возможные ходы: {}", e.getMessage());
             }
 
-            // Пока просто возвращаем сообщение, что фигура выбрана
-            // В будущем здесь будет логика выбора хода
-            return new BoardMessage(
-                    "🎯 *Выбрана фигура на клетке " + square.toUpperCase() + "*\n\n" +
-                            "📋 *Для выполнения хода используйте команду:*\n" +
-                            "`/move " + square + "-[целевая клетка]`\n\n" +
-                            "📖 *Пример:* `/move " + square + "-e4`",
-                    null
-            );
+            interactiveBoard = boardService.createInteractiveBoard(gameId, response.getBoard(), color, legalMoves);
+        }
 
-        } catch (Exception e) {
-            log.error("Ошибка обработки клика: {}", e.getMessage(), e);
-            selectedSquare.remove(chatId);
-            return new BoardMessage("❌ *Ошибка:* " + e.getMessage(), null);
+        inputs.put(chatId, new MoveInput(chatId, gameId, interactiveBoard.getEpoch(), legalMoves, "WHITE".equals(color),
+                interactiveBoard.getKeyboard(), Phase.IDLE, deadline()));
+
+        String message = formatBoardMessage(response, interactiveBoard.getBoardText());
+        return new BoardMessage(message, interactiveBoard.getKeyboard());
+    }
+
+    /**
+     * 📋 НАЧАТЬ ВВОД ДЛЯ СПИСКА ХОДОВ (/moves): кнопки списка сверяются с этими ходами
+     * Ввод с доски той же позиции не трогается — у него есть клавиатура для отмены
+     */
+    public void track(Long chatId, String gameId, int epoch, List<String> legalMoves, String playerColor) {
+        inputs.compute(chatId, (id, existing) -> existing != null && existing.epoch() == epoch
+                && existing.gameId().equals(gameId) && existing.deadline() >= System.currentTimeMillis()
+                ? existing
+                : new MoveInput(chatId, gameId, epoch, legalMoves, !"BLACK".equals(playerColor), null,
+                Phase.IDLE, deadline()));
+    }
+
+    /**
+     * 👆 НАЖАТИЕ НА ДОСКУ (null — кнопка не относится к вводу хода или устарела)
+     *
+     * @param packed кнопка, разобранная CallbackCodec.decode
+     */
+    public Tap handleCallback(Long chatId, long packed) {
+        int action = CallbackCodec.action(packed);
+        if (action != CallbackCodec.SELECT && action != CallbackCodec.MOVE && action != CallbackCodec.CANCEL) {
+            return null;
+        }
+        MoveInput input = inputs.get(chatId);
+        if (input != null && input.epoch() != CallbackCodec.epoch(packed)) {
+            log.debug("Нажатие на устаревшую доску в chatId={} пропущено", chatId);
+            return null;
+        }
+
+        if (action == CallbackCodec.SELECT) {
+            return handleSquareClick(chatId, CallbackCodec.squareName(CallbackCodec.from(packed)));
+        } else if (action == CallbackCodec.MOVE) {
+            char promotion = CallbackCodec.promotion(packed);
+            String move = CallbackCodec.squareName(CallbackCodec.from(packed)) + "-"
+                    + CallbackCodec.squareName(CallbackCodec.to(packed)) + (promotion != 0 ? promotion : "");
+            return handleTargetClick(chatId, move);
+        }
+        return handleCancel(chatId);
+    }
+
+    /**
+     * 🔘 НАЖАТА ФИГУРА: ПОКАЗАТЬ ЕЕ ЦЕЛЕВЫЕ КЛЕТКИ
+     */
+    public Tap handleSquareClick(Long chatId, String square) {
+        MoveInput input = current(chatId);
+        List<String> moves = input != null ? input.movesFrom(square) : List.of();
+        if (moves.isEmpty()) {
+            // Доска устарела: на ней была фигура с ходами, а сейчас ходов нет
+            return Tap.redraw();
+        }
+        advance(chatId, input, Phase.FROM_SELECTED);
+        return Tap.showKeyboard(boardService.createMoveSelectionKeyboard(square, moves, input.epoch()));
+    }
+
+    /**
+     * 🎯 НАЖАТА ЦЕЛЕВАЯ КЛЕТКА ИЛИ ФИГУРА ПРЕВРАЩЕНИЯ
+     *
+     * Ход в кнопке сверяется с возможными ходами доски, а не с выбранной фигурой:
+     * порядок конкурирующих нажатий на результат не влияет.
+     */
+    public Tap handleTargetClick(Long chatId, String move) {
+        MoveInput input = current(chatId);
+        if (input == null || move.length() < 4) {
+            return Tap.redraw();
+        }
+        String target = InteractiveBoardService.targetOf(move);
+        char promotion = InteractiveBoardService.promotionOf(move);
+
+        List<String> candidates = new ArrayList<>();
+        for (String legal : input.movesFrom(move.substring(0, 2))) {
+            if (InteractiveBoardService.targetOf(legal).equals(target)
+                    && (promotion == 0 || InteractiveBoardService.promotionOf(legal) == promotion)) {
+                candidates.add(legal);
+            }
         }
+        if (candidates.isEmpty()) {
+            return Tap.redraw();
+        }
+        if (candidates.size() > 1) {
+            // Клетка превращения: ход определится выбором фигуры
+            advance(chatId, input, Phase.PROMOTION);
+            return Tap.showKeyboard(boardService.createPromotionKeyboard(candidates, input.white(), input.epoch()));
+        }
+
+        // Ход отправляет только то нажатие, что забрало состояние
+        if (!inputs.remove(chatId, input)) {
+            log.debug("Повторное нажатие хода {} в chatId={} пропущено", move, chatId);
+            return null;
+        }
+        return Tap.submit(candidates.get(0));
     }
 
     /**
-     * 🔄 ОБРАБОТКА КНОПКИ ОБНОВЛЕНИЯ
+     * ❌ ОТМЕНА ВЫБОРА: ВЕРНУТЬ ДОСКУ
      */
-    public BoardMessage handleRefresh(Long chatId) {
-        selectedSquare.remove(chatId);
-        return createInteractiveBoardMessage(chatId);
+    public Tap handleCancel(Long chatId) {
+        MoveInput input = current(chatId);
+        if (input == null) {
+            return Tap.redraw();
+        }
+        advance(chatId, input, Phase.IDLE);
+        return Tap.showKeyboard(input.boardKeyboard());
+    }
+
+    /**
+     * Состояние ввода для текущей игры чата или null (нет, истекло, игра сменилась)
+     */
+    private MoveInput current(Long chatId) {
+        MoveInput input = inputs.get(chatId);
+        if (input == null) {
+            return null;
+        }
+        if (input.deadline() < System.currentTimeMillis()
+                || !input.gameId().equals(sessionManager.getCurrentGameId(chatId))) {
+            inputs.remove(chatId, input);
+            return null;
+        }
+        return input;
+    }
+
+    // Переход только из прочитанного состояния: доска, перерисованная тем временем, не затирается
+    private void advance(Long chatId, MoveInput from, Phase next) {
+        inputs.compute(chatId, (id, existing) -> existing == from ? from.to(next, deadline()) : existing);
+    }
+
+    Phase phase(Long chatId) {
+        MoveInput input = inputs.get(chatId);
+        return input != null ? input.phase() : null;
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        inputs.forEachValue(input -> {
+            if (input.deadline() < now) {
+                inputs.remove(input.chatId(), input);
+            }
+        });
+    }
+
+    private static long deadline() {
+        return System.currentTimeMillis() + INPUT_TTL_MS;
     }
 
     /**
@@ -135,10 +297,14 @@ public class InteractiveBoardHandler {
         sb.append("♟️ *Шахматная доска*\n\n");
 
         if (response.getMessage() != null && !response.getMessage().isEmpty()) {
-            sb.append("💬 ").append(response.getMessage()).append("\n\n");
+            sb.append("💬 ");
+            MessageTemplate.appendEscaped(sb, response.getMessage());
+            sb.append("\n\n");
         }
 
-        sb.append("🆔 ID: `").append(response.getGameId()).append("`\n");
+        sb.append("🆔 ID: `");
+        MessageTemplate.appendEscaped(sb, String.valueOf(response.getGameId()));
+        sb.append("`\n");
         sb.append("📊 Статус: ").append(response.getStatus()).append("\n");
         sb.append("🎮 Очередь: ").append(response.getCurrentTurn()).append("\n\n");
 
@@ -147,13 +313,15 @@ public class InteractiveBoardHandler {
         // Информация об игроках
         if (response.getWhitePlayer() != null && response.getBlackPlayer() != null) {
             sb.append("\n👥 *Игроки:*\n");
-            sb.append("⚪ *Белые:* ").append(response.getWhitePlayer().getName());
+            sb.append("⚪ *Белые:* ");
+            MessageTemplate.appendEscaped(sb, String.valueOf(response.getWhitePlayer().getName()));
             if (response.getWhitePlayer().getRating() != null) {
                 sb.append(" ⭐").append(response.getWhitePlayer().getRating());
             }
             sb.append("\n");
 
-            sb.append("⚫ *Черные:* ").append(response.getBlackPlayer().getName());
+            sb.append("⚫ *Черные:* ");
+            MessageTemplate.appendEscaped(sb, String.valueOf(response.getBlackPlayer().getName()));
             if (response.getBlackPlayer().getRating() != null) {
                 sb.append(" ⭐").append(response.getBlackPlayer().getRating());
             }
@@ -165,6 +333,49 @@ public class InteractiveBoardHandler {
         return sb.toString();
     }
 
+    enum Phase {
+        IDLE, FROM_SELECTED, PROMOTION
+    }
+
+    /**
+     * Состояние ввода хода; каждый переход — новая запись
+     */
+    private record MoveInput(long chatId, String gameId, int epoch, List<String> legalMoves, boolean white,
+                             InlineKeyboardMarkup boardKeyboard, Phase phase, long deadline) {
+
+        List<String> movesFrom(String square) {
+            List<String> moves = new ArrayList<>();
+            for (String move : legalMoves) {
+                if (move != null && move.length() >= 4 && move.startsWith(square)) {
+                    moves.add(move);
+                }
+            }
+            return moves;
+        }
+
+        MoveInput to(Phase next, long nextDeadline) {
+            return new MoveInput(chatId, gameId, epoch, legalMoves, white, boardKeyboard, next, nextDeadline);
+        }
+    }
+
+    /**
+     * 👆 ИТОГ НАЖАТИЯ: показать клавиатуру, отправить ход или (оба null) перерисовать устаревшую доску
+     */
+    public record Tap(InlineKeyboardMarkup keyboard, String move) {
+
+        static Tap showKeyboard(InlineKeyboardMarkup keyboard) {
+            return new Tap(keyboard, null);
+        }
+
+        static Tap submit(String move) {
+            return new Tap(null, move);
+        }
+
+        static Tap redraw() {
+            return new Tap(null, null);
+        }
+    }
+
     /**
      * 📨 DTO ДЛЯ ВОЗВРАТА СООБЩЕНИЯ
      */
@@ -0,0 +1,20 @@
+package com.chessbot.repository;
+
+import com.chessbot.entity.ColdSessionEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ColdSessionRepository extends JpaRepository<ColdSessionEntity, Long> {
+
+    List<ColdSessionEntity> findByGameId(String gameId);
+
+    /**
+     * Ключи страницами по chatId (keyset): для заполнения фильтров при старте без загрузки строк целиком
+     */
+    @Query("select c.chatId, c.gameId from ColdSessionEntity c where c.chatId > :after order by c.chatId")
+    List<Object[]> findKeysAfter(@Param("after") long after, Pageable page);
+}
@@ -0,0 +1,273 @@
+package com.chessbot.service;
+
+import com.chessbot.engine.Board;
+import com.chessbot.engine.EngineService;
+import com.chessbot.engine.MoveGenerator;
+import com.chessbot.engine.Notation;
+import com.chessbot.engine.SearchHandle;
+import com.chessbot.engine.SearchLimits;
+import com.chessbot.engine.SearchResult;
+import com.chessbot.util.ConcurrentLongMap;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 🔍 Фоновый анализ позиции
+ *
+ * Один анализ на чат, ограниченный по времени и глубине. Считается на отдельном
+ * пуле анализа EngineService, а прогресс выводится правкой одного и того же
+ * сообщения: не чаще раза в EDIT_INTERVAL_MILLIS, из одного потока, так что
+ * финальный текст всегда ложится последним.
+ *
+ * Завершенный анализ попадает в PositionCache: та же позиция из другого чата
+ * (типовой дебют, разбор одной партии) отвечается сразу, без расчета.
+ */
+@Slf4j
+@Service
+public class AnalysisService {
+
+    private static final long EDIT_INTERVAL_MILLIS = 1_500;
+    private static final int UPDATE_QUEUE_SIZE = 1_000;
+    private static final int PV_MOVES_SHOWN = 8;
+    // Оценка из кэша подходит, только если она не мельче обычного анализа
+    private static final int MIN_CACHED_DEPTH = 12;
+
+    private final EngineService engine;
+    private final TelegramNotificationService notificationService;
+    private final PositionCache positionCache;
+    private final long budgetMillis;
+    private final int maxDepth;
+
+    private final ConcurrentLongMap<Analysis> running = new ConcurrentLongMap<>();
+
+    // Один поток: правки одного сообщения не обгоняют друг друга
+    private final ThreadPoolExecutor updateExecutor = new ThreadPoolExecutor(
+            1, 1,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(UPDATE_QUEUE_SIZE),
+            namedThreadFactory(),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+
+    public AnalysisService(EngineService engine,
+                           TelegramNotificationService notificationService,
+                           PositionCache positionCache,
+                           @Value("${chess.analysis.time-ms:10000}") long budgetMillis,
+                           @Value("${chess.analysis.max-depth:30}") int maxDepth) {
+        this.engine = engine;
+        this.notificationService = notificationService;
+        this.positionCache = positionCache;
+        this.budgetMillis = budgetMillis;
+        this.maxDepth = maxDepth;
+    }
+
+    public boolean isRunning(long chatId) {
+        return running.containsKey(chatId);
+    }
+
+    /**
+     * 🚀 ЗАПУСТИТЬ АНАЛИЗ
+     * Возвращает текст ответа (ошибка или готовый результат из кэша) или null,
+     * если анализ запущен (ответ уже отправлен сообщением анализа)
+     */
+    public String start(long chatId, Board position) {
+        if (isRunning(chatId)) {
+            return """
+                   ⏳ *Анализ уже идет!*
+
+                   Дождитесь результата или остановите: `/analyze stop`
+                   """;
+        }
+        if (!MoveGenerator.hasLegalMove(position)) {
+            return "🏁 *В этой позиции нет ходов* — партия уже закончена.";
+        }
+
+        PositionCache.CachedPosition cached = positionCache.evaluation(position.key(), MIN_CACHED_DEPTH);
+        if (cached != null) {
+            log.info("♻️ Анализ из кэша позиций: chatId={}, глубина {}", chatId, cached.depth());
+            SearchResult result = new SearchResult(cached.bestMove(), cached.score(), cached.depth(), 0, 0, cached.pv());
+            return format(position, result, "♻️ *Позиция уже анализировалась* — результат из кэша.");
+        }
+
+        Integer messageId = notificationService.sendMessageReturningId(chatId,
+                "🔍 *Анализ позиции запущен...*\n\n⏱ Бюджет: " + budgetMillis / 1000 + " с");
+        if (messageId == null) {
+            return "❌ *Не удалось запустить анализ*";
+        }
+
+        Analysis analysis = new Analysis(chatId, messageId, position.copy());
+        if (running.compute(chatId, (key, existing) -> existing != null ? existing : analysis) != analysis) {
+            notificationService.editMessage(chatId, messageId, "⏳ *Анализ уже идет!*");
+            return null;
+        }
+
+        try {
+            SearchLimits limits = new SearchLimits(budgetMillis, maxDepth, 0, 1);
+            analysis.handle = engine.analyze(position, limits, analysis::onIteration);
+        } catch (RejectedExecutionException e) {
+            running.remove(chatId, analysis);
+            log.warn("⚠️ Все потоки анализа заняты, chatId={}", chatId);
+            notificationService.editMessage(chatId, messageId, """
+                    😓 *Все анализаторы сейчас заняты*
+
+                    Попробуйте через несколько секунд: `/analyze`
+                    """);
+            return null;
+        }
+
+        log.info("🔍 Анализ запущен: chatId={}, fen={}", chatId, position.toFen());
+        analysis.handle.result().whenCompleteAsync((result, error) -> finish(analysis, result, error), updateExecutor);
+        return null;
+    }
+
+    /**
+     * ⏹ ОСТАНОВИТЬ АНАЛИЗ (пользователь пошел дальше). Итог с последней глубины все равно придет.
+     */
+    public boolean cancel(long chatId) {
+        Analysis analysis = running.get(chatId);
+        if (analysis == null) {
+            return false;
+        }
+        analysis.cancelled = true;
+        SearchHandle handle = analysis.handle;
+        if (handle != null) {
+            handle.stop();
+        }
+        return true;
+    }
+
+    private void finish(Analysis analysis, SearchResult result, Throwable error) {
+        running.remove(analysis.chatId, analysis);
+        String text;
+        if (error != null || result == null) {
+            log.error("❌ Ошибка анализа для chatId={}: {}", analysis.chatId, error != null ? error.getMessage() : "нет результата");
+            text = "❌ *Анализ прерван из-за ошибки*";
+        } else {
+            String footer = analysis.cancelled ? "⏹ *Анализ остановлен.*" : "✅ *Анализ завершен.*";
+            if (!analysis.cancelled) {
+                positionCache.storeEvaluation(analysis.root.key(), result);
+            }
+            text = format(analysis.root, result, footer);
+        }
+        notificationService.editMessage(analysis.chatId, analysis.messageId, text);
+    }
+
+    private void pushProgress(Analysis analysis) {
+        analysis.editPending.set(false);
+        SearchResult result = analysis.latest.get();
+        SearchHandle handle = analysis.handle;
+        if (result == null || handle == null || handle.isDone() || !running.containsKey(analysis.chatId)) {
+            return;
+        }
+        analysis.lastEditMillis = System.currentTimeMillis();
+        notificationService.editMessage(analysis.chatId, analysis.messageId,
+                format(analysis.root, result, "⏳ Анализ продолжается... Остановить: `/analyze stop`"));
+    }
+
+    private String format(Board root, SearchResult result, String footer) {
+        StringBuilder sb = new StringBuilder("🔍 *Анализ позиции*\n\n");
+
+        // Оценка движка — со стороны того, кто ходит; пользователю привычнее "в пользу белых"
+        boolean whiteToMove = root.sideToMove() == Board.WHITE;
+        if (result.isMate()) {
+            int mate = result.mateIn();
+            boolean whiteMates = (mate > 0) == whiteToMove;
+            sb.append("🏁 *Мат в ").append(Math.abs(mate)).append("* (")
+                    .append(whiteMates ? "ставят белые" : "ставят черные").append(")\n");
+        } else {
+            int whiteScore = whiteToMove ? result.score() : -result.score();
+            sb.append("📊 *Оценка:* ").append(String.format(Locale.ROOT, "%+.2f", whiteScore / 100.0))
+                    .append(" (в пользу ").append(whiteScore >= 0 ? "белых" : "черных").append(")\n");
+        }
+
+        if (result.hasMove()) {
+            Board board = root.copy();
+            StringBuilder line = new StringBuilder();
+            int[] pv = result.pv();
+            for (int i = 0; i < pv.length && i < PV_MOVES_SHOWN; i++) {
+                // Хвост варианта из таблицы транспозиций может быть от другой позиции — проверяем
+                if (!MoveGenerator.legalMoves(board).contains(pv[i])) {
+                    break;
+                }
+                if (i > 0) {
+                    line.append(' ');
+                }
+                Notation.appendSan(board, pv[i], line);
+                board.makeMove(pv[i]);
+            }
+            sb.append("🧠 *Лучший ход:* `").append(Notation.toSan(root, result.bestMove())).append("`\n");
+            sb.append("📜 *Вариант:* ").append(line).append('\n');
+        }
+
+        sb.append("📏 *Глубина:* ").append(result.depth());
+        if (result.nodes() > 0) {
+            sb.append(" | ⚡ ").append(String.format(Locale.ROOT, "%,d", result.nodesPerSecond())).append(" узлов/с")
+                    .append(" | ⏱ ").append(String.format(Locale.ROOT, "%.1f", result.timeMillis() / 1000.0)).append(" с");
+        }
+        sb.append("\n\n");
+        sb.append(footer);
+        return sb.toString();
+    }
+
+    private static ThreadFactory namedThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "analysis-updates-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.forEachValue(analysis -> {
+            if (analysis.handle != null) {
+                analysis.handle.stop();
+            }
+        });
+        updateExecutor.shutdown();
+    }
+
+    /**
+     * Один запущенный анализ
+     */
+    private final class Analysis {
+        final long chatId;
+        final int messageId;
+        final Board root; // читается только из потока правок
+        final AtomicReference<SearchResult> latest = new AtomicReference<>();
+        final AtomicBoolean editPending = new AtomicBoolean();
+        volatile SearchHandle handle;
+        volatile boolean cancelled;
+        volatile long lastEditMillis = System.currentTimeMillis();
+
+        Analysis(long chatId, int messageId, Board root) {
+            this.chatId = chatId;
+            this.messageId = messageId;
+            this.root = root;
+        }
+
+        /**
+         * Вызывается потоком поиска: только запоминаем результат и, если пора, ставим правку в очередь
+         */
+        void onIteration(SearchResult result) {
+            latest.set(result);
+            if (System.currentTimeMillis() - lastEditMillis >= EDIT_INTERVAL_MILLIS
+                    && editPending.compareAndSet(false, true)) {
+                updateExecutor.execute(() -> pushProgress(this));
+            }
+        }
+    }
+}
@@ -6,10 +6,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
@@ -20,6 +23,14 @@ public class ApiClient {
 
     private final String API_BASE_URL = "http://localhost:8080/api/games";
 
+    // Столько сетевых сбоев или 5xx подряд размыкают предохранитель
+    private static final int FAILURES_TO_OPEN = 3;
+    private static final String CIRCUIT_OPEN_MESSAGE = "Chess API недоступен, попробуйте позже";
+
+    // Разомкнут — запросы не уходят в сеть, пока фоновая проверка HealthMonitor не увидит API живым
+    private volatile boolean circuitOpen;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
     /**
      * 🆕 СОЗДАТЬ НОВУЮ ИГРУ
      */
@@ -31,6 +42,10 @@ public class ApiClient {
         log.info("🔗 Используется URL: {}", url);  // ← ДОБАВЬТЕ ЭТУ СТРОКУ!
         log.info("Отправка запроса на создание игры: {}", request);
 
+        if (circuitOpen) {
+            return createErrorResponse(CIRCUIT_OPEN_MESSAGE);
+        }
+
         try {
             log.info("Отправка запроса на создание игры: {}", request);
             ResponseEntity<GameResponse> response = restTemplate.postForEntity(
@@ -38,12 +53,14 @@ public class ApiClient {
                     request,
                     GameResponse.class
             );
+            recordSuccess();
 
             GameResponse gameResponse = response.getBody();
             log.info("Ответ от API (создание игры): {}", gameResponse);
             return gameResponse;
 
         } catch (Exception e) {
+            recordFailure(e);
             log.error("Ошибка при создании игры: {}", e.getMessage(), e);
             return createErrorResponse("Ошибка создания игры: " + e.getMessage());
         }
@@ -55,18 +72,24 @@ public class ApiClient {
     public List<GameInfoResponse> getWaitingGames() {
         String url = API_BASE_URL + "/waiting";
 
+        if (circuitOpen) {
+            return List.of();
+        }
+
         try {
             log.info("Запрос списка ожидающих игр");
             ResponseEntity<GameInfoResponse[]> response = restTemplate.getForEntity(
                     url,
                     GameInfoResponse[].class
             );
+            recordSuccess();
 
             List<GameInfoResponse> games = List.of(response.getBody());
             log.info("Получено {} ожидающих игр", games.size());
             return games;
 
         } catch (Exception e) {
+            recordFailure(e);
             log.error("Ошибка при получении списка игр: {}", e.getMessage(), e);
             return List.of();
         }
@@ -80,6 +103,10 @@ public class ApiClient {
 
         JoinGameRequest request = new JoinGameRequest(playerId, playerName);
 
+        if (circuitOpen) {
+            return createErrorResponse(CIRCUIT_OPEN_MESSAGE);
+        }
+
         try {
             log.info("Отправка запроса на присоединение к игре {} игроком {}", gameId, playerId);
             ResponseEntity<GameResponse> response = restTemplate.postForEntity(
@@ -87,12 +114,14 @@ public class ApiClient {
                     request,
                     GameResponse.class
             );
+            recordSuccess();
 
             GameResponse gameResponse = response.getBody();
             log.info("Ответ от API (присоединение): {}", gameResponse);
             return gameResponse;
 
         } catch (Exception e) {
+            recordFailure(e);
             log.error("Ошибка при присоединении к игре: {}", e.getMessage(), e);
             return createErrorResponse("Ошибка присоединения: " + e.getMessage());
         }
@@ -106,6 +135,10 @@ public class ApiClient {
 
         MoveRequest request = new MoveRequest(playerId, notation);
 
+        if (circuitOpen) {
+            return createErrorResponse(CIRCUIT_OPEN_MESSAGE);
+        }
+
         try {
             log.info("Отправка хода {} в игру {} от игрока {}", notation, gameId, playerId);
             ResponseEntity<GameResponse> response = restTemplate.postForEntity(
@@ -113,12 +146,14 @@ public class ApiClient {
                     request,
                     GameResponse.class
             );
+            recordSuccess();
 
             GameResponse gameResponse = response.getBody();
             log.info("Ответ от API (ход): {}", gameResponse);
             return gameResponse;
 
         } catch (Exception e) {
+            recordFailure(e);
             log.error("Ошибка при выполнении хода: {}", e.getMessage(), e);
             return createErrorResponse("Ошибка хода: " + e.getMessage());
         }
@@ -130,46 +165,64 @@ public class ApiClient {
     public GameResponse getGameState(String gameId, Long playerId) {
         String url = API_BASE_URL + "/" + gameId + "?playerId=" + playerId;
 
+        if (circuitOpen) {
+            return createErrorResponse(CIRCUIT_OPEN_MESSAGE);
+        }
+
         try {
             log.info("Запрос состояния игры {} для игрока {}", gameId, playerId);
             ResponseEntity<GameResponse> response = restTemplate.getForEntity(
                     url,
                     GameResponse.class
             );
+            recordSuccess();
 
             GameResponse gameResponse = response.getBody();
             log.info("Ответ от API (состояние игры): {}", gameResponse);
             return gameResponse;
 
         } catch (Exception e) {
+            recordFailure(e);
             log.error("Ошибка при получении состояния игры: {}", e.getMessage(), e);
             return createErrorResponse("Ошибка получения игры: " + e.getMessage());
         }
     }
 
     /**
-     * 🧪 ПРОВЕРИТЬ СТАТУС API..
+     * 🧪 ПРОВЕРИТЬ СТАТУС API (для HealthMonitor: мимо предохранителя, ошибка — исключением)
      */
-    public String testApi() {
+    public String ping() {
         String url =  API_BASE_URL + "/test";  // ← Используем константу!
+        return restTemplate.getForObject(url, String.class);
+    }
 
-        try {
-            log.info("Проверка доступности API");
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-            log.info("API доступен: {}", response.getBody());
-            return "✅ API работает: " + response.getBody();
-
-        } catch (Exception e) {
-            log.error("API недоступен: {}", e.getMessage());
-            return "❌ API недоступен: " + e.getMessage();
+    /**
+     * 🔌 ИТОГ ФОНОВОЙ ПРОВЕРКИ: замыкает или размыкает предохранитель
+     */
+    public void updateCircuit(boolean apiUp) {
+        if (apiUp) {
+            consecutiveFailures.set(0);
+        }
+        if (circuitOpen == apiUp) {
+            log.warn(apiUp ? "🔌 Chess API снова доступен, предохранитель замкнут"
+                    : "🔌 Chess API недоступен, предохранитель разомкнут");
+            circuitOpen = !apiUp;
         }
     }
+
+    public boolean isCircuitOpen() {
+        return circuitOpen;
+    }
     /**
      * 🤝 ПРЕДЛОЖИТЬ НИЧЬЮ
      */
     public GameResponse offerDraw(String gameId, Long playerId) {
         String url = API_BASE_URL + "/"  + gameId + "/draw/offer?playerId=" + playerId;
 
+        if (circuitOpen) {
+            return createErrorResponse(CIRCUIT_OPEN_MESSAGE);
+        }
+
         try {
             log.info("Предложение ничьи в игре {} от игрока {}", gameId, playerId);
             ResponseEntity<GameResponse> response = restTemplate.postForEntity(
@@ -177,12 +230,14 @@ public class ApiClient {
                     null,
                     GameResponse.class
             );
+            recordSuccess();
 
             GameResponse gameResponse = response.getBody();
             log.info("Ответ на предложение ничьи: {}", gameResponse);
             return gameResponse;
 
         } catch (Exception e) {
+            recordFailure(e);
             log.error("Ошибка предложения ничьи: {}", e.getMessage(), e);
             return createErrorResponse("Ошибка предложения ничьи: " + e.getMessage());
         }
@@ -195,6 +250,10 @@ public class ApiClient {
         String url = "http://localhost:8080/api/games/" + gameId +
                 "/draw/respond?playerId=" + playerId + "&accept=" + accept;
 
+        if (circuitOpen) {
+            return createErrorResponse(CIRCUIT_OPEN_MESSAGE);
+        }
+
         try {
             log.info("Ответ на ничью в игре {} от игрока {}: {}", gameId, playerId, accept);
             ResponseEntity<GameResponse> response = restTemplate.postForEntity(
@@ -202,12 +261,14 @@ public class ApiClient {
                     null,
                     GameResponse.class
             );
+            recordSuccess();
 
             GameResponse gameResponse = response.getBody();
             log.info("Ответ на принятие/отклонение ничьи: {}", gameResponse);
             return gameResponse;
 
         } catch (Exception e) {
+            recordFailure(e);
             log.error("Ошибка ответа на ничью: {}", e.getMessage(), e);
             return createErrorResponse("Ошибка ответа на ничью: " + e.getMessage());
         }
@@ -218,36 +279,68 @@ public class ApiClient {
     public List<String> getLegalMoves(String gameId, Long playerId) {
         String url = API_BASE_URL + "/" + gameId + "?playerId=" + playerId;
 
+        if (circuitOpen) {
+            return List.of();
+        }
+
         try {
             log.info("Запрос возможных ходов для игры {} игрока {}", gameId, playerId);
             ResponseEntity<GameResponse> response = restTemplate.getForEntity(
                     url,
                     GameResponse.class
             );
+            recordSuccess();
 
-            GameResponse gameResponse = response.getBody();
-            if (gameResponse != null && gameResponse.getAdditionalInfo() != null) {
-                // Предполагаем, что legalMoves есть в additionalInfo
-                // Нужно адаптировать под реальную структуру ответа
-                @SuppressWarnings("unchecked")
-                Map<String, Object> additionalInfo = (Map<String, Object>) gameResponse.getAdditionalInfo();
-                if (additionalInfo.containsKey("legalMoves")) {
-                    @SuppressWarnings("unchecked")
-                    List<String> moves = (List<String>) additionalInfo.get("legalMoves");
-                    log.info("Получено {} возможных ходов", moves.size());
-                    return moves;
-                }
+            List<String> moves = extractLegalMoves(response.getBody());
+            if (!moves.isEmpty()) {
+                log.info("Получено {} возможных ходов", moves.size());
+                return moves;
             }
 
             log.warn("Возможные ходы не найдены в ответе");
             return List.of();
 
         } catch (Exception e) {
+            recordFailure(e);
             log.error("Ошибка получения возможных ходов: {}", e.getMessage(), e);
             return List.of();
         }
     }
 
+    /**
+     * 🔎 ИЗВЛЕЧЬ ВОЗМОЖНЫЕ ХОДЫ ИЗ СОСТОЯНИЯ ИГРЫ
+     * Позволяет не делать второй запрос, если состояние уже получено
+     */
+    public List<String> extractLegalMoves(GameResponse gameResponse) {
+        if (gameResponse != null && gameResponse.getAdditionalInfo() instanceof Map<?, ?> additionalInfo) {
+            // Предполагаем, что legalMoves есть в additionalInfo
+            // Нужно адаптировать под реальную структуру ответа
+            if (additionalInfo.get("legalMoves") instanceof List<?> moves) {
+                @SuppressWarnings("unchecked")
+                List<String> legalMoves = (List<String>) moves;
+                return legalMoves;
+            }
+        }
+        return List.of();
+    }
+
+    private void recordSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * Недоступность считается только по сетевым сбоям и 5xx: ошибка запроса (4xx) — не повод размыкать
+     */
+    private void recordFailure(Exception e) {
+        if ((e instanceof ResourceAccessException || e instanceof HttpServerErrorException)
+                && consecutiveFailures.incrementAndGet() >= FAILURES_TO_OPEN && !circuitOpen) {
+            log.warn("🔌 {} сбоев Chess API подряд, предохранитель разомкнут до следующей проверки", FAILURES_TO_OPEN);
+            circuitOpen = true;
+        }
+    }
+
     /**
      * ❌ СОЗДАТЬ ОТВЕТ ОБ ОШИБКЕ
      */
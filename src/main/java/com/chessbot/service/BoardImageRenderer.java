@@ -0,0 +1,254 @@
+package com.chessbot.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.AWTError;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 🖼️ Отрисовка доски в PNG
+ *
+ * Все, что не зависит от позиции, рисуется один раз при первом кадре: атлас спрайтов
+ * (12 фигур в одной картинке 6x2 клеток) и пустая доска с подписями для каждой
+ * ориентации. Фигуры берутся из системного шрифта; если шрифтов нет (голый образ без
+ * fontconfig) или в них нет шахматных глифов, отрисовка выключается, а бот работает
+ * дальше с текстовой доской. Кадр собирается копированием: фон доски, подсветка последнего хода,
+ * спрайты из атласа. Холст, Graphics2D и буфер PNG у каждого потока свои и
+ * переиспользуются между кадрами, так что отрисовка не выделяет ничего, кроме
+ * итогового массива байт.
+ */
+@Slf4j
+@Service
+public class BoardImageRenderer {
+
+    // Заполненные глифы U+265A..U+265F в порядке Board.PAWN..Board.KING
+    private static final String GLYPHS = "\u265F\u265E\u265D\u265C\u265B\u265A";
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+
+    private static final Color LIGHT = new Color(0xF0D9B5);
+    private static final Color DARK = new Color(0xB58863);
+    private static final Color HIGHLIGHT = new Color(205, 210, 106, 200);
+    private static final Color WHITE_FILL = new Color(0xFAFAFA);
+    private static final Color BLACK_FILL = new Color(0x262421);
+
+    private final int squareSize;
+    private volatile Sprites sprites;
+    private volatile boolean unavailable;
+
+    private final ThreadLocal<Canvas> canvases;
+
+    public BoardImageRenderer(@Value("${chess.board-image.square-px:64}") int squareSize) {
+        this.squareSize = squareSize;
+        // Без дискового кэша ImageIO: PNG кодируется прямо в память
+        ImageIO.setUseCache(false);
+        this.canvases = ThreadLocal.withInitial(() -> new Canvas(8 * squareSize));
+    }
+
+    /**
+     * Можно ли рисовать доску: false, если атлас не удалось построить
+     */
+    public boolean isAvailable() {
+        return sprites() != null;
+    }
+
+    /**
+     * 🖼️ PNG ДОСКИ
+     *
+     * @param fen        FEN или только расстановка
+     * @param whiteBottom белые снизу
+     * @param from       клетка начала последнего хода (a1 = 0) или -1
+     * @param to         клетка конца последнего хода или -1
+     */
+    public byte[] render(String fen, boolean whiteBottom, int from, int to) {
+        Sprites ready = sprites();
+        if (ready == null) {
+            throw new IllegalStateException("Отрисовка доски недоступна: нет шрифта с фигурами");
+        }
+        Canvas canvas = canvases.get();
+        Graphics2D g = canvas.graphics;
+        g.drawImage(whiteBottom ? ready.whiteBottom() : ready.blackBottom(), 0, 0, null);
+
+        if (from >= 0 && to >= 0) {
+            g.setColor(HIGHLIGHT);
+            fillSquare(g, from, whiteBottom);
+            fillSquare(g, to, whiteBottom);
+        }
+
+        // Расстановка идет с a8 по h1
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < fen.length(); i++) {
+            char c = fen.charAt(i);
+            if (c == ' ') {
+                break;
+            } else if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int piece = PIECE_CHARS.indexOf(c);
+                if (piece >= 0 && file < 8 && rank >= 0) {
+                    drawPiece(g, ready.atlas(), piece, rank * 8 + file, whiteBottom);
+                }
+                file++;
+            }
+        }
+
+        canvas.png.reset();
+        try {
+            ImageIO.write(canvas.image, "png", canvas.png);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось закодировать PNG доски", e);
+        }
+        return canvas.png.toByteArray();
+    }
+
+    private void fillSquare(Graphics2D g, int square, boolean whiteBottom) {
+        g.fillRect(x(square, whiteBottom), y(square, whiteBottom), squareSize, squareSize);
+    }
+
+    private void drawPiece(Graphics2D g, BufferedImage atlas, int piece, int square, boolean whiteBottom) {
+        int sx = (piece % 6) * squareSize;
+        int sy = (piece / 6) * squareSize;
+        int dx = x(square, whiteBottom);
+        int dy = y(square, whiteBottom);
+        g.drawImage(atlas, dx, dy, dx + squareSize, dy + squareSize, sx, sy, sx + squareSize, sy + squareSize, null);
+    }
+
+    /**
+     * Атлас и пустые доски; строятся один раз, неудача запоминается
+     */
+    private Sprites sprites() {
+        Sprites ready = sprites;
+        if (ready != null || unavailable) {
+            return ready;
+        }
+        synchronized (this) {
+            if (sprites == null && !unavailable) {
+                try {
+                    sprites = new Sprites(buildAtlas(squareSize),
+                            buildBoard(squareSize, true), buildBoard(squareSize, false));
+                    log.info("🖼️ Атлас фигур готов: клетка {} px, доска {}x{}", squareSize, 8 * squareSize, 8 * squareSize);
+                } catch (RuntimeException | LinkageError | AWTError | InternalError e) {
+                    // Без шрифтов AWT падает при первом обращении к FontManager
+                    unavailable = true;
+                    log.warn("⚠️ Картинки доски отключены: {}", e.toString());
+                }
+            }
+            return sprites;
+        }
+    }
+
+    private int x(int square, boolean whiteBottom) {
+        int file = square & 7;
+        return (whiteBottom ? file : 7 - file) * squareSize;
+    }
+
+    private int y(int square, boolean whiteBottom) {
+        int rank = square >>> 3;
+        return (whiteBottom ? 7 - rank : rank) * squareSize;
+    }
+
+    private static BufferedImage buildAtlas(int size) {
+        BufferedImage image = new BufferedImage(6 * size, 2 * size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        smooth(g);
+        Font font = new Font(Font.SANS_SERIF, Font.PLAIN, Math.round(size * 0.82f));
+        if (font.canDisplayUpTo(GLYPHS) != -1) {
+            g.dispose();
+            throw new IllegalStateException("в шрифте " + font.getFontName() + " нет глифов фигур");
+        }
+        FontRenderContext context = g.getFontRenderContext();
+        g.setStroke(new BasicStroke(Math.max(1f, size / 32f), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+
+        for (int color = 0; color < 2; color++) {
+            for (int type = 0; type < 6; type++) {
+                GlyphVector glyph = font.createGlyphVector(context, GLYPHS.substring(type, type + 1));
+                Shape outline = glyph.getOutline();
+                Rectangle2D bounds = outline.getBounds2D();
+                // Центр глифа — в центр клетки атласа
+                double dx = type * size + (size - bounds.getWidth()) / 2 - bounds.getX();
+                double dy = color * size + (size - bounds.getHeight()) / 2 - bounds.getY();
+                Shape placed = AffineTransform.getTranslateInstance(dx, dy).createTransformedShape(outline);
+
+                g.setColor(color == 0 ? WHITE_FILL : BLACK_FILL);
+                g.fill(placed);
+                g.setColor(color == 0 ? BLACK_FILL : Color.BLACK);
+                g.draw(placed);
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage buildBoard(int size, boolean whiteBottom) {
+        BufferedImage image = new BufferedImage(8 * size, 8 * size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        smooth(g);
+        g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, Math.max(9, size / 5)));
+        int pad = Math.max(2, size / 16);
+
+        for (int row = 0; row < 8; row++) {
+            for (int column = 0; column < 8; column++) {
+                boolean light = (row + column) % 2 == 0;
+                g.setColor(light ? LIGHT : DARK);
+                g.fillRect(column * size, row * size, size, size);
+
+                // Подписи цветом соседней клетки: цифры — в левом столбце, буквы — в нижнем ряду
+                g.setColor(light ? DARK : LIGHT);
+                if (column == 0) {
+                    int rank = whiteBottom ? 8 - row : row + 1;
+                    g.drawString(String.valueOf(rank), pad, row * size + pad + g.getFontMetrics().getAscent());
+                }
+                if (row == 7) {
+                    char file = (char) ('a' + (whiteBottom ? column : 7 - column));
+                    String label = String.valueOf(file);
+                    g.drawString(label, (column + 1) * size - pad - g.getFontMetrics().stringWidth(label),
+                            8 * size - pad - g.getFontMetrics().getDescent());
+                }
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static void smooth(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+    }
+
+    private record Sprites(BufferedImage atlas, BufferedImage whiteBottom, BufferedImage blackBottom) {
+    }
+
+    /**
+     * Холст потока: изображение, его Graphics2D и буфер PNG живут, пока жив поток
+     */
+    private static final class Canvas {
+        final BufferedImage image;
+        final Graphics2D graphics;
+        final ByteArrayOutputStream png = new ByteArrayOutputStream(32 * 1024);
+
+        Canvas(int size) {
+            image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+            graphics = image.createGraphics();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.chessbot.service;
+
+import com.chessbot.engine.Move;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+
+import java.io.ByteArrayInputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 📷 Картинки доски: кэш PNG и file_id Telegram
+ *
+ * Готовая картинка кэшируется по (расстановка, ориентация, последний ход) в LRU
+ * на cache-size записей. После первой загрузки Telegram возвращает file_id —
+ * он хранится рядом с PNG, и та же доска дальше отправляется ссылкой, без повторной
+ * загрузки. Если file_id перестал работать, картинка загружается заново.
+ */
+@Slf4j
+@Service
+public class BoardImageService {
+
+    private final BoardImageRenderer renderer;
+    private final TelegramNotificationService notificationService;
+
+    private final Map<ImageKey, CachedImage> cache;
+
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder reuses = new LongAdder();
+
+    public BoardImageService(BoardImageRenderer renderer,
+                             TelegramNotificationService notificationService,
+                             @Value("${chess.board-image.cache-size:1024}") int cacheSize) {
+        this.renderer = renderer;
+        this.notificationService = notificationService;
+        this.cache = new LinkedHashMap<>(cacheSize * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ImageKey, CachedImage> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Картинки доступны: на сервере есть шрифт с фигурами
+     */
+    public boolean isAvailable() {
+        return renderer.isAvailable();
+    }
+
+    /**
+     * 📷 ОТПРАВИТЬ ДОСКУ КАРТИНКОЙ
+     *
+     * @param lastMove ход в формате Move (хватает 16-битной формы) или отрицательное число
+     * @return false, если Telegram не принял ни ссылку, ни файл
+     */
+    public boolean sendBoard(long chatId, String fen, boolean whiteBottom, int lastMove, String caption) {
+        CachedImage image = image(fen, whiteBottom, lastMove);
+
+        String fileId = image.fileId;
+        if (fileId != null) {
+            if (notificationService.sendPhoto(chatId, new InputFile(fileId), caption) != null) {
+                reuses.increment();
+                return true;
+            }
+            // file_id протух или недоступен этому боту: загружаем заново
+            image.fileId = null;
+        }
+
+        String uploaded = notificationService.sendPhoto(chatId,
+                new InputFile(new ByteArrayInputStream(image.png), "board.png"), caption);
+        if (uploaded == null) {
+            return false;
+        }
+        image.fileId = uploaded;
+        uploads.increment();
+        return true;
+    }
+
+    /**
+     * PNG доски из кэша или свежая отрисовка
+     */
+    CachedImage image(String fen, boolean whiteBottom, int lastMove) {
+        int space = fen.indexOf(' ');
+        String placement = space >= 0 ? fen.substring(0, space) : fen;
+        boolean highlight = lastMove > Move.NONE;
+        int from = highlight ? Move.from(lastMove) : -1;
+        int to = highlight ? Move.to(lastMove) : -1;
+        ImageKey key = new ImageKey(placement, whiteBottom, from, to);
+
+        CachedImage image;
+        synchronized (cache) {
+            image = cache.get(key);
+        }
+        if (image != null) {
+            return image;
+        }
+        // Рисуем вне блокировки; одновременная отрисовка одной доски дает одинаковый результат
+        CachedImage rendered = new CachedImage(renderer.render(placement, whiteBottom, from, to));
+        renders.increment();
+        synchronized (cache) {
+            CachedImage raced = cache.putIfAbsent(key, rendered);
+            return raced != null ? raced : rendered;
+        }
+    }
+
+    public String describeStats() {
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        return "отрисовок %d, загрузок %d, по file_id %d, в кэше %d"
+                .formatted(renders.sum(), uploads.sum(), reuses.sum(), size);
+    }
+
+    private record ImageKey(String placement, boolean whiteBottom, int from, int to) {
+    }
+
+    static final class CachedImage {
+        final byte[] png;
+        volatile String fileId;
+
+        CachedImage(byte[] png) {
+            this.png = png;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🔮 Предзагрузка доски соперника
+ *
+ * После успешного хода в фоне запрашивает состояние игры с точки зрения соперника
+ * и заранее рисует для него интерактивную доску. Следующий /board соперника
+ * берет готовый результат без запросов к API.
+ *
+ * Память ограничена MAX_ENTRIES записями; неиспользованные результаты
+ * выбрасываются по TTL, при переполнении и при любом изменении позиции.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BoardPrefetchService {
+
+    private static final int MAX_ENTRIES = 1_000;
+    private static final long TTL_MS = 60_000;
+
+    private static final int PREFETCH_THREADS = 2;
+    private static final int PREFETCH_QUEUE_SIZE = 256;
+
+    private final ApiClient apiClient;
+    private final GameSessionManager sessionManager;
+    private final InteractiveBoardService boardService;
+    private final PositionCache positionCache;
+
+    // Готовые доски: chatId -> результат (в порядке добавления, самые старые в начале)
+    private final LinkedHashMap<Long, PrefetchedBoard> ready = new LinkedHashMap<>();
+
+    // Запущенные предзагрузки: chatId -> номер запроса (устаревшие результаты не сохраняются)
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong requestSequence = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    // Спекулятивная работа: при перегрузке задача отбрасывается (см. prefetch)
+    private final ThreadPoolExecutor prefetchExecutor = new ThreadPoolExecutor(
+            PREFETCH_THREADS, PREFETCH_THREADS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(PREFETCH_QUEUE_SIZE),
+            runnable -> {
+                Thread thread = new Thread(runnable, "board-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+    );
+
+    /**
+     * 🚀 ЗАПУСТИТЬ ПРЕДЗАГРУЗКУ ДОСКИ ДЛЯ ИГРОКА
+     */
+    public void prefetch(Long chatId, String gameId) {
+        if (chatId == null || gameId == null || !gameId.equals(sessionManager.getCurrentGameId(chatId))) {
+            return;
+        }
+
+        long requestId = requestSequence.incrementAndGet();
+        pending.put(chatId, requestId);
+        try {
+            prefetchExecutor.execute(() -> load(chatId, gameId, requestId));
+        } catch (RejectedExecutionException e) {
+            // Очередь полна: задача не выполнится, и ее запись не должна остаться в pending
+            pending.remove(chatId, requestId);
+            discarded.incrementAndGet();
+        }
+    }
+
+    /**
+     * 📥 ЗАБРАТЬ ГОТОВУЮ ДОСКУ (одноразово)
+     * Возвращает null, если доски нет, она устарела или относится к другой игре
+     */
+    public PrefetchedBoard take(Long chatId, String gameId) {
+        PrefetchedBoard board;
+        synchronized (ready) {
+            board = ready.remove(chatId);
+        }
+        if (board == null) {
+            return null;
+        }
+        if (!board.getGameId().equals(gameId) || board.isExpired(System.currentTimeMillis())) {
+            discarded.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        log.debug("🔮 Предзагруженная доска использована: chatId={}, gameId={}", chatId, gameId);
+        return board;
+    }
+
+    /**
+     * 🗑️ СБРОСИТЬ ПРЕДЗАГРУЗКУ ИГРОКА (позиция изменилась)
+     */
+    public void invalidate(Long chatId) {
+        pending.remove(chatId);
+        synchronized (ready) {
+            if (ready.remove(chatId) != null) {
+                discarded.incrementAndGet();
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getDiscarded() {
+        return discarded.get();
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    private void load(Long chatId, String gameId, long requestId) {
+        try {
+            GameResponse state = apiClient.getGameState(gameId, chatId);
+            if (state == null || !Boolean.TRUE.equals(state.getSuccess())) {
+                pending.remove(chatId, requestId);
+                return;
+            }
+
+            String playerColor = sessionManager.getPlayerColor(chatId);
+            List<String> legalMoves = positionCache.legalMoves(state, playerColor);
+            InteractiveBoardService.InteractiveBoard board = boardService.createInteractiveBoard(
+                    gameId,
+                    state.getBoard(),
+                    playerColor != null ? playerColor : "WHITE",
+                    legalMoves
+            );
+
+            // Пока грузили, позиция могла снова измениться
+            if (!pending.remove(chatId, requestId)) {
+                discarded.incrementAndGet();
+                return;
+            }
+            store(chatId, new PrefetchedBoard(gameId, state, legalMoves, board, System.currentTimeMillis()));
+
+        } catch (Exception e) {
+            pending.remove(chatId, requestId);
+            log.warn("Не удалось предзагрузить доску для chatId={}: {}", chatId, e.getMessage());
+        }
+    }
+
+    private void store(Long chatId, PrefetchedBoard board) {
+        long now = System.currentTimeMillis();
+        synchronized (ready) {
+            ready.remove(chatId);
+            ready.put(chatId, board);
+
+            // Записи идут по возрастанию времени: чистим устаревшие с головы и лишние сверх лимита
+            Iterator<PrefetchedBoard> it = ready.values().iterator();
+            while (it.hasNext()) {
+                PrefetchedBoard oldest = it.next();
+                if (ready.size() <= MAX_ENTRIES && !oldest.isExpired(now)) {
+                    break;
+                }
+                it.remove();
+                discarded.incrementAndGet();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * 📦 ПРЕДЗАГРУЖЕННАЯ ДОСКА
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class PrefetchedBoard {
+        private final String gameId;
+        private final GameResponse state;
+        private final List<String> legalMoves;
+        private final InteractiveBoardService.InteractiveBoard board;
+        private final long createdAtMillis;
+
+        boolean isExpired(long now) {
+            return now - createdAtMillis > TTL_MS;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.PlayerColor;
+import com.chessbot.engine.Board;
+import com.chessbot.engine.EngineService;
+import com.chessbot.engine.Move;
+import com.chessbot.engine.MoveGenerator;
+import com.chessbot.engine.MoveList;
+import com.chessbot.engine.Notation;
+import com.chessbot.engine.SearchLimits;
+import com.chessbot.engine.SearchResult;
+import com.chessbot.util.ConcurrentLongMap;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 🤖 Партии против встроенного движка
+ *
+ * Партия целиком живет в памяти бота и не идет через Chess API. Ход пользователя
+ * проверяется локально, ответ движка считается в пуле EngineService, а отправляется
+ * в Telegram из отдельного небольшого пула, чтобы сетевые задержки не держали
+ * потоки расчета.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BotGameService {
+
+    private static final int REPLY_THREADS = 2;
+    private static final int REPLY_QUEUE_SIZE = 1_000;
+    // Бот соглашается на ничью, только если сам стоит заметно хуже
+    private static final int DRAW_ACCEPT_THRESHOLD = -150;
+    // Очередь движка переполнена: повторяем расчет с паузой, партию не трогаем
+    private static final int ENGINE_BUSY_RETRIES = 3;
+    private static final long ENGINE_BUSY_DELAY_MS = 2_000;
+
+    private final EngineService engine;
+    private final TelegramNotificationService notificationService;
+    private final InteractiveBoardService boardService;
+    private final MoveHistoryStore historyStore;
+
+    private final ConcurrentLongMap<BotGame> games = new ConcurrentLongMap<>();
+
+    private final ThreadPoolExecutor replyExecutor = new ThreadPoolExecutor(
+            REPLY_THREADS, REPLY_THREADS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(REPLY_QUEUE_SIZE),
+            namedThreadFactory(),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+
+    public boolean hasGame(long chatId) {
+        return games.containsKey(chatId);
+    }
+
+    /**
+     * Копия текущей позиции партии с ботом или null, если партии нет
+     */
+    public Board currentPosition(long chatId) {
+        BotGame game = games.get(chatId);
+        if (game == null) {
+            return null;
+        }
+        synchronized (game) {
+            return game.board.copy();
+        }
+    }
+
+    /**
+     * Цвет пользователя в партии с ботом или null, если партии нет
+     */
+    public PlayerColor humanColor(long chatId) {
+        BotGame game = games.get(chatId);
+        return game != null ? game.color : null;
+    }
+
+    /**
+     * Ключ партии с ботом в истории ходов или null
+     */
+    public String gameIdOf(long chatId) {
+        BotGame game = games.get(chatId);
+        return game != null ? game.gameId : null;
+    }
+
+    /**
+     * 🆕 НОВАЯ ПАРТИЯ С БОТОМ: /newgame bot [уровень 1-8] [white|black]
+     */
+    public String startGame(long chatId, String userName, String text) {
+        if (hasGame(chatId)) {
+            return """
+                   ⚠️ *У вас уже идет партия с ботом!*
+
+                   Продолжить: `/board`
+                   Сдаться: `/resign`
+                   """;
+        }
+
+        int level = SearchLimits.DEFAULT_LEVEL;
+        PlayerColor color = PlayerColor.WHITE;
+        String[] parts = text.trim().toLowerCase().split("\\s+");
+        for (int i = 2; i < parts.length; i++) {
+            String part = parts[i];
+            if (part.matches("\\d+")) {
+                level = Math.max(SearchLimits.MIN_LEVEL, Math.min(SearchLimits.MAX_LEVEL, Integer.parseInt(part)));
+            } else if (part.startsWith("b") || part.startsWith("ч")) {
+                color = PlayerColor.BLACK;
+            } else if (part.startsWith("w") || part.startsWith("б")) {
+                color = PlayerColor.WHITE;
+            }
+        }
+
+        BotGame game = new BotGame("bot-" + chatId + "-" + System.currentTimeMillis(), chatId, Board.startPosition(), color, level);
+        games.put(chatId, game);
+        String human = userName != null ? userName : "Игрок";
+        String bot = "Бот (уровень " + level + ")";
+        historyStore.startGame(game.gameId, color == PlayerColor.WHITE ? human : bot,
+                color == PlayerColor.WHITE ? bot : human, chatId);
+        log.info("🤖 Партия с ботом: chatId={}, user={}, уровень={}, цвет={}", chatId, userName, level, color);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("🤖 *Партия с ботом началась!*\n\n");
+        sb.append("📈 *Уровень:* ").append(level).append(" из ").append(SearchLimits.MAX_LEVEL).append("\n");
+        sb.append("♟️ *Ваш цвет:* ").append(color).append("\n\n");
+        sb.append(renderBoard(game)).append("\n\n");
+
+        if (color == PlayerColor.BLACK) {
+            synchronized (game) {
+                startThinking(game);
+            }
+            sb.append("🤔 *Бот думает над первым ходом...*");
+        } else {
+            sb.append("🎯 *Ваш ход:* `/move e2-e4`");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * ♟️ ХОД ПОЛЬЗОВАТЕЛЯ
+     */
+    public String handleMove(long chatId, String text) {
+        BotGame game = games.get(chatId);
+        if (game == null) {
+            return "❌ *У вас нет партии с ботом!*";
+        }
+
+        String[] parts = text.split("\\s+", 2);
+        if (parts.length < 2) {
+            return """
+                   ❌ *Не указан ход!*
+
+                   Примеры:
+                   • `/move e2-e4`
+                   • `/move Nf3`
+                   • `/move O-O`
+                   """;
+        }
+
+        synchronized (game) {
+            if (game.thinking) {
+                return "⏳ *Бот еще думает, подождите его хода.*";
+            }
+            Board board = game.board;
+            if (board.sideToMove() != game.humanSide()) {
+                return "⏳ *Сейчас ход бота.* Запросить ход еще раз: `/board`";
+            }
+
+            int move = Notation.parseMove(board, parts[1]);
+            if (move == Move.NONE) {
+                return "❌ *Недопустимый ход:* `" + parts[1].trim() + "`\n\n📝 Возможные ходы: `/moves`";
+            }
+
+            String san = Notation.toSan(board, move);
+            board.makeMove(move);
+            historyStore.recordMove(game.gameId, move);
+
+            String result = gameOverText(game);
+            if (result != null) {
+                games.remove(chatId, game);
+                historyStore.finish(game.gameId, finalResult(game));
+                return "✅ *Ваш ход:* `" + san + "`\n\n" + renderBoard(game) + "\n\n" + result;
+            }
+
+            startThinking(game);
+            return "✅ *Ваш ход:* `" + san + "`\n\n🤔 *Бот думает...*";
+        }
+    }
+
+    /**
+     * 📊 ДОСКА ПАРТИИ С БОТОМ
+     */
+    public String handleBoard(long chatId) {
+        BotGame game = games.get(chatId);
+        if (game == null) {
+            return "❌ *У вас нет партии с ботом!*";
+        }
+        synchronized (game) {
+            // Движок был перегружен и расчет отложен — запрашиваем ход заново
+            if (!game.thinking && game.board.sideToMove() != game.humanSide()) {
+                startThinking(game);
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append("🤖 *Партия с ботом* (уровень ").append(game.level).append(")\n\n");
+            sb.append(renderBoard(game)).append("\n\n");
+            sb.append(game.thinking ? "🤔 *Бот думает...*" : "🎯 *Ваш ход:* `/move [ход]`");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * 📝 ВОЗМОЖНЫЕ ХОДЫ В ПАРТИИ С БОТОМ
+     */
+    public String handleLegalMoves(long chatId) {
+        BotGame game = games.get(chatId);
+        if (game == null) {
+            return "❌ *У вас нет партии с ботом!*";
+        }
+        synchronized (game) {
+            if (game.thinking || game.board.sideToMove() != game.humanSide()) {
+                return "⏳ *Сейчас ход бота.*";
+            }
+            MoveList moves = MoveGenerator.legalMoves(game.board);
+            StringBuilder sb = new StringBuilder("📋 *Возможные ходы:*\n\n");
+            for (int i = 0; i < moves.size(); i++) {
+                sb.append('`');
+                Notation.appendSan(game.board, moves.get(i), sb);
+                sb.append("` ");
+            }
+            sb.append("\n\n🎯 *Использование:* `/move [ход]`");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * 🏳️ СДАЧА В ПАРТИИ С БОТОМ
+     */
+    public String handleResign(long chatId) {
+        BotGame game = games.remove(chatId);
+        if (game == null) {
+            return "❌ *У вас нет партии с ботом!*";
+        }
+        historyStore.finish(game.gameId, MoveHistoryStore.Result.winner(game.color.opposite()));
+        return """
+               🏳️ *Вы сдались.*
+
+               🤖 Бот победил на уровне %d.
+
+               🎮 Реванш: `/newgame bot %d`
+               """.formatted(game.level, game.level);
+    }
+
+    /**
+     * 🤝 ПРЕДЛОЖЕНИЕ НИЧЬЕЙ БОТУ
+     */
+    public String handleDraw(long chatId) {
+        BotGame game = games.get(chatId);
+        if (game == null) {
+            return "❌ *У вас нет партии с ботом!*";
+        }
+        synchronized (game) {
+            if (game.thinking || game.lastScore > DRAW_ACCEPT_THRESHOLD) {
+                return "❌ *Бот отклоняет ничью.* Игра продолжается.";
+            }
+            games.remove(chatId, game);
+            historyStore.finish(game.gameId, MoveHistoryStore.Result.DRAW);
+            return "🤝 *Бот принимает ничью!*\n\n🎮 Новая партия: `/newgame bot " + game.level + "`";
+        }
+    }
+
+    /**
+     * Вызывается под монитором партии
+     */
+    private void startThinking(BotGame game) {
+        game.thinking = true;
+        engine.search(game.board, SearchLimits.forLevel(game.level)).result()
+                .whenCompleteAsync((result, error) -> onEngineReply(game, result, error), replyExecutor);
+    }
+
+    private void onEngineReply(BotGame game, SearchResult result, Throwable error) {
+        String message;
+        synchronized (game) {
+            game.thinking = false;
+            // Пока бот думал, пользователь мог сдаться или начать новую партию
+            if (games.get(game.chatId) != game) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException) {
+                if (game.busyRetries < ENGINE_BUSY_RETRIES) {
+                    game.busyRetries++;
+                    game.thinking = true;
+                    CompletableFuture.delayedExecutor(ENGINE_BUSY_DELAY_MS, TimeUnit.MILLISECONDS, replyExecutor)
+                            .execute(() -> retryThinking(game));
+                    return;
+                }
+                log.warn("⏳ Очередь движка переполнена, ход бота отложен для chatId={}", game.chatId);
+                game.busyRetries = 0;
+                message = "⏳ *Бот сейчас занят.* Партия сохранена.\n\n🔄 Повторите запрос хода: `/board`";
+            } else if (error != null || result == null || !result.hasMove()) {
+                log.error("❌ Движок не вернул ход для chatId={}: {}", game.chatId,
+                        error != null ? error.getMessage() : "нет хода");
+                games.remove(game.chatId, game);
+                message = "❌ *Бот не смог сделать ход, партия остановлена.*\n\n🎮 Новая партия: `/newgame bot`";
+            } else {
+                game.busyRetries = 0;
+                message = applyEngineMove(game, result);
+            }
+        }
+        notificationService.sendSimpleMessage(game.chatId, message);
+    }
+
+    private void retryThinking(BotGame game) {
+        synchronized (game) {
+            if (games.get(game.chatId) != game) {
+                game.thinking = false;
+                return;
+            }
+            startThinking(game);
+        }
+    }
+
+    private String applyEngineMove(BotGame game, SearchResult result) {
+        Board board = game.board;
+        String san = Notation.toSan(board, result.bestMove());
+        board.makeMove(result.bestMove());
+        historyStore.recordMove(game.gameId, result.bestMove());
+        game.lastScore = result.score();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("🤖 *Ход бота:* `").append(san).append("`\n\n");
+        sb.append(renderBoard(game)).append("\n\n");
+
+        String gameOver = gameOverText(game);
+        if (gameOver != null) {
+            games.remove(game.chatId, game);
+            historyStore.finish(game.gameId, finalResult(game));
+            sb.append(gameOver);
+        } else {
+            if (board.inCheck()) {
+                sb.append("⚠️ *ШАХ!*\n");
+            }
+            sb.append("🎯 *Ваш ход:* `/move [ход]`");
+        }
+        log.debug("🤖 chatId={}: {} (оценка {}, глубина {}, узлов {})",
+                game.chatId, san, result.score(), result.depth(), result.nodes());
+        return sb.toString();
+    }
+
+    /**
+     * Текст итога партии или null, если игра продолжается
+     */
+    private String gameOverText(BotGame game) {
+        Board board = game.board;
+        if (!MoveGenerator.hasLegalMove(board)) {
+            if (board.inCheck()) {
+                boolean botMated = board.sideToMove() != game.humanSide();
+                return botMated ? "🎉 *МАТ! Вы победили!*" : "😔 *МАТ! Бот победил.*";
+            }
+            return "🤝 *Пат! Ничья.*";
+        }
+        if (board.isDrawByRule()) {
+            return "🤝 *Ничья по правилам* (повторение, 50 ходов или недостаточно материала).";
+        }
+        return null;
+    }
+
+    /**
+     * Итог по финальной позиции: мат — победа не ходящей стороны, иначе ничья
+     */
+    private static MoveHistoryStore.Result finalResult(BotGame game) {
+        Board board = game.board;
+        if (board.inCheck() && !MoveGenerator.hasLegalMove(board)) {
+            return board.sideToMove() == Board.WHITE ? MoveHistoryStore.Result.BLACK_WINS : MoveHistoryStore.Result.WHITE_WINS;
+        }
+        return MoveHistoryStore.Result.DRAW;
+    }
+
+    private String renderBoard(BotGame game) {
+        return boardService.createInteractiveBoard(game.gameId, game.board.toFen(), game.color.name(), List.of()).getBoardText();
+    }
+
+    private static ThreadFactory namedThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "bot-replies-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replyExecutor.shutdown();
+    }
+
+    /**
+     * Партия с ботом; все изменения — под монитором самого объекта
+     */
+    private static final class BotGame {
+        final String gameId; // ключ в истории ходов
+        final long chatId;
+        final Board board;
+        final PlayerColor color;
+        final int level;
+        boolean thinking;
+        int lastScore; // последняя оценка движка со стороны бота
+        int busyRetries; // повторы подряд из-за переполненной очереди движка
+
+        BotGame(String gameId, long chatId, Board board, PlayerColor color, int level) {
+            this.gameId = gameId;
+            this.chatId = chatId;
+            this.board = board;
+            this.color = color;
+            this.level = level;
+        }
+
+        int humanSide() {
+            return color == PlayerColor.WHITE ? Board.WHITE : Board.BLACK;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.chessbot.service;
+
+import com.chessbot.util.MessageTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📣 Объявления всем чатам: /broadcast
+ *
+ * Получатели идут курсором GameSessionManager по возрастанию chatId (горячий слой и
+ * холодное хранилище), без загрузки всего списка в память. На каждое сообщение берется
+ * токен общего TelegramRateLimiter с запасом reserve-tokens. Ответы на команды тоже
+ * списывают токены из этого ведра (без ожидания), так что под нагрузкой рассылка
+ * замедляется на их число, а запас остается трансляциям, турнирам и ответам. 429 от
+ * Telegram ставит на паузу всю рассылку на retry_after. Текст администратора
+ * отправляется как обычный текст: он экранируется для HTML один раз при запуске.
+ *
+ * Прогресс — chatId, до которого включительно все сообщения закончены, — раз в
+ * checkpoint-ms атомарно пишется в файл. После рестарта рассылка продолжается с него:
+ * повторно могут уйти только сообщения, бывшие в полете в момент остановки.
+ */
+@Slf4j
+@Service
+public class BroadcastService {
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RESUME_DELAY_MS = 5_000;
+
+    private final GameSessionManager sessionManager;
+    private final TelegramNotificationService notificationService;
+    private final TelegramRateLimiter rateLimiter;
+    private final long[] adminChatIds;
+    private final Path checkpointFile;
+    private final int reserveTokens;
+    private final long checkpointMillis;
+
+    private final ScheduledThreadPoolExecutor runner = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "broadcast");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ThreadPoolExecutor senders;
+
+    private volatile Job job;
+
+    public BroadcastService(GameSessionManager sessionManager,
+                            TelegramNotificationService notificationService,
+                            TelegramRateLimiter rateLimiter,
+                            @Value("${chess.admin.chat-ids:}") long[] adminChatIds,
+                            @Value("${chess.broadcast.checkpoint-file:data/broadcast.checkpoint}") String checkpointFile,
+                            @Value("${chess.broadcast.senders:4}") int senders,
+                            @Value("${chess.broadcast.reserve-tokens:5}") int reserveTokens,
+                            @Value("${chess.broadcast.checkpoint-ms:1000}") long checkpointMillis) {
+        this.sessionManager = sessionManager;
+        this.notificationService = notificationService;
+        this.rateLimiter = rateLimiter;
+        this.adminChatIds = adminChatIds.clone();
+        Arrays.sort(this.adminChatIds);
+        this.checkpointFile = Path.of(checkpointFile);
+        this.reserveTokens = reserveTokens;
+        this.checkpointMillis = checkpointMillis;
+        AtomicInteger threads = new AtomicInteger();
+        // Очередь короткая: производитель не убегает от отправки дальше нескольких сообщений
+        this.senders = new ThreadPoolExecutor(senders, senders, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(senders * 2), runnable -> {
+            Thread thread = new Thread(runnable, "broadcast-send-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 📂 ПРОДОЛЖЕНИЕ ПРЕРВАННОЙ РАССЫЛКИ ПОСЛЕ РЕСТАРТА
+     */
+    @PostConstruct
+    public void resume() {
+        Job saved = loadCheckpoint();
+        if (saved != null) {
+            log.info("📣 Продолжаем рассылку {} с chatId {}", saved.id, saved.resumedFrom);
+            job = saved;
+            runner.schedule(() -> safeRun(saved), RESUME_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Остановка приложения: отправки в полете прерываются и не засчитываются,
+     * поэтому сохраненный chatId остается перед ними
+     */
+    @PreDestroy
+    public void shutdown() {
+        Job current = job;
+        runner.shutdownNow();
+        senders.shutdownNow();
+        try {
+            runner.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (current != null && !current.finished && !current.cancelled) {
+            saveCheckpoint(current);
+        }
+    }
+
+    /**
+     * 📣 КОМАНДА /BROADCAST <текст>|status|stop (только администраторы)
+     */
+    public String handleBroadcast(long chatId, String text) {
+        if (Arrays.binarySearch(adminChatIds, chatId) < 0) {
+            return "⛔ Рассылки доступны только администраторам";
+        }
+        String body = text.trim();
+        int space = body.indexOf(' ');
+        body = space < 0 ? "" : body.substring(space + 1).trim();
+        Job current = job;
+
+        if (body.isEmpty() || body.equalsIgnoreCase("status")) {
+            return current != null
+                    ? "📣 *Рассылка* " + current.id + "\n" + current.progress()
+                    : "📣 Рассылок нет\nНачать: `/broadcast <текст>`";
+        }
+        if (body.equalsIgnoreCase("stop")) {
+            if (current == null) {
+                return "📣 Рассылок нет";
+            }
+            current.cancelled = true;
+            return "🛑 Рассылка " + current.id + " останавливается\n" + current.progress();
+        }
+        if (current != null) {
+            return "⏳ Уже идет рассылка " + current.id + "\nОстановить: `/broadcast stop`";
+        }
+
+        // Один '<' или '&' в HTML-режиме — 400 на каждый чат, поэтому текст экранируется
+        Job started = new Job(System.currentTimeMillis(), chatId, MessageTemplate.escapeHtml(body), Long.MIN_VALUE, 0, 0);
+        job = started;
+        saveCheckpoint(started);
+        runner.execute(() -> safeRun(started));
+        return "📣 Рассылка " + started.id + " запущена\nХод: `/broadcast status`";
+    }
+
+    /**
+     * Проход по чатам: токен ведра на сообщение, отправка в пуле, периодическая точка сохранения
+     */
+    void run(Job current) throws InterruptedException {
+        GameSessionManager.ChatCursor cursor = sessionManager.chatsAfter(current.resumedFrom);
+        long checkpointAt = System.currentTimeMillis() + checkpointMillis;
+        long[] page;
+        while (!current.cancelled && (page = cursor.nextPage(PAGE_SIZE)).length > 0) {
+            for (long chatId : page) {
+                if (current.cancelled) {
+                    break;
+                }
+                awaitBudget(current);
+                current.inFlight.add(chatId);
+                current.lastSubmitted = chatId;
+                senders.execute(() -> deliver(current, chatId));
+
+                if (System.currentTimeMillis() >= checkpointAt) {
+                    saveCheckpoint(current);
+                    checkpointAt = System.currentTimeMillis() + checkpointMillis;
+                }
+            }
+        }
+        while (!current.inFlight.isEmpty()) {
+            Thread.sleep(50);
+        }
+        finish(current);
+    }
+
+    private void awaitBudget(Job current) throws InterruptedException {
+        while (true) {
+            long paused = current.pausedUntil - System.currentTimeMillis();
+            if (paused > 0) {
+                Thread.sleep(paused);
+            } else if (rateLimiter.tryAcquire(reserveTokens)) {
+                return;
+            } else {
+                Thread.sleep(Math.max(1, rateLimiter.millisUntilNextToken(reserveTokens)));
+            }
+        }
+    }
+
+    private void deliver(Job current, long chatId) {
+        boolean interrupted = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                if (current.cancelled) {
+                    break;
+                }
+                long outcome = notificationService.deliver(chatId, current.text);
+                if (outcome == TelegramNotificationService.DELIVERED) {
+                    current.delivered.incrementAndGet();
+                    break;
+                }
+                if (outcome == TelegramNotificationService.UNDELIVERABLE || attempt == MAX_ATTEMPTS) {
+                    current.failed.incrementAndGet();
+                    break;
+                }
+                // Telegram просит подождать: пауза для всей рассылки, а не только этого чата
+                current.retried.incrementAndGet();
+                long until = System.currentTimeMillis() + outcome;
+                if (until > current.pausedUntil) {
+                    current.pausedUntil = until;
+                }
+                Thread.sleep(outcome);
+            }
+        } catch (InterruptedException e) {
+            // Остановка приложения: чат остается в полете, точка сохранения не уходит за него
+            interrupted = true;
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // Иначе чат навсегда остается в полете и рассылка не завершится
+            current.failed.incrementAndGet();
+            log.error("❌ Ошибка отправки рассылки в chatId={}: {}", chatId, e.getMessage(), e);
+        } finally {
+            if (!interrupted) {
+                current.inFlight.remove(chatId);
+            }
+        }
+    }
+
+    private void finish(Job current) {
+        current.finished = true;
+        job = null;
+        try {
+            Files.deleteIfExists(checkpointFile);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить точку сохранения рассылки: {}", e.getMessage());
+        }
+        String title = current.cancelled ? "🛑 *Рассылка остановлена* " : "✅ *Рассылка завершена* ";
+        log.info("📣 Рассылка {} {}: доставлено {}, ошибок {}", current.id,
+                current.cancelled ? "остановлена" : "завершена", current.delivered.get(), current.failed.get());
+        notificationService.sendSimpleMessage(current.ownerChatId, title + current.id + "\n" + current.progress());
+    }
+
+    /**
+     * chatId, до которого включительно все отправки закончены
+     */
+    static long watermark(Job current) {
+        long last = current.lastSubmitted;
+        Long oldest = current.inFlight.ceiling(Long.MIN_VALUE);
+        return oldest != null ? oldest - 1 : last;
+    }
+
+    private void saveCheckpoint(Job current) {
+        Properties properties = new Properties();
+        properties.setProperty("id", Long.toString(current.id));
+        properties.setProperty("owner", Long.toString(current.ownerChatId));
+        properties.setProperty("after", Long.toString(watermark(current)));
+        properties.setProperty("delivered", Long.toString(current.delivered.get()));
+        properties.setProperty("failed", Long.toString(current.failed.get()));
+        properties.setProperty("text", current.text);
+        try {
+            Path parent = checkpointFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = parent.resolve(checkpointFile.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "broadcast");
+            }
+            Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить прогресс рассылки: {}", e.getMessage());
+        }
+    }
+
+    Job loadCheckpoint() {
+        if (!Files.exists(checkpointFile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            return new Job(Long.parseLong(properties.getProperty("id")),
+                    Long.parseLong(properties.getProperty("owner")),
+                    properties.getProperty("text"),
+                    Long.parseLong(properties.getProperty("after")),
+                    Long.parseLong(properties.getProperty("delivered")),
+                    Long.parseLong(properties.getProperty("failed")));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Точка сохранения рассылки повреждена, рассылка не продолжается: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void safeRun(Job current) {
+        try {
+            run(current);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("❌ Ошибка рассылки: {}", e.getMessage(), e);
+            saveCheckpoint(current);
+            job = null;
+        }
+    }
+
+    public String describeStats() {
+        Job current = job;
+        return current == null ? "нет" : current.id + ": доставлено " + current.delivered.get()
+                + ", ошибок " + current.failed.get();
+    }
+
+    static final class Job {
+        final long id;
+        final long ownerChatId;
+        final String text;
+        final long resumedFrom;
+        final long startedAt = System.currentTimeMillis();
+        // Сделанное до рестарта в темп не входит
+        final long doneBefore;
+        final AtomicLong delivered;
+        final AtomicLong failed;
+        final AtomicLong retried = new AtomicLong();
+        final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+        volatile long lastSubmitted;
+        volatile long pausedUntil;
+        volatile boolean cancelled;
+        volatile boolean finished;
+
+        Job(long id, long ownerChatId, String text, long resumedFrom, long delivered, long failed) {
+            this.id = id;
+            this.ownerChatId = ownerChatId;
+            this.text = text;
+            this.resumedFrom = resumedFrom;
+            this.lastSubmitted = resumedFrom;
+            this.delivered = new AtomicLong(delivered);
+            this.failed = new AtomicLong(failed);
+            this.doneBefore = delivered + failed;
+        }
+
+        String progress() {
+            long seconds = Math.max(1, (System.currentTimeMillis() - startedAt) / 1000);
+            long done = delivered.get() + failed.get() - doneBefore;
+            return "✉️ Доставлено: " + delivered.get()
+                    + "\n🚫 Не доставлено: " + failed.get()
+                    + "\n🔁 Повторов после 429: " + retried.get()
+                    + "\n⏱ Темп: ~" + done / seconds + " в секунду";
+        }
+    }
+}
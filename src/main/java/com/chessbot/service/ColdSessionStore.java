@@ -0,0 +1,77 @@
+package com.chessbot.service;
+
+import com.chessbot.service.GameSessionManager.GameSession;
+
+import java.util.List;
+
+/**
+ * 🧊 Холодный слой сессий: простаивающие игры вне кучи
+ *
+ * GameSessionManager вытесняет сюда игры целиком (все сессии одной игры) и поднимает
+ * их обратно при следующем обращении. mightContain* должны отвечать из памяти:
+ * они вызываются на каждый промах горячего слоя, в том числе для чатов без игры.
+ */
+public interface ColdSessionStore {
+
+    ColdSessionStore NONE = new ColdSessionStore() {
+        @Override
+        public boolean isAvailable() {
+            return false;
+        }
+
+        @Override
+        public boolean mightContain(long chatId) {
+            return false;
+        }
+
+        @Override
+        public boolean mightContainGame(String gameId) {
+            return false;
+        }
+
+        @Override
+        public void save(List<GameSession> sessions) {
+        }
+
+        @Override
+        public List<GameSession> loadGameOf(long chatId) {
+            return List.of();
+        }
+
+        @Override
+        public List<GameSession> loadGame(String gameId) {
+            return List.of();
+        }
+
+        @Override
+        public void delete(long chatId) {
+        }
+    };
+
+    /**
+     * false — вытеснять некуда, все сессии остаются в памяти
+     */
+    boolean isAvailable();
+
+    boolean mightContain(long chatId);
+
+    boolean mightContainGame(String gameId);
+
+    void save(List<GameSession> sessions);
+
+    /**
+     * Все сессии игры, в которой участвует chatId (пусто, если его нет)
+     */
+    List<GameSession> loadGameOf(long chatId);
+
+    List<GameSession> loadGame(String gameId);
+
+    void delete(long chatId);
+
+    /**
+     * До limit chatId больше after по возрастанию (keyset-страница для рассылок)
+     */
+    default long[] chatIdsAfter(long after, int limit) {
+        return new long[0];
+    }
+}
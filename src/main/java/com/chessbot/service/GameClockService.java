@@ -0,0 +1,339 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameStatus;
+import com.chessbot.dto.PlayerColor;
+import com.chessbot.dto.TimeControl;
+import com.chessbot.util.HashedTimerWheel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * ⏱ Шахматные часы партий с контролем времени
+ *
+ * Chess API время не считает, поэтому часы ведет бот: запас каждой стороны,
+ * добавка за ход и флажок. На каждую партию стоит ровно один таймер — на момент,
+ * когда у стороны, которая сейчас ходит, кончится время. Таймеры лежат в
+ * хешированном колесе, так что тик стоит O(1) и не зависит от числа партий,
+ * а ход лишь переставляет один таймер.
+ *
+ * Часы создаются при /newgame с контролем времени, запускаются, когда садится
+ * второй игрок, и останавливаются с концом партии.
+ */
+@Slf4j
+@Service
+public class GameClockService {
+
+    private static final int FLAG_THREADS = 2;
+    private static final int FLAG_QUEUE_SIZE = 10_000;
+
+    private final GameSessionManager sessionManager;
+    private final TelegramNotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // gameId -> часы партии
+    private final Map<String, GameClock> clocks = new ConcurrentHashMap<>();
+
+    // Флажки обрабатываются здесь: поток колеса не ждет Telegram
+    private final ThreadPoolExecutor flagExecutor = new ThreadPoolExecutor(
+            FLAG_THREADS, FLAG_THREADS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(FLAG_QUEUE_SIZE),
+            namedThreadFactory(),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+
+    private final HashedTimerWheel wheel;
+    private final LongSupplier millisClock;
+
+    public GameClockService(GameSessionManager sessionManager,
+                            TelegramNotificationService notificationService,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${chess.clock.tick-ms:100}") long tickMillis,
+                            @Value("${chess.clock.wheel-size:512}") int wheelSize) {
+        this(sessionManager, notificationService, eventPublisher, tickMillis, wheelSize, System::currentTimeMillis);
+    }
+
+    GameClockService(GameSessionManager sessionManager,
+                     TelegramNotificationService notificationService,
+                     ApplicationEventPublisher eventPublisher,
+                     long tickMillis,
+                     int wheelSize,
+                     LongSupplier millisClock) {
+        this.sessionManager = sessionManager;
+        this.notificationService = notificationService;
+        this.eventPublisher = eventPublisher;
+        this.millisClock = millisClock;
+        this.wheel = new HashedTimerWheel("game-clock-wheel", tickMillis, TimeUnit.MILLISECONDS, wheelSize, flagExecutor);
+    }
+
+    /**
+     * Завести часы для созданной партии (пока не идут — ждем второго игрока)
+     */
+    public void register(String gameId, TimeControl timeControl) {
+        clocks.put(gameId, new GameClock(gameId, timeControl));
+        log.info("⏱ Контроль времени {} ({}) для игры {}", timeControl, timeControl.describe(), gameId);
+    }
+
+    public TimeControl getTimeControl(String gameId) {
+        GameClock clock = clocks.get(gameId);
+        return clock != null ? clock.timeControl : null;
+    }
+
+    /**
+     * ▶️ ПУСТИТЬ ЧАСЫ (второй игрок сел за доску); повторный вызов ничего не меняет
+     */
+    public void start(String gameId) {
+        GameClock clock = clocks.get(gameId);
+        if (clock == null) {
+            return;
+        }
+        synchronized (clock) {
+            if (clock.running || clock.finished) {
+                return;
+            }
+            clock.running = true;
+            clock.sideToMove = PlayerColor.WHITE;
+            clock.turnStartedMillis = millisClock.getAsLong();
+            armFlag(clock, clock.remaining(clock.sideToMove));
+        }
+        log.info("▶️ Часы запущены: gameId={}", gameId);
+    }
+
+    /**
+     * ♟️ ХОД СДЕЛАН: nextTurn — кто ходит теперь (из ответа API)
+     * Идемпотентно: ход, о котором узнали второй раз (ответ на /move и событие), не учитывается дважды.
+     */
+    public void onMove(String gameId, String nextTurn) {
+        GameClock clock = clocks.get(gameId);
+        PlayerColor next = PlayerColor.of(nextTurn);
+        if (clock == null || next == null) {
+            return;
+        }
+        boolean flagged;
+        PlayerColor mover;
+        synchronized (clock) {
+            if (!clock.running || clock.finished || clock.sideToMove == next) {
+                return;
+            }
+            long now = millisClock.getAsLong();
+            mover = clock.sideToMove;
+            long remaining = clock.remaining(mover) - (now - clock.turnStartedMillis);
+            flagged = remaining <= 0;
+            if (flagged) {
+                // Ход пришел позже флажка (таймер не успел сработать) — время все равно вышло
+                clock.setRemaining(mover, 0);
+                clock.finished = true;
+                clock.cancelFlag();
+            } else {
+                clock.setRemaining(mover, clock.timeControl.afterMove(remaining));
+                clock.sideToMove = next;
+                clock.turnStartedMillis = now;
+                armFlag(clock, clock.remaining(next));
+            }
+        }
+        if (flagged) {
+            finishOnTime(clock, mover);
+        }
+    }
+
+    /**
+     * ⏹ ОСТАНОВИТЬ ЧАСЫ (партия закончилась иначе)
+     */
+    public void stop(String gameId) {
+        GameClock clock = clocks.remove(gameId);
+        if (clock == null) {
+            return;
+        }
+        synchronized (clock) {
+            clock.finished = true;
+            clock.cancelFlag();
+        }
+    }
+
+    /**
+     * Строка с часами для ответа пользователю или null, если партия без контроля времени
+     */
+    public String describe(String gameId) {
+        GameClock clock = clocks.get(gameId);
+        if (clock == null) {
+            return null;
+        }
+        synchronized (clock) {
+            long white = clock.whiteMillis;
+            long black = clock.blackMillis;
+            if (clock.running && !clock.finished) {
+                long elapsed = millisClock.getAsLong() - clock.turnStartedMillis;
+                if (clock.sideToMove == PlayerColor.WHITE) {
+                    white = Math.max(0, white - elapsed);
+                } else {
+                    black = Math.max(0, black - elapsed);
+                }
+            }
+            String state = !clock.running ? " (ждут соперника)" : "";
+            return "⏱ *" + clock.timeControl.getTitle() + " " + clock.timeControl.describe() + ":* "
+                    + "⚪ " + formatMillis(white) + " | ⚫ " + formatMillis(black) + state;
+        }
+    }
+
+    public int getActiveClocksCount() {
+        return clocks.size();
+    }
+
+    /**
+     * Проверить флажок по текущему времени, не дожидаясь таймера колеса (для тестов)
+     */
+    void checkFlag(String gameId) {
+        GameClock clock = clocks.get(gameId);
+        if (clock == null) {
+            return;
+        }
+        PlayerColor side;
+        synchronized (clock) {
+            if (!clock.running || clock.finished) {
+                return;
+            }
+            side = clock.sideToMove;
+            if (!expire(clock)) {
+                return;
+            }
+        }
+        finishOnTime(clock, side);
+    }
+
+    /**
+     * Вызывается под монитором часов: один таймер на партию, старый снимается
+     */
+    private void armFlag(GameClock clock, long delayMillis) {
+        clock.cancelFlag();
+        long generation = ++clock.generation;
+        PlayerColor side = clock.sideToMove;
+        clock.flag = wheel.schedule(() -> onFlag(clock, side, generation), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void onFlag(GameClock clock, PlayerColor side, long generation) {
+        synchronized (clock) {
+            // Пока таймер ждал очереди, мог быть сделан ход
+            if (clock.finished || clock.generation != generation || clock.sideToMove != side) {
+                return;
+            }
+            if (!expire(clock)) {
+                return;
+            }
+        }
+        finishOnTime(clock, side);
+    }
+
+    /**
+     * Под монитором часов: время стороны, которая ходит, вышло — часы закрываются;
+     * иначе (колесо точно до тика) остаток досчитывается новым таймером
+     */
+    private boolean expire(GameClock clock) {
+        PlayerColor side = clock.sideToMove;
+        long remaining = clock.remaining(side) - (millisClock.getAsLong() - clock.turnStartedMillis);
+        if (remaining > 0) {
+            armFlag(clock, remaining);
+            return false;
+        }
+        clock.setRemaining(side, 0);
+        clock.finished = true;
+        clock.cancelFlag();
+        return true;
+    }
+
+    private void finishOnTime(GameClock clock, PlayerColor flagged) {
+        clocks.remove(clock.gameId, clock);
+        log.info("⏰ Флажок: gameId={}, время вышло у {}", clock.gameId, flagged);
+
+        GameSessionManager.GameParticipants participants = sessionManager.getParticipants(clock.gameId);
+        if (participants != null) {
+            long loserChatId = flagged == PlayerColor.WHITE ? participants.getWhiteChatId() : participants.getBlackChatId();
+            for (Long chatId : participants.chatIds()) {
+                sessionManager.updateStatus(chatId, GameStatus.TIMEOUT.name());
+                notificationService.sendTimeoutNotification(chatId, clock.gameId, chatId == loserChatId);
+            }
+        }
+        eventPublisher.publishEvent(new GameFinishedEvent(clock.gameId, GameStatus.TIMEOUT, flagged.opposite()));
+    }
+
+    static String formatMillis(long millis) {
+        long seconds = millis / 1000;
+        if (seconds >= 3600) {
+            return String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        if (seconds < 20) {
+            // На последних секундах важны десятые
+            return String.format(Locale.ROOT, "0:%02d.%d", seconds, millis % 1000 / 100);
+        }
+        return String.format(Locale.ROOT, "%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private static ThreadFactory namedThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "game-clock-flags-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.close();
+        flagExecutor.shutdown();
+    }
+
+    /**
+     * Часы одной партии; все поля — под монитором самого объекта
+     */
+    private static final class GameClock {
+        final String gameId;
+        final TimeControl timeControl;
+        long whiteMillis;
+        long blackMillis;
+        PlayerColor sideToMove = PlayerColor.WHITE;
+        long turnStartedMillis;
+        boolean running;
+        boolean finished;
+        long generation;
+        HashedTimerWheel.Timeout flag;
+
+        GameClock(String gameId, TimeControl timeControl) {
+            this.gameId = gameId;
+            this.timeControl = timeControl;
+            this.whiteMillis = timeControl.getInitialMillis();
+            this.blackMillis = timeControl.getInitialMillis();
+        }
+
+        long remaining(PlayerColor side) {
+            return side == PlayerColor.WHITE ? whiteMillis : blackMillis;
+        }
+
+        void setRemaining(PlayerColor side, long millis) {
+            if (side == PlayerColor.WHITE) {
+                whiteMillis = millis;
+            } else {
+                blackMillis = millis;
+            }
+        }
+
+        void cancelFlag() {
+            if (flag != null) {
+                flag.cancel();
+                flag = null;
+            }
+        }
+    }
+}
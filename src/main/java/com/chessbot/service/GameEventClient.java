@@ -0,0 +1,203 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 🔌 Клиент подписки на события Chess API
+ *
+ * Одно WebSocket-соединение на весь бот, по нему мультиплексируются все игры:
+ * <pre>
+ * бот → API:  {"action":"subscribe","gameId":"ABC123"}
+ *             {"action":"unsubscribe","gameId":"ABC123"}
+ * API → бот:  {"type":"MOVE","gameId":"ABC123","playerId":42,"notation":"e2-e4","game":{...}}
+ * </pre>
+ * При обрыве соединения переподключается с экспоненциальной задержкой
+ * и заново подписывается на все игры из GameSessionManager.
+ */
+@Slf4j
+@Service
+public class GameEventClient {
+
+    private static final long MIN_RECONNECT_DELAY_MS = 1_000;
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private final GameSessionManager sessionManager;
+    private final GameEventRouter router;
+    private final URI eventsUri;
+    private final boolean enabled;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // Игры, на которые подписан бот
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService reconnectScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-events-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile WebSocketClient socket;
+    private volatile boolean running;
+    private long reconnectDelayMs = MIN_RECONNECT_DELAY_MS;
+
+    public GameEventClient(GameSessionManager sessionManager,
+                           GameEventRouter router,
+                           @Value("${chess.api.events-url:ws://localhost:8080/api/games/events}") String eventsUrl,
+                           @Value("${chess.api.events-enabled:true}") boolean enabled) {
+        this.sessionManager = sessionManager;
+        this.router = router;
+        this.eventsUri = URI.create(eventsUrl);
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("📴 Подписка на события Chess API отключена");
+            return;
+        }
+        running = true;
+        connect();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        reconnectScheduler.shutdownNow();
+        WebSocketClient current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * ✅ ПОДКЛЮЧЕН ЛИ КЛИЕНТ К ПОТОКУ СОБЫТИЙ
+     */
+    public boolean isConnected() {
+        WebSocketClient current = socket;
+        return current != null && current.isOpen();
+    }
+
+    /**
+     * ➕ ПОДПИСАТЬСЯ НА СОБЫТИЯ ИГРЫ
+     */
+    public void subscribe(String gameId) {
+        if (gameId != null && subscriptions.add(gameId)) {
+            sendCommand("subscribe", gameId);
+        }
+    }
+
+    /**
+     * ➖ ОТПИСАТЬСЯ ОТ СОБЫТИЙ ИГРЫ
+     */
+    public void unsubscribe(String gameId) {
+        if (gameId != null && subscriptions.remove(gameId)) {
+            sendCommand("unsubscribe", gameId);
+        }
+    }
+
+    private void sendCommand(String action, String gameId) {
+        WebSocketClient current = socket;
+        if (current == null || !current.isOpen()) {
+            // Подписка восстановится при следующем подключении
+            return;
+        }
+        try {
+            current.send(objectMapper.writeValueAsString(Map.of("action", action, "gameId", gameId)));
+        } catch (Exception e) {
+            log.warn("Не удалось отправить {} для игры {}: {}", action, gameId, e.getMessage());
+        }
+    }
+
+    private void connect() {
+        if (!running) {
+            return;
+        }
+        log.info("🔌 Подключение к потоку событий: {}", eventsUri);
+        socket = new EventSocket(eventsUri);
+        socket.connect();
+    }
+
+    private synchronized void scheduleReconnect() {
+        if (!running) {
+            return;
+        }
+        long delay = reconnectDelayMs;
+        reconnectDelayMs = Math.min(reconnectDelayMs * 2, MAX_RECONNECT_DELAY_MS);
+        log.info("🔄 Переподключение к потоку событий через {} мс", delay);
+        reconnectScheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void onConnected() {
+        reconnectDelayMs = MIN_RECONNECT_DELAY_MS;
+        subscriptions.addAll(sessionManager.getActiveGameIds());
+        for (String gameId : subscriptions) {
+            sendCommand("subscribe", gameId);
+        }
+        log.info("✅ Поток событий подключен, подписок: {}", subscriptions.size());
+    }
+
+    private void onEvent(String payload) {
+        try {
+            GameEvent event = objectMapper.readValue(payload, GameEvent.class);
+            router.route(event);
+            if (GameEventRouter.isTerminal(event)) {
+                unsubscribe(event.getGameId());
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Не удалось разобрать событие: {} ({})", payload, e.getMessage());
+        }
+    }
+
+    /**
+     * 🧵 WebSocket-соединение (каждое переподключение создает новый экземпляр)
+     */
+    private class EventSocket extends WebSocketClient {
+
+        EventSocket(URI uri) {
+            super(uri);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+            onConnected();
+        }
+
+        @Override
+        public void onMessage(String message) {
+            onEvent(message);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            log.warn("📴 Поток событий закрыт: code={}, reason={}", code, reason);
+            if (socket == this) {
+                scheduleReconnect();
+            }
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            log.warn("❌ Ошибка потока событий: {}", ex.getMessage());
+        }
+    }
+}
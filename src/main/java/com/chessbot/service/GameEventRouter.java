@@ -0,0 +1,202 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameEvent;
+import com.chessbot.dto.GameResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * 📡 Маршрутизатор событий игры
+ * Раскладывает события от Chess API по чатам участников через GameSessionManager.
+ * Рассылка идет в отдельном пуле, поэтому поток WebSocket не блокируется отправкой в Telegram.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GameEventRouter {
+
+    private static final int FAN_OUT_THREADS = 2;
+    private static final int FAN_OUT_QUEUE_SIZE = 10_000;
+
+    private final GameSessionManager sessionManager;
+    private final TelegramNotificationService notificationService;
+    private final BoardPrefetchService prefetchService;
+    private final GameClockService clockService;
+    private final RatingCache ratingCache;
+    private final MoveHistoryStore historyStore;
+
+    // Наблюдатели всех событий (трансляции): видят и игры, в которых нет игроков этого бота
+    private final List<Consumer<GameEvent>> observers = new CopyOnWriteArrayList<>();
+
+    // Ограниченная очередь: при переполнении событие обрабатывает вызывающий поток (backpressure)
+    private final ThreadPoolExecutor fanOutExecutor = new ThreadPoolExecutor(
+            FAN_OUT_THREADS, FAN_OUT_THREADS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(FAN_OUT_QUEUE_SIZE),
+            namedThreadFactory(),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+
+    /**
+     * 👂 ПОДПИСАТЬ НАБЛЮДАТЕЛЯ НА ВСЕ СОБЫТИЯ (вызывается в пуле рассылки)
+     */
+    public void addObserver(Consumer<GameEvent> observer) {
+        observers.add(observer);
+    }
+
+    /**
+     * 📨 ПРИНЯТЬ СОБЫТИЕ (асинхронно)
+     */
+    public void route(GameEvent event) {
+        if (event == null || event.getGameId() == null || event.getType() == null) {
+            log.warn("⚠️ Пропущено некорректное событие: {}", event);
+            return;
+        }
+        fanOutExecutor.execute(() -> dispatch(event));
+    }
+
+    /**
+     * 🎯 ОБРАБОТКА СОБЫТИЯ
+     */
+    void dispatch(GameEvent event) {
+        for (Consumer<GameEvent> observer : observers) {
+            try {
+                observer.accept(event);
+            } catch (Exception e) {
+                log.warn("⚠️ Наблюдатель не обработал событие {} игры {}: {}",
+                        event.getType(), event.getGameId(), e.getMessage());
+            }
+        }
+        try {
+            List<Long> chatIds = sessionManager.getChatIdsByGameId(event.getGameId());
+            if (chatIds.isEmpty()) {
+                log.debug("Нет чатов для игры {}, событие {} пропущено", event.getGameId(), event.getType());
+                return;
+            }
+
+            updateSessions(chatIds, event.getGame());
+            ratingCache.record(event.getGame());
+
+            switch (event.getType()) {
+                case "MOVE" -> {
+                    if (event.getGame() != null) {
+                        clockService.onMove(event.getGameId(), event.getGame().getCurrentTurn());
+                    }
+                    notifyOthers(chatIds, event.getPlayerId(),
+                            chatId -> notificationService.sendMoveNotification(chatId, event.getGame(), event.getNotation()));
+                }
+                case "PLAYER_JOINED" -> {
+                    clockService.start(event.getGameId());
+                    notifyOthers(chatIds, event.getPlayerId(),
+                            chatId -> notificationService.sendGameStartNotification(chatId, event.getGameId(), joinedPlayerName(event)));
+                }
+                case "DRAW_OFFER" -> notifyOthers(chatIds, event.getPlayerId(),
+                        chatId -> notificationService.sendSimpleMessage(chatId, """
+                                🤝 *Соперник предлагает ничью!*
+
+                                • Принять: `/draw accept`
+                                • Отклонить: `/draw decline`
+                                """));
+                case "GAME_OVER", "RESIGN", "TIMEOUT" -> {
+                    clockService.stop(event.getGameId());
+                    recordResult(event);
+                    boolean resign = "RESIGN".equals(event.getType());
+                    chatIds.forEach(chatId -> {
+                        prefetchService.invalidate(chatId);
+                        // playerId совпадает с chatId: сдавшемуся — свой текст
+                        notificationService.sendGameOverNotification(chatId, event,
+                                resign && chatId.equals(event.getPlayerId()));
+                    });
+                }
+                default -> log.debug("Неизвестный тип события {}: {}", event.getType(), event.getGameId());
+            }
+
+        } catch (Exception e) {
+            log.error("❌ Ошибка обработки события {} для игры {}: {}",
+                    event.getType(), event.getGameId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 🏁 ЯВЛЯЕТСЯ ЛИ СОБЫТИЕ ЗАВЕРШАЮЩИМ ИГРУ
+     */
+    public static boolean isTerminal(GameEvent event) {
+        return "GAME_OVER".equals(event.getType())
+                || "RESIGN".equals(event.getType())
+                || "TIMEOUT".equals(event.getType());
+    }
+
+    private void recordResult(GameEvent event) {
+        GameResponse game = event.getGame();
+        if (game == null) {
+            return;
+        }
+        if ("RESIGN".equals(event.getType())) {
+            // Сдался автор события: побеждает другой цвет
+            if (isPlayer(game.getWhitePlayer(), event.getPlayerId())) {
+                historyStore.finish(event.getGameId(), MoveHistoryStore.Result.BLACK_WINS);
+            } else if (isPlayer(game.getBlackPlayer(), event.getPlayerId())) {
+                historyStore.finish(event.getGameId(), MoveHistoryStore.Result.WHITE_WINS);
+            }
+        } else {
+            historyStore.finishByStatus(event.getGameId(),
+                    "TIMEOUT".equals(event.getType()) ? "TIMEOUT" : game.getStatus(), game.getCurrentTurn());
+        }
+    }
+
+    private static boolean isPlayer(GameResponse.PlayerInfo player, Long playerId) {
+        return player != null && player.getId() != null && player.getId().equals(playerId);
+    }
+
+    private void updateSessions(List<Long> chatIds, GameResponse game) {
+        if (game == null || game.getStatus() == null) {
+            return;
+        }
+        for (Long chatId : chatIds) {
+            sessionManager.updateStatus(chatId, game.getStatus());
+        }
+    }
+
+    private void notifyOthers(List<Long> chatIds, Long actorId, LongConsumer sender) {
+        for (Long chatId : chatIds) {
+            // playerId совпадает с chatId: автору события уведомление не нужно
+            if (!chatId.equals(actorId)) {
+                sender.accept(chatId);
+            }
+        }
+    }
+
+    private String joinedPlayerName(GameEvent event) {
+        GameResponse game = event.getGame();
+        if (game != null && game.getBlackPlayer() != null && game.getBlackPlayer().getName() != null) {
+            return game.getBlackPlayer().getName();
+        }
+        return "Соперник";
+    }
+
+    private static ThreadFactory namedThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "game-events-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdown();
+    }
+}
@@ -0,0 +1,12 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameStatus;
+import com.chessbot.dto.PlayerColor;
+
+/**
+ * 🏁 Партия завершилась по решению самого бота (например, упал флажок)
+ *
+ * @param winner цвет победителя или null при ничьей
+ */
+public record GameFinishedEvent(String gameId, GameStatus status, PlayerColor winner) {
+}
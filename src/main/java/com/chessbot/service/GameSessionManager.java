@@ -1,150 +1,725 @@
 package com.chessbot.service;
 
+import com.chessbot.dto.GameStatus;
+import com.chessbot.dto.PlayerColor;
+import com.chessbot.util.ConcurrentLongMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * 🎮 Менеджер состояния игр для бота
  * Хранит информацию о текущих играх пользователей в памяти
+ *
+ * Сессии — неизменяемые снимки. Все изменения идут через compute по chatId внутри
+ * compute по gameId, поэтому сессия и индекс участников меняются вместе и без гонок
+ * get-then-mutate; для условных обновлений есть updateSessionIfVersion.
+ *
+ * Память: сессии лежат в ConcurrentLongMap (примитивные long-ключи), статус и цвет
+ * закодированы enum-ами, время активности — epoch millis, строки интернированы.
+ * Сколько байт занимает сессия вместе со строкой gameId, записью в таблице и индексом
+ * участников, меряет GameSessionManagerTest под профилем {@code mvn test -Pbench}.
+ *
+ * Изменения состояния (создание, переход, удаление) передаются SessionListener-ам
+ * изнутри того же compute, поэтому для одного игрока они приходят в порядке применения.
+ * Отметка активности (touched) событием не считается.
+ *
+ * Горячий слой ограничен: игры, все участники которых простаивают дольше idle-minutes
+ * (и самые давние сверх max), целиком уходят в ColdSessionStore и поднимаются обратно
+ * при следующем обращении по chatId или gameId. Вытеснение оптимистичное: игра пишется
+ * в холодный слой без блокировок и убирается из памяти, только если за это время
+ * ее сессии не изменились.
  */
 @Slf4j
 @Component
 public class GameSessionManager {
 
+    /**
+     * 🧩 Неизменяемый снимок сессии игрока (64 байта на объект)
+     * Любое изменение создает новый снимок; version растет при каждом изменении состояния
+     * (цвет, статус), но не при отметке активности.
+     */
     @Getter
-    @Setter
     public static class GameSession {
-        private String gameId;
-        private Long chatId;
-        private Long playerId;
-        private String playerColor; // "WHITE" или "BLACK"
-        private String opponentName;
-        private LocalDateTime lastActivity;
-        private String gameStatus; // "ACTIVE", "CHECK", "CHECKMATE" и т.д.
-
-        public GameSession(String gameId, Long chatId, Long playerId) {
+        private final String gameId;     // интернирована: одна строка на обоих игроков
+        private final long chatId;
+        private final long playerId;
+        private final String opponentName; // интернирована
+        private final PlayerColor color;
+        private final GameStatus status;
+        private final long lastActivityMillis;
+        private final long version;
+
+        private GameSession(String gameId, long chatId, long playerId, String opponentName,
+                            PlayerColor color, GameStatus status, long lastActivityMillis, long version) {
             this.gameId = gameId;
             this.chatId = chatId;
             this.playerId = playerId;
-            this.lastActivity = LocalDateTime.now();
+            this.opponentName = opponentName;
+            this.color = color;
+            this.status = status;
+            this.lastActivityMillis = lastActivityMillis;
+            this.version = version;
+        }
+
+        public static GameSession create(String gameId, long chatId, long playerId, PlayerColor color) {
+            return new GameSession(gameId.intern(), chatId, playerId, null,
+                    color, null, System.currentTimeMillis(), 0);
+        }
+
+        /**
+         * Снимок, восстановленный из журнала, со всеми полями как были
+         */
+        static GameSession restored(String gameId, long chatId, long playerId, String opponentName,
+                                    PlayerColor color, GameStatus status, long lastActivityMillis, long version) {
+            return new GameSession(gameId.intern(), chatId, playerId, opponentName != null ? opponentName.intern() : null,
+                    color, status, lastActivityMillis, version);
+        }
+
+        public GameSession withColor(PlayerColor newColor) {
+            return new GameSession(gameId, chatId, playerId, opponentName,
+                    newColor, status, System.currentTimeMillis(), version + 1);
+        }
+
+        public GameSession withStatus(GameStatus newStatus) {
+            return new GameSession(gameId, chatId, playerId, opponentName,
+                    color, newStatus, System.currentTimeMillis(), version + 1);
+        }
+
+        public GameSession withOpponentName(String name) {
+            return new GameSession(gameId, chatId, playerId, name != null ? name.intern() : null,
+                    color, status, System.currentTimeMillis(), version + 1);
         }
 
-        public void updateActivity() {
-            this.lastActivity = LocalDateTime.now();
+        public GameSession touched() {
+            return new GameSession(gameId, chatId, playerId, opponentName,
+                    color, status, System.currentTimeMillis(), version);
+        }
+
+        public String getPlayerColor() { // "WHITE" или "BLACK"
+            return color != null ? color.name() : null;
+        }
+
+        public String getGameStatus() { // "ACTIVE", "CHECK", "CHECKMATE" и т.д.
+            return status != null ? status.name() : null;
         }
 
         public boolean isActive() {
-            return "ACTIVE".equals(gameStatus) || "CHECK".equals(gameStatus);
+            return status != null && status.isActive();
         }
     }
 
+    /**
+     * 👥 Участники игры: chatId белых и черных (неизменяемый объект, 0 — место свободно)
+     */
+    @Getter
+    public static class GameParticipants {
+        private static final long NONE = 0L;
+
+        private final long whiteChatId;
+        private final long blackChatId;
+
+        GameParticipants(long whiteChatId, long blackChatId) {
+            this.whiteChatId = whiteChatId;
+            this.blackChatId = blackChatId;
+        }
+
+        /**
+         * Соперник указанного игрока или null
+         */
+        public Long opponentOf(long chatId) {
+            long opponent = NONE;
+            if (chatId == whiteChatId) opponent = blackChatId;
+            else if (chatId == blackChatId) opponent = whiteChatId;
+            return opponent != NONE ? opponent : null;
+        }
+
+        public List<Long> chatIds() {
+            List<Long> chatIds = new ArrayList<>(2);
+            if (whiteChatId != NONE) chatIds.add(whiteChatId);
+            if (blackChatId != NONE) chatIds.add(blackChatId);
+            return chatIds;
+        }
+
+        // Игрок с неизвестным цветом занимает свободное место, начиная с белых
+        GameParticipants with(long chatId, PlayerColor color) {
+            GameParticipants base = without(chatId);
+            boolean black = color != null ? color == PlayerColor.BLACK : base.whiteChatId != NONE;
+            if (black) {
+                return new GameParticipants(base.whiteChatId, chatId);
+            }
+            return new GameParticipants(chatId, base.blackChatId);
+        }
+
+        GameParticipants without(long chatId) {
+            return new GameParticipants(
+                    chatId == whiteChatId ? NONE : whiteChatId,
+                    chatId == blackChatId ? NONE : blackChatId
+            );
+        }
+
+        boolean isEmpty() {
+            return whiteChatId == NONE && blackChatId == NONE;
+        }
+    }
+
+    /**
+     * 👂 Наблюдатель изменений сессий
+     * Вызывается изнутри compute: реализация не должна блокироваться и обращаться к менеджеру.
+     */
+    public interface SessionListener {
+        void onSessionSaved(GameSession session);
+
+        void onSessionRemoved(long chatId);
+    }
+
+    private static final GameParticipants NO_PARTICIPANTS = new GameParticipants(GameParticipants.NONE, GameParticipants.NONE);
+
     // Хранилище сессий: chatId -> GameSession
-    private final Map<Long, GameSession> activeSessions = new ConcurrentHashMap<>();
+    private final ConcurrentLongMap<GameSession> activeSessions = new ConcurrentLongMap<>();
+
+    // Индекс участников: gameId -> chatId обоих игроков
+    // Меняется только внутри compute по gameId вместе с activeSessions
+    private final Map<String, GameParticipants> participants = new ConcurrentHashMap<>();
+
+    private final List<SessionListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ColdSessionStore coldStore;
+    private final int maxHotSessions;
+    private final long idleMillis;
+    private final long demoteIntervalMillis;
+    private final LongAdder demoted = new LongAdder();
+    private final LongAdder hydrated = new LongAdder();
+
+    private final ScheduledThreadPoolExecutor demoter = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "session-demotion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Только горячий слой: все сессии в памяти
+     */
+    public GameSessionManager() {
+        this(ColdSessionStore.NONE, Integer.MAX_VALUE, Long.MAX_VALUE, 60_000);
+    }
+
+    @Autowired
+    public GameSessionManager(ColdSessionStore coldStore,
+                              @Value("${chess.sessions.hot.max:200000}") int maxHotSessions,
+                              @Value("${chess.sessions.hot.idle-minutes:30}") long idleMinutes,
+                              @Value("${chess.sessions.hot.demote-interval-ms:60000}") long demoteIntervalMillis) {
+        this.coldStore = coldStore;
+        this.maxHotSessions = maxHotSessions;
+        this.idleMillis = idleMinutes == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.MINUTES.toMillis(idleMinutes);
+        this.demoteIntervalMillis = demoteIntervalMillis;
+    }
 
-    // Хранилище по gameId: gameId -> chatId (для поиска)
-    private final Map<String, Long> gameToChatMap = new ConcurrentHashMap<>();
+    @PostConstruct
+    public void startDemotion() {
+        if (coldStore.isAvailable()) {
+            demoter.scheduleWithFixedDelay(this::safeDemote, demoteIntervalMillis, demoteIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stopDemotion() {
+        demoter.shutdownNow();
+    }
+
+    public void addListener(SessionListener listener) {
+        listeners.add(listener);
+    }
 
     /**
      * СОЗДАТЬ НОВУЮ СЕССИЮ ИГРЫ
      */
-    public void createSession(String gameId, Long chatId, Long playerId) {
-        GameSession session = new GameSession(gameId, chatId, playerId);
-        activeSessions.put(chatId, session);
-        gameToChatMap.put(gameId, chatId);
-        log.info("Создана новая сессия: gameId={}, chatId={}", gameId, chatId);
+    public void createSession(String gameId, long chatId, long playerId) {
+        createSession(gameId, chatId, playerId, null);
     }
 
     /**
-     * ПОЛУЧИТЬ СЕССИЮ ПО CHAT_ID
+     * СОЗДАТЬ НОВУЮ СЕССИЮ ИГРЫ С ИЗВЕСТНЫМ ЦВЕТОМ
      */
-    public GameSession getSession(Long chatId) {
+    public void createSession(String gameId, long chatId, long playerId, String playerColor) {
+        // Игрок мог оставаться в другой игре (в том числе вытесненной): выходим из нее
+        GameSession previous = lookup(chatId);
+        if (previous != null && !previous.getGameId().equals(gameId)) {
+            detach(chatId, previous.getGameId(), true);
+        }
+
+        attach(GameSession.create(gameId, chatId, playerId, PlayerColor.of(playerColor)));
+        log.info("Создана новая сессия: gameId={}, chatId={}, color={}", gameId, chatId, playerColor);
+    }
+
+    private void attach(GameSession session) {
+        participants.compute(session.getGameId(), (id, current) -> {
+            activeSessions.put(session.getChatId(), session);
+            fireSaved(session);
+            return (current != null ? current : NO_PARTICIPANTS).with(session.getChatId(), session.getColor());
+        });
+    }
+
+    /**
+     * ♻️ ВОССТАНОВИТЬ СЕССИЮ ИЗ ЖУРНАЛА (без логирования; слушатели на этапе восстановления не подключены)
+     */
+    void restore(GameSession session) {
+        GameSession previous = activeSessions.get(session.getChatId());
+        if (previous != null && !previous.getGameId().equals(session.getGameId())) {
+            detach(session.getChatId(), previous.getGameId(), false);
+        }
+        attach(session);
+    }
+
+    /**
+     * ♻️ ПРИМЕНИТЬ УДАЛЕНИЕ ИЗ ЖУРНАЛА
+     */
+    void restoreRemoved(long chatId) {
+        // Удаление в журнале пишется и при вытеснении: холодную копию не трогаем
         GameSession session = activeSessions.get(chatId);
         if (session != null) {
-            session.updateActivity();
+            detach(chatId, session.getGameId(), false);
         }
-        return session;
     }
 
     /**
-     * ПОЛУЧИТЬ СЕССИЮ ПО GAME_ID
+     * Обойти все сессии (для снимка журнала)
+     */
+    void forEachSession(Consumer<GameSession> action) {
+        activeSessions.forEachValue(action);
+    }
+
+    /**
+     * ПОЛУЧИТЬ СЕССИЮ ПО CHAT_ID (с отметкой активности)
+     */
+    public GameSession getSession(long chatId) {
+        lookup(chatId);
+        return activeSessions.compute(chatId, (id, current) -> current != null ? current.touched() : null);
+    }
+
+    /**
+     * ПОЛУЧИТЬ СНИМОК СЕССИИ БЕЗ ОТМЕТКИ АКТИВНОСТИ
+     */
+    public GameSession peekSession(long chatId) {
+        return lookup(chatId);
+    }
+
+    /**
+     * ПОЛУЧИТЬ СЕССИЮ ПО GAME_ID (первого найденного участника)
      */
     public GameSession getSessionByGameId(String gameId) {
-        Long chatId = gameToChatMap.get(gameId);
-        if (chatId != null) {
-            return getSession(chatId);
+        List<Long> chatIds = getChatIdsByGameId(gameId);
+        return chatIds.isEmpty() ? null : getSession(chatIds.get(0));
+    }
+
+    /**
+     * ПОЛУЧИТЬ ВСЕ CHAT_ID УЧАСТНИКОВ ИГРЫ
+     */
+    public List<Long> getChatIdsByGameId(String gameId) {
+        GameParticipants gameParticipants = lookupGame(gameId);
+        return gameParticipants != null ? gameParticipants.chatIds() : List.of();
+    }
+
+    /**
+     * ПОЛУЧИТЬ УЧАСТНИКОВ ИГРЫ
+     */
+    public GameParticipants getParticipants(String gameId) {
+        return lookupGame(gameId);
+    }
+
+    /**
+     * НАЙТИ CHAT_ID СОПЕРНИКА (локально, без обращения к API)
+     */
+    public Long getOpponentChatId(long chatId) {
+        GameSession session = lookup(chatId);
+        if (session == null) {
+            return null;
         }
-        return null;
+        GameParticipants gameParticipants = participants.get(session.getGameId());
+        return gameParticipants != null ? gameParticipants.opponentOf(chatId) : null;
+    }
+
+    /**
+     * ПОЛУЧИТЬ ID ВСЕХ ИГР В ГОРЯЧЕМ СЛОЕ
+     */
+    public Set<String> getActiveGameIds() {
+        return new HashSet<>(participants.keySet());
+    }
+
+    /**
+     * 🔁 АТОМАРНО ПРИМЕНИТЬ ПЕРЕХОД К СЕССИИ
+     * Переход получает текущий снимок и возвращает новый; индекс участников
+     * обновляется в том же compute. Возвращает новый снимок или null, если сессии нет.
+     */
+    public GameSession updateSession(long chatId, UnaryOperator<GameSession> transition) {
+        return applyTransition(chatId, transition);
+    }
+
+    /**
+     * 🔁 УСЛОВНЫЙ ПЕРЕХОД: применяется, только если версия снимка не изменилась
+     * Возвращает новый снимок или null, если сессии нет или ее уже кто-то изменил.
+     */
+    public GameSession updateSessionIfVersion(long chatId, long expectedVersion,
+                                              UnaryOperator<GameSession> transition) {
+        return applyTransition(chatId, current ->
+                current.getVersion() == expectedVersion ? transition.apply(current) : null);
+    }
+
+    /**
+     * ОБНОВИТЬ СТАТУС ИГРЫ (цвет не меняется)
+     */
+    public GameSession updateStatus(long chatId, String gameStatus) {
+        return updateSession(chatId, session -> session.withStatus(GameStatus.of(gameStatus)));
     }
 
     /**
      * ОБНОВИТЬ ИНФОРМАЦИЮ О СЕССИИ
      */
-    public void updateSession(Long chatId, String playerColor, String gameStatus) {
-        GameSession session = activeSessions.get(chatId);
-        if (session != null) {
-            session.setPlayerColor(playerColor);
-            session.setGameStatus(gameStatus);
-            session.updateActivity();
-            log.debug("Обновлена сессия chatId={}: color={}, status={}",
-                    chatId, playerColor, gameStatus);
+    public void updateSession(long chatId, String playerColor, String gameStatus) {
+        PlayerColor color = PlayerColor.of(playerColor);
+        updateSession(chatId, session -> (color != null ? session.withColor(color) : session)
+                .withStatus(GameStatus.of(gameStatus)));
+        log.debug("Обновлена сессия chatId={}: color={}, status={}", chatId, playerColor, gameStatus);
+    }
+
+    // transition возвращает null, если менять ничего не нужно
+    private GameSession applyTransition(long chatId, UnaryOperator<GameSession> transition) {
+        GameSession snapshot = lookup(chatId);
+        if (snapshot == null) {
+            return null;
         }
+
+        GameSession[] applied = new GameSession[1];
+        participants.computeIfPresent(snapshot.getGameId(), (id, current) -> {
+            activeSessions.compute(chatId, (key, session) -> {
+                // Сессия могла переехать в другую игру между чтением и блокировкой
+                if (session == null || !session.getGameId().equals(id)) {
+                    return session;
+                }
+                GameSession next = transition.apply(session);
+                if (next == null) {
+                    return session;
+                }
+                applied[0] = next;
+                fireSaved(next);
+                return next;
+            });
+            GameSession next = applied[0];
+            return next != null && next.getColor() != null ? current.with(chatId, next.getColor()) : current;
+        });
+        return applied[0];
     }
 
     /**
      * УДАЛИТЬ СЕССИЮ
      */
-    public void removeSession(Long chatId) {
-        GameSession session = activeSessions.get(chatId);
-        if (session != null) {
-            gameToChatMap.remove(session.getGameId());
-            activeSessions.remove(chatId);
+    public void removeSession(long chatId) {
+        GameSession session = lookup(chatId);
+        if (session != null && detach(chatId, session.getGameId(), true)) {
             log.info("Удалена сессия: chatId={}, gameId={}", chatId, session.getGameId());
         }
     }
 
+    // Убирает сессию вместе с ее местом в индексе участников (одним compute по gameId);
+    // dropCold — удалить и устаревшую копию в холодном слое (вне блокировки)
+    private boolean detach(long chatId, String gameId, boolean dropCold) {
+        boolean[] removed = new boolean[1];
+        participants.compute(gameId, (id, current) -> {
+            activeSessions.compute(chatId, (key, session) -> {
+                if (session != null && session.getGameId().equals(id)) {
+                    removed[0] = true;
+                    fireRemoved(chatId);
+                    return null;
+                }
+                return session;
+            });
+            if (current == null) {
+                return null;
+            }
+            GameParticipants rest = removed[0] ? current.without(chatId) : current;
+            return rest.isEmpty() ? null : rest;
+        });
+        if (removed[0] && dropCold && coldStore.mightContain(chatId)) {
+            coldStore.delete(chatId);
+        }
+        return removed[0];
+    }
+
+    /**
+     * Сессия из горячего слоя; при промахе — поднять ее игру из холодного
+     */
+    private GameSession lookup(long chatId) {
+        GameSession session = activeSessions.get(chatId);
+        if (session == null && coldStore.mightContain(chatId)) {
+            hydrate(coldStore.loadGameOf(chatId));
+            session = activeSessions.get(chatId);
+        }
+        return session;
+    }
+
+    private GameParticipants lookupGame(String gameId) {
+        GameParticipants gameParticipants = participants.get(gameId);
+        if (gameParticipants == null && gameId != null && coldStore.mightContainGame(gameId)) {
+            hydrate(coldStore.loadGame(gameId));
+            gameParticipants = participants.get(gameId);
+        }
+        return gameParticipants;
+    }
+
+    // Горячая копия всегда новее холодной: поднятая сессия ставится, только если места пусты
+    private void hydrate(List<GameSession> sessions) {
+        for (GameSession cold : sessions) {
+            GameSession awake = cold.touched();
+            participants.compute(awake.getGameId(), (id, current) -> {
+                boolean[] added = new boolean[1];
+                activeSessions.compute(awake.getChatId(), (key, hot) -> {
+                    if (hot != null) {
+                        return hot;
+                    }
+                    added[0] = true;
+                    fireSaved(awake);
+                    return awake;
+                });
+                if (!added[0]) {
+                    return current;
+                }
+                hydrated.increment();
+                return (current != null ? current : NO_PARTICIPANTS).with(awake.getChatId(), awake.getColor());
+            });
+        }
+    }
+
+    /**
+     * 🧊 ВЫТЕСНИТЬ ПРОСТАИВАЮЩИЕ ИГРЫ В ХОЛОДНЫЙ СЛОЙ
+     * Игра уходит, когда все ее участники простаивают дольше idle; пока горячих сессий
+     * больше max, уходят и самые давние из остальных. Возвращает число вытесненных сессий.
+     */
+    int demoteIdle() {
+        if (!coldStore.isAvailable()) {
+            return 0;
+        }
+        Map<String, Long> lastActivity = new HashMap<>();
+        activeSessions.forEachValue(session ->
+                lastActivity.merge(session.getGameId(), session.getLastActivityMillis(), Math::max));
+        List<Map.Entry<String, Long>> byAge = new ArrayList<>(lastActivity.entrySet());
+        byAge.sort(Map.Entry.comparingByValue());
+
+        long now = System.currentTimeMillis();
+        int excess = activeSessions.size() - maxHotSessions;
+        int moved = 0;
+        for (Map.Entry<String, Long> game : byAge) {
+            boolean idle = now - game.getValue() >= idleMillis;
+            if (!idle && excess <= 0) {
+                break; // дальше только более свежие игры
+            }
+            int count = demoteGame(game.getKey());
+            excess -= count;
+            moved += count;
+        }
+        if (moved > 0) {
+            demoted.add(moved);
+            log.info("🧊 В холодный слой ушло {} сессий, в памяти {}", moved, activeSessions.size());
+        }
+        return moved;
+    }
+
+    private void safeDemote() {
+        try {
+            demoteIdle();
+        } catch (Exception e) {
+            log.error("❌ Ошибка вытеснения сессий: {}", e.getMessage(), e);
+        }
+    }
+
+    private int demoteGame(String gameId) {
+        GameParticipants current = participants.get(gameId);
+        if (current == null) {
+            return 0;
+        }
+        List<GameSession> sessions = new ArrayList<>(2);
+        for (Long chatId : current.chatIds()) {
+            GameSession session = activeSessions.get(chatId);
+            if (session != null && session.getGameId().equals(gameId)) {
+                sessions.add(session);
+            }
+        }
+        if (sessions.isEmpty()) {
+            return 0;
+        }
+        coldStore.save(sessions);
+
+        boolean[] evicted = new boolean[sessions.size()];
+        participants.computeIfPresent(gameId, (id, participantsNow) -> {
+            GameParticipants rest = participantsNow;
+            for (int i = 0; i < sessions.size(); i++) {
+                GameSession saved = sessions.get(i);
+                // Изменившаяся или тронутая за время записи сессия остается в памяти
+                if (activeSessions.remove(saved.getChatId(), saved)) {
+                    fireRemoved(saved.getChatId());
+                    rest = rest.without(saved.getChatId());
+                    evicted[i] = true;
+                }
+            }
+            return rest.isEmpty() ? null : rest;
+        });
+
+        int count = 0;
+        for (int i = 0; i < sessions.size(); i++) {
+            if (evicted[i]) {
+                count++;
+            } else if (activeSessions.get(sessions.get(i).getChatId()) == null) {
+                // Сессию удалили, пока игра писалась в холодный слой: копия там лишняя
+                coldStore.delete(sessions.get(i).getChatId());
+            }
+        }
+        return count;
+    }
+
+    private void fireSaved(GameSession session) {
+        for (SessionListener listener : listeners) {
+            listener.onSessionSaved(session);
+        }
+    }
+
+    private void fireRemoved(long chatId) {
+        for (SessionListener listener : listeners) {
+            listener.onSessionRemoved(chatId);
+        }
+    }
+
     /**
      * ОЧИСТИТЬ НЕАКТИВНЫЕ СЕССИИ
      */
     public void cleanupInactiveSessions(int hours) {
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(hours);
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours);
 
-        activeSessions.entrySet().removeIf(entry -> {
-            if (entry.getValue().getLastActivity().isBefore(cutoff)) {
-                gameToChatMap.remove(entry.getValue().getGameId());
+        activeSessions.forEachValue(session -> {
+            if (session.getLastActivityMillis() < cutoff && detach(session.getChatId(), session.getGameId(), true)) {
                 log.info("Очищена неактивная сессия: chatId={}, gameId={}",
-                        entry.getKey(), entry.getValue().getGameId());
-                return true;
+                        session.getChatId(), session.getGameId());
             }
-            return false;
         });
     }
 
     /**
      * ПРОВЕРИТЬ ЕСТЬ ЛИ АКТИВНАЯ ИГРА
      */
-    public boolean hasActiveGame(Long chatId) {
-        GameSession session = activeSessions.get(chatId);
+    public boolean hasActiveGame(long chatId) {
+        GameSession session = lookup(chatId);
         return session != null && session.isActive();
     }
 
     /**
      * ПОЛУЧИТЬ ID ТЕКУЩЕЙ ИГРЫ
      */
-    public String getCurrentGameId(Long chatId) {
-        GameSession session = activeSessions.get(chatId);
+    public String getCurrentGameId(long chatId) {
+        GameSession session = lookup(chatId);
         return session != null ? session.getGameId() : null;
     }
 
     /**
-     * КОЛИЧЕСТВО АКТИВНЫХ СЕССИЙ
+     * ПОЛУЧИТЬ ЦВЕТ ИГРОКА (без обновления активности)
+     */
+    public String getPlayerColor(long chatId) {
+        GameSession session = lookup(chatId);
+        return session != null ? session.getPlayerColor() : null;
+    }
+
+    /**
+     * КОЛИЧЕСТВО СЕССИЙ В ПАМЯТИ (горячий слой)
      */
     public int getActiveSessionsCount() {
         return activeSessions.size();
     }
+
+    /**
+     * 📇 КУРСОР ПО ВСЕМ ЧАТАМ С СЕССИЕЙ (горячий и холодный слои) ПО ВОЗРАСТАНИЮ chatId
+     *
+     * Горячий слой снимается один раз при открытии курсора, холодный читается
+     * keyset-страницами. Продолжить с места остановки — открыть курсор с последним chatId.
+     */
+    public ChatCursor chatsAfter(long after) {
+        // Размер мог вырасти во время обхода: массив растет по мере надобности
+        long[][] keys = {new long[activeSessions.size() + 16]};
+        int[] count = new int[1];
+        activeSessions.forEachKey(chatId -> {
+            if (count[0] == keys[0].length) {
+                keys[0] = Arrays.copyOf(keys[0], keys[0].length * 2);
+            }
+            keys[0][count[0]++] = chatId;
+        });
+        long[] hot = Arrays.copyOf(keys[0], count[0]);
+        Arrays.sort(hot);
+        return new ChatCursor(hot, coldStore, after);
+    }
+
+    /**
+     * Курсор chatId: страницы слияния снимка горячего слоя с холодным, без повторов
+     */
+    public static final class ChatCursor {
+        private final long[] hot;
+        private final ColdSessionStore cold;
+        private long after;
+
+        private ChatCursor(long[] hot, ColdSessionStore cold, long after) {
+            this.hot = hot;
+            this.cold = cold;
+            this.after = after;
+        }
+
+        /**
+         * Следующие до limit chatId; пустой массив — чаты кончились
+         */
+        public long[] nextPage(int limit) {
+            long[] coldPage = cold.isAvailable() ? cold.chatIdsAfter(after, limit) : new long[0];
+            int i = Arrays.binarySearch(hot, after);
+            i = i >= 0 ? i + 1 : -i - 1;
+            int j = 0;
+            long[] page = new long[limit];
+            int size = 0;
+            while (size < limit && (i < hot.length || j < coldPage.length)) {
+                long next;
+                if (j >= coldPage.length || (i < hot.length && hot[i] <= coldPage[j])) {
+                    next = hot[i++];
+                    if (j < coldPage.length && coldPage[j] == next) {
+                        j++;
+                    }
+                } else {
+                    next = coldPage[j++];
+                }
+                page[size++] = next;
+            }
+            if (size > 0) {
+                after = page[size - 1];
+            }
+            return size == limit ? page : Arrays.copyOf(page, size);
+        }
+    }
+
+    public long getDemotedCount() {
+        return demoted.sum();
+    }
+
+    public long getHydratedCount() {
+        return hydrated.sum();
+    }
 }
\ No newline at end of file
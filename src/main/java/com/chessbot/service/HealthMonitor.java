@@ -0,0 +1,212 @@
+package com.chessbot.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 🩺 Фоновая проверка зависимостей: Chess API и Telegram Bot API
+ *
+ * Раз в probe-ms один поток опрашивает обе зависимости и копит по каждой задержку
+ * (последнюю и скользящую среднюю) и долю успешных проверок за последние window
+ * проходов. /status, actuator /health и предохранитель ApiClient читают готовое
+ * состояние: сколько бы пользователей ни спрашивали статус, в сеть уходит одна
+ * проверка за период, а текст для /status собирается один раз после прохода.
+ */
+@Slf4j
+@Service
+public class HealthMonitor implements HealthIndicator {
+
+    private static final double AVERAGE_WEIGHT = 0.2;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private final ApiClient apiClient;
+    private final TelegramNotificationService notificationService;
+    private final long probeMillis;
+    private final Probe chessApi;
+    private final Probe telegram;
+
+    private final ScheduledThreadPoolExecutor prober = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "health-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile String statusText = "⏳ Проверка доступности еще не проводилась";
+
+    public HealthMonitor(ApiClient apiClient,
+                         TelegramNotificationService notificationService,
+                         @Value("${chess.health.probe-ms:10000}") long probeMillis,
+                         @Value("${chess.health.window:30}") int window) {
+        this.apiClient = apiClient;
+        this.notificationService = notificationService;
+        this.probeMillis = probeMillis;
+        this.chessApi = new Probe("Chess API", window);
+        this.telegram = new Probe("Telegram", window);
+    }
+
+    @PostConstruct
+    public void start() {
+        prober.scheduleWithFixedDelay(this::safeProbe, 0, probeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prober.shutdownNow();
+    }
+
+    /**
+     * 🩺 ОДИН ПРОХОД ПРОВЕРОК
+     */
+    void probeAll() {
+        check(chessApi, apiClient::ping);
+        apiClient.updateCircuit(chessApi.up);
+        check(telegram, notificationService::ping);
+        statusText = render();
+    }
+
+    /**
+     * Готовый блок доступности для /status
+     */
+    public String describeStatus() {
+        return statusText;
+    }
+
+    @Override
+    public Health health() {
+        if (!chessApi.known || !telegram.known) {
+            return Health.unknown().build();
+        }
+        Health.Builder builder = chessApi.up && telegram.up ? Health.up() : Health.down();
+        return builder.withDetail("chessApi", chessApi.details())
+                .withDetail("telegram", telegram.details())
+                .withDetail("apiCircuitOpen", apiClient.isCircuitOpen())
+                .build();
+    }
+
+    private static void check(Probe probe, Check check) {
+        long started = System.nanoTime();
+        try {
+            check.run();
+            probe.record(true, System.nanoTime() - started, null);
+        } catch (Exception e) {
+            if (!probe.known || probe.up) {
+                log.warn("🩺 {} не отвечает: {}", probe.name, e.getMessage());
+            }
+            probe.record(false, System.nanoTime() - started, e.getMessage());
+        }
+    }
+
+    private String render() {
+        StringBuilder text = new StringBuilder(256);
+        for (Probe probe : new Probe[]{chessApi, telegram}) {
+            if (probe.up) {
+                text.append("✅ ").append(probe.name).append(": ").append(Math.round(probe.lastMillis))
+                        .append(" мс (в среднем ").append(Math.round(probe.averageMillis)).append(" мс)");
+            } else {
+                text.append("❌ ").append(probe.name).append(": недоступен с ")
+                        .append(TIME.format(Instant.ofEpochMilli(probe.changedAt)));
+            }
+            text.append(", доступность ").append(Math.round(probe.availability()))
+                    .append("% за ").append(probe.checks()).append(" проверок\n");
+        }
+        if (apiClient.isCircuitOpen()) {
+            text.append("🔌 Запросы к Chess API приостановлены до восстановления\n");
+        }
+        return text.append("🕒 Проверено в ").append(TIME.format(Instant.now())).toString();
+    }
+
+    private void safeProbe() {
+        try {
+            probeAll();
+        } catch (Exception e) {
+            log.error("❌ Ошибка проверки доступности: {}", e.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        void run() throws Exception;
+    }
+
+    /**
+     * Состояние одной зависимости: пишет только поток проверок, читают все
+     */
+    static final class Probe {
+        final String name;
+        // Кольцо исходов последних проверок
+        private final boolean[] outcomes;
+        private int next;
+        private int size;
+        private int successes;
+
+        volatile boolean known;
+        volatile boolean up;
+        volatile double lastMillis;
+        volatile double averageMillis;
+        volatile long changedAt;
+        volatile String lastError;
+
+        Probe(String name, int window) {
+            this.name = name;
+            this.outcomes = new boolean[window];
+        }
+
+        synchronized void record(boolean ok, long nanos, String error) {
+            if (size == outcomes.length) {
+                successes -= outcomes[next] ? 1 : 0;
+            } else {
+                size++;
+            }
+            outcomes[next] = ok;
+            successes += ok ? 1 : 0;
+            next = (next + 1) % outcomes.length;
+
+            lastMillis = nanos / 1_000_000.0;
+            if (ok) {
+                // Средняя только по успешным: таймауты упавшей зависимости ее не размывают
+                averageMillis = averageMillis == 0 ? lastMillis : averageMillis + AVERAGE_WEIGHT * (lastMillis - averageMillis);
+            }
+            if (!known || up != ok) {
+                changedAt = System.currentTimeMillis();
+            }
+            lastError = error;
+            up = ok;
+            known = true;
+        }
+
+        synchronized double availability() {
+            return size == 0 ? 0 : 100.0 * successes / size;
+        }
+
+        synchronized int checks() {
+            return size;
+        }
+
+        Map<String, Object> details() {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("up", up);
+            details.put("latencyMs", Math.round(lastMillis));
+            details.put("averageLatencyMs", Math.round(averageMillis));
+            details.put("availabilityPercent", Math.round(availability()));
+            details.put("since", Instant.ofEpochMilli(changedAt).toString());
+            if (lastError != null) {
+                details.put("error", lastError);
+            }
+            return details;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.chessbot.service;
 
+import com.chessbot.util.CallbackCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
@@ -11,6 +12,9 @@ import java.util.*;
 @Service
 public class InteractiveBoardService {
 
+    // Пустые клетки и клетки без ходов: одна общая строка на все кнопки
+    private static final String NONE_CALLBACK = CallbackCodec.encode(CallbackCodec.NONE);
+
     // Эмодзи для фигур
     private static final Map<Character, String> PIECE_EMOJIS = new HashMap<>();
 
@@ -33,7 +37,11 @@ public class InteractiveBoardService {
     /**
      * 🎮 СОЗДАНИЕ ИНТЕРАКТИВНОЙ ДОСКИ С КНОПКАМИ
      */
-    public InteractiveBoard createInteractiveBoard(String boardFen, String playerColor, List<String> legalMoves) {
+    public InteractiveBoard createInteractiveBoard(String gameId, String boardFen, String playerColor,
+                                                   List<String> legalMoves) {
+        // Эпоха позиции попадает в каждую кнопку: нажатия на старую доску узнаются без запросов
+        int epoch = CallbackCodec.epochOf(gameId, boardFen);
+
         // Парсим FEN в массив 8x8
         char[][] board = parseFenToBoard(boardFen);
 
@@ -41,12 +49,12 @@ public class InteractiveBoardService {
         Map<String, List<String>> movesFromSquare = groupMovesByFromSquare(legalMoves);
 
         // Создаем клавиатуру
-        InlineKeyboardMarkup keyboard = createBoardKeyboard(board, playerColor, movesFromSquare);
+        InlineKeyboardMarkup keyboard = createBoardKeyboard(board, playerColor, movesFromSquare, epoch);
 
         // Создаем текстовое представление
         String boardText = createBoardText(board, playerColor);
 
-        return new InteractiveBoard(keyboard, boardText);
+        return new InteractiveBoard(keyboard, boardText, epoch);
     }
 
     /**
@@ -159,7 +167,7 @@ public class InteractiveBoardService {
      * 🎹 СОЗДАНИЕ КЛАВИАТУРЫ ДОСКИ (УПРОЩЕННЫЙ ВАРИАНТ)
      */
     private InlineKeyboardMarkup createBoardKeyboard(char[][] board, String playerColor,
-                                                     Map<String, List<String>> movesFromSquare) {
+                                                     Map<String, List<String>> movesFromSquare, int epoch) {
         boolean isBlack = "BLACK".equals(playerColor);
 
         InlineKeyboardMarkup keyboardMarkup = new InlineKeyboardMarkup();
@@ -186,9 +194,10 @@ public class InteractiveBoardService {
 
                 // Если есть ходы с этой клетки, делаем ее кликабельной
                 if (movesFromSquare.containsKey(square) && !movesFromSquare.get(square).isEmpty()) {
-                    button.setCallbackData("select:" + square);
+                    button.setCallbackData(CallbackCodec.encode(CallbackCodec.SELECT,
+                            CallbackCodec.square(square), 0, (char) 0, epoch));
                 } else {
-                    button.setCallbackData("none");
+                    button.setCallbackData(NONE_CALLBACK);
                 }
 
                 boardRow.add(button);
@@ -198,7 +207,7 @@ public class InteractiveBoardService {
         }
 
         // Добавляем управляющие кнопки
-        keyboard.add(createControlButtons());
+        keyboard.add(createControlButtons(epoch));
 
         keyboardMarkup.setKeyboard(keyboard);
         return keyboardMarkup;
@@ -207,25 +216,25 @@ public class InteractiveBoardService {
     /**
      * 🎯 СОЗДАНИЕ УПРАВЛЯЮЩИХ КНОПОК
      */
-    private List<InlineKeyboardButton> createControlButtons() {
+    private List<InlineKeyboardButton> createControlButtons(int epoch) {
         List<InlineKeyboardButton> controlRow = new ArrayList<>();
 
         // Кнопка "Обновить доску"
         InlineKeyboardButton refreshButton = new InlineKeyboardButton();
         refreshButton.setText("🔄 Обновить");
-        refreshButton.setCallbackData("refresh_board");
+        refreshButton.setCallbackData(CallbackCodec.encode(CallbackCodec.REFRESH, epoch));
         controlRow.add(refreshButton);
 
         // Кнопка "Список ходов"
         InlineKeyboardButton movesButton = new InlineKeyboardButton();
         movesButton.setText("📋 Все ходы");
-        movesButton.setCallbackData("show_legal_moves");
+        movesButton.setCallbackData(CallbackCodec.encode(CallbackCodec.LEGAL_MOVES, epoch));
         controlRow.add(movesButton);
 
         // Кнопка "Предложить ничью"
         InlineKeyboardButton drawButton = new InlineKeyboardButton();
         drawButton.setText("🤝 Ничья");
-        drawButton.setCallbackData("offer_draw");
+        drawButton.setCallbackData(CallbackCodec.encode(CallbackCodec.OFFER_DRAW, epoch));
         controlRow.add(drawButton);
 
         return controlRow;
@@ -271,28 +280,33 @@ public class InteractiveBoardService {
     }
 
     /**
-     * 🎮 СОЗДАНИЕ КЛАВИАТУРЫ ДЛЯ ВЫБОРА ХОДА (УПРОЩЕННЫЙ)
+     * 🎮 СОЗДАНИЕ КЛАВИАТУРЫ ДЛЯ ВЫБОРА ХОДА
+     * Одна кнопка на целевую клетку: варианты превращения выбираются следующим нажатием
      */
-    public InlineKeyboardMarkup createMoveSelectionKeyboard(String fromSquare, List<String> movesTo) {
+    public InlineKeyboardMarkup createMoveSelectionKeyboard(String fromSquare, List<String> movesTo, int epoch) {
         InlineKeyboardMarkup keyboardMarkup = new InlineKeyboardMarkup();
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         // Кнопки ходов (группируем по 4 в ряд)
-        List<InlineKeyboardButton> currentRow = new ArrayList<>();
+        Set<String> targets = new LinkedHashSet<>();
         for (String move : movesTo) {
             if (move != null && move.length() >= 4) {
-                String toSquare = move.length() >= 4 ? move.substring(2, 4) : move;
+                targets.add(targetOf(move));
+            }
+        }
 
-                InlineKeyboardButton button = new InlineKeyboardButton();
-                button.setText("➡️ " + toSquare);
-                button.setCallbackData("move:" + move);
+        List<InlineKeyboardButton> currentRow = new ArrayList<>();
+        for (String toSquare : targets) {
+            InlineKeyboardButton button = new InlineKeyboardButton();
+            button.setText("➡️ " + toSquare);
+            button.setCallbackData(CallbackCodec.encode(CallbackCodec.MOVE,
+                    CallbackCodec.square(fromSquare), CallbackCodec.square(toSquare), (char) 0, epoch));
 
-                currentRow.add(button);
+            currentRow.add(button);
 
-                if (currentRow.size() >= 4) {
-                    keyboard.add(new ArrayList<>(currentRow));
-                    currentRow.clear();
-                }
+            if (currentRow.size() >= 4) {
+                keyboard.add(new ArrayList<>(currentRow));
+                currentRow.clear();
             }
         }
 
@@ -300,16 +314,54 @@ public class InteractiveBoardService {
             keyboard.add(currentRow);
         }
 
-        // Кнопка отмены
+        keyboard.add(createCancelRow(epoch));
+
+        keyboardMarkup.setKeyboard(keyboard);
+        return keyboardMarkup;
+    }
+
+    /**
+     * 👑 КЛАВИАТУРА ВЫБОРА ФИГУРЫ ДЛЯ ПРЕВРАЩЕНИЯ
+     */
+    public InlineKeyboardMarkup createPromotionKeyboard(List<String> promotions, boolean white, int epoch) {
+        List<InlineKeyboardButton> row = new ArrayList<>();
+        for (String move : promotions) {
+            char piece = promotionOf(move);
+            InlineKeyboardButton button = new InlineKeyboardButton();
+            button.setText(PIECE_EMOJIS.getOrDefault(white ? Character.toUpperCase(piece) : piece, "?"));
+            button.setCallbackData(CallbackCodec.encode(CallbackCodec.MOVE, CallbackCodec.square(move),
+                    CallbackCodec.square(targetOf(move)), piece, epoch));
+            row.add(button);
+        }
+
+        InlineKeyboardMarkup keyboardMarkup = new InlineKeyboardMarkup();
+        keyboardMarkup.setKeyboard(List.of(row, createCancelRow(epoch)));
+        return keyboardMarkup;
+    }
+
+    private List<InlineKeyboardButton> createCancelRow(int epoch) {
         List<InlineKeyboardButton> cancelRow = new ArrayList<>();
         InlineKeyboardButton cancelButton = new InlineKeyboardButton();
         cancelButton.setText("❌ Отмена");
-        cancelButton.setCallbackData("cancel_move");
+        cancelButton.setCallbackData(CallbackCodec.encode(CallbackCodec.CANCEL, epoch));
         cancelRow.add(cancelButton);
-        keyboard.add(cancelRow);
+        return cancelRow;
+    }
 
-        keyboardMarkup.setKeyboard(keyboard);
-        return keyboardMarkup;
+    /**
+     * 📍 ЦЕЛЕВАЯ КЛЕТКА ХОДА ("e2-e4", "e2e4" и "e7-e8q" — все понимаются)
+     */
+    public static String targetOf(String move) {
+        int start = move.charAt(2) == '-' ? 3 : 2;
+        return move.substring(start, start + 2);
+    }
+
+    /**
+     * 👑 ФИГУРА ПРЕВРАЩЕНИЯ В НИЖНЕМ РЕГИСТРЕ ИЛИ 0
+     */
+    public static char promotionOf(String move) {
+        int index = move.charAt(2) == '-' ? 5 : 4;
+        return move.length() > index ? Character.toLowerCase(move.charAt(index)) : 0;
     }
 
     /**
@@ -318,10 +370,16 @@ public class InteractiveBoardService {
     public static class InteractiveBoard {
         private final InlineKeyboardMarkup keyboard;
         private final String boardText;
+        private final int epoch;
 
-        public InteractiveBoard(InlineKeyboardMarkup keyboard, String boardText) {
+        public InteractiveBoard(InlineKeyboardMarkup keyboard, String boardText, int epoch) {
             this.keyboard = keyboard;
             this.boardText = boardText;
+            this.epoch = epoch;
+        }
+
+        public int getEpoch() {
+            return epoch;
         }
 
         public InlineKeyboardMarkup getKeyboard() {
@@ -0,0 +1,149 @@
+package com.chessbot.service;
+
+import com.chessbot.entity.ColdSessionEntity;
+import com.chessbot.repository.ColdSessionRepository;
+import com.chessbot.service.GameSessionManager.GameSession;
+import com.chessbot.util.LongBloomFilter;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 🧊 Холодный слой сессий в PostgreSQL (таблица cold_sessions)
+ *
+ * Чтобы промах горячего слоя не превращался в запрос к базе, ключи холодного слоя
+ * (chatId и gameId) держатся в фильтрах Блума фиксированного размера: на миллион
+ * сессий при 1% ложных срабатываний это ~1.2 МБ на фильтр, сколько бы сессий ни
+ * ушло в базу. Удаленные ключи остаются в фильтре до перезапуска и стоят лишь
+ * лишнего запроса.
+ *
+ * Если база недоступна при старте, слой выключается: сессии просто остаются в памяти.
+ */
+@Slf4j
+@Service
+public class JpaColdSessionStore implements ColdSessionStore {
+
+    private static final int KEY_PAGE_SIZE = 10_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final ColdSessionRepository repository;
+    private final LongBloomFilter chats;
+    private final LongBloomFilter games;
+
+    private volatile boolean available;
+
+    public JpaColdSessionStore(ColdSessionRepository repository,
+                               @Value("${chess.sessions.cold.expected:1000000}") long expectedSessions) {
+        this.repository = repository;
+        this.chats = new LongBloomFilter(expectedSessions, FALSE_POSITIVE_RATE);
+        this.games = new LongBloomFilter(expectedSessions, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Заполнить фильтры ключами, уже лежащими в базе
+     */
+    @PostConstruct
+    public void load() {
+        try {
+            long after = Long.MIN_VALUE;
+            long total = 0;
+            List<Object[]> page;
+            do {
+                page = repository.findKeysAfter(after, PageRequest.ofSize(KEY_PAGE_SIZE));
+                for (Object[] key : page) {
+                    after = (Long) key[0];
+                    chats.add(after);
+                    games.add(LongBloomFilter.hash((String) key[1]));
+                }
+                total += page.size();
+            } while (page.size() == KEY_PAGE_SIZE);
+            available = true;
+            log.info("🧊 Холодный слой сессий: {} сессий в базе, фильтры по {} КБ", total, chats.sizeBytes() / 1024);
+        } catch (DataAccessException e) {
+            log.warn("🧊 Холодный слой сессий недоступен ({}): сессии остаются в памяти", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public boolean mightContain(long chatId) {
+        return available && chats.mightContain(chatId);
+    }
+
+    @Override
+    public boolean mightContainGame(String gameId) {
+        return available && games.mightContain(LongBloomFilter.hash(gameId));
+    }
+
+    @Override
+    public void save(List<GameSession> sessions) {
+        List<ColdSessionEntity> entities = new ArrayList<>(sessions.size());
+        for (GameSession session : sessions) {
+            entities.add(toEntity(session));
+        }
+        repository.saveAll(entities);
+        // Ключи — только после записи: иначе поиск мог бы не найти строку и решить, что ее нет
+        for (GameSession session : sessions) {
+            chats.add(session.getChatId());
+            games.add(LongBloomFilter.hash(session.getGameId()));
+        }
+    }
+
+    @Override
+    public List<GameSession> loadGameOf(long chatId) {
+        return repository.findById(chatId)
+                .map(entity -> loadGame(entity.getGameId()))
+                .orElse(List.of());
+    }
+
+    @Override
+    public List<GameSession> loadGame(String gameId) {
+        List<ColdSessionEntity> entities = repository.findByGameId(gameId);
+        List<GameSession> sessions = new ArrayList<>(entities.size());
+        for (ColdSessionEntity entity : entities) {
+            sessions.add(GameSession.restored(entity.getGameId(), entity.getChatId(), entity.getPlayerId(),
+                    entity.getOpponentName(), entity.getColor(), entity.getStatus(),
+                    entity.getLastActivityMillis(), entity.getSessionVersion()));
+        }
+        return sessions;
+    }
+
+    @Override
+    public void delete(long chatId) {
+        // Отсутствующая строка не ошибка: фильтр мог ответить ложным "возможно есть"
+        repository.deleteById(chatId);
+    }
+
+    @Override
+    public long[] chatIdsAfter(long after, int limit) {
+        List<Object[]> page = repository.findKeysAfter(after, PageRequest.ofSize(limit));
+        long[] chatIds = new long[page.size()];
+        for (int i = 0; i < chatIds.length; i++) {
+            chatIds[i] = (Long) page.get(i)[0];
+        }
+        return chatIds;
+    }
+
+    private static ColdSessionEntity toEntity(GameSession session) {
+        ColdSessionEntity entity = new ColdSessionEntity();
+        entity.setChatId(session.getChatId());
+        entity.setGameId(session.getGameId());
+        entity.setPlayerId(session.getPlayerId());
+        entity.setOpponentName(session.getOpponentName());
+        entity.setColor(session.getColor());
+        entity.setStatus(session.getStatus());
+        entity.setLastActivityMillis(session.getLastActivityMillis());
+        entity.setSessionVersion(session.getVersion());
+        return entity;
+    }
+}
@@ -1,5 +1,6 @@
 package com.chessbot.service;
 
+import com.chessbot.util.CallbackCodec;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMarkup;
@@ -8,78 +9,191 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.Keyboard
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class KeyboardService {
 
-    /**
-     * 🎮 ОСНОВНАЯ КЛАВИАТУРА
-     */
-    public ReplyKeyboardMarkup createMainMenuKeyboard() {
-        ReplyKeyboardMarkup keyboardMarkup = new ReplyKeyboardMarkup();
-        keyboardMarkup.setSelective(true);
-        keyboardMarkup.setResizeKeyboard(true);
-        keyboardMarkup.setOneTimeKeyboard(false);
+    private static final int MOVE_BUTTONS_PER_ROW = 4;
+    private static final int MOVE_ROWS_PER_PAGE = 6;
+    private static final int MAX_LISTED_PER_PIECE = 8;
+    private static final int MOVE_PAGES_CACHE_SIZE = 512;
 
-        List<KeyboardRow> keyboard = new ArrayList<>();
+    private static final String PIECE_ORDER = "KQRBNP";
+    private static final String[] PIECE_GLYPHS = {"♔", "♕", "♖", "♗", "♘", "♙"};
+    private static final String[] PIECE_NAMES = {"Король", "Ферзь", "Ладья", "Слон", "Конь", "Пешка"};
 
-        // Первый ряд
-        KeyboardRow row1 = new KeyboardRow();
-        row1.add(new KeyboardButton("/newgame"));
-        row1.add(new KeyboardButton("/listgames"));
-        keyboard.add(row1);
+    // Клавиатуры без состояния строятся один раз и раздаются всем
+    private static final ReplyKeyboardMarkup MAIN_MENU = buildMainMenu();
+    private static final InlineKeyboardMarkup NEW_GAME = buildNewGame();
 
-        // Второй ряд
-        KeyboardRow row2 = new KeyboardRow();
-        row2.add(new KeyboardButton("/board"));
-        row2.add(new KeyboardButton("/moves"));
-        keyboard.add(row2);
-
-        // Третий ряд
-        KeyboardRow row3 = new KeyboardRow();
-        row3.add(new KeyboardButton("/draw"));
-        row3.add(new KeyboardButton("/resign"));
-        keyboard.add(row3);
+    // Эпоха позиции -> страницы ходов (LRU)
+    private final Map<Integer, MovePages> movePagesCache = new LinkedHashMap<>(MOVE_PAGES_CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, MovePages> eldest) {
+            return size() > MOVE_PAGES_CACHE_SIZE;
+        }
+    };
 
-        keyboardMarkup.setKeyboard(keyboard);
-        return keyboardMarkup;
+    /**
+     * 🎮 ОСНОВНАЯ КЛАВИАТУРА
+     *
+     * Один общий объект на все сообщения: строится при загрузке класса, списки рядов
+     * неизменяемые. Вызывающий код не должен менять его через сеттеры.
+     */
+    public ReplyKeyboardMarkup createMainMenuKeyboard() {
+        return MAIN_MENU;
     }
 
     /**
-     * ♟️ КЛАВИАТУРА ДЛЯ ХОДОВ (inline)
+     * ♟️ СТРАНИЦЫ ВОЗМОЖНЫХ ХОДОВ (inline), СГРУППИРОВАННЫЕ ПО ФИГУРАМ
+     *
+     * Строятся один раз на позицию и берутся из кэша: страницы и текстовый список
+     * у одной позиции одной игры всегда одинаковые.
      */
-    public InlineKeyboardMarkup createMovesKeyboard(List<String> legalMoves) {
-        if (legalMoves == null || legalMoves.isEmpty()) {
-            return null;
+    public MovePages movePages(String gameId, String fen, List<String> legalMoves) {
+        int epoch = CallbackCodec.epochOf(gameId, fen);
+        MovePages cached;
+        synchronized (movePagesCache) {
+            cached = movePagesCache.get(epoch);
+        }
+        if (cached != null && cached.gameId().equals(gameId) && cached.fen().equals(fen)) {
+            return cached;
         }
 
-        InlineKeyboardMarkup inlineKeyboardMarkup = new InlineKeyboardMarkup();
-        List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
+        MovePages built = buildMovePages(gameId, fen, legalMoves, epoch);
+        synchronized (movePagesCache) {
+            movePagesCache.put(epoch, built);
+        }
+        return built;
+    }
 
-        // Группируем ходы по 4 в ряд
-        List<InlineKeyboardButton> currentRow = new ArrayList<>();
+    /**
+     * 📄 СТРАНИЦА ХОДОВ ПО ЭПОХЕ ПОЗИЦИИ (null — позиция ушла из кэша или такой страницы нет)
+     */
+    public InlineKeyboardMarkup movesPage(int epoch, int page) {
+        MovePages pages;
+        synchronized (movePagesCache) {
+            pages = movePagesCache.get(epoch);
+        }
+        return pages != null && page >= 0 && page < pages.pages().size() ? pages.pages().get(page) : null;
+    }
 
+    private static MovePages buildMovePages(String gameId, String fen, List<String> legalMoves, int epoch) {
+        // Ходы по фигурам: король, ферзь, ладьи, слоны, кони, пешки; внутри — по порядку генерации
+        char[] pieces = piecesOf(fen);
+        List<List<String>> groups = new ArrayList<>();
+        for (int i = 0; i < PIECE_ORDER.length(); i++) {
+            groups.add(new ArrayList<>());
+        }
         for (String move : legalMoves) {
-            InlineKeyboardButton button = new InlineKeyboardButton();
-            button.setText(move);
-            button.setCallbackData("/move " + move);
-
-            currentRow.add(button);
+            int from = move != null && move.length() >= 4 ? CallbackCodec.square(move) : -1;
+            int group = from >= 0 ? PIECE_ORDER.indexOf(Character.toUpperCase(pieces[from])) : -1;
+            groups.get(group >= 0 ? group : PIECE_ORDER.length() - 1).add(move);
+        }
 
-            if (currentRow.size() >= 4) {
-                keyboard.add(new ArrayList<>(currentRow));
-                currentRow.clear();
+        // Группа начинается с нового ряда; ряд целиком попадает на одну страницу
+        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
+        StringBuilder text = new StringBuilder("📋 *Возможные ходы (").append(legalMoves.size()).append("):*\n\n");
+        for (int g = 0; g < groups.size(); g++) {
+            List<String> moves = groups.get(g);
+            if (moves.isEmpty()) {
+                continue;
+            }
+            String glyph = PIECE_GLYPHS[g];
+            text.append(glyph).append(' ').append(PIECE_NAMES[g]).append(": ");
+            for (int i = 0; i < moves.size(); i++) {
+                if (i == MAX_LISTED_PER_PIECE) {
+                    text.append("… +").append(moves.size() - i);
+                    break;
+                }
+                text.append('`').append(moves.get(i)).append("` ");
+            }
+            text.append('\n');
+
+            List<InlineKeyboardButton> row = new ArrayList<>();
+            for (String move : moves) {
+                InlineKeyboardButton button = new InlineKeyboardButton();
+                button.setText(glyph + " " + move);
+                button.setCallbackData(CallbackCodec.encode(CallbackCodec.MOVE,
+                        CallbackCodec.square(move), CallbackCodec.square(InteractiveBoardService.targetOf(move)),
+                        InteractiveBoardService.promotionOf(move), epoch));
+                row.add(button);
+                if (row.size() == MOVE_BUTTONS_PER_ROW) {
+                    rows.add(row);
+                    row = new ArrayList<>();
+                }
+            }
+            if (!row.isEmpty()) {
+                rows.add(row);
+            }
+        }
+        text.append("\n🎯 Нажмите на ход или: `/move [ход]`");
+
+        int pageCount = Math.max(1, (rows.size() + MOVE_ROWS_PER_PAGE - 1) / MOVE_ROWS_PER_PAGE);
+        List<InlineKeyboardMarkup> pages = new ArrayList<>(pageCount);
+        for (int page = 0; page < pageCount; page++) {
+            List<List<InlineKeyboardButton>> keyboard = new ArrayList<>(
+                    rows.subList(page * MOVE_ROWS_PER_PAGE, Math.min(rows.size(), (page + 1) * MOVE_ROWS_PER_PAGE)));
+            if (pageCount > 1) {
+                keyboard.add(pageNavigation(page, pageCount, epoch));
             }
+            pages.add(new InlineKeyboardMarkup(keyboard));
         }
+        return new MovePages(gameId, fen, epoch, text.toString(), List.copyOf(pages));
+    }
 
-        // Добавляем оставшиеся кнопки
-        if (!currentRow.isEmpty()) {
-            keyboard.add(currentRow);
+    private static List<InlineKeyboardButton> pageNavigation(int page, int pageCount, int epoch) {
+        List<InlineKeyboardButton> row = new ArrayList<>();
+        if (page > 0) {
+            row.add(button("◀️", CallbackCodec.encode(CallbackCodec.MOVES_PAGE, page - 1, 0, (char) 0, epoch)));
         }
+        row.add(button((page + 1) + "/" + pageCount, CallbackCodec.encode(CallbackCodec.NONE)));
+        if (page < pageCount - 1) {
+            row.add(button("▶️", CallbackCodec.encode(CallbackCodec.MOVES_PAGE, page + 1, 0, (char) 0, epoch)));
+        }
+        return row;
+    }
 
-        inlineKeyboardMarkup.setKeyboard(keyboard);
-        return inlineKeyboardMarkup;
+    private static InlineKeyboardButton button(String text, String callbackData) {
+        InlineKeyboardButton button = new InlineKeyboardButton();
+        button.setText(text);
+        button.setCallbackData(callbackData);
+        return button;
+    }
+
+    // Фигуры расстановки FEN по клеткам (a1 = 0), пустые — '.'
+    private static char[] piecesOf(String fen) {
+        char[] pieces = new char[64];
+        Arrays.fill(pieces, '.');
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; fen != null && i < fen.length(); i++) {
+            char c = fen.charAt(i);
+            if (c == ' ') {
+                break;
+            } else if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                if (rank >= 0 && file < 8) {
+                    pieces[rank * 8 + file] = c;
+                }
+                file++;
+            }
+        }
+        return pieces;
+    }
+
+    /**
+     * 📄 Ходы позиции: текстовый список и страницы клавиатуры
+     */
+    public record MovePages(String gameId, String fen, int epoch, String text, List<InlineKeyboardMarkup> pages) {
     }
 
     /**
@@ -109,21 +223,33 @@ public class KeyboardService {
     }
 
     /**
-     * 🎮 КЛАВИАТУРА ДЛЯ НОВОЙ ИГРЫ
+     * 🎮 КЛАВИАТУРА ДЛЯ НОВОЙ ИГРЫ (общий неизменяемый объект, как и основная)
      */
     public InlineKeyboardMarkup createNewGameKeyboard() {
-        InlineKeyboardMarkup inlineKeyboardMarkup = new InlineKeyboardMarkup();
-        List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
+        return NEW_GAME;
+    }
 
-        List<InlineKeyboardButton> row = new ArrayList<>();
+    private static ReplyKeyboardMarkup buildMainMenu() {
+        ReplyKeyboardMarkup keyboardMarkup = new ReplyKeyboardMarkup();
+        keyboardMarkup.setSelective(true);
+        keyboardMarkup.setResizeKeyboard(true);
+        keyboardMarkup.setOneTimeKeyboard(false);
+        keyboardMarkup.setKeyboard(List.of(
+                replyRow("/newgame", "/listgames"),
+                replyRow("/board", "/moves"),
+                replyRow("/draw", "/resign")));
+        return keyboardMarkup;
+    }
 
-        InlineKeyboardButton button = new InlineKeyboardButton();
-        button.setText("🎮 Создать новую игру");
-        button.setCallbackData("/newgame");
+    private static KeyboardRow replyRow(String... commands) {
+        KeyboardRow row = new KeyboardRow(commands.length);
+        for (String command : commands) {
+            row.add(new KeyboardButton(command));
+        }
+        return row;
+    }
 
-        row.add(button);
-        keyboard.add(row);
-        inlineKeyboardMarkup.setKeyboard(keyboard);
-        return inlineKeyboardMarkup;
+    private static InlineKeyboardMarkup buildNewGame() {
+        return new InlineKeyboardMarkup(List.of(List.of(button("🎮 Создать новую игру", "/newgame"))));
     }
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.chessbot.service;
+
+import com.chessbot.service.GameSessionManager.GameSession;
+import com.chessbot.util.ConcurrentLongMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 📌 Живая доска чата
+ *
+ * Для каждого чата запоминается сообщение с последней интерактивной доской и 64-битные
+ * отпечатки ее текста и клавиатуры. Следующий показ доски правит это сообщение, а не
+ * шлет новое: если не изменилось ничего, запроса к Telegram нет вовсе; если изменилась
+ * только клавиатура (подсветка возможных ходов), уходит одна правка клавиатуры.
+ * Новое сообщение отправляется для другой игры, когда правка не прошла и когда доска
+ * ушла вверх по переписке дальше чем на max-distance сообщений — править то, чего
+ * пользователь уже не видит, бессмысленно.
+ */
+@Slf4j
+@Service
+public class LiveBoardService implements GameSessionManager.SessionListener {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final TelegramNotificationService notificationService;
+    private final int maxDistance;
+
+    private final ConcurrentLongMap<LiveBoard> boards = new ConcurrentLongMap<>();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder edited = new LongAdder();
+    private final LongAdder keyboardEdits = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+
+    public LiveBoardService(GameSessionManager sessionManager,
+                            TelegramNotificationService notificationService,
+                            @Value("${chess.live-board.max-distance:8}") int maxDistance) {
+        this.notificationService = notificationService;
+        this.maxDistance = maxDistance;
+        sessionManager.addListener(this);
+    }
+
+    /**
+     * 📌 ПОКАЗАТЬ ДОСКУ В ОТВЕТ НА СООБЩЕНИЕ ПОЛЬЗОВАТЕЛЯ
+     *
+     * @param incomingMessageId id сообщения с командой (id в личном чате идут подряд),
+     *                          null — расстояние до живой доски неизвестно
+     * @return false, если доску не удалось ни поправить, ни отправить
+     */
+    public boolean show(long chatId, String gameId, Integer incomingMessageId,
+                        String text, InlineKeyboardMarkup keyboard) {
+        LiveBoard live = boards.get(chatId);
+        if (live != null && live.gameId.equals(gameId)
+                && (incomingMessageId == null || incomingMessageId - live.messageId <= maxDistance)
+                && update(chatId, live, gameId, text, keyboard)) {
+            return true;
+        }
+        return send(chatId, gameId, text, keyboard);
+    }
+
+    /**
+     * 🔄 ОБНОВИТЬ ДОСКУ В СООБЩЕНИИ, ГДЕ НАЖАЛИ КНОПКУ
+     *
+     * Нажатая доска становится живой, даже если до этого живой была другая.
+     */
+    public boolean showIn(long chatId, String gameId, int messageId, String text, InlineKeyboardMarkup keyboard) {
+        LiveBoard live = boards.get(chatId);
+        if (live == null || live.messageId != messageId || !live.gameId.equals(gameId)) {
+            // Содержимое нажатого сообщения неизвестно: правим целиком
+            live = new LiveBoard(gameId, messageId, 0, 0);
+        }
+        return update(chatId, live, gameId, text, keyboard) || send(chatId, gameId, text, keyboard);
+    }
+
+    /**
+     * ⌨️ ЗАМЕНИТЬ ТОЛЬКО КЛАВИАТУРУ ДОСКИ (шаги ввода хода: текст доски не меняется)
+     */
+    public boolean showKeyboardIn(long chatId, String gameId, int messageId, InlineKeyboardMarkup keyboard) {
+        LiveBoard live = boards.get(chatId);
+        boolean known = live != null && live.messageId == messageId && live.gameId.equals(gameId);
+        long keyboardPrint = fingerprint(keyboard);
+        if (known && live.keyboardPrint == keyboardPrint) {
+            unchanged.increment();
+            return true;
+        }
+        if (!notificationService.editKeyboard(chatId, messageId, keyboard)) {
+            return false;
+        }
+        keyboardEdits.increment();
+        boards.put(chatId, new LiveBoard(gameId, messageId, known ? live.textPrint : 0, keyboardPrint));
+        return true;
+    }
+
+    /**
+     * Забыть живую доску чата (следующий показ придет новым сообщением)
+     */
+    public void forget(long chatId) {
+        boards.remove(chatId);
+    }
+
+    public String describeStats() {
+        return "новых %d, правок %d, только клавиатура %d, без изменений %d"
+                .formatted(sent.sum(), edited.sum(), keyboardEdits.sum(), unchanged.sum());
+    }
+
+    @Override
+    public void onSessionSaved(GameSession session) {
+        // Смена игры видна по gameId живой доски
+    }
+
+    @Override
+    public void onSessionRemoved(long chatId) {
+        boards.remove(chatId);
+    }
+
+    private boolean update(long chatId, LiveBoard live, String gameId, String text, InlineKeyboardMarkup keyboard) {
+        long textPrint = fingerprint(text);
+        long keyboardPrint = fingerprint(keyboard);
+
+        boolean ok;
+        if (live.textPrint == textPrint && live.keyboardPrint == keyboardPrint) {
+            unchanged.increment();
+            ok = true;
+        } else if (live.textPrint == textPrint) {
+            ok = notificationService.editKeyboard(chatId, live.messageId, keyboard);
+            if (ok) {
+                keyboardEdits.increment();
+            }
+        } else {
+            ok = notificationService.editMessage(chatId, live.messageId, text, keyboard);
+            if (ok) {
+                edited.increment();
+            }
+        }
+
+        if (ok) {
+            boards.put(chatId, new LiveBoard(gameId, live.messageId, textPrint, keyboardPrint));
+        } else {
+            log.debug("📌 Живая доска {} в chatId={} не обновилась, отправляем новую", live.messageId, chatId);
+        }
+        return ok;
+    }
+
+    private boolean send(long chatId, String gameId, String text, InlineKeyboardMarkup keyboard) {
+        Integer messageId = notificationService.sendMessageReturningId(chatId, text, keyboard);
+        if (messageId == null) {
+            boards.remove(chatId);
+            return false;
+        }
+        boards.put(chatId, new LiveBoard(gameId, messageId, fingerprint(text), fingerprint(keyboard)));
+        sent.increment();
+        return true;
+    }
+
+    static long fingerprint(String text) {
+        return text != null ? hash(FNV_OFFSET, text) : 0;
+    }
+
+    static long fingerprint(InlineKeyboardMarkup keyboard) {
+        if (keyboard == null || keyboard.getKeyboard() == null) {
+            return 0;
+        }
+        long hash = FNV_OFFSET;
+        for (List<InlineKeyboardButton> row : keyboard.getKeyboard()) {
+            for (InlineKeyboardButton button : row) {
+                hash = hash(hash, button.getText());
+                hash = hash(hash, button.getCallbackData());
+            }
+            // Разделитель рядов: та же раскладка, перенесенная по-другому, — другая клавиатура
+            hash = (hash ^ '\n') * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // FNV-1a с разделителем после строки
+    private static long hash(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        return (hash ^ 0x1F) * FNV_PRIME;
+    }
+
+    private record LiveBoard(String gameId, int messageId, long textPrint, long keyboardPrint) {
+    }
+}
@@ -0,0 +1,274 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameInfoResponse;
+import com.chessbot.dto.TimeControl;
+import com.chessbot.util.MessageTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 📋 Лобби: снимок игр, ожидающих игроков
+ *
+ * Список ожидающих игр забирается из Chess API в фоне раз в refresh-ms и
+ * публикуется неизменяемым снимком через AtomicReference: все читатели /listgames
+ * делят один снимок без блокировок и без запросов к API. Страница и фильтр
+ * (рейтинг, контроль времени) считаются по снимку на лету, возраст снимка
+ * показывается пользователю.
+ */
+@Slf4j
+@Service
+public class LobbyService {
+
+    public static final int PAGE_SIZE = 5;
+
+    private final ApiClient apiClient;
+    private final GameClockService clockService;
+    private final long refreshMillis;
+
+    private final AtomicReference<LobbySnapshot> snapshot = new AtomicReference<>(LobbySnapshot.EMPTY);
+
+    private final ScheduledThreadPoolExecutor refresher = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "lobby-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LobbyService(ApiClient apiClient,
+                        GameClockService clockService,
+                        @Value("${chess.lobby.refresh-ms:5000}") long refreshMillis) {
+        this.apiClient = apiClient;
+        this.clockService = clockService;
+        this.refreshMillis = refreshMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        refresher.scheduleWithFixedDelay(this::safeRefresh, 0, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public LobbySnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * 🔄 ОБНОВИТЬ СНИМОК (фоновый поток)
+     */
+    void refresh() {
+        List<GameInfoResponse> waiting = apiClient.getWaitingGames();
+        List<LobbyGame> games = new ArrayList<>(waiting.size());
+        for (GameInfoResponse info : waiting) {
+            if (info == null || info.getGameId() == null) {
+                continue;
+            }
+            // Контроль времени партий, созданных через бота, известен локально
+            TimeControl timeControl = TimeControl.of(info.getTimeControl());
+            if (timeControl == null) {
+                timeControl = clockService.getTimeControl(info.getGameId());
+            }
+            games.add(new LobbyGame(info.getGameId(), info.getWhitePlayerName(), info.getCreatedAt(),
+                    info.getWhitePlayerRating(), timeControl));
+        }
+        snapshot.set(new LobbySnapshot(List.copyOf(games), System.currentTimeMillis()));
+        log.debug("📋 Лобби обновлено: {} игр", games.size());
+    }
+
+    private void safeRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("❌ Ошибка обновления лобби: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 📋 СТРАНИЦА ЛОББИ: /listgames [страница] [мин-макс] [blitz|rapid|correspondence]
+     */
+    public LobbyPage page(String command) {
+        LobbyQuery query = LobbyQuery.parse(command);
+        LobbySnapshot current = snapshot.get();
+
+        List<LobbyGame> matching = new ArrayList<>();
+        for (LobbyGame game : current.games()) {
+            if (query.matches(game)) {
+                matching.add(game);
+            }
+        }
+
+        if (current.refreshedAtMillis() == 0) {
+            return new LobbyPage("⏳ <b>Список игр загружается...</b> Попробуйте через пару секунд.", null);
+        }
+        if (matching.isEmpty()) {
+            String text = """
+                   🤷 <b>Нет игр, ожидающих игроков</b>%s
+
+                   Создайте свою: <code>/newgame</code>
+                   Или найдите соперника: <code>/play</code>
+
+                   %s
+                   """.formatted(query.hasFilter() ? " (с фильтром " + query.describe() + ")" : "", ageLine(current));
+            return new LobbyPage(text, null);
+        }
+
+        int pages = (matching.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+        int page = Math.max(1, Math.min(query.page(), pages));
+        int from = (page - 1) * PAGE_SIZE;
+        List<LobbyGame> shown = matching.subList(from, Math.min(from + PAGE_SIZE, matching.size()));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("📋 <b>Игры, ожидающие игроков</b> (").append(matching.size()).append(")\n");
+        if (query.hasFilter()) {
+            sb.append("🔎 <b>Фильтр:</b> ").append(query.describe()).append("\n");
+        }
+        sb.append("\n");
+        for (LobbyGame game : shown) {
+            sb.append("🎮 <b>Игра ID:</b> <code>").append(game.gameId()).append("</code>\n");
+            sb.append("   👤 <b>Создатель:</b> ");
+            MessageTemplate.appendEscaped(sb, String.valueOf(game.creatorName()));
+            if (game.rating() != null) {
+                sb.append(" (").append(game.rating()).append(")");
+            }
+            sb.append("\n");
+            if (game.timeControl() != null) {
+                sb.append("   ⏱ <b>Контроль:</b> ").append(game.timeControl().getTitle())
+                        .append(" ").append(game.timeControl().describe()).append("\n");
+            }
+            sb.append("   🕐 <b>Создана:</b> ").append(game.createdAt()).append("\n");
+            sb.append("   🎯 <b>Присоединиться:</b> <code>/joingame ").append(game.gameId()).append("</code>\n\n");
+        }
+        sb.append("📄 Страница ").append(page).append(" из ").append(pages).append("\n");
+        sb.append(ageLine(current));
+
+        return new LobbyPage(sb.toString(), keyboard(query, page, pages, shown));
+    }
+
+    private InlineKeyboardMarkup keyboard(LobbyQuery query, int page, int pages, List<LobbyGame> shown) {
+        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
+        for (LobbyGame game : shown) {
+            rows.add(List.of(button("▶️ Играть: " + game.creatorName(), "/joingame " + game.gameId())));
+        }
+
+        List<InlineKeyboardButton> navigation = new ArrayList<>(3);
+        if (page > 1) {
+            navigation.add(button("◀️ Назад", query.command(page - 1)));
+        }
+        navigation.add(button("🔄 " + page + "/" + pages, query.command(page)));
+        if (page < pages) {
+            navigation.add(button("Вперед ▶️", query.command(page + 1)));
+        }
+        rows.add(navigation);
+
+        InlineKeyboardMarkup markup = new InlineKeyboardMarkup();
+        markup.setKeyboard(rows);
+        return markup;
+    }
+
+    private static InlineKeyboardButton button(String text, String callbackData) {
+        InlineKeyboardButton button = new InlineKeyboardButton();
+        button.setText(text);
+        button.setCallbackData(callbackData);
+        return button;
+    }
+
+    private static String ageLine(LobbySnapshot snapshot) {
+        long seconds = Math.max(0, (System.currentTimeMillis() - snapshot.refreshedAtMillis()) / 1000);
+        return "🕐 Обновлено " + seconds + " с назад";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * 📸 Неизменяемый снимок лобби
+     */
+    public record LobbySnapshot(List<LobbyGame> games, long refreshedAtMillis) {
+        static final LobbySnapshot EMPTY = new LobbySnapshot(List.of(), 0);
+    }
+
+    public record LobbyGame(String gameId, String creatorName, String createdAt, Integer rating,
+                            TimeControl timeControl) {
+    }
+
+    /**
+     * Текст страницы и кнопки (keyboard может быть null)
+     */
+    public record LobbyPage(String text, InlineKeyboardMarkup keyboard) {
+    }
+
+    /**
+     * Разобранные аргументы /listgames; умеет собрать команду обратно для кнопок
+     */
+    record LobbyQuery(int page, Integer minRating, Integer maxRating, TimeControl timeControl) {
+
+        static LobbyQuery parse(String command) {
+            int page = 1;
+            Integer min = null;
+            Integer max = null;
+            TimeControl timeControl = null;
+            String[] parts = command.trim().toLowerCase().split("\\s+");
+            for (int i = 1; i < parts.length; i++) {
+                String part = parts[i];
+                if (part.matches("\\d{1,4}")) {
+                    page = Integer.parseInt(part);
+                } else if (part.matches("\\d{1,4}-\\d{1,4}")) {
+                    String[] bounds = part.split("-");
+                    min = Integer.parseInt(bounds[0]);
+                    max = Integer.parseInt(bounds[1]);
+                } else if (TimeControl.of(part) != null) {
+                    timeControl = TimeControl.of(part);
+                }
+            }
+            return new LobbyQuery(page, min, max, timeControl);
+        }
+
+        boolean hasFilter() {
+            return minRating != null || timeControl != null;
+        }
+
+        boolean matches(LobbyGame game) {
+            if (timeControl != null && game.timeControl() != timeControl) {
+                return false;
+            }
+            if (minRating != null) {
+                // Игры без рейтинга в фильтр по рейтингу не попадают
+                return game.rating() != null && game.rating() >= minRating && game.rating() <= maxRating;
+            }
+            return true;
+        }
+
+        String describe() {
+            List<String> parts = new ArrayList<>(2);
+            if (minRating != null) {
+                parts.add("рейтинг " + minRating + "–" + maxRating);
+            }
+            if (timeControl != null) {
+                parts.add(timeControl.getTitle());
+            }
+            return String.join(", ", parts);
+        }
+
+        // callback_data ограничен 64 байтами: "/listgames 999 1000-2000 correspondence" укладывается
+        String command(int targetPage) {
+            StringBuilder sb = new StringBuilder("/listgames ").append(targetPage);
+            if (minRating != null) {
+                sb.append(' ').append(minRating).append('-').append(maxRating);
+            }
+            if (timeControl != null) {
+                sb.append(' ').append(timeControl.name().toLowerCase());
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import com.chessbot.dto.TimeControl;
+import com.chessbot.util.ConcurrentLongMap;
+import com.chessbot.util.MessageTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🎯 Подбор соперника: /play
+ *
+ * Очередь живет в памяти бота: отдельный пул на каждый контроль времени,
+ * внутри — TreeMap по рейтингу, так что ближайший по силе соперник находится
+ * за O(log n) прямо при постановке в очередь. Кого не удалось свести сразу,
+ * раз в interval-ms подбирает общий проход: окно допустимой разницы рейтингов
+ * растет со временем ожидания, пары сводятся по соседству в порядке рейтинга.
+ *
+ * Найденные за проход пары создаются одной пачкой на небольшом пуле
+ * (createGame + joinGame на пару), так что Chess API видит только запросы
+ * на реально состоявшиеся игры и ни одного запроса списка ожидающих.
+ */
+@Slf4j
+@Service
+public class MatchmakingService {
+
+    private static final int CREATE_THREADS = 4;
+    private static final int CREATE_QUEUE_SIZE = 1_000;
+
+    private static final MessageTemplate MATCH_FOUND = MessageTemplate.compile("""
+            🎯 *Соперник найден!*
+
+            👤 *Соперник:* {opponent} (рейтинг {rating})
+            🆔 *ID игры:* `{gameId}`
+            ♟️ *Вы играете:* {color}
+            {clock:raw}
+            {turn:raw}
+            """);
+    private static final MessageTemplate UNKNOWN_TIME_CONTROL = MessageTemplate.compile("""
+            ❌ *Неизвестный контроль времени:* `{argument}`
+
+            Использование: `/play [blitz|rapid|correspondence]`
+            """);
+    private static final MessageTemplate MATCH_FAILED = MessageTemplate.compile(
+            "❌ *Не удалось создать игру:* {reason}\n\nПопробуйте еще раз: `/play`");
+
+    private final ApiClient apiClient;
+    private final GameSessionManager sessionManager;
+    private final TelegramNotificationService notificationService;
+    private final GameEventClient eventClient;
+    private final GameClockService clockService;
+    private final RatingCache ratingCache;
+
+    private final int initialWindow;
+    private final int widenPerSecond;
+    private final int maxWindow;
+    private final long intervalMillis;
+
+    // [0] — игры без часов, дальше по TimeControl.ordinal() + 1
+    private final Pool[] pools = new Pool[TimeControl.values().length + 1];
+    // chatId -> заявка; заявка в очереди ровно одна на игрока
+    private final ConcurrentLongMap<Ticket> queued = new ConcurrentLongMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ScheduledThreadPoolExecutor matcher = new ScheduledThreadPoolExecutor(1, namedThreadFactory("matchmaking-"));
+
+    private final ThreadPoolExecutor createExecutor = new ThreadPoolExecutor(
+            CREATE_THREADS, CREATE_THREADS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(CREATE_QUEUE_SIZE),
+            namedThreadFactory("matchmaking-create-"),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+
+    public MatchmakingService(ApiClient apiClient,
+                              GameSessionManager sessionManager,
+                              TelegramNotificationService notificationService,
+                              GameEventClient eventClient,
+                              GameClockService clockService,
+                              RatingCache ratingCache,
+                              @Value("${chess.matchmaking.initial-window:100}") int initialWindow,
+                              @Value("${chess.matchmaking.widen-per-second:25}") int widenPerSecond,
+                              @Value("${chess.matchmaking.max-window:600}") int maxWindow,
+                              @Value("${chess.matchmaking.interval-ms:1000}") long intervalMillis) {
+        this.apiClient = apiClient;
+        this.sessionManager = sessionManager;
+        this.notificationService = notificationService;
+        this.eventClient = eventClient;
+        this.clockService = clockService;
+        this.ratingCache = ratingCache;
+        this.initialWindow = initialWindow;
+        this.widenPerSecond = widenPerSecond;
+        this.maxWindow = maxWindow;
+        this.intervalMillis = intervalMillis;
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = new Pool();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        matcher.scheduleWithFixedDelay(this::safeMatchWaiting, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 🎯 КОМАНДА /PLAY [blitz|rapid|correspondence|stop]
+     */
+    public String handlePlay(long chatId, String userName, String text) {
+        String[] parts = text.trim().split("\\s+");
+        String argument = parts.length > 1 ? parts[1].toLowerCase() : null;
+
+        if ("stop".equals(argument) || "cancel".equals(argument)) {
+            if (!isQueued(chatId)) {
+                return "🤷 *Вы не стоите в очереди.* Найти соперника: `/play`";
+            }
+            return leave(chatId)
+                    ? "⏹ *Поиск соперника остановлен.*"
+                    : "🎯 *Соперник уже найден* — игра создается.";
+        }
+
+        TimeControl timeControl = null;
+        if (argument != null) {
+            timeControl = TimeControl.of(argument);
+            if (timeControl == null) {
+                return UNKNOWN_TIME_CONTROL.render(argument);
+            }
+        }
+
+        if (sessionManager.hasActiveGame(chatId)) {
+            return "⚠️ *У вас уже есть активная игра!*\n\nПродолжить: `/board`";
+        }
+
+        int rating = ratingCache.ratingOf(chatId);
+        Ticket ticket = new Ticket(chatId, userName != null ? userName : "Игрок", rating, timeControl,
+                System.currentTimeMillis(), sequence.incrementAndGet());
+        if (queued.compute(chatId, (id, existing) -> existing != null ? existing : ticket) != ticket) {
+            return "⏳ *Вы уже ищете соперника.* Отменить: `/play stop`";
+        }
+
+        Pool pool = poolOf(timeControl);
+        Ticket opponent;
+        synchronized (pool) {
+            // /play stop мог пройти между записью в queued и этим местом; leave снимает заявку
+            // с пула под тем же монитором, поэтому проверка здесь не оставит в пуле сироту
+            if (queued.get(chatId) != ticket) {
+                return "⏹ *Поиск соперника остановлен.*";
+            }
+            opponent = pool.closest(rating, initialWindow);
+            if (opponent != null) {
+                pool.remove(opponent);
+            } else {
+                pool.add(ticket);
+            }
+        }
+
+        if (opponent != null) {
+            queued.remove(opponent.chatId, opponent);
+            queued.remove(chatId, ticket);
+            createGames(List.of(new Pair(opponent, ticket)));
+            return "✅ *Соперник найден!* Создаем игру...";
+        }
+
+        log.info("🎯 В очереди: chatId={}, рейтинг={}, контроль={}", chatId, rating, timeControl);
+        return """
+               🔎 *Ищем соперника...*
+
+               📈 *Ваш рейтинг:* %d
+               ⏱ *Контроль:* %s
+
+               Чем дольше ожидание, тем шире допустимая разница в рейтинге.
+               Отменить: `/play stop`
+               """.formatted(rating, timeControl != null
+                ? timeControl.getTitle() + " " + timeControl.describe()
+                : "без часов");
+    }
+
+    /**
+     * Убрать игрока из очереди; false, если его там нет или пара уже найдена
+     */
+    public boolean leave(long chatId) {
+        Ticket ticket = queued.remove(chatId);
+        if (ticket == null) {
+            return false;
+        }
+        Pool pool = poolOf(ticket.timeControl);
+        synchronized (pool) {
+            return pool.remove(ticket);
+        }
+    }
+
+    public boolean isQueued(long chatId) {
+        return queued.containsKey(chatId);
+    }
+
+    public int getQueuedCount() {
+        return queued.size();
+    }
+
+    /**
+     * 🔁 ПРОХОД ПОДБОРА: соседние по рейтингу заявки, укладывающиеся в окна друг друга
+     */
+    void matchWaiting() {
+        long now = System.currentTimeMillis();
+        List<Pair> pairs = new ArrayList<>();
+
+        for (Pool pool : pools) {
+            synchronized (pool) {
+                Ticket previous = null;
+                Iterator<Ticket> iterator = pool.byRating.values().iterator();
+                List<Ticket> matched = new ArrayList<>();
+                while (iterator.hasNext()) {
+                    Ticket current = iterator.next();
+                    if (queued.get(current.chatId) != current) {
+                        // Игрок уже ушел, leave ждет монитор пула, чтобы убрать заявку
+                        iterator.remove();
+                        continue;
+                    }
+                    if (previous != null
+                            && current.rating - previous.rating <= Math.min(window(previous, now), window(current, now))) {
+                        pairs.add(new Pair(previous, current));
+                        matched.add(previous);
+                        matched.add(current);
+                        previous = null;
+                    } else {
+                        previous = current;
+                    }
+                }
+                matched.forEach(pool::remove);
+            }
+        }
+
+        for (Pair pair : pairs) {
+            queued.remove(pair.first.chatId, pair.first);
+            queued.remove(pair.second.chatId, pair.second);
+        }
+        if (!pairs.isEmpty()) {
+            log.info("🎯 Подбор: {} пар(ы), в очереди осталось {}", pairs.size(), queued.size());
+            createGames(pairs);
+        }
+    }
+
+    private void safeMatchWaiting() {
+        try {
+            matchWaiting();
+        } catch (Exception e) {
+            log.error("❌ Ошибка подбора соперников: {}", e.getMessage(), e);
+        }
+    }
+
+    private int window(Ticket ticket, long now) {
+        long waitedSeconds = (now - ticket.enqueuedMillis) / 1000;
+        return (int) Math.min(maxWindow, initialWindow + widenPerSecond * waitedSeconds);
+    }
+
+    private void createGames(List<Pair> pairs) {
+        for (Pair pair : pairs) {
+            createExecutor.execute(() -> createGame(pair));
+        }
+    }
+
+    private void createGame(Pair pair) {
+        // Белыми играет тот, кто ждал дольше
+        Ticket white = pair.first.sequence < pair.second.sequence ? pair.first : pair.second;
+        Ticket black = white == pair.first ? pair.second : pair.first;
+
+        try {
+            GameResponse created = apiClient.createGame(white.chatId, white.userName);
+            if (created == null || !Boolean.TRUE.equals(created.getSuccess())) {
+                notifyFailure(pair, created);
+                return;
+            }
+            String gameId = created.getGameId();
+            ratingCache.record(created);
+            sessionManager.createSession(gameId, white.chatId, white.chatId, "WHITE");
+            eventClient.subscribe(gameId);
+            if (white.timeControl != null) {
+                clockService.register(gameId, white.timeControl);
+            }
+
+            GameResponse joined = apiClient.joinGame(gameId, black.chatId, black.userName);
+            if (joined == null || !Boolean.TRUE.equals(joined.getSuccess())) {
+                sessionManager.removeSession(white.chatId);
+                clockService.stop(gameId);
+                notifyFailure(pair, joined);
+                return;
+            }
+            ratingCache.record(joined);
+            sessionManager.createSession(gameId, black.chatId, black.chatId, "BLACK");
+            sessionManager.updateStatus(white.chatId, joined.getStatus());
+            sessionManager.updateStatus(black.chatId, joined.getStatus());
+            clockService.start(gameId);
+            log.info("🎯 Игра {} создана подбором: {} ({}) — {} ({})",
+                    gameId, white.chatId, white.rating, black.chatId, black.rating);
+
+            notificationService.sendSimpleMessage(black.chatId, matchFoundText(gameId, white, "черными",
+                    "⏳ Первый ход за соперником."));
+            // Белым о подключении черных расскажет событие PLAYER_JOINED, если поток событий подключен
+            if (!eventClient.isConnected()) {
+                notificationService.sendSimpleMessage(white.chatId, matchFoundText(gameId, black, "белыми",
+                        "🎯 Ваш ход: `/move e2-e4`"));
+            }
+        } catch (Exception e) {
+            log.error("❌ Ошибка создания игры подбором: {}", e.getMessage(), e);
+            notifyFailure(pair, null);
+        }
+    }
+
+    private String matchFoundText(String gameId, Ticket opponent, String color, String turn) {
+        String clock = clockService.describe(gameId);
+        return MATCH_FOUND.render(opponent.userName, opponent.rating, gameId, color, clock != null ? clock : "", turn);
+    }
+
+    private void notifyFailure(Pair pair, GameResponse response) {
+        String reason = response != null && response.getMessage() != null ? response.getMessage() : "Сервер не отвечает";
+        String message = MATCH_FAILED.render(reason);
+        notificationService.sendSimpleMessage(pair.first.chatId, message);
+        notificationService.sendSimpleMessage(pair.second.chatId, message);
+    }
+
+    private Pool poolOf(TimeControl timeControl) {
+        return pools[timeControl != null ? timeControl.ordinal() + 1 : 0];
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        matcher.shutdownNow();
+        createExecutor.shutdown();
+    }
+
+    /**
+     * Заявка на игру (неизменяемая)
+     */
+    private record Ticket(long chatId, String userName, int rating, TimeControl timeControl,
+                          long enqueuedMillis, long sequence) {
+
+        long key() {
+            return Pool.key(rating, sequence);
+        }
+    }
+
+    private record Pair(Ticket first, Ticket second) {
+    }
+
+    /**
+     * Заявки одного контроля времени в порядке рейтинга; доступ — под монитором пула
+     */
+    private static final class Pool {
+        // Ключ: рейтинг в старших 32 битах, порядковый номер заявки в младших
+        final TreeMap<Long, Ticket> byRating = new TreeMap<>();
+
+        static long key(int rating, long sequence) {
+            return ((long) rating << 32) | (sequence & 0xFFFF_FFFFL);
+        }
+
+        void add(Ticket ticket) {
+            byRating.put(ticket.key(), ticket);
+        }
+
+        boolean remove(Ticket ticket) {
+            return byRating.remove(ticket.key(), ticket);
+        }
+
+        /**
+         * Ближайшая по рейтингу заявка в пределах window или null — два поиска по дереву
+         */
+        Ticket closest(int rating, int window) {
+            Map.Entry<Long, Ticket> below = byRating.floorEntry(key(rating, 0xFFFF_FFFFL));
+            Map.Entry<Long, Ticket> above = byRating.ceilingEntry(key(rating, 0));
+            int belowDiff = below != null ? rating - below.getValue().rating : Integer.MAX_VALUE;
+            int aboveDiff = above != null ? above.getValue().rating - rating : Integer.MAX_VALUE;
+            if (Math.min(belowDiff, aboveDiff) > window) {
+                return null;
+            }
+            return belowDiff <= aboveDiff ? below.getValue() : above.getValue();
+        }
+    }
+}
@@ -0,0 +1,840 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import com.chessbot.dto.PlayerColor;
+import com.chessbot.engine.Board;
+import com.chessbot.engine.Move;
+import com.chessbot.engine.MoveGenerator;
+import com.chessbot.engine.Notation;
+import com.chessbot.util.ConcurrentLongMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 📜 История ходов партий
+ *
+ * Ход хранится в 16 битах (Move.compact: "откуда", "куда", превращение) в растущем
+ * short[] партии. Строки ходов не хранятся вовсе: SAN для /pgn пишется прямо в один
+ * StringBuilder при проигрывании партии на доске.
+ *
+ * В памяти живут только идущие партии. Их изменения дописываются в бинарный журнал
+ * (append-only), буфер сбрасывается раз в flush-ms и при остановке. Завершенная партия
+ * одним блоком уходит в архив — заголовок и ходы подряд по 2 байта, без типа записи и id
+ * на каждый ход — и убирается из памяти; от нее остается смещение блока в индексе.
+ * /pgn и итог читают блок с диска, последние прочитанные партии держатся в кэше.
+ *
+ * Записи завершенных партий в журнале становятся мусором. Когда его больше половины
+ * журнала (и не меньше COMPACT_MIN_BYTES), журнал переписывается: по блоку на идущую
+ * партию, id снова плотные. При старте журнал проигрывается, из архива читаются только
+ * заголовки; недописанная последняя запись (обрыв при падении) в обоих файлах отрезается.
+ * <pre>
+ * журнал:
+ * 'G' id:int gameId white black:str startedMillis:long — новая партия
+ * 'M' id:int move:short                               — ход
+ * 'B' id:int count:short move:short*count             — ходы партии после сжатия
+ * 'R' id:int result:byte                              — итог (старый формат, только чтение)
+ * архив:
+ * gameId white black:str startedMillis:long result:byte count:short move:short*count
+ * str = длина:short + UTF-8
+ * </pre>
+ */
+@Slf4j
+@Service
+public class MoveHistoryStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int PGN_LINE_LENGTH = 80;
+    private static final int LOADED_CACHE_SIZE = 64;
+    private static final long COMPACT_MIN_BYTES = 1 << 20;
+
+    private static final byte RECORD_GAME = 'G';
+    private static final byte RECORD_MOVE = 'M';
+    private static final byte RECORD_BLOCK = 'B';
+    private static final byte RECORD_RESULT = 'R';
+
+    private static final DateTimeFormatter PGN_DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd").withZone(ZoneOffset.UTC);
+
+    /**
+     * Итог партии в нотации PGN
+     */
+    public enum Result {
+        ONGOING("*"), WHITE_WINS("1-0"), BLACK_WINS("0-1"), DRAW("1/2-1/2");
+
+        private final String pgn;
+
+        Result(String pgn) {
+            this.pgn = pgn;
+        }
+
+        public String getPgn() {
+            return pgn;
+        }
+
+        public static Result winner(PlayerColor color) {
+            if (color == null) {
+                return DRAW;
+            }
+            return color == PlayerColor.WHITE ? WHITE_WINS : BLACK_WINS;
+        }
+    }
+
+    /**
+     * Слушатель итогов: вызывается один раз на партию, когда итог зафиксирован
+     */
+    public interface ResultListener {
+        void onResult(String gameId, Result result);
+    }
+
+    private final List<ResultListener> resultListeners = new CopyOnWriteArrayList<>();
+
+    private final GameSessionManager sessionManager;
+    private final Path file;
+    private final Path archiveFile;
+    private final long flushMillis;
+
+    // gameId -> история идущей партии
+    private final Map<String, GameLog> games = new ConcurrentHashMap<>();
+    // gameId -> смещение блока завершенной партии в архиве
+    private final Map<String, Long> archived = new ConcurrentHashMap<>();
+    // Последние прочитанные из архива партии (под своим монитором)
+    private final Map<String, GameLog> loaded = new LinkedHashMap<>(LOADED_CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, GameLog> eldest) {
+            return size() > LOADED_CACHE_SIZE;
+        }
+    };
+    // chatId -> последняя партия игрока (для /pgn без аргументов)
+    private final ConcurrentLongMap<String> lastGameByChat = new ConcurrentLongMap<>();
+
+    // Под writeLock: оба файла, id партий, ходы идущих партий и учет мусора в журнале
+    private final Object writeLock = new Object();
+    private DataOutputStream out;
+    private FileChannel archive;
+    private long archiveSize;
+    private long journalBytes;
+    private long deadBytes;
+    private int nextId;
+
+    private final ScheduledThreadPoolExecutor flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "move-history-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MoveHistoryStore(GameSessionManager sessionManager,
+                            @Value("${chess.history.file:data/move-history.bin}") String file,
+                            @Value("${chess.history.archive-file:data/move-history.archive}") String archiveFile,
+                            @Value("${chess.history.flush-ms:1000}") long flushMillis) {
+        this.sessionManager = sessionManager;
+        this.file = Path.of(file);
+        this.archiveFile = Path.of(archiveFile);
+        this.flushMillis = flushMillis;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        for (Path path : new Path[]{file, archiveFile}) {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+        }
+        synchronized (writeLock) {
+            archive = FileChannel.open(archiveFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            archiveSize = scanArchive();
+            if (archive.size() > archiveSize) {
+                log.warn("📜 Архив истории обрезан с {} до {} байт (недописанный блок)", archive.size(), archiveSize);
+                archive.truncate(archiveSize);
+            }
+            if (Files.exists(file)) {
+                journalBytes = replay();
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    if (channel.size() > journalBytes) {
+                        log.warn("📜 Журнал истории обрезан с {} до {} байт (недописанная запись)", channel.size(), journalBytes);
+                        channel.truncate(journalBytes);
+                    }
+                }
+            }
+            out = openJournal();
+            // Итоги из журнала старого формата: завершенные партии переезжают в архив
+            for (GameLog finished : games.values()) {
+                if (finished.result != Result.ONGOING) {
+                    archive(finished);
+                }
+            }
+            compactIfWasteful();
+        }
+        flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        log.info("📜 История ходов: {} идущих партий из {}, {} в архиве {}", games.size(), file, archived.size(), archiveFile);
+    }
+
+    /**
+     * 🆕 НАЧАТЬ ИСТОРИЮ ПАРТИИ (повторный вызов возвращает существующую)
+     */
+    public void startGame(String gameId, String white, String black, long... chatIds) {
+        logFor(gameId, white, black);
+        for (long chatId : chatIds) {
+            lastGameByChat.put(chatId, gameId);
+        }
+    }
+
+    /**
+     * ♟️ ХОД ИЗ CHESS API (координатная нотация или SAN); game — ответ API для имен игроков, может быть null
+     */
+    public void recordMove(String gameId, String notation, GameResponse game) {
+        if (notation == null) {
+            return;
+        }
+        GameLog log = games.get(gameId);
+        if (log == null) {
+            if (archived.containsKey(gameId)) {
+                return;
+            }
+            // Партия началась до появления истории: имена — из ответа API, участники — из сессий
+            List<Long> chatIds = sessionManager.getChatIdsByGameId(gameId);
+            startGame(gameId, nameOf(game != null ? game.getWhitePlayer() : null),
+                    nameOf(game != null ? game.getBlackPlayer() : null),
+                    chatIds.stream().mapToLong(Long::longValue).toArray());
+            log = games.get(gameId);
+            if (log == null) {
+                return;
+            }
+        }
+        synchronized (log) {
+            int compact = Move.parseCompact(notation.trim());
+            if (compact < 0) {
+                // SAN: без позиции не разобрать — проигрываем партию
+                Board board = log.replay(log.size);
+                int move = board != null ? Notation.parseMove(board, notation) : Move.NONE;
+                if (move == Move.NONE) {
+                    MoveHistoryStore.log.warn("📜 Ход {} в игре {} не распознан, в историю не записан", notation, gameId);
+                    return;
+                }
+                compact = Move.compact(move);
+            }
+            append(log, (short) compact);
+        }
+    }
+
+    /**
+     * ♟️ ХОД ВСТРОЕННОГО ДВИЖКА ИЛИ ПРОВЕРЕННЫЙ ЛОКАЛЬНО
+     */
+    public void recordMove(String gameId, int move) {
+        GameLog log = games.get(gameId);
+        if (log == null) {
+            return;
+        }
+        synchronized (log) {
+            append(log, Move.compact(move));
+        }
+    }
+
+    /**
+     * 🏁 ЗАФИКСИРОВАТЬ ИТОГ (первый итог окончательный)
+     */
+    public void finish(String gameId, Result result) {
+        GameLog log = games.get(gameId);
+        if (log == null || result == Result.ONGOING) {
+            return;
+        }
+        synchronized (log) {
+            if (log.result != Result.ONGOING) {
+                return;
+            }
+            synchronized (writeLock) {
+                log.result = result;
+                log.moves = Arrays.copyOf(log.moves, log.size);
+                archive(log);
+            }
+        }
+        for (ResultListener listener : resultListeners) {
+            listener.onResult(gameId, result);
+        }
+    }
+
+    public void addResultListener(ResultListener listener) {
+        resultListeners.add(listener);
+    }
+
+    /**
+     * Итог партии; ONGOING — партия идет или неизвестна
+     */
+    public Result resultOf(String gameId) {
+        GameLog log = find(gameId);
+        if (log == null) {
+            return Result.ONGOING;
+        }
+        synchronized (log) {
+            return log.result;
+        }
+    }
+
+    /**
+     * 🏁 ИТОГ ПО СТАТУСУ ИЗ CHESS API; currentTurn — чей ход в финальной позиции
+     */
+    public void finishByStatus(String gameId, String status, String currentTurn) {
+        PlayerColor toMove = PlayerColor.of(currentTurn);
+        switch (status != null ? status.toUpperCase() : "") {
+            case "CHECKMATE", "TIMEOUT" -> {
+                if (toMove != null) {
+                    finish(gameId, Result.winner(toMove.opposite()));
+                }
+            }
+            case "STALEMATE", "DRAW" -> finish(gameId, Result.DRAW);
+            default -> {
+            }
+        }
+    }
+
+    @EventListener
+    public void onGameFinished(GameFinishedEvent event) {
+        finish(event.gameId(), Result.winner(event.winner()));
+    }
+
+    public String lastGameOf(long chatId) {
+        return lastGameByChat.get(chatId);
+    }
+
+    public int moveCount(String gameId) {
+        GameLog log = find(gameId);
+        if (log == null) {
+            return 0;
+        }
+        synchronized (log) {
+            return log.size;
+        }
+    }
+
+    /**
+     * Последний ход партии в 16-битной форме или Move.NONE
+     */
+    public int lastMove(String gameId) {
+        GameLog log = find(gameId);
+        if (log == null) {
+            return Move.NONE;
+        }
+        synchronized (log) {
+            return log.size > 0 ? log.moves[log.size - 1] : Move.NONE;
+        }
+    }
+
+    public int getGamesCount() {
+        return games.size() + archived.size();
+    }
+
+    int liveGamesCount() {
+        return games.size();
+    }
+
+    /**
+     * 📜 PGN ПАРТИИ: SAN пишется прямо в out при проигрывании; false — партии нет в истории
+     */
+    public boolean writePgn(String gameId, StringBuilder out) {
+        GameLog log = find(gameId);
+        if (log == null) {
+            return false;
+        }
+        short[] moves;
+        int size;
+        Result result;
+        synchronized (log) {
+            moves = log.moves;
+            size = log.size;
+            result = log.result;
+        }
+
+        out.append("[Event \"Chess Bot\"]\n");
+        out.append("[Site \"Telegram\"]\n");
+        out.append("[Date \"").append(PGN_DATE.format(Instant.ofEpochMilli(log.startedMillis))).append("\"]\n");
+        out.append("[White \"").append(log.white).append("\"]\n");
+        out.append("[Black \"").append(log.black).append("\"]\n");
+        out.append("[Result \"").append(result.getPgn()).append("\"]\n\n");
+
+        Board board = Board.startPosition();
+        int lineStart = out.length();
+        for (int ply = 0; ply < size; ply++) {
+            // Массив ходов только дописывается: прочитанные до size элементы не меняются
+            int move = MoveGenerator.findLegal(board, moves[ply]);
+            if (move == Move.NONE) {
+                out.append("{ дальше история повреждена } ");
+                break;
+            }
+            int tokenStart = out.length();
+            if (ply % 2 == 0) {
+                out.append(ply / 2 + 1).append(". ");
+            }
+            Notation.appendSan(board, move, out);
+            out.append(' ');
+            board.makeMove(move);
+            if (out.length() - lineStart > PGN_LINE_LENGTH) {
+                out.setCharAt(tokenStart - 1, '\n');
+                lineStart = tokenStart;
+            }
+        }
+        out.append(result.getPgn()).append('\n');
+        return true;
+    }
+
+    private GameLog logFor(String gameId, String white, String black) {
+        GameLog existing = games.get(gameId);
+        if (existing != null) {
+            return existing;
+        }
+        // Создание — под writeLock, а не в computeIfAbsent: archive() убирает партии из таблицы под ним же
+        synchronized (writeLock) {
+            existing = games.get(gameId);
+            if (existing != null || archived.containsKey(gameId)) {
+                return existing;
+            }
+            GameLog created = new GameLog(gameId, white != null ? white : "?", black != null ? black : "?",
+                    System.currentTimeMillis());
+            created.id = nextId++;
+            games.put(gameId, created);
+            write(created, output -> writeGame(output, created));
+            return created;
+        }
+    }
+
+    /**
+     * Идущая партия или завершенная из архива (через кэш прочитанных)
+     */
+    private GameLog find(String gameId) {
+        GameLog log = games.get(gameId);
+        if (log != null) {
+            return log;
+        }
+        Long offset = archived.get(gameId);
+        if (offset == null) {
+            return null;
+        }
+        synchronized (loaded) {
+            log = loaded.get(gameId);
+        }
+        if (log == null) {
+            log = loadArchived(offset);
+            if (log != null) {
+                synchronized (loaded) {
+                    loaded.put(gameId, log);
+                }
+            }
+        }
+        return log;
+    }
+
+    // Вызывается под монитором партии: ход в памяти и в журнале меняются вместе под writeLock
+    private void append(GameLog log, short compact) {
+        if (log.result != Result.ONGOING) {
+            return;
+        }
+        synchronized (writeLock) {
+            log.add(compact);
+            write(log, output -> {
+                output.writeByte(RECORD_MOVE);
+                output.writeInt(log.id);
+                output.writeShort(compact);
+            });
+        }
+    }
+
+    /**
+     * Завершенная партия — одним блоком в архив, из памяти и журнала она уходит (под writeLock)
+     */
+    private void archive(GameLog log) {
+        if (archive == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 2 * log.size);
+            DataOutputStream block = new DataOutputStream(bytes);
+            writeString(block, log.gameId);
+            writeString(block, log.white);
+            writeString(block, log.black);
+            block.writeLong(log.startedMillis);
+            block.writeByte(log.result.ordinal());
+            block.writeShort(log.size);
+            for (int i = 0; i < log.size; i++) {
+                block.writeShort(log.moves[i]);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            long offset = archiveSize;
+            while (buffer.hasRemaining()) {
+                archive.write(buffer, offset + buffer.position());
+            }
+            archiveSize += buffer.capacity();
+            archived.put(log.gameId, offset);
+        } catch (IOException e) {
+            // Партия остается в памяти и журнале, история не теряется
+            MoveHistoryStore.log.error("❌ Ошибка записи архива истории: {}", e.getMessage());
+            return;
+        }
+        games.remove(log.gameId, log);
+        deadBytes += log.journalBytes;
+        synchronized (loaded) {
+            loaded.put(log.gameId, log);
+        }
+    }
+
+    private GameLog loadArchived(long offset) {
+        try (SeekableByteChannel channel = Files.newByteChannel(archiveFile)) {
+            channel.position(offset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 4096));
+            GameLog restored = new GameLog(readString(in), readString(in), readString(in), in.readLong());
+            int result = in.readByte();
+            restored.result = result >= 0 && result < Result.values().length ? Result.values()[result] : Result.ONGOING;
+            restored.moves = new short[in.readUnsignedShort()];
+            for (int i = 0; i < restored.moves.length; i++) {
+                restored.moves[i] = in.readShort();
+            }
+            restored.size = restored.moves.length;
+            return restored;
+        } catch (IOException e) {
+            log.error("❌ Ошибка чтения архива истории: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(GameLog owner, RecordWriter writer) {
+        synchronized (writeLock) {
+            if (out == null) {
+                return;
+            }
+            int before = out.size();
+            try {
+                writer.write(out);
+            } catch (IOException e) {
+                log.error("❌ Ошибка записи журнала истории: {}", e.getMessage());
+            }
+            owner.journalBytes += out.size() - before;
+            journalBytes += out.size() - before;
+        }
+    }
+
+    private void flush() {
+        synchronized (writeLock) {
+            try {
+                if (out != null) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                log.error("❌ Ошибка сброса журнала истории: {}", e.getMessage());
+            }
+            compactIfWasteful();
+        }
+    }
+
+    private void compactIfWasteful() {
+        if (deadBytes >= COMPACT_MIN_BYTES && deadBytes * 2 >= journalBytes) {
+            compact();
+        }
+    }
+
+    /**
+     * 🗜 СЖАТИЕ ЖУРНАЛА: только идущие партии, по блоку на каждую, id плотные
+     */
+    void compact() {
+        synchronized (writeLock) {
+            if (out == null) {
+                return;
+            }
+            List<GameLog> live = new ArrayList<>(games.values());
+            long[] bytes = new long[live.size()];
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                try (DataOutputStream compacted = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(tmp), 64 * 1024))) {
+                    for (int id = 0; id < live.size(); id++) {
+                        int before = compacted.size();
+                        writeCompacted(compacted, live.get(id), id);
+                        bytes[id] = compacted.size() - before;
+                    }
+                }
+                DataOutputStream previous = out;
+                out = null;
+                previous.close();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                long before = journalBytes;
+                journalBytes = 0;
+                for (int id = 0; id < live.size(); id++) {
+                    live.get(id).id = id;
+                    live.get(id).journalBytes = bytes[id];
+                    journalBytes += bytes[id];
+                }
+                nextId = live.size();
+                deadBytes = 0;
+                log.info("🗜 Журнал истории сжат с {} до {} байт ({} идущих партий)", before, journalBytes, live.size());
+            } catch (IOException e) {
+                log.error("❌ Ошибка сжатия журнала истории: {}", e.getMessage());
+            } finally {
+                if (out == null) {
+                    try {
+                        out = openJournal();
+                    } catch (IOException e) {
+                        log.error("❌ Журнал истории не открыт после сжатия: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private DataOutputStream openJournal() throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024));
+    }
+
+    private static void writeGame(DataOutputStream output, GameLog log) throws IOException {
+        output.writeByte(RECORD_GAME);
+        output.writeInt(log.id);
+        writeString(output, log.gameId);
+        writeString(output, log.white);
+        writeString(output, log.black);
+        output.writeLong(log.startedMillis);
+    }
+
+    private static void writeCompacted(DataOutputStream output, GameLog log, int id) throws IOException {
+        output.writeByte(RECORD_GAME);
+        output.writeInt(id);
+        writeString(output, log.gameId);
+        writeString(output, log.white);
+        writeString(output, log.black);
+        output.writeLong(log.startedMillis);
+        if (log.size > 0) {
+            output.writeByte(RECORD_BLOCK);
+            output.writeInt(id);
+            output.writeShort(log.size);
+            for (int i = 0; i < log.size; i++) {
+                output.writeShort(log.moves[i]);
+            }
+        }
+    }
+
+    /**
+     * Прочитать заголовки архива в индекс; вернуть длину корректной части в байтах
+     */
+    private long scanArchive() throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(
+                FileChannel.open(archiveFile, StandardOpenOption.READ)), 64 * 1024))) {
+            while (true) {
+                byte[] gameId = readBytes(in);
+                int white = in.readUnsignedShort();
+                in.skipNBytes(white);
+                int black = in.readUnsignedShort();
+                in.skipNBytes(black);
+                in.skipNBytes(8 + 1);
+                int count = in.readUnsignedShort();
+                in.skipNBytes(2L * count);
+                archived.put(new String(gameId, StandardCharsets.UTF_8), valid);
+                valid += 2 + gameId.length + 2 + white + 2 + black + 8 + 1 + 2 + 2L * count;
+            }
+        } catch (EOFException e) {
+            // Конец архива или обрыв последнего блока
+        }
+        return valid;
+    }
+
+    /**
+     * Проиграть журнал; вернуть длину корректной части в байтах
+     */
+    private long replay() throws IOException {
+        // id -> партия; null — партия уже в архиве, ее записи только считаются мусором
+        List<GameLog> byId = new ArrayList<>();
+        long valid = 0;
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 64 * 1024))) {
+            while (true) {
+                long size;
+                GameLog target;
+                byte type = in.readByte();
+                if (type == RECORD_GAME) {
+                    int id = in.readInt();
+                    byte[] gameId = readBytes(in);
+                    byte[] white = readBytes(in);
+                    byte[] black = readBytes(in);
+                    long started = in.readLong();
+                    String key = new String(gameId, StandardCharsets.UTF_8);
+                    target = archived.containsKey(key) ? null : new GameLog(key,
+                            new String(white, StandardCharsets.UTF_8), new String(black, StandardCharsets.UTF_8), started);
+                    while (byId.size() <= id) {
+                        byId.add(null);
+                    }
+                    byId.set(id, target);
+                    if (target != null) {
+                        target.id = id;
+                        games.put(key, target);
+                    }
+                    nextId = Math.max(nextId, id + 1);
+                    size = 1 + 4 + 6 + gameId.length + white.length + black.length + 8;
+                } else if (type == RECORD_MOVE) {
+                    target = lookup(byId, in.readInt());
+                    short move = in.readShort();
+                    if (target != null) {
+                        target.add(move);
+                    }
+                    size = 1 + 4 + 2;
+                } else if (type == RECORD_BLOCK) {
+                    target = lookup(byId, in.readInt());
+                    int count = in.readUnsignedShort();
+                    short[] moves = new short[count];
+                    for (int i = 0; i < count; i++) {
+                        moves[i] = in.readShort();
+                    }
+                    if (target != null) {
+                        for (short move : moves) {
+                            target.add(move);
+                        }
+                    }
+                    size = 1 + 4 + 2 + 2L * count;
+                } else if (type == RECORD_RESULT) {
+                    target = lookup(byId, in.readInt());
+                    int result = in.readByte();
+                    if (target != null && result >= 0 && result < Result.values().length) {
+                        target.result = Result.values()[result];
+                        target.moves = Arrays.copyOf(target.moves, target.size);
+                    }
+                    size = 1 + 4 + 1;
+                } else {
+                    log.warn("📜 Неизвестная запись {} в журнале истории на позиции {}", type, valid);
+                    break;
+                }
+                if (target != null) {
+                    target.journalBytes += size;
+                } else {
+                    deadBytes += size;
+                }
+                valid += size;
+            }
+        } catch (EOFException e) {
+            // Конец журнала или обрыв последней записи
+        }
+        return valid;
+    }
+
+    private static String nameOf(GameResponse.PlayerInfo player) {
+        return player != null && player.getName() != null ? player.getName() : "?";
+    }
+
+    private static GameLog lookup(List<GameLog> byId, int id) {
+        return id >= 0 && id < byId.size() ? byId.get(id) : null;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    @PreDestroy
+    public void close() {
+        flusher.shutdownNow();
+        synchronized (writeLock) {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+                if (archive != null) {
+                    archive.close();
+                }
+            } catch (IOException e) {
+                log.error("❌ Ошибка закрытия журнала истории: {}", e.getMessage());
+            } finally {
+                out = null;
+                archive = null;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream output) throws IOException;
+    }
+
+    /**
+     * История одной партии; ходы и итог — под монитором объекта и writeLock,
+     * id и учет байт журнала — под writeLock
+     */
+    private static final class GameLog {
+        final String gameId;
+        final String white;
+        final String black;
+        final long startedMillis;
+        short[] moves = new short[INITIAL_CAPACITY];
+        int size;
+        Result result = Result.ONGOING;
+        int id = -1;
+        long journalBytes;
+
+        GameLog(String gameId, String white, String black, long startedMillis) {
+            this.gameId = gameId;
+            this.white = white;
+            this.black = black;
+            this.startedMillis = startedMillis;
+        }
+
+        void add(short move) {
+            if (size == moves.length) {
+                moves = Arrays.copyOf(moves, Math.max(INITIAL_CAPACITY, size + (size >> 1)));
+            }
+            moves[size++] = move;
+        }
+
+        /**
+         * Позиция после первых plies ходов или null, если история не проигрывается
+         */
+        Board replay(int plies) {
+            Board board = Board.startPosition();
+            for (int i = 0; i < plies; i++) {
+                int move = MoveGenerator.findLegal(board, moves[i]);
+                if (move == Move.NONE) {
+                    return null;
+                }
+                board.makeMove(move);
+            }
+            return board;
+        }
+    }
+}
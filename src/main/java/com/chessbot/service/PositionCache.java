@@ -0,0 +1,271 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import com.chessbot.engine.Board;
+import com.chessbot.engine.Move;
+import com.chessbot.engine.MoveGenerator;
+import com.chessbot.engine.MoveList;
+import com.chessbot.engine.SearchResult;
+import com.chessbot.util.LongBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * ♻️ Общий кэш позиций: списки легальных ходов и оценки движка
+ *
+ * Ключ — Zobrist-хеш полной позиции (расстановка, очередь хода, права на рокировку
+ * и взятие на проходе), поэтому одна и та же позиция из разных партий (дебют,
+ * повторные /board, типовые эндшпили) попадает в одну запись, а позиции с одинаковыми
+ * фигурами, но разными правами — в разные. Список ходов от API в кэш не попадает:
+ * API — хозяин партии, и его список показывается как есть. Chess API присылает только
+ * расстановку; права для нее выводятся, поэтому такие списки кэшируются под ключом
+ * партии (Zobrist выведенной позиции, смешанный с хешем gameId): повторные /board,
+ * обновления и предзагрузка той же позиции в той же партии берут список из кэша.
+ * Таблица фиксированного размера: корзины по две записи, как в таблицах транспозиций
+ * шахматных движков — первая хранит самую глубокую оценку, вторая заменяется всегда.
+ * Глубокий анализ не вытесняется потоком мелких позиций, а свежие позиции
+ * все равно находят себе место. Блокировки — по полосам (StampedLock на группу корзин),
+ * чтение оптимистичное.
+ */
+@Slf4j
+@Service
+public class PositionCache {
+
+    private static final int STRIPES = 64;
+
+    private final ApiClient apiClient;
+    private final long[] keys;
+    private final CachedPosition[] entries;
+    private final int bucketMask;
+    private final StampedLock[] locks = new StampedLock[STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PositionCache(ApiClient apiClient, @Value("${chess.cache.positions:65536}") int capacity) {
+        this.apiClient = apiClient;
+        int buckets = Integer.highestOneBit(Math.max(STRIPES, capacity / 2));
+        this.keys = new long[buckets * 2];
+        this.entries = new CachedPosition[buckets * 2];
+        this.bucketMask = buckets - 1;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new StampedLock();
+        }
+        log.info("♻️ Кэш позиций: {} записей", buckets * 2);
+    }
+
+    /**
+     * Позиция из ответа API: board может быть только расстановкой, очередь хода берем из currentTurn
+     */
+    public static Board positionOf(String fen, String currentTurn) {
+        String position = fen.trim();
+        if (position.split("\\s+").length == 1) {
+            position += "BLACK".equalsIgnoreCase(currentTurn) ? " b" : " w";
+        }
+        return Board.fromFen(position);
+    }
+
+    /**
+     * 📋 ЛЕГАЛЬНЫЕ ХОДЫ ИГРОКА В ПОЗИЦИИ ИЗ ОТВЕТА API
+     * Список из ответа API — всегда он. Иначе локальная генерация, и только за игрока,
+     * чья сейчас очередь: сопернику, который ждет, ходы не показываются.
+     */
+    public List<String> legalMoves(GameResponse state, String playerColor) {
+        if (state == null || state.getBoard() == null) {
+            return List.of();
+        }
+        List<String> fromApi = apiClient.extractLegalMoves(state);
+        if (!fromApi.isEmpty()) {
+            return fromApi;
+        }
+
+        Board board;
+        try {
+            board = positionOf(state.getBoard(), state.getCurrentTurn());
+        } catch (IllegalArgumentException e) {
+            log.warn("Некорректный FEN в ответе API: {}", state.getBoard());
+            return List.of();
+        }
+        int playerSide = "WHITE".equalsIgnoreCase(playerColor) ? Board.WHITE
+                : "BLACK".equalsIgnoreCase(playerColor) ? Board.BLACK : -1;
+        if (playerSide != board.sideToMove()) {
+            return List.of();
+        }
+        if (!isFullFen(state.getBoard())) {
+            // Права на рокировку и взятие на проходе выведены из расстановки: с другими партиями не делимся
+            if (state.getGameId() == null) {
+                return Collections.unmodifiableList(generateLegalMoves(board));
+            }
+            return legalMoves(board, board.key() ^ LongBloomFilter.hash(state.getGameId()));
+        }
+        return legalMoves(board);
+    }
+
+    /**
+     * 📋 ЛЕГАЛЬНЫЕ ХОДЫ ЛОКАЛЬНОЙ ПОЗИЦИИ (в формате "e2-e4", "e7-e8q")
+     */
+    public List<String> legalMoves(Board board) {
+        return legalMoves(board, board.key());
+    }
+
+    private List<String> legalMoves(Board board, long key) {
+        CachedPosition cached = get(key);
+        if (cached != null && cached.legalMoves() != null) {
+            return cached.legalMoves();
+        }
+        List<String> moves = Collections.unmodifiableList(generateLegalMoves(board));
+        storeMoves(key, moves);
+        return moves;
+    }
+
+    /**
+     * 🧠 СОХРАНЕННАЯ ОЦЕНКА ПОЗИЦИИ (null, если нет или она мельче minDepth)
+     */
+    public CachedPosition evaluation(long key, int minDepth) {
+        CachedPosition cached = get(key);
+        return cached != null && cached.hasEvaluation() && cached.depth() >= minDepth ? cached : null;
+    }
+
+    public void storeEvaluation(long key, SearchResult result) {
+        if (result == null || !result.hasMove()) {
+            return;
+        }
+        store(key, existing -> new CachedPosition(key,
+                existing != null ? existing.legalMoves() : null,
+                true, result.score(), result.depth(), result.bestMove(), result.pv()));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public CachedPosition get(long key) {
+        int bucket = bucketOf(key);
+        StampedLock lock = lockOf(bucket);
+        long stamp = lock.tryOptimisticRead();
+        CachedPosition found = find(bucket, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = find(bucket, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (found != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return found;
+    }
+
+    private void storeMoves(long key, List<String> moves) {
+        store(key, existing -> existing != null
+                ? existing.withLegalMoves(moves)
+                : new CachedPosition(key, moves, false, 0, 0, Move.NONE, null));
+    }
+
+    private void store(long key, UnaryOperator<CachedPosition> update) {
+        int bucket = bucketOf(key);
+        int deep = bucket * 2;
+        int recent = deep + 1;
+        StampedLock lock = lockOf(bucket);
+        long stamp = lock.writeLock();
+        try {
+            // Позиция уже лежит в одном из слотов — обновляем на месте
+            for (int slot = deep; slot <= recent; slot++) {
+                if (entries[slot] != null && keys[slot] == key) {
+                    entries[slot] = update.apply(entries[slot]);
+                    return;
+                }
+            }
+
+            CachedPosition fresh = update.apply(null);
+            CachedPosition current = entries[deep];
+            if (current == null || fresh.depth() >= current.depth()) {
+                // Вытесненная глубокая запись получает второй шанс в слоте "всегда заменять"
+                if (current != null) {
+                    keys[recent] = keys[deep];
+                    entries[recent] = current;
+                }
+                keys[deep] = key;
+                entries[deep] = fresh;
+            } else {
+                keys[recent] = key;
+                entries[recent] = fresh;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private CachedPosition find(int bucket, long key) {
+        int slot = bucket * 2;
+        CachedPosition first = entries[slot];
+        if (first != null && keys[slot] == key) {
+            return first;
+        }
+        CachedPosition second = entries[slot + 1];
+        if (second != null && keys[slot + 1] == key) {
+            return second;
+        }
+        return null;
+    }
+
+    private int bucketOf(long key) {
+        return (int) (key ^ (key >>> 32)) & bucketMask;
+    }
+
+    private StampedLock lockOf(int bucket) {
+        return locks[bucket & (STRIPES - 1)];
+    }
+
+    // Очередь хода, рокировки и взятие на проходе заданы явно, а не выведены
+    private static boolean isFullFen(String fen) {
+        return fen.trim().split("\\s+").length >= 4;
+    }
+
+    private static List<String> generateLegalMoves(Board board) {
+        MoveList list = MoveGenerator.legalMoves(board);
+        List<String> moves = new ArrayList<>(list.size());
+        StringBuilder sb = new StringBuilder(6);
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            sb.setLength(0);
+            Move.appendSquare(Move.from(move), sb);
+            sb.append('-');
+            Move.appendSquare(Move.to(move), sb);
+            if (Move.isPromotion(move)) {
+                sb.append(Move.toUci(move).charAt(4));
+            }
+            moves.add(sb.toString());
+        }
+        return moves;
+    }
+
+    /**
+     * 📦 ЗАПИСЬ КЭША (неизменяемая)
+     *
+     * @param score оценка со стороны того, кто ходит (если hasEvaluation)
+     */
+    public record CachedPosition(long key, List<String> legalMoves, boolean hasEvaluation,
+                                 int score, int depth, int bestMove, int[] pv) {
+
+        CachedPosition withLegalMoves(List<String> moves) {
+            return new CachedPosition(key, moves, hasEvaluation, score, depth, bestMove, pv);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import com.chessbot.util.ConcurrentLongMap;
+import org.springframework.stereotype.Service;
+
+/**
+ * 📈 Последние известные рейтинги игроков
+ *
+ * Рейтинг ведет Chess API и присылает в PlayerInfo каждого ответа об игре;
+ * здесь он запоминается, чтобы подбор соперника не ходил за ним в API.
+ * Игрок, о котором еще ничего не известно, считается DEFAULT_RATING.
+ */
+@Service
+public class RatingCache {
+
+    public static final int DEFAULT_RATING = 1500;
+
+    private final ConcurrentLongMap<Integer> ratings = new ConcurrentLongMap<>();
+
+    /**
+     * Запомнить рейтинги обоих игроков из ответа API
+     */
+    public void record(GameResponse response) {
+        if (response == null) {
+            return;
+        }
+        record(response.getWhitePlayer());
+        record(response.getBlackPlayer());
+    }
+
+    public int ratingOf(long chatId) {
+        Integer rating = ratings.get(chatId);
+        return rating != null ? rating : DEFAULT_RATING;
+    }
+
+    public int size() {
+        return ratings.size();
+    }
+
+    private void record(GameResponse.PlayerInfo player) {
+        // playerId совпадает с chatId
+        if (player != null && player.getId() != null && player.getRating() != null) {
+            ratings.put(player.getId(), player.getRating());
+        }
+    }
+}
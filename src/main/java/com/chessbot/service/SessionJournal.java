@@ -0,0 +1,423 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameStatus;
+import com.chessbot.dto.PlayerColor;
+import com.chessbot.service.GameSessionManager.GameSession;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 💾 Журнал сессий: восстановление GameSessionManager после падения
+ *
+ * Каждое изменение сессии (создание, присоединение, переход, удаление) попадает
+ * в очередь прямо из compute менеджера — на пути запроса только offer в
+ * ConcurrentLinkedQueue. Поток журнала раз в commit-ms забирает всю очередь,
+ * пишет записи в отображенный в память файл и делает один force на пачку
+ * (group commit). Записи несут полное состояние сессии, поэтому повторное
+ * применение безопасно.
+ *
+ * Раз в snapshot-interval-ms (и при заполнении журнала) начинается новый журнал,
+ * а текущее состояние пишется снимком; журналы старше снимка удаляются.
+ * При старте отображается снимок и проигрываются журналы после него; оборванная
+ * запись в хвосте отбрасывается по CRC.
+ * <pre>
+ * журнал-N: [длина:int crc32:int данные]... 0
+ * снимок:   magic:int версия:int N:long [данные]... 0
+ * данные:   1 chatId playerId gameId opponent color status activity version — сессия
+ *           2 chatId                                                          — удаление
+ * </pre>
+ * Цвет и статус пишутся ordinal-ами: новые значения enum добавляются только в конец.
+ */
+@Slf4j
+@Service
+public class SessionJournal implements GameSessionManager.SessionListener {
+
+    private static final int SNAPSHOT_MAGIC = 0x43534E50;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_FILE = "sessions.snapshot";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private static final byte TYPE_END = 0;
+    private static final byte TYPE_SAVE = 1;
+    private static final byte TYPE_REMOVE = 2;
+
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_RECORD = 2048;
+
+    private final GameSessionManager sessionManager;
+    private final Path dir;
+    private final int journalBytes;
+    private final long commitMillis;
+    private final long snapshotMillis;
+
+    // Путь запроса: только offer
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+
+    // Дальше — только поток журнала
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_RECORD);
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private MappedByteBuffer journal;
+    private long generation;
+    private long snapshotGeneration = -1;
+    private int forcedPosition;
+    private boolean snapshotDue;
+    private long lastSnapshotMillis;
+
+    private final ScheduledThreadPoolExecutor writer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "session-journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SessionJournal(GameSessionManager sessionManager,
+                          @Value("${chess.sessions.journal.dir:data/sessions}") String dir,
+                          @Value("${chess.sessions.journal.size-mb:64}") int journalMegabytes,
+                          @Value("${chess.sessions.journal.commit-ms:10}") long commitMillis,
+                          @Value("${chess.sessions.journal.snapshot-interval-ms:600000}") long snapshotMillis) {
+        this.sessionManager = sessionManager;
+        this.dir = Path.of(dir);
+        this.journalBytes = journalMegabytes * 1024 * 1024;
+        this.commitMillis = commitMillis;
+        this.snapshotMillis = snapshotMillis;
+    }
+
+    /**
+     * ♻️ ВОССТАНОВИТЬ СЕССИИ И НАЧАТЬ ЖУРНАЛ
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(dir);
+        long started = System.nanoTime();
+
+        long replayFrom = loadSnapshot();
+        long lastGeneration = replayFrom;
+        int replayed = 0;
+        for (long journalGeneration : journalGenerations()) {
+            if (journalGeneration >= replayFrom) {
+                replayed += replayJournal(journalGeneration);
+            }
+            lastGeneration = Math.max(lastGeneration, journalGeneration);
+        }
+        log.info("💾 Восстановлено {} сессий ({} записей журнала) за {} мс",
+                sessionManager.getActiveSessionsCount(), replayed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        // Восстановленное состояние сразу сворачиваем в новый снимок
+        openJournal(lastGeneration + 1);
+        sessionManager.addListener(this);
+        writeSnapshot();
+
+        writer.scheduleWithFixedDelay(this::commit, commitMillis, commitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onSessionSaved(GameSession session) {
+        pending.offer(new Entry(session.getChatId(), session));
+    }
+
+    @Override
+    public void onSessionRemoved(long chatId) {
+        pending.offer(new Entry(chatId, null));
+    }
+
+    /**
+     * 📝 GROUP COMMIT: вся очередь — в журнал, один force на пачку
+     */
+    void commit() {
+        try {
+            Entry entry;
+            while ((entry = pending.poll()) != null) {
+                append(entry);
+            }
+            force();
+            if (snapshotDue || System.currentTimeMillis() - lastSnapshotMillis >= snapshotMillis) {
+                compact();
+            }
+        } catch (Exception e) {
+            log.error("❌ Ошибка записи журнала сессий: {}", e.getMessage(), e);
+        }
+    }
+
+    private void append(Entry entry) throws IOException {
+        scratch.clear();
+        if (entry.session() != null) {
+            encodeSession(entry.session(), scratch);
+        } else {
+            scratch.put(TYPE_REMOVE).putLong(entry.chatId());
+        }
+        scratch.flip();
+
+        // Место под запись и под нулевую длину-терминатор
+        if (journal.remaining() < RECORD_HEADER + scratch.remaining() + 4) {
+            force();
+            openJournal(generation + 1);
+            snapshotDue = true;
+        }
+        crc.reset();
+        crc.update(scratch.array(), 0, scratch.limit());
+        journal.putInt(scratch.limit());
+        journal.putInt((int) crc.getValue());
+        journal.put(scratch);
+    }
+
+    private void force() {
+        int position = journal.position();
+        if (position > forcedPosition) {
+            journal.force(forcedPosition, position - forcedPosition);
+            forcedPosition = position;
+        }
+    }
+
+    /**
+     * 🗜 НОВЫЙ ЖУРНАЛ + СНИМОК; журналы до снимка больше не нужны
+     */
+    private void compact() throws IOException {
+        if (journal.position() == 0 && snapshotGeneration == generation) {
+            lastSnapshotMillis = System.currentTimeMillis();
+            return;
+        }
+        if (journal.position() > 0) {
+            openJournal(generation + 1);
+        }
+        writeSnapshot();
+    }
+
+    private void openJournal(long nextGeneration) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(journalPath(nextGeneration),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, journalBytes);
+        generation = nextGeneration;
+        forcedPosition = 0;
+    }
+
+    /**
+     * Снимок всех сессий для текущего журнала: все, что было до него, в снимке уже есть,
+     * а записи журнала поверх снимка применяются повторно без вреда
+     */
+    private void writeSnapshot() throws IOException {
+        long started = System.nanoTime();
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        int[] count = new int[1];
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+            buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(generation);
+            IOException[] failure = new IOException[1];
+            sessionManager.forEachSession(session -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    if (buffer.remaining() < MAX_RECORD) {
+                        drain(buffer, out);
+                    }
+                    encodeSession(session, buffer);
+                    count[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            buffer.put(TYPE_END);
+            drain(buffer, out);
+            out.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long old : journalGenerations()) {
+            if (old < generation) {
+                Files.deleteIfExists(journalPath(old));
+            }
+        }
+        snapshotGeneration = generation;
+        snapshotDue = false;
+        lastSnapshotMillis = System.currentTimeMillis();
+        log.info("💾 Снимок сессий: {} за {} мс", count[0],
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Загрузить снимок; вернуть поколение журнала, с которого продолжать (0 — снимка нет)
+     */
+    private long loadSnapshot() throws IOException {
+        Path path = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                log.warn("💾 Снимок сессий {} в неизвестном формате, пропущен", path);
+                return 0;
+            }
+            long replayFrom = buffer.getLong();
+            while (buffer.get() == TYPE_SAVE) {
+                sessionManager.restore(decodeSession(buffer));
+            }
+            return replayFrom;
+        }
+    }
+
+    private int replayJournal(long journalGeneration) throws IOException {
+        int applied = 0;
+        try (FileChannel in = FileChannel.open(journalPath(journalGeneration), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            CRC32 check = new CRC32();
+            while (buffer.remaining() >= RECORD_HEADER) {
+                int length = buffer.getInt();
+                int expected = buffer.getInt();
+                if (length <= 0 || length > MAX_RECORD || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer record = buffer.slice(buffer.position(), length);
+                check.reset();
+                check.update(record.duplicate());
+                if ((int) check.getValue() != expected) {
+                    log.warn("💾 Оборванная запись в журнале {} на позиции {}, хвост отброшен",
+                            journalGeneration, buffer.position() - RECORD_HEADER);
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+                byte type = record.get();
+                if (type == TYPE_SAVE) {
+                    sessionManager.restore(decodeSession(record));
+                } else if (type == TYPE_REMOVE) {
+                    sessionManager.restoreRemoved(record.getLong());
+                }
+                applied++;
+            }
+        } catch (BufferUnderflowException e) {
+            log.warn("💾 Журнал {} поврежден, применено {} записей", journalGeneration, applied);
+        }
+        return applied;
+    }
+
+    private List<Long> journalGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(JOURNAL_PREFIX) && name.endsWith(JOURNAL_SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            generations.add(Long.parseLong(
+                                    name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length())));
+                        } catch (NumberFormatException ignored) {
+                            // Чужой файл в каталоге журнала
+                        }
+                    });
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    private Path journalPath(long journalGeneration) {
+        return dir.resolve(JOURNAL_PREFIX + journalGeneration + JOURNAL_SUFFIX);
+    }
+
+    private static void encodeSession(GameSession session, ByteBuffer out) {
+        out.put(TYPE_SAVE);
+        out.putLong(session.getChatId());
+        out.putLong(session.getPlayerId());
+        putString(out, session.getGameId());
+        putString(out, session.getOpponentName());
+        out.put(session.getColor() != null ? (byte) session.getColor().ordinal() : -1);
+        out.put(session.getStatus() != null ? (byte) session.getStatus().ordinal() : -1);
+        out.putLong(session.getLastActivityMillis());
+        out.putLong(session.getVersion());
+    }
+
+    // Тип записи уже прочитан
+    private static GameSession decodeSession(ByteBuffer in) {
+        long chatId = in.getLong();
+        long playerId = in.getLong();
+        String gameId = getString(in);
+        String opponentName = getString(in);
+        byte color = in.get();
+        byte status = in.get();
+        long lastActivity = in.getLong();
+        long version = in.getLong();
+        return GameSession.restored(gameId, chatId, playerId, opponentName,
+                color >= 0 && color < PlayerColor.values().length ? PlayerColor.values()[color] : null,
+                status >= 0 && status < GameStatus.values().length ? GameStatus.values()[status] : null,
+                lastActivity, version);
+    }
+
+    // Строки укорачиваются до 500 байт: запись всегда влезает в MAX_RECORD
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 500);
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+            // Последняя пачка — уже в этом потоке: писатель остановлен
+            commit();
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("❌ Ошибка закрытия журнала сессий: {}", e.getMessage());
+        }
+    }
+
+    private record Entry(long chatId, GameSession session) {
+    }
+}
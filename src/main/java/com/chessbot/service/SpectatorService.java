@@ -0,0 +1,372 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameEvent;
+import com.chessbot.dto.GameResponse;
+import com.chessbot.util.ConcurrentLongMap;
+import com.chessbot.util.MessageTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 👀 Трансляции партий: /watch
+ *
+ * Реестр зрителей по gameId живет рядом с GameSessionManager, но отдельно от
+ * сессий игроков. Событие партии рисуется в кадр один раз на всех зрителей, кадр
+ * хранится в трансляции как "последнее состояние". Каждый зритель получает одно
+ * сообщение с доской, которое дальше правится на месте.
+ *
+ * Доставка идет через общую FIFO-очередь зрителей и общий лимит TelegramRateLimiter:
+ * зритель стоит в очереди не больше одного раза и, дойдя до начала, получает самый
+ * свежий кадр. Медленная доставка поэтому склеивает промежуточные ходы, а не копит
+ * их, и тысячи зрителей обслуживаются по кругу без голодания хвоста.
+ *
+ * Chess API видит одну подписку на игру и один запрос состояния при появлении
+ * первого зрителя; остальные кадры приходят из потока событий.
+ */
+@Slf4j
+@Service
+public class SpectatorService {
+
+    private static final int MAX_FAILED_DELIVERIES = 3;
+
+    private static final MessageTemplate FRAME = MessageTemplate.compile("""
+            👀 *ТРАНСЛЯЦИЯ* `{gameId}`
+
+            ⚪ {white} — ⚫ {black}
+            📝 *Последний ход:* `{move}`
+            📊 *Статус:* {status}
+
+            ```
+            {board}
+            ```
+
+            {footer}""");
+
+    private final ApiClient apiClient;
+    private final GameSessionManager sessionManager;
+    private final GameEventClient eventClient;
+    private final TelegramNotificationService notificationService;
+    private final TelegramRateLimiter rateLimiter;
+    private final int maxPerGame;
+    private final long flushMillis;
+
+    private final Map<String, Broadcast> broadcasts = new ConcurrentHashMap<>();
+    // chatId -> зритель; чат смотрит не больше одной партии
+    private final ConcurrentLongMap<Watcher> watchers = new ConcurrentLongMap<>();
+    // Зрители, которым не доставлен последний кадр (каждый — не больше одного раза)
+    private final ConcurrentLinkedQueue<Watcher> pending = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledThreadPoolExecutor flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "spectator-fanout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder edited = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SpectatorService(ApiClient apiClient,
+                            GameSessionManager sessionManager,
+                            GameEventClient eventClient,
+                            GameEventRouter router,
+                            TelegramNotificationService notificationService,
+                            TelegramRateLimiter rateLimiter,
+                            @Value("${chess.spectators.max-per-game:5000}") int maxPerGame,
+                            @Value("${chess.spectators.flush-ms:200}") long flushMillis) {
+        this.apiClient = apiClient;
+        this.sessionManager = sessionManager;
+        this.eventClient = eventClient;
+        this.notificationService = notificationService;
+        this.rateLimiter = rateLimiter;
+        this.maxPerGame = maxPerGame;
+        this.flushMillis = flushMillis;
+        router.addObserver(this::onEvent);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::safeFlush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    /**
+     * 👀 КОМАНДА /WATCH [ID|stop]
+     */
+    public String handleWatch(long chatId, String text) {
+        String[] parts = text.trim().split("\\s+");
+        String argument = parts.length > 1 ? parts[1] : null;
+
+        if (argument == null) {
+            Watcher current = watchers.get(chatId);
+            return current != null
+                    ? "👀 *Вы смотрите партию* `" + current.broadcast.gameId + "`\nОстановить: `/watch stop`"
+                    : "👀 *Трансляция партии:* `/watch [ID игры]`";
+        }
+        if ("stop".equalsIgnoreCase(argument)) {
+            return unwatch(chatId)
+                    ? "⏹ *Трансляция остановлена.*"
+                    : "🤷 *Вы ничего не смотрите.*";
+        }
+        if (sessionManager.getChatIdsByGameId(argument).contains(chatId)) {
+            return "♟️ *Это ваша партия* — доска: `/board`";
+        }
+        return watch(chatId, argument);
+    }
+
+    /**
+     * Подключить чат к трансляции; null — кадр уже отправлен, иначе текст ошибки
+     */
+    String watch(long chatId, String gameId) {
+        Watcher existing = watchers.get(chatId);
+        if (existing != null && existing.broadcast.gameId.equals(gameId)) {
+            // Повторный /watch той же партии: просто прислать доску заново
+            existing.messageId = null;
+            existing.deliveredSeq = 0;
+            enqueue(existing);
+            return null;
+        }
+        unwatch(chatId);
+
+        Broadcast broadcast = attach(chatId, gameId);
+        if (broadcast == null) {
+            return "🚫 *У этой партии уже максимум зрителей.*";
+        }
+        Watcher watcher = watchers.get(chatId);
+        if (watcher == null) {
+            return null;
+        }
+
+        Frame frame = broadcast.frame;
+        if (frame == null) {
+            frame = load(broadcast, chatId);
+            if (frame == null) {
+                unwatch(chatId);
+                return "❌ *Партия не найдена:* `" + MessageTemplate.escapeHtml(gameId) + "`";
+            }
+        }
+        eventClient.subscribe(gameId);
+
+        // Первый кадр — ответ на команду, поэтому идет сразу, мимо общего лимита
+        Integer messageId = notificationService.sendMessageReturningId(chatId, frame.text);
+        if (messageId != null) {
+            watcher.messageId = messageId;
+            watcher.deliveredSeq = frame.seq;
+            sent.increment();
+        }
+        if (frame.last) {
+            unwatch(chatId);
+        } else if (broadcast.frame.seq > watcher.deliveredSeq) {
+            // Пока грузили, пришел ход
+            enqueue(watcher);
+        }
+        return null;
+    }
+
+    /**
+     * ⏹ ОТКЛЮЧИТЬ ЧАТ ОТ ТРАНСЛЯЦИИ
+     */
+    public boolean unwatch(long chatId) {
+        Watcher watcher = watchers.remove(chatId);
+        if (watcher == null) {
+            return false;
+        }
+        String gameId = watcher.broadcast.gameId;
+        Broadcast left = broadcasts.computeIfPresent(gameId, (id, broadcast) -> {
+            broadcast.watchers.remove(watcher);
+            return broadcast.watchers.isEmpty() ? null : broadcast;
+        });
+        if (left == null && sessionManager.getChatIdsByGameId(gameId).isEmpty()) {
+            // Ни зрителей, ни игроков в этом боте: события игры больше не нужны
+            eventClient.unsubscribe(gameId);
+        }
+        return true;
+    }
+
+    /**
+     * 📡 СОБЫТИЕ ПАРТИИ: новый кадр для всех зрителей
+     */
+    void onEvent(GameEvent event) {
+        Broadcast broadcast = broadcasts.get(event.getGameId());
+        if (broadcast == null || event.getGame() == null || "DRAW_OFFER".equals(event.getType())) {
+            return;
+        }
+        boolean last = GameEventRouter.isTerminal(event);
+        synchronized (broadcast) {
+            Frame previous = broadcast.frame;
+            String move = "MOVE".equals(event.getType()) ? event.getNotation()
+                    : previous != null ? previous.move : null;
+            broadcast.frame = render(broadcast.gameId, event.getGame(), move,
+                    previous != null ? previous.seq + 1 : 1, last);
+        }
+        frames.increment();
+        for (Watcher watcher : broadcast.watchers) {
+            enqueue(watcher);
+        }
+    }
+
+    public String describeStats() {
+        return "партий %d, зрителей %d, кадров %d, отправлено %d, правок %d, склеено %d, в очереди %d"
+                .formatted(broadcasts.size(), watchers.size(), frames.sum(), sent.sum(), edited.sum(),
+                        coalesced.sum(), pending.size());
+    }
+
+    /**
+     * Разослать очередь, пока есть токены; остаток уйдет на следующем проходе
+     */
+    void flush() {
+        Watcher watcher;
+        while ((watcher = pending.peek()) != null) {
+            Frame frame = watcher.broadcast.frame;
+            boolean stale = watchers.get(watcher.chatId) != watcher || frame == null || frame.seq <= watcher.deliveredSeq;
+            if (!stale && !rateLimiter.tryAcquire()) {
+                return;
+            }
+            pending.poll();
+            // Снимаем отметку до чтения кадра: ход, пришедший после, поставит зрителя в очередь заново
+            watcher.queued.set(false);
+            if (!stale) {
+                deliver(watcher, watcher.broadcast.frame);
+            }
+        }
+    }
+
+    private void deliver(Watcher watcher, Frame frame) {
+        Integer messageId = watcher.messageId;
+        if (messageId != null && notificationService.editMessage(watcher.chatId, messageId, frame.text)) {
+            edited.increment();
+        } else {
+            messageId = notificationService.sendMessageReturningId(watcher.chatId, frame.text);
+            if (messageId == null) {
+                if (++watcher.failures >= MAX_FAILED_DELIVERIES) {
+                    log.info("👀 chatId={} недоступен, снят с трансляции {}", watcher.chatId, watcher.broadcast.gameId);
+                    unwatch(watcher.chatId);
+                } else {
+                    enqueue(watcher);
+                }
+                return;
+            }
+            watcher.messageId = messageId;
+            sent.increment();
+        }
+        watcher.failures = 0;
+        watcher.deliveredSeq = frame.seq;
+        if (frame.last) {
+            unwatch(watcher.chatId);
+        }
+    }
+
+    private void enqueue(Watcher watcher) {
+        if (watcher.queued.compareAndSet(false, true)) {
+            pending.add(watcher);
+        } else {
+            // Уже ждет доставки и получит самый свежий кадр
+            coalesced.increment();
+        }
+    }
+
+    private Broadcast attach(long chatId, String gameId) {
+        boolean[] full = new boolean[1];
+        Broadcast broadcast = broadcasts.compute(gameId, (id, existing) -> {
+            Broadcast target = existing != null ? existing : new Broadcast(id);
+            if (target.watchers.size() >= maxPerGame) {
+                full[0] = true;
+                return existing;
+            }
+            Watcher watcher = new Watcher(chatId, target);
+            target.watchers.add(watcher);
+            watchers.put(chatId, watcher);
+            return target;
+        });
+        return full[0] ? null : broadcast;
+    }
+
+    /**
+     * Первый кадр трансляции: один запрос к API на игру, сколько бы зрителей ни пришло разом
+     */
+    private Frame load(Broadcast broadcast, long chatId) {
+        synchronized (broadcast) {
+            if (broadcast.frame != null) {
+                return broadcast.frame;
+            }
+            GameResponse game = apiClient.getGameState(broadcast.gameId, chatId);
+            if (game == null || Boolean.FALSE.equals(game.getSuccess()) || game.getBoard() == null) {
+                return null;
+            }
+            broadcast.frame = render(broadcast.gameId, game, null, 1, false);
+            frames.increment();
+            return broadcast.frame;
+        }
+    }
+
+    private static Frame render(String gameId, GameResponse game, String move, long seq, boolean last) {
+        String text = FRAME.render(
+                gameId,
+                playerName(game.getWhitePlayer()),
+                playerName(game.getBlackPlayer()),
+                move != null ? move : "—",
+                game.getStatus() != null ? game.getStatus() : "—",
+                game.getBoard() != null ? game.getBoard() : "Доска недоступна",
+                last ? "🏁 *Партия завершена.*" : "Остановить: `/watch stop`");
+        return new Frame(seq, move, text, last);
+    }
+
+    private static String playerName(GameResponse.PlayerInfo player) {
+        return player != null && player.getName() != null ? player.getName() : "?";
+    }
+
+    private void safeFlush() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("❌ Ошибка рассылки трансляций: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Кадр трансляции: текст рисуется один раз на всех зрителей
+     */
+    private record Frame(long seq, String move, String text, boolean last) {
+    }
+
+    private static final class Broadcast {
+        final String gameId;
+        final Set<Watcher> watchers = ConcurrentHashMap.newKeySet();
+        volatile Frame frame;
+
+        Broadcast(String gameId) {
+            this.gameId = gameId;
+        }
+    }
+
+    private static final class Watcher {
+        final long chatId;
+        final Broadcast broadcast;
+        final AtomicBoolean queued = new AtomicBoolean();
+        volatile Integer messageId;
+        volatile long deliveredSeq;
+        int failures;
+
+        Watcher(long chatId, Broadcast broadcast) {
+            this.chatId = chatId;
+            this.broadcast = broadcast;
+        }
+    }
+}
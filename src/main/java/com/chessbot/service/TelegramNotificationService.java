@@ -1,13 +1,27 @@
 package com.chessbot.service;
 
 import com.chessbot.config.LongPollingBotConfig;
+import com.chessbot.dto.GameEvent;
 import com.chessbot.dto.GameResponse;
+import com.chessbot.util.MessageTemplate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.GetMe;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageReplyMarkup;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.ByteArrayInputStream;
 
 /**
  * 🚀 Сервис для отправки уведомлений через Telegram
@@ -17,6 +31,62 @@ import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 //@RequiredArgsConstructor
 public class TelegramNotificationService {
 
+    // Итоги deliver(): больше нуля — через сколько миллисекунд повторить
+    public static final long DELIVERED = 0;
+    public static final long UNDELIVERABLE = -1;
+    private static final long DEFAULT_RETRY_MILLIS = 1_000;
+
+    private static final MessageTemplate MOVE_NOTIFICATION = MessageTemplate.compile("""
+            ♟️ *СОПЕРНИК СДЕЛАЛ ХОД!*
+
+            👤 *Игрок:* {player}
+            🎮 *Игра:* `{gameId}`
+            📝 *Ход:* `{move}`
+
+            📊 *Статус:* {status}
+
+            🎯 *Текущая доска:*
+            ```
+            {board}
+            ```
+
+            🕐 *Ваша очередь!*
+            Сделайте ход: `/move [ход]`
+
+            🔍 *Посмотреть доску:* `/board`
+            📋 *Возможные ходы:* `/moves`
+            """);
+
+    private static final MessageTemplate GAME_OVER = MessageTemplate.compile("""
+            🏁 *ИГРА ЗАВЕРШЕНА!*
+
+            🎮 *Игра:* `{gameId}`
+            📊 *Итог:* {result}
+
+            🎮 Начать новую игру: `/newgame`
+            """);
+
+    private static final MessageTemplate GAME_OVER_COMMENTED = MessageTemplate.compile("""
+            🏁 *ИГРА ЗАВЕРШЕНА!*
+
+            🎮 *Игра:* `{gameId}`
+            📊 *Итог:* {result}
+            💬 {comment}
+
+            🎮 Начать новую игру: `/newgame`
+            """);
+
+    private static final MessageTemplate GAME_START = MessageTemplate.compile("""
+            🎮 *НОВАЯ ИГРА!*
+
+            👤 *Соперник:* {opponent}
+            🆔 *ID игры:* `{gameId}`
+
+            🎯 *Игра началась!*
+            Сделайте первый ход: `/move [ход]`
+
+            📖 *Пример:* `/move e2-e4`
+            """);
 
     private LongPollingBotConfig telegramBot;
 
@@ -51,32 +121,12 @@ public class TelegramNotificationService {
         // Получаем имя игрока, который сделал ход
         String playerName = getPlayerName(response, moveNotation);
 
-        return """
-               ♟️ *СОПЕРНИК СДЕЛАЛ ХОД!*
-               
-               👤 *Игрок:* %s
-               🎮 *Игра:* `%s`
-               📝 *Ход:* `%s`
-               
-               📊 *Статус:* %s
-               
-               🎯 *Текущая доска:*
-               ```
-               %s
-               ```
-               
-               🕐 *Ваша очередь!*
-               Сделайте ход: `/move [ход]`
-               
-               🔍 *Посмотреть доску:* `/board`
-               📋 *Возможные ходы:* `/moves`
-               """.formatted(
+        return MOVE_NOTIFICATION.render(
                 playerName,
                 response.getGameId(),
                 moveNotation,
                 getStatusMessage(response.getStatus()),
-                response.getBoard() != null ? response.getBoard() : "Доска недоступна"
-        );
+                response.getBoard() != null ? response.getBoard() : "Доска недоступна");
     }
 
     /**
@@ -134,21 +184,204 @@ public class TelegramNotificationService {
         }
     }
 
+    /**
+     * Ответ на нажатие inline-кнопки: без него у пользователя крутится индикатор загрузки
+     * до таймаута. notice — короткое всплывающее уведомление или null
+     */
+    public void answerCallbackQuery(String callbackQueryId, String notice) {
+        AnswerCallbackQuery answer = new AnswerCallbackQuery();
+        answer.setCallbackQueryId(callbackQueryId);
+        answer.setText(notice);
+        try {
+            telegramBot.execute(answer);
+        } catch (TelegramApiException e) {
+            log.debug("Не удалось ответить на callback {}: {}", callbackQueryId, e.getMessage());
+        }
+    }
+
+    /**
+     * Проверка связи с Bot API для HealthMonitor: ошибка — исключением
+     */
+    public void ping() throws TelegramApiException {
+        telegramBot.execute(new GetMe());
+    }
+
+    /**
+     * Отправка для массовых рассылок: отличает чат, куда писать бесполезно (бот заблокирован,
+     * чат удален), от просьбы Telegram подождать (429 с retry_after) и сетевых сбоев
+     *
+     * @return DELIVERED, UNDELIVERABLE или задержка в миллисекундах перед повтором
+     */
+    public long deliver(Long chatId, String text) {
+        try {
+            sendMessage(chatId, text);
+            return DELIVERED;
+        } catch (TelegramApiRequestException e) {
+            Integer code = e.getErrorCode();
+            if (code != null && code == 429) {
+                Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+                return retryAfter != null ? retryAfter * 1_000L : DEFAULT_RETRY_MILLIS;
+            }
+            if (code != null && code >= 400 && code < 500) {
+                log.debug("Чат {} недоступен для рассылки: {}", chatId, e.getMessage());
+                return UNDELIVERABLE;
+            }
+            return DEFAULT_RETRY_MILLIS;
+        } catch (TelegramApiException e) {
+            return DEFAULT_RETRY_MILLIS;
+        }
+    }
+
+    /**
+     * Отправляет сообщение и возвращает его id (для последующего редактирования), null при ошибке
+     */
+    public Integer sendMessageReturningId(Long chatId, String text) {
+        return sendMessageReturningId(chatId, text, null);
+    }
+
+    /**
+     * То же с inline-клавиатурой
+     */
+    public Integer sendMessageReturningId(Long chatId, String text, InlineKeyboardMarkup keyboard) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(text);
+        message.setParseMode("HTML");
+        message.setReplyMarkup(keyboard);
+        try {
+            Message sent = telegramBot.execute(message);
+            return sent != null ? sent.getMessageId() : null;
+        } catch (TelegramApiException e) {
+            log.error("❌ Ошибка отправки сообщения в chatId={}: {}", chatId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Отправляет картинку (файлом или по file_id); возвращает file_id самого крупного размера, null при ошибке
+     */
+    public String sendPhoto(Long chatId, InputFile photo, String caption) {
+        SendPhoto message = new SendPhoto();
+        message.setChatId(chatId.toString());
+        message.setPhoto(photo);
+        message.setCaption(caption);
+        try {
+            Message sent = telegramBot.execute(message);
+            if (sent == null || sent.getPhoto() == null || sent.getPhoto().isEmpty()) {
+                return null;
+            }
+            return sent.getPhoto().get(sent.getPhoto().size() - 1).getFileId();
+        } catch (TelegramApiException e) {
+            log.error("❌ Ошибка отправки картинки в chatId={}: {}", chatId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Отправляет файл (например, PGN партии, не влезающий в сообщение)
+     */
+    public boolean sendDocument(Long chatId, String fileName, byte[] content, String caption) {
+        SendDocument document = new SendDocument();
+        document.setChatId(chatId.toString());
+        document.setDocument(new InputFile(new ByteArrayInputStream(content), fileName));
+        document.setCaption(caption);
+        try {
+            telegramBot.execute(document);
+            return true;
+        } catch (TelegramApiException e) {
+            log.error("❌ Ошибка отправки файла {} в chatId={}: {}", fileName, chatId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Заменяет текст ранее отправленного сообщения
+     */
+    public boolean editMessage(Long chatId, Integer messageId, String text) {
+        return editMessage(chatId, messageId, text, null);
+    }
+
+    /**
+     * Заменяет текст и inline-клавиатуру ранее отправленного сообщения.
+     * Неизменившееся сообщение ("message is not modified") считается успехом
+     */
+    public boolean editMessage(Long chatId, Integer messageId, String text, InlineKeyboardMarkup keyboard) {
+        EditMessageText edit = new EditMessageText();
+        edit.setChatId(chatId.toString());
+        edit.setMessageId(messageId);
+        edit.setText(text);
+        edit.setParseMode("HTML");
+        edit.setReplyMarkup(keyboard);
+        try {
+            telegramBot.execute(edit);
+            return true;
+        } catch (TelegramApiException e) {
+            return isNotModified(e, chatId, messageId);
+        }
+    }
+
+    /**
+     * Заменяет только inline-клавиатуру сообщения, текст не пересылается
+     */
+    public boolean editKeyboard(Long chatId, Integer messageId, InlineKeyboardMarkup keyboard) {
+        EditMessageReplyMarkup edit = new EditMessageReplyMarkup();
+        edit.setChatId(chatId.toString());
+        edit.setMessageId(messageId);
+        edit.setReplyMarkup(keyboard);
+        try {
+            telegramBot.execute(edit);
+            return true;
+        } catch (TelegramApiException e) {
+            return isNotModified(e, chatId, messageId);
+        }
+    }
+
+    // "message is not modified" — сообщение уже такое, это не ошибка
+    private boolean isNotModified(TelegramApiException e, Long chatId, Integer messageId) {
+        if (e.getMessage() != null && e.getMessage().contains("not modified")) {
+            return true;
+        }
+        log.error("❌ Ошибка редактирования сообщения {} в chatId={}: {}", messageId, chatId, e.getMessage());
+        return false;
+    }
+
+    /**
+     * Отправляет уведомление о завершении игры (мат, сдача, время, ничья)
+     * resigned — получатель сам сдал эту партию
+     */
+    public void sendGameOverNotification(Long chatId, GameEvent event, boolean resigned) {
+        GameResponse game = event.getGame();
+        String status = game != null ? game.getStatus() : event.getType();
+
+        String reason = switch (event.getType()) {
+            case "RESIGN" -> resigned ? "🏳️ Вы сдались" : "🏳️ Соперник сдался";
+            case "TIMEOUT" -> "⏰ Время вышло";
+            default -> getStatusMessage(status);
+        };
+
+        String comment = game != null ? game.getMessage() : null;
+        String message = comment != null
+                ? GAME_OVER_COMMENTED.render(event.getGameId(), reason, comment)
+                : GAME_OVER.render(event.getGameId(), reason);
+
+        sendSimpleMessage(chatId, message);
+    }
+
+    /**
+     * Отправляет итог партии, закончившейся по времени (флажок фиксирует сам бот)
+     */
+    public void sendTimeoutNotification(Long chatId, String gameId, boolean flagged) {
+        String message = GAME_OVER.render(gameId,
+                flagged ? "⏰ Ваше время вышло — поражение" : "⏰ У соперника упал флажок — победа!");
+
+        sendSimpleMessage(chatId, message);
+    }
+
     /**
      * Отправляет уведомление о начале игры
      */
     public void sendGameStartNotification(Long opponentChatId, String gameId, String opponentName) {
-        String message = """
-               🎮 *НОВАЯ ИГРА!*
-               
-               👤 *Соперник:* %s
-               🆔 *ID игры:* `%s`
-               
-               🎯 *Игра началась!*
-               Сделайте первый ход: `/move [ход]`
-               
-               📖 *Пример:* `/move e2-e4`
-               """.formatted(opponentName, gameId);
+        String message = GAME_START.render(opponentName, gameId);
 
         sendSimpleMessage(opponentChatId, message);
     }
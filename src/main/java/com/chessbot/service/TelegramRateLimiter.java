@@ -0,0 +1,29 @@
+package com.chessbot.service;
+
+import com.chessbot.util.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 🚦 Общий лимит исходящих сообщений в Telegram
+ *
+ * Одно ведро токенов на весь бот. Массовые рассылки (трансляции партий, турниры,
+ * объявления) берут токен на каждое сообщение и, если его нет, откладывают отправку
+ * до следующего прохода — так бот не упирается в лимиты Telegram и не получает 429
+ * посреди рассылки. Ответы на команды пользователей не ждут, но списывают токен
+ * (charge), поэтому запас, который фоновые рассылки оставляют, виден им по факту.
+ */
+@Service
+public class TelegramRateLimiter extends TokenBucket {
+
+    public TelegramRateLimiter(@Value("${chess.telegram.rate-per-second:25}") double ratePerSecond,
+                               @Value("${chess.telegram.burst:30}") int burst) {
+        super(ratePerSecond, burst);
+    }
+
+    TelegramRateLimiter(double ratePerSecond, int burst, LongSupplier nanoClock) {
+        super(ratePerSecond, burst, nanoClock);
+    }
+}
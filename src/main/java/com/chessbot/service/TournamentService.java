@@ -0,0 +1,899 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import com.chessbot.dto.GameStatus;
+import com.chessbot.dto.TimeControl;
+import com.chessbot.util.ConcurrentLongMap;
+import com.chessbot.util.MessageTemplate;
+import com.chessbot.util.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 🏆 Турниры: швейцарка и арена
+ *
+ * Турнир живет в памяти бота. Игроки регистрируются командой, организатор запускает
+ * турнир. В швейцарке раунды идут по очереди. Пары раунда строятся жадно по таблице:
+ * каждый сверху вниз получает ближайшего по месту соперника, с которым еще не играл,
+ * цвет достается тому, кто чаще играл черными. На сотни игроков это O(n²) сравнений
+ * на раунд, то есть миллисекунды. На арене освободившиеся игроки раз в tick-ms
+ * сводятся по соседству в таблице, но не с последним соперником.
+ *
+ * Старт раунда — это сотни партий разом, поэтому партии создаются на небольшом пуле
+ * через createGame + joinGame. Каждый вызов Chess API берет токен из своего ведра
+ * (api-rate-per-second). Уведомления игрокам идут через общую исходящую очередь и
+ * TelegramRateLimiter. Пик старта растягивается на секунды вместо всплеска запросов.
+ *
+ * Итоги приходят из MoveHistoryStore, куда сходятся события API, флажки и ходы через
+ * бота, а также из обновлений сессий. Слушатели только кладут итог в очередь: сессии
+ * сообщают о себе изнутри compute GameSessionManager, а турнир под своим монитором сам
+ * обращается к менеджеру, так что таблица обновляется потоком расписания. Таблица —
+ * TreeSet игроков: очко игрока меняется удалением и повторной вставкой, так что каждый
+ * итог обновляет ее за O(log n). Завершенный турнир убирается из памяти.
+ */
+@Slf4j
+@Service
+public class TournamentService implements GameSessionManager.SessionListener, MoveHistoryStore.ResultListener {
+
+    private static final int CREATE_THREADS = 4;
+    private static final int CREATE_QUEUE_SIZE = 10_000;
+    private static final long OUTBOX_DRAIN_MS = 100;
+    private static final int STANDINGS_TOP = 10;
+    private static final int MIN_PLAYERS = 2;
+    private static final int MAX_ROUNDS = 15;
+    private static final int DEFAULT_ROUNDS = 5;
+    private static final int MIN_ARENA_MINUTES = 5;
+    private static final int MAX_ARENA_MINUTES = 240;
+    private static final int DEFAULT_ARENA_MINUTES = 60;
+
+    // Очки хранятся в половинках: победа — 2, ничья — 1
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+
+    private static final MessageTemplate PAIRING = MessageTemplate.compile("""
+            🏆 *Турнир* `{tournamentId}` — {stage}
+
+            👤 *Соперник:* {opponent} (рейтинг {rating})
+            🆔 *ID игры:* `{gameId}`
+            ♟️ *Вы играете:* {color}
+            {turn}""");
+
+    private static final MessageTemplate RESULT = MessageTemplate.compile("""
+            🏆 *Турнир* `{tournamentId}`: {outcome}
+            📊 *Очки:* {points}, место {place} из {players}""");
+
+    private static final Comparator<Player> RANKING = Comparator
+            .comparingInt((Player player) -> -player.points)
+            .thenComparingInt(player -> -player.rating)
+            .thenComparingLong(player -> player.chatId);
+
+    public enum Format {
+        SWISS("швейцарка"), ARENA("арена");
+
+        private final String title;
+
+        Format(String title) {
+            this.title = title;
+        }
+    }
+
+    enum State {
+        REGISTRATION, RUNNING, FINISHED
+    }
+
+    private final ApiClient apiClient;
+    private final GameSessionManager sessionManager;
+    private final TelegramNotificationService notificationService;
+    private final GameEventClient eventClient;
+    private final GameClockService clockService;
+    private final RatingCache ratingCache;
+    private final MoveHistoryStore historyStore;
+    private final TelegramRateLimiter telegramLimiter;
+    private final TokenBucket apiLimiter;
+    private final long roundPauseMillis;
+    private final long tickMillis;
+
+    private final Map<String, Tournament> tournaments = new ConcurrentHashMap<>();
+    // gameId -> турнир партии, пока у нее нет итога
+    private final Map<String, Tournament> byGame = new ConcurrentHashMap<>();
+    // chatId -> турнир игрока; игрок участвует не больше чем в одном
+    private final ConcurrentLongMap<Tournament> byPlayer = new ConcurrentLongMap<>();
+    private final ConcurrentLinkedQueue<Notice> outbox = new ConcurrentLinkedQueue<>();
+    // Итоги от слушателей, ждут потока расписания
+    private final ConcurrentLinkedQueue<Outcome> outcomes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger ids = new AtomicInteger();
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, namedThreadFactory("tournament-"));
+
+    private final ThreadPoolExecutor createExecutor = new ThreadPoolExecutor(
+            CREATE_THREADS, CREATE_THREADS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(CREATE_QUEUE_SIZE),
+            namedThreadFactory("tournament-create-"),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+
+    public TournamentService(ApiClient apiClient,
+                             GameSessionManager sessionManager,
+                             TelegramNotificationService notificationService,
+                             GameEventClient eventClient,
+                             GameClockService clockService,
+                             RatingCache ratingCache,
+                             MoveHistoryStore historyStore,
+                             TelegramRateLimiter telegramLimiter,
+                             @Value("${chess.tournament.api-rate-per-second:10}") double apiRatePerSecond,
+                             @Value("${chess.tournament.round-pause-ms:30000}") long roundPauseMillis,
+                             @Value("${chess.tournament.tick-ms:1000}") long tickMillis) {
+        this.apiClient = apiClient;
+        this.sessionManager = sessionManager;
+        this.notificationService = notificationService;
+        this.eventClient = eventClient;
+        this.clockService = clockService;
+        this.ratingCache = ratingCache;
+        this.historyStore = historyStore;
+        this.telegramLimiter = telegramLimiter;
+        this.apiLimiter = new TokenBucket(apiRatePerSecond, (int) Math.max(1, apiRatePerSecond));
+        this.roundPauseMillis = roundPauseMillis;
+        this.tickMillis = tickMillis;
+        sessionManager.addListener(this);
+        historyStore.addResultListener(this);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::safeTick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::safeDrainOutbox, OUTBOX_DRAIN_MS, OUTBOX_DRAIN_MS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::safeSettleQueued, OUTBOX_DRAIN_MS, OUTBOX_DRAIN_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        createExecutor.shutdown();
+    }
+
+    /**
+     * 🏆 КОМАНДА /TOURNAMENT [new|join|leave|start|standings]
+     */
+    public String handleTournament(long chatId, String userName, String text) {
+        String[] parts = text.trim().split("\\s+");
+        String action = parts.length > 1 ? parts[1].toLowerCase() : "";
+        String name = userName != null ? userName : "Игрок";
+
+        return switch (action) {
+            case "" -> describeTournaments(chatId);
+            case "new" -> create(chatId, name, parts);
+            case "join" -> join(chatId, name, parts.length > 2 ? parts[2].toUpperCase() : null);
+            case "leave" -> leave(chatId);
+            case "start" -> startByOrganizer(chatId);
+            case "standings" -> standingsCommand(chatId, parts.length > 2 ? parts[2].toUpperCase() : null);
+            default -> usage();
+        };
+    }
+
+    // ------------------------------------------------------------------ команды
+
+    private String create(long chatId, String name, String[] parts) {
+        Format format = parts.length > 2 && parts[2].equalsIgnoreCase("arena") ? Format.ARENA
+                : parts.length > 2 && parts[2].equalsIgnoreCase("swiss") ? Format.SWISS : null;
+        if (format == null) {
+            return usage();
+        }
+        int length = format == Format.SWISS ? DEFAULT_ROUNDS : DEFAULT_ARENA_MINUTES;
+        TimeControl timeControl = TimeControl.BLITZ;
+        for (int i = 3; i < parts.length; i++) {
+            if (parts[i].chars().allMatch(Character::isDigit)) {
+                length = Integer.parseInt(parts[i]);
+            } else if (TimeControl.of(parts[i]) != null) {
+                timeControl = TimeControl.of(parts[i]);
+            } else {
+                return usage();
+            }
+        }
+        if (format == Format.SWISS && (length < 1 || length > MAX_ROUNDS)) {
+            return "❌ *Раундов может быть от 1 до " + MAX_ROUNDS + ".*";
+        }
+        if (format == Format.ARENA && (length < MIN_ARENA_MINUTES || length > MAX_ARENA_MINUTES)) {
+            return "❌ *Арена длится от " + MIN_ARENA_MINUTES + " до " + MAX_ARENA_MINUTES + " минут.*";
+        }
+        if (byPlayer.containsKey(chatId)) {
+            return "⚠️ *Вы уже участвуете в турнире.* Выйти: `/tournament leave`";
+        }
+
+        Tournament tournament = new Tournament("T" + ids.incrementAndGet(), chatId, format, length, timeControl);
+        tournaments.put(tournament.id, tournament);
+        String joined = join(chatId, name, tournament.id);
+        log.info("🏆 Создан турнир {}: {}, {} {}", tournament.id, format, length, timeControl);
+        return """
+               🏆 *Турнир создан!*
+
+               🆔 *ID:* `%s`
+               📋 *Формат:* %s, %s
+               ⏱ *Контроль:* %s %s
+
+               Игроки присоединяются: `/tournament join %s`
+               Запустить: `/tournament start`
+
+               %s
+               """.formatted(tournament.id, format.title, describeLength(tournament),
+                timeControl.getTitle(), timeControl.describe(), tournament.id, joined);
+    }
+
+    private String join(long chatId, String name, String tournamentId) {
+        Tournament tournament = tournamentId != null ? tournaments.get(tournamentId) : null;
+        if (tournament == null) {
+            return "❌ *Турнир не найден.* Список: `/tournament`";
+        }
+        if (byPlayer.compute(chatId, (id, existing) -> existing != null ? existing : tournament) != tournament) {
+            return "⚠️ *Вы уже участвуете в другом турнире.* Выйти: `/tournament leave`";
+        }
+        synchronized (tournament) {
+            if (tournament.state != State.REGISTRATION) {
+                byPlayer.remove(chatId, tournament);
+                return "⏳ *Регистрация в турнир* `" + tournament.id + "` *закрыта.*";
+            }
+            if (tournament.players.containsKey(chatId)) {
+                return "✅ *Вы уже в турнире* `" + tournament.id + "`.";
+            }
+            Player player = new Player(chatId, name, ratingCache.ratingOf(chatId));
+            tournament.players.put(chatId, player);
+            tournament.standings.add(player);
+            tournament.version++;
+            return "✅ *Вы в турнире* `" + tournament.id + "`. Игроков: " + tournament.players.size();
+        }
+    }
+
+    private String leave(long chatId) {
+        Tournament tournament = byPlayer.remove(chatId);
+        if (tournament == null) {
+            return "🤷 *Вы не участвуете в турнире.*";
+        }
+        synchronized (tournament) {
+            Player player = tournament.players.get(chatId);
+            if (player == null) {
+                return "🤷 *Вы не участвуете в турнире.*";
+            }
+            if (tournament.state == State.REGISTRATION) {
+                tournament.players.remove(chatId);
+                tournament.standings.remove(player);
+                tournament.version++;
+            } else {
+                // Сыгранные партии остаются в таблице, новых пар не будет
+                player.withdrawn = true;
+            }
+        }
+        return "👋 *Вы вышли из турнира* `" + tournament.id + "`.";
+    }
+
+    private String startByOrganizer(long chatId) {
+        Tournament tournament = byPlayer.get(chatId);
+        if (tournament == null || tournament.organizerChatId != chatId) {
+            return "❌ *Запустить турнир может только его организатор.*";
+        }
+        synchronized (tournament) {
+            if (tournament.state != State.REGISTRATION) {
+                return "⚠️ *Турнир уже идет.*";
+            }
+            if (tournament.players.size() < MIN_PLAYERS) {
+                return "⏳ *Нужно хотя бы " + MIN_PLAYERS + " игрока.*";
+            }
+            tournament.state = State.RUNNING;
+            if (tournament.format == Format.ARENA) {
+                tournament.endsAtMillis = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(tournament.length);
+            }
+        }
+        log.info("🏆 Турнир {} запущен: {} игроков", tournament.id, tournament.players.size());
+        broadcast(tournament, "🏁 *Турнир* `" + tournament.id + "` *начался!* Пары придут сообщениями.");
+        if (tournament.format == Format.SWISS) {
+            startRound(tournament);
+        }
+        return null;
+    }
+
+    private String standingsCommand(long chatId, String tournamentId) {
+        Tournament tournament = tournamentId != null ? tournaments.get(tournamentId) : byPlayer.get(chatId);
+        if (tournament == null) {
+            return "❌ *Турнир не найден.* Список: `/tournament`";
+        }
+        synchronized (tournament) {
+            return standingsText(tournament) + placeLine(tournament, chatId);
+        }
+    }
+
+    private String describeTournaments(long chatId) {
+        StringBuilder sb = new StringBuilder("🏆 *Турниры*\n\n");
+        int listed = 0;
+        for (Tournament tournament : tournaments.values()) {
+            synchronized (tournament) {
+                if (tournament.state == State.FINISHED) {
+                    continue;
+                }
+                sb.append(tournament.state == State.REGISTRATION ? "📝 " : "▶️ ")
+                        .append('`').append(tournament.id).append("` — ").append(tournament.format.title)
+                        .append(", ").append(describeLength(tournament))
+                        .append(", игроков: ").append(tournament.players.size()).append('\n');
+                listed++;
+            }
+        }
+        if (listed == 0) {
+            sb.append("Открытых турниров нет.\n");
+        }
+        Tournament mine = byPlayer.get(chatId);
+        if (mine != null) {
+            sb.append("\n👤 Вы в турнире `").append(mine.id).append("`: `/tournament standings`\n");
+        }
+        return sb.append('\n').append(usage()).toString();
+    }
+
+    private static String usage() {
+        return """
+               🏆 *Турниры:*
+               • `/tournament new swiss [раунды] [blitz|rapid]` - Швейцарка
+               • `/tournament new arena [минуты] [blitz|rapid]` - Арена
+               • `/tournament join [ID]` - Записаться
+               • `/tournament start` - Запустить (организатор)
+               • `/tournament standings [ID]` - Таблица
+               • `/tournament leave` - Выйти
+               """;
+    }
+
+    private static String describeLength(Tournament tournament) {
+        return tournament.format == Format.SWISS
+                ? tournament.length + " раунд(ов)"
+                : tournament.length + " мин";
+    }
+
+    // ------------------------------------------------------------------ пары
+
+    /**
+     * 🔁 НОВЫЙ РАУНД ШВЕЙЦАРКИ
+     */
+    void startRound(Tournament tournament) {
+        List<Pairing> pairings;
+        synchronized (tournament) {
+            tournament.round++;
+            tournament.roundFinishedAtMillis = 0;
+            List<Player> available = new ArrayList<>();
+            for (Player player : tournament.standings) {
+                if (!player.withdrawn && !sessionManager.hasActiveGame(player.chatId)) {
+                    available.add(player);
+                }
+            }
+            Player bye = available.size() % 2 == 1 ? pickBye(available) : null;
+            if (bye != null) {
+                available.remove(bye);
+                bye.hadBye = true;
+                award(tournament, bye, WIN);
+            }
+            pairings = pairSwiss(available, tournament.round);
+            tournament.pendingGames = pairings.size();
+            pairings.forEach(pairing -> pairing.white.playing = pairing.black.playing = true);
+            if (bye != null) {
+                publish(bye.chatId, "🏆 *Турнир* `" + tournament.id + "`, раунд " + tournament.round
+                        + ": у вас пропуск, +1 очко.");
+            }
+            if (pairings.isEmpty()) {
+                tournament.roundFinishedAtMillis = System.currentTimeMillis();
+            }
+        }
+        log.info("🏆 Турнир {}, раунд {}: {} пар", tournament.id, tournament.round, pairings.size());
+        pairings.forEach(pairing -> createExecutor.execute(() -> createGame(tournament, pairing)));
+    }
+
+    /**
+     * Пары раунда: сверху вниз по таблице, ближайший еще не встречавшийся соперник
+     *
+     * @param ranked игроки в порядке таблицы, четное число
+     */
+    static List<Pairing> pairSwiss(List<Player> ranked, int round) {
+        List<Pairing> pairings = new ArrayList<>(ranked.size() / 2);
+        boolean[] paired = new boolean[ranked.size()];
+        for (int i = 0; i < ranked.size(); i++) {
+            if (paired[i]) {
+                continue;
+            }
+            Player top = ranked.get(i);
+            int opponent = -1;
+            int fallback = -1;
+            for (int j = i + 1; j < ranked.size(); j++) {
+                if (paired[j]) {
+                    continue;
+                }
+                if (fallback < 0) {
+                    fallback = j;
+                }
+                if (!top.opponents.contains(ranked.get(j).chatId)) {
+                    opponent = j;
+                    break;
+                }
+            }
+            // Все оставшиеся уже встречались с ним — повторная встреча лучше пропуска
+            int chosen = opponent >= 0 ? opponent : fallback;
+            if (chosen < 0) {
+                break;
+            }
+            paired[i] = paired[chosen] = true;
+            pairings.add(colored(top, ranked.get(chosen), round % 2 == 1));
+        }
+        return pairings;
+    }
+
+    /**
+     * Пары арены: соседи по таблице, но не с последним соперником, если есть выбор
+     */
+    static List<Pairing> pairArena(List<Player> ranked) {
+        List<Pairing> pairings = new ArrayList<>(ranked.size() / 2);
+        List<Player> left = new ArrayList<>(ranked);
+        while (left.size() >= 2) {
+            Player first = left.remove(0);
+            int index = 0;
+            if (left.get(0).chatId == first.lastOpponent && left.size() > 1) {
+                index = 1;
+            }
+            pairings.add(colored(first, left.remove(index), first.lastWhite != Boolean.TRUE));
+        }
+        return pairings;
+    }
+
+    // Белые — тому, кто чаще играл черными; при равенстве решает higherWhite
+    private static Pairing colored(Player higher, Player lower, boolean higherWhite) {
+        if (higher.colorBalance != lower.colorBalance) {
+            return higher.colorBalance < lower.colorBalance ? new Pairing(higher, lower) : new Pairing(lower, higher);
+        }
+        return higherWhite ? new Pairing(higher, lower) : new Pairing(lower, higher);
+    }
+
+    private static Player pickBye(List<Player> available) {
+        // Пропуск — нижнему в таблице, у кого его еще не было
+        for (int i = available.size() - 1; i >= 0; i--) {
+            if (!available.get(i).hadBye) {
+                return available.get(i);
+            }
+        }
+        return available.get(available.size() - 1);
+    }
+
+    private void pairArenaWaiting(Tournament tournament) {
+        List<Pairing> pairings;
+        synchronized (tournament) {
+            List<Player> waiting = new ArrayList<>();
+            for (Player player : tournament.standings) {
+                if (!player.withdrawn && !player.playing && !sessionManager.hasActiveGame(player.chatId)) {
+                    waiting.add(player);
+                }
+            }
+            pairings = pairArena(waiting);
+            pairings.forEach(pairing -> pairing.white.playing = pairing.black.playing = true);
+            tournament.pendingGames += pairings.size();
+        }
+        pairings.forEach(pairing -> createExecutor.execute(() -> createGame(tournament, pairing)));
+    }
+
+    // ------------------------------------------------------------------ партии
+
+    private void createGame(Tournament tournament, Pairing pairing) {
+        Player white = pairing.white;
+        Player black = pairing.black;
+        String gameId = null;
+        try {
+            apiLimiter.acquire();
+            GameResponse created = apiClient.createGame(white.chatId, white.name);
+            if (created == null || !Boolean.TRUE.equals(created.getSuccess())) {
+                unplayed(tournament, pairing, created);
+                return;
+            }
+            gameId = created.getGameId();
+            sessionManager.createSession(gameId, white.chatId, white.chatId, "WHITE");
+            eventClient.subscribe(gameId);
+            clockService.register(gameId, tournament.timeControl);
+
+            apiLimiter.acquire();
+            GameResponse joined = apiClient.joinGame(gameId, black.chatId, black.name);
+            if (joined == null || !Boolean.TRUE.equals(joined.getSuccess())) {
+                sessionManager.removeSession(white.chatId);
+                clockService.stop(gameId);
+                unplayed(tournament, pairing, joined);
+                return;
+            }
+            sessionManager.createSession(gameId, black.chatId, black.chatId, "BLACK");
+            sessionManager.updateStatus(white.chatId, joined.getStatus());
+            sessionManager.updateStatus(black.chatId, joined.getStatus());
+            historyStore.startGame(gameId, white.name, black.name, white.chatId, black.chatId);
+            synchronized (tournament) {
+                tournament.games.put(gameId, pairing);
+            }
+            byGame.put(gameId, tournament);
+            clockService.start(gameId);
+
+            String stage = tournament.format == Format.SWISS ? "раунд " + tournament.round : "арена";
+            publish(white.chatId, PAIRING.render(tournament.id, stage, black.name, black.rating, gameId,
+                    "белыми", "🎯 Ваш ход: `/move e2-e4`"));
+            publish(black.chatId, PAIRING.render(tournament.id, stage, white.name, white.rating, gameId,
+                    "черными", "⏳ Первый ход за соперником."));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("❌ Турнир {}: ошибка создания партии: {}", tournament.id, e.getMessage(), e);
+            if (gameId == null) {
+                unplayed(tournament, pairing, null);
+            }
+        }
+    }
+
+    private void unplayed(Tournament tournament, Pairing pairing, GameResponse response) {
+        String reason = response != null && response.getMessage() != null ? response.getMessage() : "Сервер не отвечает";
+        synchronized (tournament) {
+            pairing.white.playing = pairing.black.playing = false;
+            gameDone(tournament);
+        }
+        String message = "❌ *Турнир* `" + tournament.id + "`: партия не создана (" + reason + ")";
+        publish(pairing.white.chatId, message);
+        publish(pairing.black.chatId, message);
+    }
+
+    /**
+     * 🏁 ИТОГ ПАРТИИ ИЗ ИСТОРИИ ХОДОВ
+     */
+    @Override
+    public void onResult(String gameId, MoveHistoryStore.Result result) {
+        if (result != MoveHistoryStore.Result.ONGOING && byGame.containsKey(gameId)) {
+            outcomes.add(new Outcome(gameId, null, result));
+        }
+    }
+
+    /**
+     * Обновление сессии (изнутри compute менеджера): только в очередь, итог — потом
+     */
+    @Override
+    public void onSessionSaved(GameSessionManager.GameSession session) {
+        GameStatus status = session.getStatus();
+        if (status != null && status.isFinished() && byGame.containsKey(session.getGameId())) {
+            outcomes.add(new Outcome(session.getGameId(), status, null));
+        }
+    }
+
+    @Override
+    public void onSessionRemoved(long chatId) {
+        // Итог партии приходит отдельно, удаление сессии на таблицу не влияет
+    }
+
+    /**
+     * 🏁 ИТОГИ ИЗ ОЧЕРЕДИ: для сессии итог берется из истории, ничью видно и по статусу
+     */
+    void settleQueued() {
+        Outcome outcome;
+        while ((outcome = outcomes.poll()) != null) {
+            MoveHistoryStore.Result result = outcome.result;
+            if (result == null) {
+                result = historyStore.resultOf(outcome.gameId);
+                if (result == MoveHistoryStore.Result.ONGOING
+                        && (outcome.status == GameStatus.DRAW || outcome.status == GameStatus.STALEMATE)) {
+                    result = MoveHistoryStore.Result.DRAW;
+                }
+            }
+            settle(outcome.gameId, result);
+        }
+    }
+
+    void settle(String gameId, MoveHistoryStore.Result result) {
+        if (result == MoveHistoryStore.Result.ONGOING) {
+            return;
+        }
+        Tournament tournament = byGame.remove(gameId);
+        if (tournament == null) {
+            return;
+        }
+        Pairing pairing;
+        synchronized (tournament) {
+            pairing = tournament.games.remove(gameId);
+            if (pairing == null) {
+                return;
+            }
+            int whitePoints = result == MoveHistoryStore.Result.WHITE_WINS ? WIN
+                    : result == MoveHistoryStore.Result.DRAW ? DRAW : 0;
+            finishGame(tournament, pairing.white, pairing.black, whitePoints, true);
+            finishGame(tournament, pairing.black, pairing.white, WIN - whitePoints, false);
+            gameDone(tournament);
+
+            notifyResult(tournament, pairing.white, whitePoints);
+            notifyResult(tournament, pairing.black, WIN - whitePoints);
+        }
+    }
+
+    private void finishGame(Tournament tournament, Player player, Player opponent, int points, boolean white) {
+        award(tournament, player, points);
+        player.opponents.add(opponent.chatId);
+        player.lastOpponent = opponent.chatId;
+        player.lastWhite = white;
+        player.colorBalance += white ? 1 : -1;
+        player.playing = false;
+    }
+
+    private void gameDone(Tournament tournament) {
+        tournament.pendingGames--;
+        if (tournament.format == Format.SWISS && tournament.pendingGames == 0) {
+            tournament.roundFinishedAtMillis = System.currentTimeMillis();
+            if (tournament.round < tournament.length) {
+                broadcastLocked(tournament, "🔔 *Раунд " + tournament.round + " завершен.*\n\n"
+                        + standingsText(tournament));
+            }
+        }
+    }
+
+    private void notifyResult(Tournament tournament, Player player, int points) {
+        String outcome = points == WIN ? "победа 🎉" : points == DRAW ? "ничья 🤝" : "поражение";
+        publish(player.chatId, RESULT.render(tournament.id, outcome, formatPoints(tournament, player.points),
+                placeOf(tournament, player), tournament.players.size()));
+    }
+
+    // ------------------------------------------------------------------ таблица
+
+    private void award(Tournament tournament, Player player, int points) {
+        // Игрок меняет место в TreeSet: удалить до изменения ключа, вставить после
+        tournament.standings.remove(player);
+        player.points += points;
+        tournament.standings.add(player);
+        tournament.version++;
+    }
+
+    private static int placeOf(Tournament tournament, Player player) {
+        return tournament.standings.headSet(player).size() + 1;
+    }
+
+    /**
+     * Верх таблицы; текст перестраивается, только когда таблица изменилась
+     */
+    private String standingsText(Tournament tournament) {
+        if (tournament.standingsVersion == tournament.version && tournament.standingsCache != null) {
+            return tournament.standingsCache;
+        }
+        StringBuilder sb = new StringBuilder(64 + STANDINGS_TOP * 48);
+        sb.append("📊 *Таблица турнира* `").append(tournament.id).append('`');
+        if (tournament.format == Format.SWISS && tournament.round > 0) {
+            sb.append(", раунд ").append(tournament.round).append(" из ").append(tournament.length);
+        }
+        sb.append("\n\n");
+        int place = 0;
+        for (Player player : tournament.standings) {
+            if (++place > STANDINGS_TOP) {
+                break;
+            }
+            sb.append(place).append(". ");
+            MessageTemplate.appendEscaped(sb, player.name);
+            sb.append(" — ").append(formatPoints(tournament, player.points))
+                    .append(" (").append(player.rating).append(")\n");
+        }
+        if (tournament.standings.size() > STANDINGS_TOP) {
+            sb.append("… всего игроков: ").append(tournament.standings.size()).append('\n');
+        }
+        tournament.standingsCache = sb.toString();
+        tournament.standingsVersion = tournament.version;
+        return tournament.standingsCache;
+    }
+
+    private static String placeLine(Tournament tournament, long chatId) {
+        Player player = tournament.players.get(chatId);
+        return player != null
+                ? "\n👤 *Вы:* место " + placeOf(tournament, player) + ", " + formatPoints(tournament, player.points)
+                : "";
+    }
+
+    private static String formatPoints(Tournament tournament, int halfPoints) {
+        // Швейцарка — классические очки с половинками, арена — целые очки за победу и ничью
+        if (tournament.format == Format.ARENA) {
+            return String.valueOf(halfPoints);
+        }
+        return halfPoints % 2 == 0 ? String.valueOf(halfPoints / 2) : halfPoints / 2 + ".5";
+    }
+
+    // ------------------------------------------------------------------ расписание
+
+    /**
+     * ⏱ ПРОХОД РАСПИСАНИЯ: следующие раунды, пары арены, завершение
+     */
+    void tick() {
+        settleQueued();
+        long now = System.currentTimeMillis();
+        for (Tournament tournament : tournaments.values()) {
+            boolean nextRound = false;
+            boolean pairArena = false;
+            synchronized (tournament) {
+                if (tournament.state != State.RUNNING) {
+                    continue;
+                }
+                if (tournament.format == Format.SWISS) {
+                    if (tournament.pendingGames == 0 && tournament.roundFinishedAtMillis > 0) {
+                        if (tournament.round >= tournament.length) {
+                            finish(tournament);
+                        } else {
+                            nextRound = now - tournament.roundFinishedAtMillis >= roundPauseMillis;
+                        }
+                    }
+                } else if (now >= tournament.endsAtMillis) {
+                    // Время арены вышло: новых пар нет, ждем доигрывания
+                    if (tournament.pendingGames == 0) {
+                        finish(tournament);
+                    }
+                } else {
+                    pairArena = true;
+                }
+            }
+            if (nextRound) {
+                startRound(tournament);
+            } else if (pairArena) {
+                pairArenaWaiting(tournament);
+            }
+        }
+    }
+
+    private void finish(Tournament tournament) {
+        tournament.state = State.FINISHED;
+        tournaments.remove(tournament.id, tournament);
+        for (Player player : tournament.players.values()) {
+            byPlayer.remove(player.chatId, tournament);
+        }
+        Player winner = tournament.standings.isEmpty() ? null : tournament.standings.first();
+        log.info("🏆 Турнир {} завершен, победитель: {}", tournament.id, winner != null ? winner.chatId : null);
+        StringBuilder sb = new StringBuilder("🏆 *Турнир* `").append(tournament.id).append("` *завершен!*\n");
+        if (winner != null) {
+            sb.append("🥇 Победитель: ");
+            MessageTemplate.appendEscaped(sb, winner.name);
+            sb.append('\n');
+        }
+        broadcastLocked(tournament, sb.append('\n').append(standingsText(tournament)).toString());
+    }
+
+    private void broadcast(Tournament tournament, String text) {
+        synchronized (tournament) {
+            broadcastLocked(tournament, text);
+        }
+    }
+
+    private void broadcastLocked(Tournament tournament, String text) {
+        for (Player player : tournament.players.values()) {
+            if (!player.withdrawn) {
+                publish(player.chatId, text + placeLine(tournament, player.chatId));
+            }
+        }
+    }
+
+    private void publish(long chatId, String text) {
+        outbox.add(new Notice(chatId, text));
+    }
+
+    /**
+     * Исходящие сообщения турниров — в пределах общего лимита Telegram
+     */
+    void drainOutbox() {
+        while (!outbox.isEmpty() && telegramLimiter.tryAcquire()) {
+            Notice notice = outbox.poll();
+            if (notice != null) {
+                notificationService.sendSimpleMessage(notice.chatId, notice.text);
+            }
+        }
+    }
+
+    State stateOf(String tournamentId) {
+        Tournament tournament = tournaments.get(tournamentId);
+        return tournament != null ? tournament.state : null;
+    }
+
+    private void safeTick() {
+        try {
+            tick();
+        } catch (Exception e) {
+            log.error("❌ Ошибка расписания турниров: {}", e.getMessage(), e);
+        }
+    }
+
+    private void safeSettleQueued() {
+        try {
+            settleQueued();
+        } catch (Exception e) {
+            log.error("❌ Ошибка учета итогов турниров: {}", e.getMessage(), e);
+        }
+    }
+
+    private void safeDrainOutbox() {
+        try {
+            drainOutbox();
+        } catch (Exception e) {
+            log.error("❌ Ошибка рассылки турниров: {}", e.getMessage(), e);
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Турнир; все изменяемые поля — под монитором самого турнира
+     */
+    static final class Tournament {
+        final String id;
+        final long organizerChatId;
+        final Format format;
+        // Раунды швейцарки или минуты арены
+        final int length;
+        final TimeControl timeControl;
+
+        final Map<Long, Player> players = new LinkedHashMap<>();
+        final TreeSet<Player> standings = new TreeSet<>(RANKING);
+        final Map<String, Pairing> games = new HashMap<>();
+
+        State state = State.REGISTRATION;
+        int round;
+        int pendingGames;
+        long roundFinishedAtMillis;
+        long endsAtMillis;
+
+        long version;
+        long standingsVersion = -1;
+        String standingsCache;
+
+        Tournament(String id, long organizerChatId, Format format, int length, TimeControl timeControl) {
+            this.id = id;
+            this.organizerChatId = organizerChatId;
+            this.format = format;
+            this.length = length;
+            this.timeControl = timeControl;
+        }
+    }
+
+    static final class Player {
+        final long chatId;
+        final String name;
+        final int rating;
+        final Set<Long> opponents = new HashSet<>();
+
+        int points;
+        // Партий белыми минус партий черными
+        int colorBalance;
+        long lastOpponent = -1;
+        Boolean lastWhite;
+        boolean hadBye;
+        boolean playing;
+        boolean withdrawn;
+
+        Player(long chatId, String name, int rating) {
+            this.chatId = chatId;
+            this.name = name;
+            this.rating = rating;
+        }
+    }
+
+    record Pairing(Player white, Player black) {
+    }
+
+    private record Outcome(String gameId, GameStatus status, MoveHistoryStore.Result result) {
+    }
+
+    private record Notice(long chatId, String text) {
+    }
+}
@@ -0,0 +1,163 @@
+package com.chessbot.util;
+
+import java.util.Arrays;
+
+/**
+ * 🔘 Компактный callback_data кнопок доски
+ *
+ * Кнопка несет одно 51-битное число: действие (4 бита), клетки хода (по 6 бит, a1 = 0),
+ * фигуру превращения (3 бита) и эпоху позиции (32 бита). В строку оно пишется
+ * фиксированными 11 символами: '#', версия формата и 9 символов base64url — далеко
+ * от лимита Telegram в 64 байта. Разбор идет по таблице символов прямо в long, без
+ * единого выделения памяти; кнопка чужой версии разбирается как INVALID.
+ *
+ * Эпоха — хеш игры и позиции: кнопка со старой доски отличается от текущей по эпохе,
+ * и ее можно отбросить, не спрашивая Chess API.
+ */
+public final class CallbackCodec {
+
+    public static final long INVALID = -1L;
+
+    public static final int NONE = 0;
+    public static final int SELECT = 1;
+    public static final int MOVE = 2;
+    public static final int CANCEL = 3;
+    public static final int REFRESH = 4;
+    public static final int LEGAL_MOVES = 5;
+    public static final int OFFER_DRAW = 6;
+    // Страница списка ходов: номер страницы — в поле from
+    public static final int MOVES_PAGE = 7;
+
+    private static final char PREFIX = '#';
+    private static final char VERSION = '1';
+    private static final int PAYLOAD_CHARS = 9;
+    private static final int LENGTH = 2 + PAYLOAD_CHARS;
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+    private static final byte[] DIGITS = new byte[128];
+
+    // Превращение: 0 — нет, дальше n, b, r, q
+    private static final String PROMOTIONS = "\0nbrq";
+
+    private static final int FROM_SHIFT = 4;
+    private static final int TO_SHIFT = 10;
+    private static final int PROMOTION_SHIFT = 16;
+    private static final int EPOCH_SHIFT = 19;
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            DIGITS[ALPHABET.charAt(i)] = (byte) i;
+        }
+    }
+
+    private CallbackCodec() {
+    }
+
+    public static String encode(int action) {
+        return encode(action, 0, 0, (char) 0, 0);
+    }
+
+    public static String encode(int action, int epoch) {
+        return encode(action, 0, 0, (char) 0, epoch);
+    }
+
+    /**
+     * @param promotion 'q', 'r', 'b', 'n' (в любом регистре) или 0
+     */
+    public static String encode(int action, int from, int to, char promotion, int epoch) {
+        int promotionCode = promotion == 0 ? 0 : PROMOTIONS.indexOf(Character.toLowerCase(promotion));
+        if (action < 0 || action > 15 || (from & ~63) != 0 || (to & ~63) != 0 || promotionCode < 0) {
+            throw new IllegalArgumentException("Некорректная кнопка: action=" + action + ", from=" + from
+                    + ", to=" + to + ", promotion=" + promotion);
+        }
+        long packed = action
+                | (long) from << FROM_SHIFT
+                | (long) to << TO_SHIFT
+                | (long) promotionCode << PROMOTION_SHIFT
+                | (epoch & 0xFFFFFFFFL) << EPOCH_SHIFT;
+
+        char[] chars = new char[LENGTH];
+        chars[0] = PREFIX;
+        chars[1] = VERSION;
+        for (int i = LENGTH - 1; i >= 2; i--) {
+            chars[i] = ALPHABET.charAt((int) (packed & 63));
+            packed >>>= 6;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Похоже ли на компактную кнопку (любой версии)
+     */
+    public static boolean isCompact(String data) {
+        return data != null && data.length() == LENGTH && data.charAt(0) == PREFIX;
+    }
+
+    /**
+     * Разобрать кнопку в число или INVALID (чужой формат, версия, мусор)
+     */
+    public static long decode(CharSequence data) {
+        if (data == null || data.length() != LENGTH || data.charAt(0) != PREFIX || data.charAt(1) != VERSION) {
+            return INVALID;
+        }
+        long packed = 0;
+        for (int i = 2; i < LENGTH; i++) {
+            char c = data.charAt(i);
+            int digit = c < 128 ? DIGITS[c] : -1;
+            if (digit < 0) {
+                return INVALID;
+            }
+            packed = packed << 6 | digit;
+        }
+        return action(packed) > MOVES_PAGE || (packed >>> PROMOTION_SHIFT & 7) >= PROMOTIONS.length()
+                ? INVALID : packed;
+    }
+
+    public static int action(long packed) {
+        return (int) (packed & 15);
+    }
+
+    public static int from(long packed) {
+        return (int) (packed >>> FROM_SHIFT & 63);
+    }
+
+    public static int to(long packed) {
+        return (int) (packed >>> TO_SHIFT & 63);
+    }
+
+    /**
+     * Фигура превращения в нижнем регистре или 0
+     */
+    public static char promotion(long packed) {
+        return PROMOTIONS.charAt((int) (packed >>> PROMOTION_SHIFT & 7));
+    }
+
+    public static int epoch(long packed) {
+        return (int) (packed >>> EPOCH_SHIFT);
+    }
+
+    /**
+     * Эпоха позиции: меняется с каждым ходом, совпадает у одной и той же позиции одной игры
+     */
+    public static int epochOf(String gameId, String fen) {
+        long hash = LongBloomFilter.hash(gameId) * 31 + LongBloomFilter.hash(fen);
+        return (int) (hash ^ hash >>> 32);
+    }
+
+    /**
+     * Индекс клетки по имени ("a1" = 0, "h8" = 63) или -1
+     */
+    public static int square(String name) {
+        if (name == null || name.length() < 2) {
+            return -1;
+        }
+        int file = name.charAt(0) - 'a';
+        int rank = name.charAt(1) - '1';
+        return file >= 0 && file < 8 && rank >= 0 && rank < 8 ? rank * 8 + file : -1;
+    }
+
+    public static String squareName(int square) {
+        return new String(new char[]{(char) ('a' + (square & 7)), (char) ('1' + (square >>> 3))});
+    }
+}
@@ -0,0 +1,338 @@
+package com.chessbot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * 🗃️ Потокобезопасная хеш-таблица с примитивными long-ключами
+ *
+ * Ключи лежат в long[], значения в Object[] (открытая адресация, линейное пробирование),
+ * поэтому на запись не приходится ни узла, ни упакованного Long — только 8 байт ключа
+ * и ссылка на значение. Таблица разбита на сегменты со своими StampedLock:
+ * чтение идет без блокировки (optimistic read), запись блокирует один сегмент.
+ * Удаление сдвигает цепочку назад, так что tombstone-ов нет.
+ */
+public final class ConcurrentLongMap<V> {
+
+    private static final int SEGMENTS = 64;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+    private static final long EMPTY = 0L;
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap() {
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    public V get(long key) {
+        long hash = mix(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Положить значение, вернуть предыдущее (или null)
+     */
+    public V put(long key, V value) {
+        requireValue(value);
+        long hash = mix(key);
+        return segmentFor(hash).compute(key, hash, existing -> value);
+    }
+
+    public V remove(long key) {
+        long hash = mix(key);
+        return segmentFor(hash).compute(key, hash, existing -> null);
+    }
+
+    /**
+     * Удалить, только если текущее значение — тот же объект
+     */
+    public boolean remove(long key, V expected) {
+        long hash = mix(key);
+        Object[] removed = new Object[1];
+        segmentFor(hash).compute(key, hash, existing -> {
+            if (existing == expected) {
+                removed[0] = existing;
+                return null;
+            }
+            return existing;
+        });
+        return removed[0] != null;
+    }
+
+    /**
+     * Атомарно пересчитать значение по ключу (null — удалить запись)
+     * Функция выполняется под блокировкой сегмента и не должна обращаться к этой же таблице
+     */
+    public V compute(long key, Remapper<V> remapper) {
+        long hash = mix(key);
+        Segment<V> segment = segmentFor(hash);
+        Object[] result = new Object[1];
+        segment.compute(key, hash, existing -> {
+            V updated = remapper.apply(key, existing);
+            result[0] = updated;
+            return updated;
+        });
+        @SuppressWarnings("unchecked")
+        V updated = (V) result[0];
+        return updated;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        V current = get(key);
+        if (current != null) {
+            return current;
+        }
+        return compute(key, (k, existing) -> existing != null ? existing : factory.apply(k));
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Обойти все значения. Сегмент копируется под блокировкой, а действие
+     * вызывается уже без нее, поэтому из него можно менять эту же таблицу.
+     */
+    public void forEachValue(Consumer<V> action) {
+        List<V> batch = new ArrayList<>();
+        for (Segment<V> segment : segments) {
+            batch.clear();
+            segment.copyValues(batch);
+            for (V value : batch) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Обойти все ключи (по той же схеме, что и forEachValue)
+     */
+    public void forEachKey(LongConsumer action) {
+        for (Segment<V> segment : segments) {
+            for (long key : segment.copyKeys()) {
+                action.accept(key);
+            }
+        }
+    }
+
+    /**
+     * Оценка занятой таблицей памяти без учета самих значений (байты)
+     */
+    public long tableFootprintBytes() {
+        long bytes = 0;
+        for (Segment<V> segment : segments) {
+            Table table = segment.table;
+            // long[] + ссылки (сжатые oops) + заголовки массивов
+            bytes += 16L + table.keys.length * 8L + 16L + table.values.length * 4L;
+        }
+        return bytes;
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> 58) & (SEGMENTS - 1)];
+    }
+
+    private static void requireValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException("null values are not supported");
+        }
+    }
+
+    // Финальное перемешивание из MurmurHash3
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @FunctionalInterface
+    public interface Remapper<V> {
+        V apply(long key, V existing);
+    }
+
+    /**
+     * Ключи и значения меняются вместе, поэтому читатель всегда видит согласованную пару массивов
+     */
+    private static final class Table {
+        final long[] keys;
+        final Object[] values; // null — свободная ячейка (ключ 0 допустим, различаем по значению)
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+        private volatile int size;
+
+        V get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            V value = find(table, key, hash);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(table, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V find(Table t, long key, long hash) {
+            long[] keys = t.keys;
+            Object[] values = t.values;
+            int mask = keys.length - 1;
+            int index = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = values[index];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[index] == key) {
+                    return (V) value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V compute(long key, long hash, UnaryOperator<V> remap) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                long[] keys = t.keys;
+                Object[] values = t.values;
+                int mask = keys.length - 1;
+                int index = (int) hash & mask;
+                while (values[index] != null && keys[index] != key) {
+                    index = (index + 1) & mask;
+                }
+
+                V existing = (V) values[index];
+                V updated = remap.apply(existing);
+
+                if (updated == null) {
+                    if (existing != null) {
+                        deleteAt(t, index);
+                        size--;
+                    }
+                } else if (existing != null) {
+                    values[index] = updated;
+                } else {
+                    keys[index] = key;
+                    values[index] = updated;
+                    size++;
+                    if (size * 4 > keys.length * 3) {
+                        resize(keys.length * 2);
+                    }
+                }
+                return existing;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // Удаление со сдвигом: переносим назад элементы, которые иначе стали бы недостижимы
+        private void deleteAt(Table t, int index) {
+            long[] keys = t.keys;
+            Object[] values = t.values;
+            int mask = keys.length - 1;
+            int hole = index;
+            int next = (hole + 1) & mask;
+            while (values[next] != null) {
+                int home = (int) mix(keys[next]) & mask;
+                boolean movable = hole <= next
+                        ? (home <= hole || home > next)
+                        : (home <= hole && home > next);
+                if (movable) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = EMPTY;
+            values[hole] = null;
+        }
+
+        private void resize(int capacity) {
+            Table old = table;
+            Table fresh = new Table(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                Object value = old.values[i];
+                if (value != null) {
+                    int index = (int) mix(old.keys[i]) & mask;
+                    while (fresh.values[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    fresh.keys[index] = old.keys[i];
+                    fresh.values[index] = value;
+                }
+            }
+            table = fresh;
+        }
+
+        @SuppressWarnings("unchecked")
+        void copyValues(List<V> out) {
+            long stamp = lock.readLock();
+            try {
+                for (Object value : table.values) {
+                    if (value != null) {
+                        out.add((V) value);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long[] copyKeys() {
+            long stamp = lock.readLock();
+            try {
+                Table t = table;
+                long[] keys = new long[size];
+                int n = 0;
+                for (int i = 0; i < t.keys.length; i++) {
+                    if (t.values[i] != null) {
+                        keys[n++] = t.keys[i];
+                    }
+                }
+                return keys;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
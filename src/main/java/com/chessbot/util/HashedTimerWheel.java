@@ -0,0 +1,245 @@
+package com.chessbot.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ⏲️ Хешированное колесо таймеров
+ *
+ * Таймер попадает в ячейку колеса по номеру тика своего дедлайна; каждый тик
+ * рабочий поток обходит только одну ячейку. Постановка и отмена — O(1) без блокировок
+ * (через очереди, которые разбирает рабочий поток), стоимость тика не зависит
+ * от общего числа таймеров. Дедлайн дальше одного оборота колеса хранится
+ * как число оставшихся оборотов. Точность — один тик.
+ *
+ * Сработавшие задачи отдаются в executor: сам поток колеса ничего не ждет.
+ */
+public final class HashedTimerWheel implements AutoCloseable {
+
+    // Сколько новых таймеров переносится в колесо за тик — чтобы всплеск не задержал тик
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor executor;
+    private final Thread worker;
+    private final long startNanos = System.nanoTime();
+
+    private final Queue<Entry> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> pendingCancels = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running = true;
+    private long tick; // только поток колеса
+
+    public HashedTimerWheel(String name, long tickDuration, TimeUnit unit, int wheelSize, Executor executor) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickDuration и wheelSize должны быть положительными");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Поставить задачу через delay; вернуть дескриптор для отмены
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Колесо таймеров остановлено");
+        }
+        long deadline = System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay));
+        Entry entry = new Entry(task, deadline);
+        pendingAdds.add(entry);
+        return entry;
+    }
+
+    /**
+     * Таймеров, ожидающих переноса в колесо (для мониторинга)
+     */
+    public int pendingCount() {
+        return pendingAdds.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            if (!waitForNextTick()) {
+                return;
+            }
+            Bucket bucket = wheel[(int) (tick & mask)];
+            processCancels();
+            transferAdds();
+            bucket.expire(executor);
+            tick++;
+        }
+    }
+
+    private boolean waitForNextTick() {
+        long deadline = (tick + 1) * tickNanos;
+        while (true) {
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos <= 0) {
+                return true;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void processCancels() {
+        Entry entry;
+        while ((entry = pendingCancels.poll()) != null) {
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            }
+        }
+    }
+
+    private void transferAdds() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Entry entry = pendingAdds.poll();
+            if (entry == null) {
+                return;
+            }
+            if (entry.state.get() == Entry.CANCELLED) {
+                continue;
+            }
+            long ticks = entry.deadline / tickNanos;
+            entry.remainingRounds = (ticks - tick) / wheel.length;
+            // Просроченный дедлайн срабатывает в текущем тике
+            long target = Math.max(ticks, tick);
+            wheel[(int) (target & mask)].add(entry);
+        }
+    }
+
+    /**
+     * Дескриптор поставленного таймера
+     */
+    public interface Timeout {
+        /**
+         * Отменить; false, если таймер уже сработал или отменен
+         */
+        boolean cancel();
+
+        boolean isExpired();
+    }
+
+    private final class Entry implements Timeout {
+        static final int WAITING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        final Runnable task;
+        final long deadline; // наносекунды от startNanos
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        // Поля ниже меняет только поток колеса
+        long remainingRounds;
+        Bucket bucket;
+        Entry prev;
+        Entry next;
+
+        Entry(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+            pendingCancels.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /**
+     * Ячейка колеса: двусвязный список, удаление за O(1)
+     */
+    private static final class Bucket {
+        Entry head;
+        Entry tail;
+
+        void add(Entry entry) {
+            entry.bucket = this;
+            if (head == null) {
+                head = tail = entry;
+            } else {
+                tail.next = entry;
+                entry.prev = tail;
+                tail = entry;
+            }
+        }
+
+        void remove(Entry entry) {
+            if (entry.bucket != this) {
+                return;
+            }
+            Entry next = entry.next;
+            if (entry.prev != null) {
+                entry.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = entry.prev;
+            }
+            if (entry == head) {
+                head = next;
+            }
+            if (entry == tail) {
+                tail = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            entry.bucket = null;
+        }
+
+        void expire(Executor executor) {
+            Entry entry = head;
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.state.get() == Entry.CANCELLED) {
+                    remove(entry);
+                } else if (entry.remainingRounds <= 0) {
+                    remove(entry);
+                    if (entry.state.compareAndSet(Entry.WAITING, Entry.EXPIRED)) {
+                        executor.execute(entry.task);
+                    }
+                } else {
+                    entry.remainingRounds--;
+                }
+                entry = next;
+            }
+        }
+    }
+}
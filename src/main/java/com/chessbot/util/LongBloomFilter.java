@@ -0,0 +1,81 @@
+package com.chessbot.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 🌸 Потокобезопасный фильтр Блума по long-ключам
+ *
+ * Отвечает "точно нет" или "возможно есть" за k чтений битов, размер фиксируется
+ * при создании под ожидаемое число ключей и долю ложных срабатываний. Удаления нет:
+ * удаленный ключ остается ложным срабатыванием до пересоздания фильтра.
+ * Позиции битов — двойное хеширование (h1 + i*h2) одного 64-битного хеша ключа.
+ * Биты ставятся через CAS в AtomicLongArray, так что add и mightContain не блокируются.
+ */
+public final class LongBloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public LongBloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedKeys > 0, 0 < falsePositiveRate < 1");
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) >>> 6);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * ln2));
+    }
+
+    public void add(long key) {
+        long h1 = mix(key);
+        long h2 = Long.rotateLeft(h1, 32) | 1;
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(long key) {
+        long h1 = mix(key);
+        long h2 = Long.rotateLeft(h1, 32) | 1;
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long sizeBytes() {
+        return bitCount >>> 3;
+    }
+
+    /**
+     * 64-битный FNV-1a строки — ключ фильтра для строковых идентификаторов
+     */
+    public static long hash(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Финализатор SplitMix64: соседние chatId расходятся по всему фильтру
+    private static long mix(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
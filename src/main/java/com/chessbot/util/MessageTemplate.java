@@ -0,0 +1,166 @@
+package com.chessbot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 🧩 Заранее разобранный шаблон сообщения
+ *
+ * Шаблон разбирается один раз: постоянные куски текста лежат в массиве, между ними —
+ * типизированные слоты "{имя}" (текст, экранируется для HTML) или "{имя:raw}" (готовая
+ * разметка, вставляется как есть). Отрисовка сначала считает точную длину результата,
+ * затем пишет все в один StringBuilder нужной емкости: ни промежуточных строк, ни
+ * перевыделений, как у String.formatted. Экранирование пользовательского текста
+ * (имена, сообщения API) делается здесь и только здесь.
+ */
+public final class MessageTemplate {
+
+    private enum Slot {
+        TEXT, RAW
+    }
+
+    private final String[] fragments;
+    private final Slot[] slots;
+    private final String[] names;
+    private final int constantLength;
+
+    private MessageTemplate(String[] fragments, Slot[] slots, String[] names) {
+        this.fragments = fragments;
+        this.slots = slots;
+        this.names = names;
+        int length = 0;
+        for (String fragment : fragments) {
+            length += fragment.length();
+        }
+        this.constantLength = length;
+    }
+
+    /**
+     * Разобрать шаблон; "{{" и "}}" — буквальные фигурные скобки
+     */
+    public static MessageTemplate compile(String pattern) {
+        List<String> fragments = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        StringBuilder fragment = new StringBuilder();
+
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if ((c == '{' || c == '}') && i + 1 < pattern.length() && pattern.charAt(i + 1) == c) {
+                fragment.append(c);
+                i++;
+            } else if (c == '{') {
+                int end = pattern.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Незакрытый слот в шаблоне: " + pattern);
+                }
+                String slot = pattern.substring(i + 1, end);
+                int colon = slot.indexOf(':');
+                String type = colon >= 0 ? slot.substring(colon + 1) : "";
+                if (!type.isEmpty() && !type.equals("raw")) {
+                    throw new IllegalArgumentException("Неизвестный тип слота: " + slot);
+                }
+                fragments.add(fragment.toString());
+                fragment.setLength(0);
+                slots.add(type.isEmpty() ? Slot.TEXT : Slot.RAW);
+                names.add(colon >= 0 ? slot.substring(0, colon) : slot);
+                i = end;
+            } else if (c == '}') {
+                throw new IllegalArgumentException("Лишняя '}' в шаблоне: " + pattern);
+            } else {
+                fragment.append(c);
+            }
+        }
+        fragments.add(fragment.toString());
+        return new MessageTemplate(fragments.toArray(String[]::new), slots.toArray(Slot[]::new),
+                names.toArray(String[]::new));
+    }
+
+    /**
+     * Заполнить слоты по порядку; null — пустая строка
+     */
+    public String render(Object... values) {
+        if (values.length != slots.length) {
+            throw new IllegalArgumentException("Шаблон ждет " + slots.length + " значений " + List.of(names)
+                    + ", передано " + values.length);
+        }
+        int length = constantLength;
+        for (int i = 0; i < values.length; i++) {
+            length += slots[i] == Slot.TEXT ? escapedLength(values[i]) : rawLength(values[i]);
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < values.length; i++) {
+            sb.append(fragments[i]);
+            if (values[i] instanceof CharSequence text) {
+                if (slots[i] == Slot.TEXT) {
+                    appendEscaped(sb, text);
+                } else {
+                    sb.append(text);
+                }
+            } else if (values[i] != null) {
+                appendValue(sb, values[i], slots[i]);
+            }
+        }
+        sb.append(fragments[values.length]);
+        return sb.toString();
+    }
+
+    public int slotCount() {
+        return slots.length;
+    }
+
+    /**
+     * Экранировать текст для сообщений с parse mode HTML
+     */
+    public static String escapeHtml(CharSequence text) {
+        StringBuilder sb = new StringBuilder(escapedLength(text));
+        appendEscaped(sb, text);
+        return sb.toString();
+    }
+
+    public static void appendEscaped(StringBuilder sb, CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> sb.append("&amp;");
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    private static void appendValue(StringBuilder sb, Object value, Slot slot) {
+        // Числа пишутся напрямую, без промежуточной строки
+        if (value instanceof Integer number) {
+            sb.append(number.intValue());
+        } else if (value instanceof Long number) {
+            sb.append(number.longValue());
+        } else if (slot == Slot.TEXT) {
+            appendEscaped(sb, value.toString());
+        } else {
+            sb.append(value);
+        }
+    }
+
+    private static int escapedLength(Object value) {
+        if (!(value instanceof CharSequence text)) {
+            return value == null ? 0 : 20;
+        }
+        int length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '&') {
+                length += 4;
+            } else if (c == '<' || c == '>') {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int rawLength(Object value) {
+        return value instanceof CharSequence text ? text.length() : value == null ? 0 : 20;
+    }
+}
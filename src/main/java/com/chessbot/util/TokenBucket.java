@@ -0,0 +1,93 @@
+package com.chessbot.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 🪣 Ведро токенов
+ *
+ * rate-per-second токенов в секунду, не больше burst в запасе. Пополнение считается
+ * лениво при каждом обращении по разнице времени — без фонового потока.
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double ratePerNano;
+    private final double burst;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        this(ratePerSecond, burst, System::nanoTime);
+    }
+
+    public TokenBucket(double ratePerSecond, int burst, LongSupplier nanoClock) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Некорректный лимит: " + ratePerSecond + "/с, запас " + burst);
+        }
+        this.ratePerNano = ratePerSecond / NANOS_PER_SECOND;
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * Взять токен; false — лимит исчерпан
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(0);
+    }
+
+    /**
+     * Взять токен, только если после этого в ведре останется не меньше reserve:
+     * так фоновая работа уступает остальным потребителям того же ведра
+     */
+    public synchronized boolean tryAcquire(int reserve) {
+        refill();
+        if (tokens < 1 + Math.min(reserve, burst - 1)) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Списать токен без ожидания (ответы пользователям): ведро уходит в долг не глубже
+     * burst, и tryAcquire с запасом у фоновых потребителей ждет, пока долг не погасится
+     */
+    public synchronized void charge() {
+        refill();
+        tokens = Math.max(-burst, tokens - 1);
+    }
+
+    /**
+     * Дождаться токена (для фоновых потоков, которым некуда отложить работу)
+     */
+    public void acquire() throws InterruptedException {
+        while (!tryAcquire()) {
+            Thread.sleep(Math.max(1, millisUntilNextToken()));
+        }
+    }
+
+    /**
+     * Через сколько миллисекунд появится следующий токен (0 — уже есть)
+     */
+    public long millisUntilNextToken() {
+        return millisUntilNextToken(0);
+    }
+
+    public synchronized long millisUntilNextToken(int reserve) {
+        refill();
+        double needed = 1 + Math.min(reserve, burst - 1);
+        return tokens >= needed ? 0 : (long) Math.ceil((needed - tokens) / ratePerNano / 1_000_000);
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * ratePerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,63 @@
+package com.chessbot.bot;
+
+import com.chessbot.handlers.ChessCommandHandler;
+import com.chessbot.service.KeyboardService;
+import com.chessbot.service.LobbyService;
+import com.chessbot.service.TelegramNotificationService;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BotFasadeTest {
+
+    private final ChessCommandHandler commandHandler = mock(ChessCommandHandler.class);
+    private final TelegramNotificationService telegram = mock(TelegramNotificationService.class);
+    private final BotFasade fasade = new BotFasade(commandHandler, mock(KeyboardService.class),
+            mock(LobbyService.class), telegram);
+
+    @Test
+    void everyTapIsAnsweredEvenWithoutHandler() {
+        assertThat(fasade.obrabotkaHandleUpdate(tap("q1", "noop"))).isNull();
+        verify(telegram).answerCallbackQuery("q1", null);
+
+        when(commandHandler.handleCommand(anyLong(), anyString(), anyString())).thenReturn("ok");
+        assertThat(fasade.obrabotkaHandleUpdate(tap("q2", "/help")).getText()).isEqualTo("ok");
+        verify(telegram).answerCallbackQuery("q2", null);
+    }
+
+    @Test
+    void failedTapIsAnsweredWithNotice() {
+        when(commandHandler.handleCommand(anyLong(), anyString(), anyString())).thenThrow(new IllegalStateException("boom"));
+
+        assertThat(fasade.obrabotkaHandleUpdate(tap("q3", "/board")).getText()).contains("Произошла ошибка");
+        verify(telegram).answerCallbackQuery("q3", "❌ Произошла ошибка");
+    }
+
+    private static Update tap(String id, String data) {
+        Chat chat = new Chat();
+        chat.setId(42L);
+        Message message = new Message();
+        message.setChat(chat);
+        message.setMessageId(7);
+        User user = new User();
+        user.setFirstName("Alice");
+        CallbackQuery query = new CallbackQuery();
+        query.setId(id);
+        query.setData(data);
+        query.setMessage(message);
+        query.setFrom(user);
+        Update update = new Update();
+        update.setCallbackQuery(query);
+        return update;
+    }
+}
@@ -0,0 +1,109 @@
+package com.chessbot.engine;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Полный прогон (глубина 5-6, замер NPS) помечен тегом perft и запускается профилем:
+ * {@code mvn test -Pperft}. Мелкие глубины идут в обычной сборке.
+ */
+class PerftTest {
+
+    private static final String START = Board.START_FEN;
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+    private static final String POSITION_6 = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    @ParameterizedTest(name = "{0} depth {1}")
+    @CsvSource(delimiter = ';', value = {
+            "start;    4; 197281",
+            "kiwipete; 3; 97862",
+            "pos3;     4; 43238",
+            "pos4;     3; 9467",
+            "pos5;     3; 62379",
+            "pos6;     3; 89890"
+    })
+    void shallowCountsMatchReference(String name, int depth, long expected) {
+        assertThat(Perft.count(Board.fromFen(fen(name)), depth)).isEqualTo(expected);
+    }
+
+    @Test
+    void acceptsPlacementOnlyFenFromApi() {
+        // API отдает только расстановку: права на рокировку выводятся из положения фигур
+        Board board = Board.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+
+        assertThat(board.toFen()).isEqualTo(START);
+        assertThat(Perft.count(board, 3)).isEqualTo(8902);
+    }
+
+    @Test
+    void rejectsPositionWhereSideNotToMoveIsInCheck() {
+        // Ход белых, но черный король уже под боем ферзя
+        assertThatThrownBy(() -> Board.fromFen("4k3/8/8/8/8/8/4Q3/4K3 w - - 0 1"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("под шахом");
+        assertThat(Board.fromFen("4k3/8/8/8/8/8/4Q3/4K3 b - - 0 1").inCheck()).isTrue();
+    }
+
+    @Test
+    void makeUnmakeRestoresPositionAndKey() {
+        Board board = Board.fromFen(KIWIPETE);
+        long key = board.key();
+
+        Perft.count(board, 3);
+
+        assertThat(board.key()).isEqualTo(key);
+        assertThat(board.toFen()).isEqualTo(KIWIPETE);
+    }
+
+    @Tag("perft")
+    @ParameterizedTest(name = "{0} depth {1}")
+    @CsvSource(delimiter = ';', value = {
+            "start;    6; 119060324",
+            "kiwipete; 5; 193690690",
+            "pos3;     6; 11030083",
+            "pos4;     5; 15833292",
+            "pos5;     5; 89941194",
+            "pos6;     5; 164075551"
+    })
+    void fullSuiteWithNodesPerSecond(String name, int depth, long expected) {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        long start = System.nanoTime();
+        long single = Perft.count(Board.fromFen(fen(name)), depth);
+        long singleNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long parallel = Perft.countParallel(Board.fromFen(fen(name)), depth, threads);
+        long parallelNanos = System.nanoTime() - start;
+
+        System.out.printf("perft %-8s d%d: %,d nodes | 1 thread %,d nps | %d threads %,d nps%n",
+                name, depth, single, nps(single, singleNanos), threads, nps(parallel, parallelNanos));
+
+        assertThat(single).isEqualTo(expected);
+        assertThat(parallel).isEqualTo(expected);
+    }
+
+    private static long nps(long nodes, long nanos) {
+        return nodes * 1_000_000_000L / Math.max(1, nanos);
+    }
+
+    private static String fen(String name) {
+        return switch (name) {
+            case "start" -> START;
+            case "kiwipete" -> KIWIPETE;
+            case "pos3" -> POSITION_3;
+            case "pos4" -> POSITION_4;
+            case "pos5" -> POSITION_5;
+            case "pos6" -> POSITION_6;
+            default -> throw new IllegalArgumentException(name);
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.chessbot.handlers;
+
+import com.chessbot.dto.GameResponse;
+import com.chessbot.service.AnalysisService;
+import com.chessbot.service.ApiClient;
+import com.chessbot.service.BoardImageService;
+import com.chessbot.service.BoardPrefetchService;
+import com.chessbot.service.BotGameService;
+import com.chessbot.service.BroadcastService;
+import com.chessbot.service.GameClockService;
+import com.chessbot.service.GameEventClient;
+import com.chessbot.service.GameSessionManager;
+import com.chessbot.service.HealthMonitor;
+import com.chessbot.service.KeyboardService;
+import com.chessbot.service.LiveBoardService;
+import com.chessbot.service.LobbyService;
+import com.chessbot.service.MatchmakingService;
+import com.chessbot.service.MoveHistoryStore;
+import com.chessbot.service.PositionCache;
+import com.chessbot.service.RatingCache;
+import com.chessbot.service.SpectatorService;
+import com.chessbot.service.TelegramNotificationService;
+import com.chessbot.service.TournamentService;
+import com.chessbot.util.CallbackCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChessCommandHandlerTest {
+
+    private static final String FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private final ApiClient apiClient = mock(ApiClient.class);
+    private final GameSessionManager sessions = new GameSessionManager();
+    private final TelegramNotificationService notifications = mock(TelegramNotificationService.class);
+    private final PositionCache positionCache = mock(PositionCache.class);
+    private final KeyboardService keyboardService = new KeyboardService();
+    private final BoardImageService boardImageService = mock(BoardImageService.class);
+    private final ChessCommandHandler handler = new ChessCommandHandler(apiClient, sessions,
+            notifications, mock(GameEventClient.class), mock(BoardPrefetchService.class),
+            mock(BotGameService.class), mock(AnalysisService.class), positionCache, mock(GameClockService.class),
+            mock(MatchmakingService.class), mock(RatingCache.class), mock(LobbyService.class),
+            mock(MoveHistoryStore.class), boardImageService, mock(InteractiveBoardHandler.class),
+            mock(LiveBoardService.class), keyboardService, mock(SpectatorService.class),
+            mock(TournamentService.class), mock(BroadcastService.class), mock(HealthMonitor.class));
+
+    @BeforeEach
+    void activeGame() {
+        sessions.createSession("G1", 1L, 1L, "WHITE");
+        GameResponse state = new GameResponse();
+        state.setSuccess(true);
+        state.setGameId("G1");
+        state.setBoard(FEN);
+        when(apiClient.getGameState("G1", 1L)).thenReturn(state);
+        when(positionCache.legalMoves(state, "WHITE")).thenReturn(List.of("e2-e4", "g1-f3"));
+    }
+
+    @Test
+    void movesCommandListsMovesInsteadOfMoving() {
+        assertThat(handler.handleCommand(1L, "/moves", "Alice")).isNull();
+        verify(notifications).sendMessageReturningId(eq(1L), contains("e2-e4"), any());
+        verify(apiClient, never()).makeMove(anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    void imageCommandIsDisabledWithoutRenderer() {
+        when(boardImageService.isAvailable()).thenReturn(false);
+
+        assertThat(handler.handleCommand(1L, "/image", "Alice")).contains("отключены").contains("/board");
+        verify(boardImageService, never()).sendBoard(anyLong(), anyString(), anyBoolean(), anyInt(), anyString());
+    }
+
+    @Test
+    void legalMovesButtonListsMoves() {
+        String data = CallbackCodec.encode(CallbackCodec.LEGAL_MOVES);
+
+        assertThat(handler.handleBoardTap(1L, data, 10, "Alice")).isNull();
+        verify(notifications).sendMessageReturningId(eq(1L), contains("e2-e4"), any());
+        verify(apiClient, never()).makeMove(anyString(), anyLong(), anyString());
+    }
+}
@@ -0,0 +1,117 @@
+package com.chessbot.handlers;
+
+import com.chessbot.dto.GameResponse;
+import com.chessbot.service.ApiClient;
+import com.chessbot.service.BoardPrefetchService;
+import com.chessbot.service.GameSessionManager;
+import com.chessbot.service.InteractiveBoardService;
+import com.chessbot.service.PositionCache;
+import com.chessbot.util.CallbackCodec;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InteractiveBoardHandlerTest {
+
+    private static final String FEN = "4k3/P7/8/8/8/8/4P3/4K3 w - - 0 1";
+
+    private final GameSessionManager sessions = new GameSessionManager();
+    private final PositionCache positionCache = mock(PositionCache.class);
+    private final InteractiveBoardHandler handler = new InteractiveBoardHandler(mock(ApiClient.class), sessions,
+            new InteractiveBoardService(), mock(BoardPrefetchService.class), positionCache);
+
+    private final int epoch = CallbackCodec.epochOf("G1", FEN);
+
+    @Test
+    void twoTapsSubmitMoveExactlyOnce() {
+        showBoard();
+
+        InteractiveBoardHandler.Tap targets = tap(CallbackCodec.SELECT, "e2", "e2", (char) 0);
+        assertThat(moves(targets)).containsExactly("e2-e3", "e2-e4");
+        assertThat(handler.phase(1L)).isEqualTo(InteractiveBoardHandler.Phase.FROM_SELECTED);
+
+        assertThat(tap(CallbackCodec.MOVE, "e2", "e4", (char) 0).move()).isEqualTo("e2-e4");
+        // Повторное нажатие той же кнопки ход не дублирует
+        assertThat(tap(CallbackCodec.MOVE, "e2", "e4", (char) 0).move()).isNull();
+    }
+
+    @Test
+    void promotionAsksForPieceAndCancelRestoresBoard() {
+        InteractiveBoardHandler.BoardMessage board = showBoard();
+
+        tap(CallbackCodec.SELECT, "a7", "a7", (char) 0);
+        InteractiveBoardHandler.Tap pieces = tap(CallbackCodec.MOVE, "a7", "a8", (char) 0);
+        assertThat(moves(pieces)).containsExactly("a7-a8q", "a7-a8r", "a7-a8b", "a7-a8n");
+        assertThat(handler.phase(1L)).isEqualTo(InteractiveBoardHandler.Phase.PROMOTION);
+
+        assertThat(tap(CallbackCodec.CANCEL, "a1", "a1", (char) 0).keyboard()).isSameAs(board.getKeyboard());
+        assertThat(tap(CallbackCodec.MOVE, "a7", "a8", 'n').move()).isEqualTo("a7-a8n");
+    }
+
+    @Test
+    void staleAndForeignTapsAreHandledWithoutBackend() {
+        showBoard();
+
+        // Кнопка с доски прошлой позиции: отбрасывается по эпохе
+        long stale = CallbackCodec.decode(CallbackCodec.encode(CallbackCodec.SELECT, 12, 12, (char) 0, epoch + 1));
+        assertThat(handler.handleCallback(1L, stale)).isNull();
+
+        // Игра сменилась: доску нужно перерисовать
+        sessions.createSession("G2", 1L, 1L, "WHITE");
+        InteractiveBoardHandler.Tap tap = tap(CallbackCodec.SELECT, "e2", "e2", (char) 0);
+        assertThat(tap.keyboard()).isNull();
+        assertThat(tap.move()).isNull();
+    }
+
+    @Test
+    void namesAndApiMessageAreEscapedForHtml() {
+        sessions.createSession("G1", 1L, 1L, "WHITE");
+        GameResponse response = new GameResponse();
+        response.setSuccess(true);
+        response.setGameId("G1");
+        response.setBoard(FEN);
+        response.setMessage("a < b");
+        response.setWhitePlayer(new GameResponse.PlayerInfo(1L, "Tom & Jerry", "WHITE", 1500));
+        response.setBlackPlayer(new GameResponse.PlayerInfo(2L, "<3", "BLACK", null));
+        when(positionCache.legalMoves(any(GameResponse.class), any())).thenReturn(List.of("e2-e4"));
+
+        assertThat(handler.render(1L, "G1", response, "WHITE", null).getText())
+                .contains("a &lt; b", "Tom &amp; Jerry", "&lt;3")
+                .doesNotContain("Tom & Jerry", "<3");
+    }
+
+    private InteractiveBoardHandler.BoardMessage showBoard() {
+        sessions.createSession("G1", 1L, 1L, "WHITE");
+        GameResponse response = new GameResponse();
+        response.setSuccess(true);
+        response.setGameId("G1");
+        response.setBoard(FEN);
+        when(positionCache.legalMoves(any(GameResponse.class), any())).thenReturn(List.of(
+                "e2-e3", "e2-e4", "a7-a8q", "a7-a8r", "a7-a8b", "a7-a8n", "e1-d1"));
+        return handler.render(1L, "G1", response, "WHITE", null);
+    }
+
+    private InteractiveBoardHandler.Tap tap(int action, String from, String to, char promotion) {
+        String data = CallbackCodec.encode(action, CallbackCodec.square(from), CallbackCodec.square(to), promotion, epoch);
+        return handler.handleCallback(1L, CallbackCodec.decode(data));
+    }
+
+    // Ходы в кнопках клавиатуры (кнопка отмены не ход)
+    private static List<String> moves(InteractiveBoardHandler.Tap tap) {
+        return tap.keyboard().getKeyboard().stream()
+                .flatMap(List::stream)
+                .map(InlineKeyboardButton::getCallbackData)
+                .mapToLong(CallbackCodec::decode)
+                .filter(packed -> CallbackCodec.action(packed) == CallbackCodec.MOVE)
+                .mapToObj(packed -> CallbackCodec.squareName(CallbackCodec.from(packed)) + "-"
+                        + CallbackCodec.squareName(CallbackCodec.to(packed))
+                        + (CallbackCodec.promotion(packed) != 0 ? String.valueOf(CallbackCodec.promotion(packed)) : ""))
+                .toList();
+    }
+}
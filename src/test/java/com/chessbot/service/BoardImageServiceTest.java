@@ -0,0 +1,59 @@
+package com.chessbot.service;
+
+import com.chessbot.engine.Move;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BoardImageServiceTest {
+
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final BoardImageRenderer renderer = new BoardImageRenderer(16);
+    private final TelegramNotificationService telegram = mock(TelegramNotificationService.class);
+    private final BoardImageService service = new BoardImageService(renderer, telegram, 4);
+
+    @Test
+    void rendersPngAndCachesByPlacementOrientationAndLastMove() {
+        assumeTrue(renderer.isAvailable(), "нет шрифта с шахматными глифами");
+        byte[] png = renderer.render(START, true, -1, -1);
+        assertThat(png).startsWith(PNG_SIGNATURE);
+
+        int e4 = Move.of(12, 28);
+        BoardImageService.CachedImage first = service.image(START, true, e4);
+        // Счетчики хода не влияют на картинку
+        assertThat(service.image(START.replace("0 1", "5 9"), true, e4)).isSameAs(first);
+        assertThat(service.image(START, false, e4)).isNotSameAs(first);
+        assertThat(service.image(START, true, Move.NONE)).isNotSameAs(first);
+    }
+
+    @Test
+    void secondSendReusesTelegramFileId() {
+        assumeTrue(renderer.isAvailable(), "нет шрифта с шахматными глифами");
+        when(telegram.sendPhoto(any(), any(), anyString())).thenReturn("FID");
+
+        assertThat(service.sendBoard(1L, START, true, Move.NONE, "a")).isTrue();
+        assertThat(service.sendBoard(2L, START, true, Move.NONE, "b")).isTrue();
+
+        ArgumentCaptor<InputFile> files = ArgumentCaptor.forClass(InputFile.class);
+        verify(telegram, times(2)).sendPhoto(any(), files.capture(), anyString());
+        List<InputFile> sent = files.getAllValues();
+        assertThat(sent.get(0).isNew()).isTrue();
+        assertThat(sent.get(1).isNew()).isFalse();
+        assertThat(sent.get(1).getAttachName()).isEqualTo("FID");
+        verify(telegram).sendPhoto(eq(2L), any(), eq("b"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.chessbot.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BoardPrefetchServiceTest {
+
+    // 2 потока + очередь на 256
+    private static final int CAPACITY = 2 + 256;
+
+    private final ApiClient apiClient = mock(ApiClient.class);
+    private final GameSessionManager sessions = new GameSessionManager();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final BoardPrefetchService prefetch = new BoardPrefetchService(apiClient, sessions,
+            new InteractiveBoardService(), mock(PositionCache.class));
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        prefetch.shutdown();
+    }
+
+    @Test
+    void droppedPrefetchLeavesNoPendingEntry() {
+        when(apiClient.getGameState(anyString(), anyLong())).thenAnswer(invocation -> {
+            release.await();
+            return null;
+        });
+        for (long chatId = 1; chatId <= CAPACITY + 1; chatId++) {
+            sessions.createSession("G" + chatId, chatId, chatId, "WHITE");
+            prefetch.prefetch(chatId, "G" + chatId);
+        }
+
+        // Последняя задача не влезла: она учтена как отброшенная и не висит в pending
+        assertThat(prefetch.getDiscarded()).isEqualTo(1);
+        assertThat(prefetch.pendingCount()).isEqualTo(CAPACITY);
+
+        release.countDown();
+        verify(apiClient, timeout(2000).times(CAPACITY)).getGameState(anyString(), anyLong());
+    }
+}
@@ -0,0 +1,75 @@
+package com.chessbot.service;
+
+import com.chessbot.engine.EngineService;
+import com.chessbot.engine.SearchHandle;
+import com.chessbot.engine.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BotGameServiceTest {
+
+    private EngineService engine;
+    private TelegramNotificationService notifications;
+    private BotGameService service;
+
+    @BeforeEach
+    void setUp() {
+        engine = mock(EngineService.class);
+        notifications = mock(TelegramNotificationService.class);
+        service = new BotGameService(engine, notifications, new InteractiveBoardService(),
+                mock(MoveHistoryStore.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void fullEngineQueueKeepsGameAndRetries() {
+        SearchHandle rejected = handle(CompletableFuture.failedFuture(new RejectedExecutionException("queue full")));
+        SearchHandle pending = handle(new CompletableFuture<>());
+        when(engine.search(any(), any())).thenReturn(rejected, pending);
+
+        service.startGame(1L, "alice", "/newgame bot black");
+
+        // Отказ очереди — не ошибка движка: партия жива, расчет повторяется с паузой
+        verify(engine, timeout(5000).times(2)).search(any(), any());
+        assertThat(service.hasGame(1L)).isTrue();
+        assertThat(service.handleBoard(1L)).contains("Бот думает");
+        verify(notifications, never()).sendSimpleMessage(anyLong(), contains("остановлена"));
+    }
+
+    @Test
+    void realEngineFailureStopsGame() {
+        SearchHandle failed = handle(CompletableFuture.failedFuture(new IllegalStateException("boom")));
+        when(engine.search(any(), any())).thenReturn(failed);
+
+        service.startGame(1L, "alice", "/newgame bot black");
+
+        verify(notifications, timeout(2000)).sendSimpleMessage(anyLong(), contains("остановлена"));
+        verify(engine, after(200).times(1)).search(any(), any());
+        assertThat(service.hasGame(1L)).isFalse();
+    }
+
+    private static SearchHandle handle(CompletableFuture<SearchResult> result) {
+        SearchHandle handle = mock(SearchHandle.class);
+        when(handle.result()).thenReturn(result);
+        return handle;
+    }
+}
@@ -0,0 +1,98 @@
+package com.chessbot.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BroadcastServiceTest {
+
+    private static final long ADMIN = 99L;
+
+    @TempDir
+    Path dir;
+
+    private final GameSessionManager sessions = new GameSessionManager();
+    private final TelegramNotificationService telegram = mock(TelegramNotificationService.class);
+
+    @Test
+    void deliversToEveryChatCountsFailuresAndWaitsOutThrottling() {
+        for (long chatId = 1; chatId <= 5; chatId++) {
+            sessions.createSession("G" + chatId, chatId, chatId, "WHITE");
+        }
+        when(telegram.deliver(anyLong(), anyString())).thenReturn(TelegramNotificationService.DELIVERED);
+        when(telegram.deliver(eq(3L), anyString())).thenReturn(TelegramNotificationService.UNDELIVERABLE);
+        // 429: повтор после паузы
+        when(telegram.deliver(eq(2L), anyString())).thenReturn(5L, TelegramNotificationService.DELIVERED);
+        BroadcastService broadcasts = service();
+
+        assertThat(broadcasts.handleBroadcast(1L, "/broadcast Hi")).contains("только администраторам");
+        assertThat(broadcasts.handleBroadcast(ADMIN, "/broadcast Турнир в субботу & <воскресенье>!")).contains("запущена");
+
+        verify(telegram, timeout(2000)).sendSimpleMessage(eq(ADMIN), contains("Доставлено: 4"));
+        verify(telegram).sendSimpleMessage(eq(ADMIN), contains("Не доставлено: 1"));
+        verify(telegram).sendSimpleMessage(eq(ADMIN), contains("Повторов после 429: 1"));
+        verify(telegram).deliver(5L, "Турнир в субботу &amp; &lt;воскресенье&gt;!");
+        assertThat(Files.exists(dir.resolve("broadcast.checkpoint"))).isFalse();
+        assertThat(broadcasts.handleBroadcast(ADMIN, "/broadcast status")).contains("Рассылок нет");
+    }
+
+    @Test
+    void unexpectedSendErrorCountsAsFailureAndJobFinishes() {
+        for (long chatId = 1; chatId <= 3; chatId++) {
+            sessions.createSession("G" + chatId, chatId, chatId, "WHITE");
+        }
+        when(telegram.deliver(anyLong(), anyString())).thenReturn(TelegramNotificationService.DELIVERED);
+        when(telegram.deliver(eq(2L), anyString())).thenThrow(new IllegalStateException("boom"));
+        BroadcastService broadcasts = service();
+
+        assertThat(broadcasts.handleBroadcast(ADMIN, "/broadcast Hi")).contains("запущена");
+
+        verify(telegram, timeout(2000)).sendSimpleMessage(eq(ADMIN), contains("Доставлено: 2"));
+        verify(telegram).sendSimpleMessage(eq(ADMIN), contains("Не доставлено: 1"));
+        assertThat(broadcasts.handleBroadcast(ADMIN, "/broadcast status")).contains("Рассылок нет");
+    }
+
+    @Test
+    void restartResumesAfterTheCheckpointedChat() throws Exception {
+        for (long chatId = 1; chatId <= 5; chatId++) {
+            sessions.createSession("G" + chatId, chatId, chatId, "WHITE");
+        }
+        when(telegram.deliver(anyLong(), anyString())).thenReturn(TelegramNotificationService.DELIVERED);
+        Files.writeString(dir.resolve("broadcast.checkpoint"), """
+                id=7
+                owner=99
+                after=3
+                delivered=2
+                failed=1
+                text=Hello
+                """);
+
+        BroadcastService broadcasts = service();
+        BroadcastService.Job saved = broadcasts.loadCheckpoint();
+        broadcasts.run(saved);
+
+        verify(telegram, never()).deliver(eq(3L), anyString());
+        verify(telegram).deliver(4L, "Hello");
+        verify(telegram).deliver(5L, "Hello");
+        verify(telegram).sendSimpleMessage(eq(ADMIN), contains("Доставлено: 4"));
+        assertThat(Files.exists(dir.resolve("broadcast.checkpoint"))).isFalse();
+    }
+
+    private BroadcastService service() {
+        return new BroadcastService(sessions, telegram, new TelegramRateLimiter(1000, 1000),
+                new long[]{ADMIN}, dir.resolve("broadcast.checkpoint").toString(), 2, 0, 0);
+    }
+}
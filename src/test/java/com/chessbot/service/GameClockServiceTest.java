@@ -0,0 +1,101 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameStatus;
+import com.chessbot.dto.PlayerColor;
+import com.chessbot.dto.TimeControl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class GameClockServiceTest {
+
+    private static final long SECOND = 1_000;
+
+    // Время часов задает тест; колесо идет само, но его таймеры на минуты вперед не успевают сработать
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final GameSessionManager sessions = new GameSessionManager();
+    private final TelegramNotificationService telegram = mock(TelegramNotificationService.class);
+    private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+    private final GameClockService clocks = new GameClockService(sessions, telegram, events, 100, 64, now::get);
+
+    @AfterEach
+    void close() {
+        clocks.shutdown();
+    }
+
+    @Test
+    void movesChargeTheMoverAndAddIncrementOnce() {
+        clocks.register("G1", TimeControl.BLITZ);
+        assertThat(clocks.describe("G1")).contains("⚪ 3:00 | ⚫ 3:00").contains("ждут соперника");
+
+        clocks.start("G1");
+        now.addAndGet(10 * SECOND);
+        clocks.onMove("G1", "BLACK");
+        // То же событие второй раз (ответ на /move и поток событий) — без второй добавки
+        clocks.onMove("G1", "BLACK");
+        now.addAndGet(5 * SECOND);
+        clocks.onMove("G1", "WHITE");
+        now.addAndGet(30 * SECOND);
+
+        // Белые: 180 - 10 + 2 = 172 с, идет их ход еще 30 с; черные: 180 - 5 + 2 = 177 с
+        assertThat(clocks.describe("G1")).contains("⚪ 2:22 | ⚫ 2:57").doesNotContain("ждут");
+    }
+
+    @Test
+    void correspondenceResetsTheBudgetEveryMove() {
+        clocks.register("G2", TimeControl.CORRESPONDENCE);
+        clocks.start("G2");
+        now.addAndGet(20 * 3600 * SECOND);
+        clocks.onMove("G2", "BLACK");
+
+        assertThat(clocks.describe("G2")).contains("⚪ 24:00:00 | ⚫ 24:00:00");
+    }
+
+    @Test
+    void flagFallFinishesTheGameForBothPlayers() {
+        sessions.createSession("G3", 1L, 1L, "WHITE");
+        sessions.createSession("G3", 2L, 2L, "BLACK");
+        clocks.register("G3", TimeControl.BLITZ);
+        clocks.start("G3");
+
+        now.addAndGet(179 * SECOND);
+        clocks.checkFlag("G3");
+        verify(events, never()).publishEvent(any(Object.class));
+
+        now.addAndGet(2 * SECOND);
+        clocks.checkFlag("G3");
+
+        verify(events).publishEvent(new GameFinishedEvent("G3", GameStatus.TIMEOUT, PlayerColor.BLACK));
+        verify(telegram).sendTimeoutNotification(1L, "G3", true);
+        verify(telegram).sendTimeoutNotification(2L, "G3", false);
+        assertThat(sessions.peekSession(1L).getGameStatus()).isEqualTo("TIMEOUT");
+        assertThat(clocks.getActiveClocksCount()).isZero();
+        // Ход, пришедший после флажка, ничего не меняет
+        clocks.onMove("G3", "BLACK");
+        verify(telegram, times(2)).sendTimeoutNotification(anyLong(), anyString(), anyBoolean());
+    }
+
+    @Test
+    void moveArrivingAfterTheDeadlineStillLosesOnTime() {
+        clocks.register("G4", TimeControl.BLITZ);
+        clocks.start("G4");
+        now.addAndGet(200 * SECOND);
+
+        clocks.onMove("G4", "BLACK");
+
+        verify(events).publishEvent(new GameFinishedEvent("G4", GameStatus.TIMEOUT, PlayerColor.BLACK));
+        assertThat(clocks.describe("G4")).isNull();
+    }
+}
@@ -0,0 +1,81 @@
+package com.chessbot.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class GameEventClientTest {
+
+    private StubGameEventServer server;
+    private GameEventClient client;
+    private GameEventRouter router;
+    private TelegramNotificationService notificationService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubGameEventServer();
+        server.startAndAwait();
+
+        GameSessionManager sessionManager = new GameSessionManager();
+        sessionManager.createSession("G1", 1L, 1L);
+        sessionManager.createSession("G1", 2L, 2L);
+
+        notificationService = mock(TelegramNotificationService.class);
+        router = new GameEventRouter(sessionManager, notificationService, mock(BoardPrefetchService.class),
+                mock(GameClockService.class), new RatingCache(), mock(MoveHistoryStore.class));
+        client = new GameEventClient(sessionManager, router, server.url(), true);
+        client.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.stop();
+        router.shutdown();
+        server.stop(1000);
+    }
+
+    @Test
+    void subscribesToActiveGamesAndRoutesMoveToOpponent() throws Exception {
+        assertThat(server.nextCommand()).contains("\"subscribe\"").contains("G1");
+
+        server.broadcast("""
+                {"type":"MOVE","gameId":"G1","playerId":1,"notation":"e2-e4",
+                 "game":{"success":true,"gameId":"G1","status":"ACTIVE","currentTurn":"BLACK"}}
+                """);
+
+        verify(notificationService, timeout(2000)).sendMoveNotification(eq(2L), any(), eq("e2-e4"));
+        verify(notificationService, after(200).never()).sendMoveNotification(eq(1L), any(), any());
+    }
+
+    @Test
+    void terminalEventNotifiesBothPlayersAndUnsubscribes() throws Exception {
+        assertThat(server.nextCommand()).contains("\"subscribe\"");
+
+        server.broadcast("""
+                {"type":"RESIGN","gameId":"G1","playerId":2,
+                 "game":{"success":true,"gameId":"G1","status":"RESIGNED"}}
+                """);
+
+        verify(notificationService, timeout(2000)).sendGameOverNotification(eq(1L), any(), eq(false));
+        verify(notificationService, timeout(2000)).sendGameOverNotification(eq(2L), any(), eq(true));
+        assertThat(server.nextCommand()).contains("\"unsubscribe\"").contains("G1");
+    }
+
+    @Test
+    void unknownGamesAreIgnored() throws Exception {
+        assertThat(server.nextCommand()).contains("\"subscribe\"");
+
+        server.broadcast("{\"type\":\"MOVE\",\"gameId\":\"OTHER\",\"playerId\":7,\"notation\":\"e7-e5\"}");
+
+        verify(notificationService, after(300).never()).sendMoveNotification(any(), any(), any());
+    }
+}
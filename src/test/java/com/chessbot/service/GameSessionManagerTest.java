@@ -0,0 +1,187 @@
+package com.chessbot.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.chessbot.service.GameSessionManager.GameSession;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GameSessionManagerTest {
+
+    private final InMemoryColdStore cold = new InMemoryColdStore();
+
+    @Test
+    void idleGameIsDemotedWholeAndHydratedOnNextAccess() throws InterruptedException {
+        // Простой 0 минут: вытесняется все, что не тронуто в эту миллисекунду
+        GameSessionManager sessions = new GameSessionManager(cold, 100, 0, 60_000);
+        sessions.createSession("G1", 1L, 1L, "WHITE");
+        sessions.createSession("G1", 2L, 2L, "BLACK");
+        sessions.updateStatus(1L, "ACTIVE");
+        Thread.sleep(5);
+
+        assertThat(sessions.demoteIdle()).isEqualTo(2);
+        assertThat(sessions.getActiveSessionsCount()).isZero();
+        assertThat(cold.rows).hasSize(2);
+
+        // Сообщение от черных поднимает игру целиком: белые тоже снова в памяти
+        assertThat(sessions.getOpponentChatId(2L)).isEqualTo(1L);
+        assertThat(sessions.getActiveSessionsCount()).isEqualTo(2);
+        assertThat(sessions.peekSession(1L).getGameStatus()).isEqualTo("ACTIVE");
+        assertThat(sessions.getHydratedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void eventForColdGameHydratesByGameId() throws InterruptedException {
+        GameSessionManager sessions = new GameSessionManager(cold, 100, 0, 60_000);
+        sessions.createSession("G1", 1L, 1L, "WHITE");
+        Thread.sleep(5);
+        sessions.demoteIdle();
+
+        assertThat(sessions.getChatIdsByGameId("G1")).containsExactly(1L);
+        assertThat(sessions.getChatIdsByGameId("unknown")).isEmpty();
+    }
+
+    @Test
+    void hotTierIsBoundedByEvictingOldestGames() throws InterruptedException {
+        GameSessionManager sessions = new GameSessionManager(cold, 2, 60, 60_000);
+        sessions.createSession("OLD", 1L, 1L, "WHITE");
+        Thread.sleep(5);
+        sessions.createSession("MID", 2L, 2L, "WHITE");
+        Thread.sleep(5);
+        sessions.createSession("NEW", 3L, 3L, "WHITE");
+
+        assertThat(sessions.demoteIdle()).isEqualTo(1);
+        assertThat(cold.rows).containsOnlyKeys(1L);
+        assertThat(sessions.getActiveSessionsCount()).isEqualTo(2);
+    }
+
+    @Test
+    void removingColdSessionDropsColdCopy() throws InterruptedException {
+        GameSessionManager sessions = new GameSessionManager(cold, 100, 0, 60_000);
+        sessions.createSession("G1", 1L, 1L, "WHITE");
+        Thread.sleep(5);
+        sessions.demoteIdle();
+
+        sessions.removeSession(1L);
+        assertThat(cold.rows).isEmpty();
+        assertThat(sessions.peekSession(1L)).isNull();
+    }
+
+    @Test
+    void chatCursorMergesHotAndColdTiersInChatIdOrder() throws InterruptedException {
+        GameSessionManager sessions = new GameSessionManager(cold, 100, 0, 60_000);
+        sessions.createSession("G1", 1L, 1L, "WHITE");
+        sessions.createSession("G1", 3L, 3L, "BLACK");
+        Thread.sleep(5);
+        sessions.demoteIdle();
+        sessions.createSession("G2", 2L, 2L, "WHITE");
+        sessions.createSession("G2", 4L, 4L, "BLACK");
+        sessions.createSession("G3", 6L, 6L, "WHITE");
+
+        GameSessionManager.ChatCursor cursor = sessions.chatsAfter(Long.MIN_VALUE);
+        assertThat(cursor.nextPage(2)).containsExactly(1L, 2L);
+        assertThat(cursor.nextPage(2)).containsExactly(3L, 4L);
+        assertThat(cursor.nextPage(2)).containsExactly(6L);
+        assertThat(cursor.nextPage(2)).isEmpty();
+        assertThat(sessions.chatsAfter(3L).nextPage(10)).containsExactly(4L, 6L);
+    }
+
+    /**
+     * Замер памяти: {@code mvn test -Pbench}. Куча до и после 200 000 сессий в 100 000 играх,
+     * после принудительной сборки мусора
+     */
+    @Tag("bench")
+    @Test
+    void footprintPerSession() throws InterruptedException {
+        quiet(GameSessionManager.class);
+        int games = 100_000;
+        long before = usedHeap();
+        GameSessionManager sessions = new GameSessionManager();
+        for (int game = 0; game < games; game++) {
+            String gameId = "game-" + Integer.toHexString(0x10000000 + game);
+            sessions.createSession(gameId, 2L * game + 1, 2L * game + 1, "WHITE");
+            sessions.createSession(gameId, 2L * game + 2, 2L * game + 2, "BLACK");
+        }
+        long bytes = usedHeap() - before;
+
+        System.out.printf("sessions %,d: %,d bytes total, %d bytes per session%n",
+                sessions.getActiveSessionsCount(), bytes, bytes / sessions.getActiveSessionsCount());
+        assertThat(sessions.getActiveSessionsCount()).isEqualTo(2 * games);
+    }
+
+    static void quiet(Class<?> type) {
+        ((Logger) LoggerFactory.getLogger(type)).setLevel(Level.WARN);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Холодный слой в памяти: mightContain отвечает точно
+     */
+    private static final class InMemoryColdStore implements ColdSessionStore {
+        final Map<Long, GameSession> rows = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public boolean mightContain(long chatId) {
+            return rows.containsKey(chatId);
+        }
+
+        @Override
+        public boolean mightContainGame(String gameId) {
+            return rows.values().stream().anyMatch(session -> session.getGameId().equals(gameId));
+        }
+
+        @Override
+        public void save(List<GameSession> sessions) {
+            sessions.forEach(session -> rows.put(session.getChatId(), session));
+        }
+
+        @Override
+        public List<GameSession> loadGameOf(long chatId) {
+            GameSession session = rows.get(chatId);
+            return session != null ? loadGame(session.getGameId()) : List.of();
+        }
+
+        @Override
+        public List<GameSession> loadGame(String gameId) {
+            List<GameSession> game = new ArrayList<>();
+            rows.values().forEach(session -> {
+                if (session.getGameId().equals(gameId)) {
+                    game.add(session);
+                }
+            });
+            return game;
+        }
+
+        @Override
+        public void delete(long chatId) {
+            rows.remove(chatId);
+        }
+
+        @Override
+        public long[] chatIdsAfter(long after, int limit) {
+            return rows.keySet().stream().mapToLong(Long::longValue)
+                    .filter(chatId -> chatId > after).sorted().limit(limit).toArray();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HealthMonitorTest {
+
+    private final RestTemplate rest = mock(RestTemplate.class);
+    private final ApiClient api = new ApiClient(rest);
+    private final TelegramNotificationService telegram = mock(TelegramNotificationService.class);
+    private final HealthMonitor health = new HealthMonitor(api, telegram, 10_000, 4);
+
+    @Test
+    void statusAndHealthComeFromCachedProbes() throws Exception {
+        assertThat(health.health().getStatus()).isEqualTo(Status.UNKNOWN);
+        when(rest.getForObject(anyString(), eq(String.class))).thenReturn("ok");
+
+        health.probeAll();
+        assertThat(health.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(health.describeStatus()).contains("✅ Chess API").contains("доступность 100% за 1 проверок");
+
+        doThrow(new TelegramApiException("timeout")).when(telegram).ping();
+        health.probeAll();
+        assertThat(health.health().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.describeStatus()).contains("❌ Telegram: недоступен с").contains("доступность 50% за 2 проверок");
+
+        // Чтение статуса не трогает сеть
+        for (int i = 0; i < 100; i++) {
+            health.describeStatus();
+            health.health();
+        }
+        verify(rest, times(2)).getForObject(anyString(), eq(String.class));
+        verify(telegram, times(2)).ping();
+    }
+
+    @Test
+    void circuitOpensOnRepeatedFailuresAndClosesOnlyAfterSuccessfulProbe() throws Exception {
+        when(rest.getForEntity(anyString(), eq(GameResponse.class)))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+        for (int i = 0; i < 3; i++) {
+            assertThat(api.getGameState("G1", 1L).getSuccess()).isFalse();
+        }
+        assertThat(api.isCircuitOpen()).isTrue();
+
+        // Разомкнутый предохранитель отвечает сразу, без запроса
+        assertThat(api.getGameState("G1", 1L).getMessage()).contains("недоступен");
+        verify(rest, times(3)).getForEntity(anyString(), eq(GameResponse.class));
+
+        doNothing().when(telegram).ping();
+        when(rest.getForObject(anyString(), eq(String.class))).thenThrow(new ResourceAccessException("down"));
+        health.probeAll();
+        assertThat(api.isCircuitOpen()).isTrue();
+        assertThat(health.describeStatus()).contains("приостановлены");
+
+        when(rest.getForObject(anyString(), eq(String.class))).thenReturn("ok");
+        health.probeAll();
+        assertThat(api.isCircuitOpen()).isFalse();
+        when(rest.getForEntity(anyString(), eq(GameResponse.class))).thenReturn(ResponseEntity.ok(new GameResponse()));
+        api.getGameState("G1", 1L);
+        verify(rest, times(4)).getForEntity(anyString(), any(Class.class));
+    }
+}
@@ -0,0 +1,54 @@
+package com.chessbot.service;
+
+import com.chessbot.engine.Board;
+import com.chessbot.util.CallbackCodec;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyboardServiceTest {
+
+    // Открытый миттельшпиль: у белых 48 ходов
+    private static final String FEN = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private final KeyboardService keyboards = new KeyboardService();
+
+    @Test
+    void movesArePagedByPieceAndBuiltOncePerPosition() {
+        List<String> moves = new PositionCache(null, 128).legalMoves(Board.fromFen(FEN));
+        assertThat(moves).hasSize(48);
+
+        KeyboardService.MovePages pages = keyboards.movePages("G1", FEN, moves);
+        assertThat(keyboards.movePages("G1", FEN, moves)).isSameAs(pages);
+        assertThat(pages.pages()).hasSizeGreaterThan(1);
+
+        int buttons = 0;
+        for (InlineKeyboardMarkup page : pages.pages()) {
+            // 6 рядов ходов и ряд листания
+            assertThat(page.getKeyboard()).hasSizeLessThanOrEqualTo(7);
+            for (List<InlineKeyboardButton> row : page.getKeyboard()) {
+                for (InlineKeyboardButton button : row) {
+                    if (CallbackCodec.action(CallbackCodec.decode(button.getCallbackData())) == CallbackCodec.MOVE) {
+                        buttons++;
+                    }
+                }
+            }
+        }
+        assertThat(buttons).isEqualTo(48);
+
+        // Первая страница начинается с короля, текст сгруппирован по фигурам
+        assertThat(pages.pages().get(0).getKeyboard().get(0).get(0).getText()).startsWith("♔");
+        assertThat(pages.text()).contains("♔ Король", "♘ Конь", "♙ Пешка").contains("… +");
+
+        List<InlineKeyboardButton> navigation = pages.pages().get(0).getKeyboard()
+                .get(pages.pages().get(0).getKeyboard().size() - 1);
+        long next = CallbackCodec.decode(navigation.get(navigation.size() - 1).getCallbackData());
+        assertThat(CallbackCodec.action(next)).isEqualTo(CallbackCodec.MOVES_PAGE);
+        assertThat(keyboards.movesPage(CallbackCodec.epoch(next), CallbackCodec.from(next)))
+                .isSameAs(pages.pages().get(1));
+    }
+}
@@ -0,0 +1,76 @@
+package com.chessbot.service;
+
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LiveBoardServiceTest {
+
+    private final GameSessionManager sessions = new GameSessionManager();
+    private final TelegramNotificationService telegram = mock(TelegramNotificationService.class);
+    private final LiveBoardService live = new LiveBoardService(sessions, telegram, 8);
+
+    @Test
+    void boardIsEditedInPlaceAndOnlyWhatChangedIsSent() {
+        when(telegram.sendMessageReturningId(anyLong(), anyString(), any())).thenReturn(100, 200);
+        when(telegram.editMessage(anyLong(), any(), anyString(), any())).thenReturn(true);
+        when(telegram.editKeyboard(anyLong(), any(), any())).thenReturn(true);
+
+        assertThat(live.show(1L, "G1", 99, "board", keyboard("select:e2"))).isTrue();
+        verify(telegram).sendMessageReturningId(eq(1L), eq("board"), any());
+
+        // Ничего не изменилось — запроса нет
+        assertThat(live.show(1L, "G1", 101, "board", keyboard("select:e2"))).isTrue();
+        // Изменилась только подсветка — правится одна клавиатура
+        assertThat(live.show(1L, "G1", 102, "board", keyboard("select:d2"))).isTrue();
+        verify(telegram).editKeyboard(eq(1L), eq(100), any());
+        // Изменился текст — правится сообщение целиком
+        assertThat(live.show(1L, "G1", 103, "board 2", keyboard("select:d2"))).isTrue();
+        verify(telegram).editMessage(eq(1L), eq(100), eq("board 2"), any());
+
+        verify(telegram, times(1)).sendMessageReturningId(anyLong(), anyString(), any());
+        assertThat(live.describeStats()).isEqualTo("новых 1, правок 1, только клавиатура 1, без изменений 1");
+
+        // Доска ушла далеко вверх — новое сообщение
+        assertThat(live.show(1L, "G1", 150, "board 2", keyboard("select:d2"))).isTrue();
+        verify(telegram, times(2)).sendMessageReturningId(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void otherGameFailedEditAndRemovedSessionStartNewBoard() {
+        when(telegram.sendMessageReturningId(anyLong(), anyString(), any())).thenReturn(10, 20, 30, 40);
+        when(telegram.editMessage(anyLong(), any(), anyString(), any())).thenReturn(false);
+
+        live.show(1L, "G1", null, "a", keyboard("x"));
+        live.show(1L, "G2", null, "a", keyboard("x"));
+        // Правка не прошла (сообщение удалено) — отправляем заново
+        live.show(1L, "G2", null, "b", keyboard("x"));
+        verify(telegram, times(3)).sendMessageReturningId(anyLong(), anyString(), any());
+
+        sessions.createSession("G2", 1L, 1L, "WHITE");
+        sessions.removeSession(1L);
+        live.show(1L, "G2", null, "b", keyboard("x"));
+        verify(telegram, times(4)).sendMessageReturningId(anyLong(), anyString(), any());
+        verify(telegram, never()).editKeyboard(anyLong(), any(), any());
+    }
+
+    private static InlineKeyboardMarkup keyboard(String callback) {
+        InlineKeyboardButton button = new InlineKeyboardButton();
+        button.setText("♙");
+        button.setCallbackData(callback);
+        return new InlineKeyboardMarkup(List.of(List.of(button)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameInfoResponse;
+import com.chessbot.dto.TimeControl;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LobbyServiceTest {
+
+    @Test
+    void pagesAreServedFromOneSnapshotWithoutBackendCalls() {
+        ApiClient apiClient = mock(ApiClient.class);
+        GameClockService clockService = mock(GameClockService.class);
+        List<GameInfoResponse> waiting = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            waiting.add(new GameInfoResponse("G" + i, "player" + i, "2026-01-01", 1400 + i * 50,
+                    i % 2 == 0 ? "BLITZ" : null));
+        }
+        when(apiClient.getWaitingGames()).thenReturn(waiting);
+        when(clockService.getTimeControl(anyString())).thenReturn(null);
+        when(clockService.getTimeControl("G1")).thenReturn(TimeControl.RAPID);
+
+        LobbyService lobby = new LobbyService(apiClient, clockService, 60_000);
+        lobby.refresh();
+
+        LobbyService.LobbyPage first = lobby.page("/listgames");
+        assertThat(first.text()).contains("G0", "G4").doesNotContain("G5").contains("Страница 1 из 3");
+        assertThat(navigation(first)).extracting(InlineKeyboardButton::getCallbackData)
+                .containsExactly("/listgames 1", "/listgames 2");
+
+        LobbyService.LobbyPage last = lobby.page("/listgames 3");
+        assertThat(last.text()).contains("G10", "G11").contains("Страница 3 из 3");
+
+        // Фильтр: рейтинг 1500–1700 и блиц — G2 (1500), G4 (1600), G6 (1700)
+        LobbyService.LobbyPage filtered = lobby.page("/listgames 1500-1700 blitz");
+        assertThat(filtered.text()).contains("G2", "G4", "G6").doesNotContain("G3", "G8");
+        assertThat(lobby.page("/listgames rapid").text()).contains("G1");
+
+        verify(apiClient, times(1)).getWaitingGames();
+        lobby.shutdown();
+    }
+
+    @Test
+    void creatorNameIsEscapedForHtml() {
+        ApiClient apiClient = mock(ApiClient.class);
+        when(apiClient.getWaitingGames()).thenReturn(List.of(
+                new GameInfoResponse("G1", "<Bob & Co>", "2026-01-01", 1500, null)));
+
+        LobbyService lobby = new LobbyService(apiClient, mock(GameClockService.class), 60_000);
+        lobby.refresh();
+
+        assertThat(lobby.page("/listgames").text()).contains("&lt;Bob &amp; Co&gt;").doesNotContain("<Bob");
+        lobby.shutdown();
+    }
+
+    @Test
+    void queryRoundTripsThroughCallbackData() {
+        LobbyService.LobbyQuery query = LobbyService.LobbyQuery.parse("/listgames 2 1200-1800 correspondence");
+        assertThat(query.page()).isEqualTo(2);
+        assertThat(LobbyService.LobbyQuery.parse(query.command(3))).isEqualTo(
+                new LobbyService.LobbyQuery(3, 1200, 1800, TimeControl.CORRESPONDENCE));
+        assertThat(query.command(999).getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(64);
+    }
+
+    private static List<InlineKeyboardButton> navigation(LobbyService.LobbyPage page) {
+        List<List<InlineKeyboardButton>> rows = page.keyboard().getKeyboard();
+        return rows.get(rows.size() - 1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MatchmakingServiceTest {
+
+    private ApiClient apiClient;
+    private GameSessionManager sessionManager;
+    private RatingCache ratingCache;
+    private MatchmakingService matchmaking;
+
+    @BeforeEach
+    void setUp() {
+        apiClient = mock(ApiClient.class);
+        sessionManager = new GameSessionManager();
+        ratingCache = new RatingCache();
+        when(apiClient.createGame(anyLong(), anyString())).thenReturn(response("M1"));
+        when(apiClient.joinGame(eq("M1"), anyLong(), anyString())).thenReturn(response("M1"));
+
+        // Окно 100, растет на 1000 в секунду; фоновый проход не запускаем — вызываем вручную
+        matchmaking = new MatchmakingService(apiClient, sessionManager, mock(TelegramNotificationService.class),
+                mock(GameEventClient.class), mock(GameClockService.class), ratingCache, 100, 1000, 600, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        matchmaking.shutdown();
+    }
+
+    @Test
+    void closeRatingsArePairedImmediately() {
+        rate(1L, 1500);
+        rate(2L, 1560);
+
+        matchmaking.handlePlay(1L, "alice", "/play blitz");
+        String reply = matchmaking.handlePlay(2L, "bob", "/play blitz");
+
+        assertThat(reply).contains("Соперник найден");
+        // Белыми играет тот, кто встал в очередь первым
+        verify(apiClient, timeout(2000)).createGame(1L, "alice");
+        verify(apiClient, timeout(2000)).joinGame("M1", 2L, "bob");
+        verify(apiClient, timeout(2000).times(1)).createGame(anyLong(), anyString());
+        assertThat(matchmaking.getQueuedCount()).isZero();
+    }
+
+    @Test
+    void differentTimeControlsAreNeverPaired() {
+        matchmaking.handlePlay(1L, "alice", "/play blitz");
+        matchmaking.handlePlay(2L, "bob", "/play rapid");
+        matchmaking.matchWaiting();
+
+        verify(apiClient, never()).createGame(anyLong(), anyString());
+        assertThat(matchmaking.getQueuedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void windowWidensWhileWaiting() throws InterruptedException {
+        rate(1L, 1400);
+        rate(2L, 1700);
+
+        matchmaking.handlePlay(1L, "alice", "/play");
+        matchmaking.handlePlay(2L, "bob", "/play");
+        matchmaking.matchWaiting();
+        verify(apiClient, never()).createGame(anyLong(), anyString());
+
+        Thread.sleep(1100);
+        matchmaking.matchWaiting();
+        verify(apiClient, timeout(2000)).createGame(anyLong(), any());
+        assertThat(matchmaking.isQueued(1L)).isFalse();
+    }
+
+    @Test
+    void stopLeavesQueue() {
+        matchmaking.handlePlay(1L, "alice", "/play");
+        assertThat(matchmaking.handlePlay(1L, "alice", "/play stop")).contains("остановлен");
+        assertThat(matchmaking.isQueued(1L)).isFalse();
+    }
+
+    @Test
+    void unknownTimeControlIsEchoedEscaped() {
+        assertThat(matchmaking.handlePlay(1L, "alice", "/play <x&")).contains("`&lt;x&amp;`");
+        assertThat(matchmaking.isQueued(1L)).isFalse();
+    }
+
+    private void rate(long chatId, int rating) {
+        GameResponse game = new GameResponse();
+        game.setWhitePlayer(new GameResponse.PlayerInfo(chatId, "p" + chatId, "WHITE", rating));
+        ratingCache.record(game);
+    }
+
+    private static GameResponse response(String gameId) {
+        GameResponse response = new GameResponse();
+        response.setSuccess(true);
+        response.setGameId(gameId);
+        response.setStatus("ACTIVE");
+        return response;
+    }
+}
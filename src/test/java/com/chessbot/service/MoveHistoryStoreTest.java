@@ -0,0 +1,141 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MoveHistoryStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private Path archive;
+    private MoveHistoryStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = dir.resolve("history.bin");
+        archive = dir.resolve("history.archive");
+        store = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void mixedNotationIsExportedAsSan() {
+        store.startGame("G1", "alice", "bob", 1L, 2L);
+        // Координатная нотация API и SAN вперемешку
+        for (String move : new String[]{"e2-e4", "e7e5", "Nf3", "b8-c6", "Bb5", "a7a6", "O-O"}) {
+            store.recordMove("G1", move, null);
+        }
+        store.finish("G1", MoveHistoryStore.Result.DRAW);
+
+        StringBuilder pgn = new StringBuilder();
+        assertThat(store.writePgn("G1", pgn)).isTrue();
+        assertThat(pgn.toString())
+                .contains("[White \"alice\"]", "[Black \"bob\"]", "[Result \"1/2-1/2\"]")
+                .contains("1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. O-O 1/2-1/2");
+        assertThat(store.lastGameOf(2L)).isEqualTo("G1");
+    }
+
+    @Test
+    void unknownGameTakesNamesFromResponse() {
+        GameResponse response = new GameResponse();
+        response.setWhitePlayer(new GameResponse.PlayerInfo(1L, "alice", "WHITE", 1500));
+        response.setBlackPlayer(new GameResponse.PlayerInfo(2L, "bob", "BLACK", 1500));
+        store.recordMove("G2", "d2d4", response);
+        store.recordMove("G2", "nonsense", response);
+
+        StringBuilder pgn = new StringBuilder();
+        store.writePgn("G2", pgn);
+        assertThat(pgn.toString()).contains("[White \"alice\"]", "1. d4 *");
+        assertThat(store.moveCount("G2")).isEqualTo(1);
+    }
+
+    @Test
+    void journalIsReplayedAndTornTailDropped() throws IOException {
+        store.startGame("G1", "alice", "bob", 1L);
+        store.recordMove("G1", "e2e4", null);
+        store.recordMove("G1", "c7c5", null);
+        store.finish("G1", MoveHistoryStore.Result.WHITE_WINS);
+        store.close();
+
+        // Обрыв посреди следующей записи хода
+        Files.write(file, new byte[]{'M', 0, 0}, StandardOpenOption.APPEND);
+        long tornSize = Files.size(file);
+
+        store = open();
+        assertThat(Files.size(file)).isEqualTo(tornSize - 3);
+        assertThat(store.moveCount("G1")).isEqualTo(2);
+
+        StringBuilder pgn = new StringBuilder();
+        store.writePgn("G1", pgn);
+        assertThat(pgn.toString()).contains("1. e4 c5 1-0");
+
+        // Новые партии продолжают нумерацию после восстановленных
+        store.startGame("G3", "carol", "dave", 3L);
+        store.recordMove("G3", "g1f3", null);
+        store.close();
+        store = open();
+        assertThat(store.getGamesCount()).isEqualTo(2);
+        assertThat(store.moveCount("G3")).isEqualTo(1);
+    }
+
+    @Test
+    void finishedGamesMoveToArchiveAndJournalKeepsOnlyLiveGames() throws IOException {
+        store.startGame("G1", "alice", "bob", 1L);
+        store.startGame("G2", "carol", "dave", 2L);
+        for (String move : new String[]{"e2e4", "e7e5", "g1f3"}) {
+            store.recordMove("G1", move, null);
+            store.recordMove("G2", move, null);
+        }
+        store.finish("G1", MoveHistoryStore.Result.BLACK_WINS);
+
+        // Блок архива: три строки, время, итог, число ходов и по 2 байта на ход
+        assertThat(Files.size(archive)).isEqualTo((2 + 2) + (2 + 5) + (2 + 3) + 8 + 1 + 2 + 3 * 2);
+        assertThat(store.liveGamesCount()).isEqualTo(1);
+        // Ход после итога в историю не попадает
+        store.recordMove("G1", "b8c6", null);
+        assertThat(store.moveCount("G1")).isEqualTo(3);
+
+        store.compact();
+        store.recordMove("G2", "b8c6", null);
+        store.close();
+        store = open();
+
+        assertThat(store.liveGamesCount()).isEqualTo(1);
+        assertThat(store.getGamesCount()).isEqualTo(2);
+        assertThat(store.resultOf("G1")).isEqualTo(MoveHistoryStore.Result.BLACK_WINS);
+        StringBuilder pgn = new StringBuilder();
+        assertThat(store.writePgn("G1", pgn)).isTrue();
+        assertThat(pgn.toString()).contains("[White \"alice\"]", "1. e4 e5 2. Nf3 0-1");
+        assertThat(store.moveCount("G2")).isEqualTo(4);
+
+        // Новая партия после сжатия не путается с уже записанными id
+        store.startGame("G3", "erin", "frank", 3L);
+        store.recordMove("G3", "d2d4", null);
+        store.close();
+        store = open();
+        assertThat(store.moveCount("G2")).isEqualTo(4);
+        assertThat(store.moveCount("G3")).isEqualTo(1);
+    }
+
+    private MoveHistoryStore open() throws IOException {
+        MoveHistoryStore opened = new MoveHistoryStore(new GameSessionManager(), file.toString(), archive.toString(), 60_000);
+        opened.open();
+        return opened;
+    }
+}
@@ -0,0 +1,105 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import com.chessbot.engine.Board;
+import com.chessbot.engine.Move;
+import com.chessbot.engine.SearchResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class PositionCacheTest {
+
+    @Test
+    void legalMovesAreGeneratedOnceAndSharedBetweenEqualPositions() {
+        PositionCache cache = new PositionCache(null, 128);
+
+        List<String> first = cache.legalMoves(Board.startPosition());
+        assertThat(first).hasSize(20).contains("e2-e4", "g1-f3");
+
+        // Та же позиция, полученная другим путем, — тот же Zobrist-ключ
+        List<String> second = cache.legalMoves(PositionCache.positionOf(
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR", "WHITE"));
+        assertThat(second).isSameAs(first);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void apiListWinsAndLocalMovesAreOnlyForThePlayerToMove() {
+        PositionCache cache = new PositionCache(new ApiClient(mock(RestTemplate.class)), 128);
+        String castlingFen = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+        // Локальный список по полной позиции уже в кэше
+        assertThat(cache.legalMoves(state(castlingFen, null), "WHITE")).contains("e1-g1");
+
+        // API для той же позиции знает больше (например, рокировки уже потеряны) — показываем его
+        assertThat(cache.legalMoves(state(castlingFen, List.of("e1-f1", "a1-a8")), "WHITE"))
+                .containsExactly("e1-f1", "a1-a8");
+        // Те же фигуры без прав на рокировку — другая запись
+        assertThat(cache.legalMoves(state("r3k2r/8/8/8/8/8/8/R3K2R w - - 0 1", null), "WHITE"))
+                .doesNotContain("e1-g1", "e1-c1");
+        // Ждущему сопернику ходы за чужую сторону не генерируются
+        assertThat(cache.legalMoves(state(castlingFen, null), "BLACK")).isEmpty();
+        assertThat(cache.legalMoves(state(castlingFen, null), null)).isEmpty();
+    }
+
+    @Test
+    void placementOnlyBoardIsCachedPerGame() {
+        PositionCache cache = new PositionCache(new ApiClient(mock(RestTemplate.class)), 128);
+        GameResponse board = state("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR", null);
+        board.setGameId("G1");
+        board.setCurrentTurn("BLACK");
+
+        // Два /board одной позиции в ответе API: второй — попадание в кэш
+        List<String> first = cache.legalMoves(board, "BLACK");
+        assertThat(first).hasSize(20);
+        assertThat(cache.legalMoves(board, "BLACK")).isSameAs(first);
+        assertThat(cache.getHits()).isEqualTo(1);
+
+        // Та же расстановка в другой партии — своя запись
+        board.setGameId("G2");
+        assertThat(cache.legalMoves(board, "BLACK")).isNotSameAs(first).isEqualTo(first);
+    }
+
+    @Test
+    void promotionsUseCoordinateFormat() {
+        PositionCache cache = new PositionCache(null, 128);
+        List<String> moves = cache.legalMoves(Board.fromFen("8/P7/8/8/8/8/8/k6K w - - 0 1"));
+        assertThat(moves).contains("a7-a8q", "a7-a8n");
+    }
+
+    @Test
+    void deepEvaluationSurvivesFloodOfShallowEntries() {
+        PositionCache cache = new PositionCache(null, 128);
+        long deepKey = 5;
+        cache.storeEvaluation(deepKey, new SearchResult(Move.of(12, 28), 35, 18, 1_000_000, 900, new int[]{Move.of(12, 28)}));
+
+        // Все ключи попадают в ту же корзину, что и deepKey
+        for (int i = 1; i <= 1_000; i++) {
+            cache.storeEvaluation(deepKey + 64L * i, new SearchResult(Move.of(12, 20), 0, 2, 100, 1, new int[0]));
+        }
+
+        PositionCache.CachedPosition cached = cache.evaluation(deepKey, 12);
+        assertThat(cached).isNotNull();
+        assertThat(cached.depth()).isEqualTo(18);
+        assertThat(cached.score()).isEqualTo(35);
+        // Слот "всегда заменять" держит самую свежую запись
+        assertThat(cache.get(deepKey + 64L * 1_000)).isNotNull();
+        assertThat(cache.get(deepKey + 64L * 999)).isNull();
+    }
+
+    private static GameResponse state(String fen, List<String> apiMoves) {
+        GameResponse state = new GameResponse();
+        state.setSuccess(true);
+        state.setBoard(fen);
+        state.setCurrentTurn(fen.contains(" b ") ? "BLACK" : "WHITE");
+        if (apiMoves != null) {
+            state.setAdditionalInfo(Map.of("legalMoves", apiMoves));
+        }
+        return state;
+    }
+}
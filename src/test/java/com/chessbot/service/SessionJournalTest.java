@@ -0,0 +1,109 @@
+package com.chessbot.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sessionsSurviveRestartFromJournalTail() throws IOException {
+        GameSessionManager sessions = new GameSessionManager();
+        SessionJournal journal = open(sessions);
+        sessions.createSession("G1", 1L, 1L, "WHITE");
+        sessions.createSession("G1", 2L, 2L, "BLACK");
+        sessions.createSession("G2", 3L, 3L, "WHITE");
+        sessions.updateStatus(1L, "CHECK");
+        sessions.removeSession(3L);
+        // Игрок ушел в другую игру: прежнее место в G1 освобождается
+        sessions.createSession("G3", 2L, 2L, "WHITE");
+        journal.commit();
+        journal.close();
+
+        GameSessionManager recovered = new GameSessionManager();
+        SessionJournal reopened = open(recovered);
+        try {
+            assertThat(recovered.getActiveSessionsCount()).isEqualTo(2);
+            assertThat(recovered.peekSession(1L).getGameStatus()).isEqualTo("CHECK");
+            assertThat(recovered.peekSession(1L).getVersion()).isEqualTo(sessions.peekSession(1L).getVersion());
+            assertThat(recovered.getChatIdsByGameId("G1")).containsExactly(1L);
+            assertThat(recovered.getCurrentGameId(2L)).isEqualTo("G3");
+            assertThat(recovered.peekSession(3L)).isNull();
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void snapshotAndLaterJournalAreCombined() throws IOException {
+        GameSessionManager sessions = new GameSessionManager();
+        sessions.createSession("G1", 1L, 1L, "WHITE");
+        SessionJournal journal = open(sessions);
+        journal.close();
+
+        // Второй запуск: G1 — из снимка, G2 — из журнала после него
+        GameSessionManager second = new GameSessionManager();
+        journal = open(second);
+        assertThat(second.getCurrentGameId(1L)).isEqualTo("G1");
+        second.createSession("G2", 2L, 2L, "BLACK");
+        journal.commit();
+        journal.close();
+
+        GameSessionManager third = new GameSessionManager();
+        journal = open(third);
+        try {
+            assertThat(third.getCurrentGameId(1L)).isEqualTo("G1");
+            assertThat(third.getPlayerColor(2L)).isEqualTo("BLACK");
+        } finally {
+            journal.close();
+        }
+    }
+
+    /**
+     * Замер восстановления: {@code mvn test -Pbench}. Миллион сессий только в журнале
+     * (без снимка), затем чтение журнала и свертка в новый снимок
+     */
+    @Tag("bench")
+    @Test
+    void recoveryOfMillionSessions() throws IOException {
+        GameSessionManagerTest.quiet(GameSessionManager.class);
+        int count = 1_000_000;
+        GameSessionManager sessions = new GameSessionManager();
+        SessionJournal journal = new SessionJournal(sessions, dir.toString(), 128, 600_000, 600_000);
+        journal.open();
+        for (int i = 0; i < count; i++) {
+            sessions.createSession("game-" + (i / 2), i, i, i % 2 == 0 ? "WHITE" : "BLACK");
+            if (i % 10_000 == 0) {
+                journal.commit();
+            }
+        }
+        journal.commit();
+        journal.close();
+
+        GameSessionManager recovered = new GameSessionManager();
+        SessionJournal reopened = new SessionJournal(recovered, dir.toString(), 128, 600_000, 600_000);
+        long started = System.nanoTime();
+        reopened.open();
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        reopened.close();
+
+        System.out.printf("journal recovery: %,d sessions in %,d ms (with re-snapshot)%n",
+                recovered.getActiveSessionsCount(), millis);
+        assertThat(recovered.getActiveSessionsCount()).isEqualTo(count);
+    }
+
+    private SessionJournal open(GameSessionManager sessions) throws IOException {
+        // Фоновые коммиты и снимки отключены: commit() вызывается вручную
+        SessionJournal journal = new SessionJournal(sessions, dir.toString(), 1, 600_000, 600_000);
+        journal.open();
+        return journal;
+    }
+}
@@ -0,0 +1,88 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameEvent;
+import com.chessbot.dto.GameResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SpectatorServiceTest {
+
+    private final ApiClient api = mock(ApiClient.class);
+    private final GameEventClient events = mock(GameEventClient.class);
+    private final TelegramNotificationService telegram = mock(TelegramNotificationService.class);
+    private final AtomicLong nanos = new AtomicLong();
+    private final TelegramRateLimiter limiter = new TelegramRateLimiter(2, 2, nanos::get);
+    private final SpectatorService spectators = new SpectatorService(api, new GameSessionManager(), events,
+            mock(GameEventRouter.class), telegram, limiter, 100, 1000);
+
+    @Test
+    void popularGameCostsOneApiCallAndSlowWatchersGetOnlyTheLatestFrame() {
+        when(api.getGameState(eq("G1"), anyLong())).thenReturn(game("start"));
+        when(telegram.sendMessageReturningId(anyLong(), anyString())).thenReturn(500);
+        when(telegram.editMessage(anyLong(), any(), anyString())).thenReturn(true);
+
+        for (long chatId = 1; chatId <= 3; chatId++) {
+            assertThat(spectators.handleWatch(chatId, "/watch G1")).isNull();
+        }
+        verify(api, times(1)).getGameState(eq("G1"), anyLong());
+        verify(events, times(3)).subscribe("G1");
+
+        spectators.onEvent(move("e2-e4", "after e4"));
+        spectators.onEvent(move("e7-e5", "after e5"));
+
+        // Запас ведра — два сообщения: третий зритель ждет следующего прохода
+        spectators.flush();
+        verify(telegram, times(2)).editMessage(anyLong(), eq(500), contains("after e5"));
+        nanos.addAndGet(1_000_000_000L);
+        spectators.flush();
+        verify(telegram, times(3)).editMessage(anyLong(), eq(500), contains("after e5"));
+        // Промежуточный ход склеен: его кадр никому не ушел
+        verify(telegram, never()).editMessage(anyLong(), any(), contains("after e4"));
+        assertThat(spectators.describeStats()).contains("зрителей 3").contains("склеено 3");
+    }
+
+    @Test
+    void gameOverDeliversFinalFrameAndReleasesSubscription() {
+        when(api.getGameState(eq("G2"), anyLong())).thenReturn(game("start"));
+        when(telegram.sendMessageReturningId(anyLong(), anyString())).thenReturn(7);
+        when(telegram.editMessage(anyLong(), any(), anyString())).thenReturn(true);
+
+        spectators.handleWatch(1L, "/watch G2");
+        GameEvent over = move("e7-e5", "final");
+        over.setType("GAME_OVER");
+        over.setGameId("G2");
+        spectators.onEvent(over);
+        spectators.flush();
+
+        verify(telegram).editMessage(eq(1L), eq(7), contains("Партия завершена"));
+        verify(events).unsubscribe("G2");
+        assertThat(spectators.handleWatch(1L, "/watch stop")).contains("ничего не смотрите");
+    }
+
+    private static GameEvent move(String notation, String board) {
+        return new GameEvent("MOVE", "G1", 42L, notation, game(board));
+    }
+
+    private static GameResponse game(String board) {
+        GameResponse game = new GameResponse();
+        game.setSuccess(true);
+        game.setStatus("ACTIVE");
+        game.setBoard(board);
+        game.setWhitePlayer(new GameResponse.PlayerInfo(1L, "Alice", "WHITE", 1500));
+        game.setBlackPlayer(new GameResponse.PlayerInfo(2L, "Bob", "BLACK", 1500));
+        return game;
+    }
+}
@@ -0,0 +1,65 @@
+package com.chessbot.service;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Локальная заглушка потока событий Chess API для тестов
+ */
+class StubGameEventServer extends WebSocketServer {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+    StubGameEventServer() {
+        super(new InetSocketAddress("localhost", 0));
+        setReuseAddr(true);
+    }
+
+    void startAndAwait() throws InterruptedException {
+        start();
+        if (!started.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Stub server did not start");
+        }
+    }
+
+    String url() {
+        return "ws://localhost:" + getPort();
+    }
+
+    /**
+     * Следующая команда от бота (subscribe/unsubscribe) или null по таймауту
+     */
+    String nextCommand() throws InterruptedException {
+        return received.poll(5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        received.add(message);
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+    }
+
+    @Override
+    public void onStart() {
+        started.countDown();
+    }
+}
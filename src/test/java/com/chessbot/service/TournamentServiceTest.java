@@ -0,0 +1,103 @@
+package com.chessbot.service;
+
+import com.chessbot.dto.GameResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TournamentServiceTest {
+
+    @Test
+    void swissPairingAvoidsRematchesAndBalancesColors() {
+        List<TournamentService.Player> ranked = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            ranked.add(new TournamentService.Player(i, "P" + i, 2000 - i * 10));
+        }
+        // 1 уже играл со 2, у 1 перекос в белые
+        ranked.get(0).opponents.add(2L);
+        ranked.get(1).opponents.add(1L);
+        ranked.get(0).colorBalance = 1;
+
+        List<TournamentService.Pairing> pairings = TournamentService.pairSwiss(ranked, 2);
+
+        assertThat(pairings).hasSize(3);
+        TournamentService.Pairing first = pairings.get(0);
+        assertThat(first.black().chatId).isEqualTo(1);
+        assertThat(first.white().chatId).isEqualTo(3);
+        Set<Long> seen = new HashSet<>();
+        pairings.forEach(pairing -> {
+            assertThat(seen.add(pairing.white().chatId)).isTrue();
+            assertThat(seen.add(pairing.black().chatId)).isTrue();
+        });
+
+        // Арена: соседи по таблице, но не с последним соперником
+        ranked.get(0).lastOpponent = 2;
+        List<TournamentService.Pairing> arena = TournamentService.pairArena(ranked.subList(0, 4));
+        assertThat(arena.get(0).white().chatId + arena.get(0).black().chatId).isEqualTo(1 + 3);
+    }
+
+    @Test
+    void swissRoundIsCreatedThroughTheApiAndResultsMoveTheStandings() {
+        ApiClient api = mock(ApiClient.class);
+        AtomicInteger games = new AtomicInteger();
+        when(api.createGame(anyLong(), anyString())).thenAnswer(call -> ok("G" + games.incrementAndGet()));
+        when(api.joinGame(anyString(), anyLong(), anyString())).thenAnswer(call -> ok(call.getArgument(0)));
+        GameSessionManager sessions = new GameSessionManager();
+        MoveHistoryStore history = mock(MoveHistoryStore.class);
+        GameClockService clocks = mock(GameClockService.class);
+        TournamentService tournaments = new TournamentService(api, sessions, mock(TelegramNotificationService.class),
+                mock(GameEventClient.class), clocks, mock(RatingCache.class), history,
+                new TelegramRateLimiter(1000, 1000), 1000, 0, 1000);
+
+        assertThat(tournaments.handleTournament(1L, "Org", "/tournament new swiss 1 blitz")).contains("T1");
+        for (long chatId = 2; chatId <= 4; chatId++) {
+            assertThat(tournaments.handleTournament(chatId, "P" + chatId, "/tournament join t1")).contains("Вы в турнире");
+        }
+        assertThat(tournaments.handleTournament(2L, "P2", "/tournament start")).contains("организатор");
+        assertThat(tournaments.handleTournament(1L, "Org", "/tournament start")).isNull();
+
+        // Часы запускаются последними, когда партия уже учтена в турнире
+        verify(clocks, timeout(2000).times(2)).start(anyString());
+        verify(history, times(2)).startGame(anyString(), anyString(), anyString(), anyLong(), anyLong());
+        assertThat(sessions.getChatIdsByGameId("G1")).hasSize(2);
+
+        tournaments.settle("G1", MoveHistoryStore.Result.WHITE_WINS);
+        // Конец партии в сессии только ставится в очередь: compute менеджера не ждет турнир
+        when(history.resultOf("G2")).thenReturn(MoveHistoryStore.Result.ONGOING);
+        sessions.updateSession(sessions.getChatIdsByGameId("G2").get(0), null, "DRAW");
+        assertThat(tournaments.handleTournament(1L, "Org", "/tournament standings")).doesNotContain(" — 0.5 (");
+        tournaments.settleQueued();
+        // Повторный итог той же партии не считается
+        tournaments.settle("G1", MoveHistoryStore.Result.BLACK_WINS);
+
+        String standings = tournaments.handleTournament(1L, "Org", "/tournament standings");
+        assertThat(standings).contains("1. ").contains(" — 1 (").contains(" — 0.5 (").contains(" — 0 (");
+
+        tournaments.tick();
+        // Завершенный турнир в памяти не остается
+        assertThat(tournaments.stateOf("T1")).isNull();
+        assertThat(tournaments.handleTournament(2L, "P2", "/tournament")).contains("Открытых турниров нет");
+        verify(api, times(2)).createGame(anyLong(), anyString());
+    }
+
+    private static GameResponse ok(String gameId) {
+        GameResponse response = new GameResponse();
+        response.setSuccess(true);
+        response.setGameId(gameId);
+        response.setStatus("ACTIVE");
+        return response;
+    }
+}
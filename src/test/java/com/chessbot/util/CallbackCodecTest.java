@@ -0,0 +1,39 @@
+package com.chessbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CallbackCodecTest {
+
+    @Test
+    void fieldsSurviveRoundTripWithinTelegramLimit() {
+        int epoch = CallbackCodec.epochOf("G-42", "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        String data = CallbackCodec.encode(CallbackCodec.MOVE, 52, 60, 'Q', epoch);
+        assertThat(data.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(64);
+        assertThat(CallbackCodec.isCompact(data)).isTrue();
+
+        long packed = CallbackCodec.decode(data);
+        assertThat(CallbackCodec.action(packed)).isEqualTo(CallbackCodec.MOVE);
+        assertThat(CallbackCodec.squareName(CallbackCodec.from(packed))).isEqualTo("e7");
+        assertThat(CallbackCodec.squareName(CallbackCodec.to(packed))).isEqualTo("e8");
+        assertThat(CallbackCodec.promotion(packed)).isEqualTo('q');
+        assertThat(CallbackCodec.epoch(packed)).isEqualTo(epoch);
+
+        long minEpoch = CallbackCodec.decode(CallbackCodec.encode(CallbackCodec.CANCEL, Integer.MIN_VALUE));
+        assertThat(CallbackCodec.epoch(minEpoch)).isEqualTo(Integer.MIN_VALUE);
+        assertThat(CallbackCodec.promotion(minEpoch)).isEqualTo((char) 0);
+    }
+
+    @Test
+    void foreignVersionsAndGarbageAreInvalid() {
+        String data = CallbackCodec.encode(CallbackCodec.SELECT, 12, 12, (char) 0, 7);
+        assertThat(CallbackCodec.decode("#2" + data.substring(2))).isEqualTo(CallbackCodec.INVALID);
+        assertThat(CallbackCodec.decode(data.substring(0, 10) + "*")).isEqualTo(CallbackCodec.INVALID);
+        assertThat(CallbackCodec.decode("select:e2")).isEqualTo(CallbackCodec.INVALID);
+        assertThat(CallbackCodec.decode("/move e2e4")).isEqualTo(CallbackCodec.INVALID);
+        assertThat(CallbackCodec.square("i9")).isEqualTo(-1);
+    }
+}
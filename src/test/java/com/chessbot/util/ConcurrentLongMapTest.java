@@ -0,0 +1,61 @@
+package com.chessbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrentLongMapTest {
+
+    @Test
+    void behavesLikeHashMapUnderRandomOperations() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        Map<Long, String> reference = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            // Узкий диапазон ключей, чтобы часто попадать в удаление и перезапись
+            long key = random.nextInt(5_000) - 2_500L;
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(reference.remove(key));
+            } else {
+                String value = "v" + i;
+                assertThat(map.put(key, value)).isEqualTo(reference.put(key, value));
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(reference.size());
+        reference.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+        for (long key = -2_500; key < 2_500; key++) {
+            assertThat(map.containsKey(key)).isEqualTo(reference.containsKey(key));
+        }
+    }
+
+    @Test
+    void conditionalRemoveAndComputeAreAtomic() throws InterruptedException {
+        ConcurrentLongMap<Integer> map = new ConcurrentLongMap<>();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    map.compute(i % 100, (key, existing) -> existing == null ? 1 : existing + 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (long key = 0; key < 100; key++) {
+            assertThat(map.get(key)).isEqualTo(800);
+        }
+        Integer current = map.get(7);
+        assertThat(map.remove(7, Integer.valueOf(-1))).isFalse();
+        assertThat(map.remove(7, current)).isTrue();
+        assertThat(map.get(7)).isNull();
+    }
+}
@@ -0,0 +1,61 @@
+package com.chessbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashedTimerWheelTest {
+
+    @Test
+    void firesNotBeforeDeadlineIncludingMultipleRounds() throws InterruptedException {
+        // 8 ячеек по 10 мс: оборот 80 мс, так что 250 мс — это несколько оборотов
+        try (HashedTimerWheel wheel = new HashedTimerWheel("test-wheel", 10, TimeUnit.MILLISECONDS, 8, Runnable::run)) {
+            long[] delays = {0, 15, 40, 95, 250};
+            CountDownLatch done = new CountDownLatch(delays.length);
+            ConcurrentLinkedQueue<String> late = new ConcurrentLinkedQueue<>();
+
+            for (long delay : delays) {
+                long scheduledAt = System.nanoTime();
+                wheel.schedule(() -> {
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduledAt);
+                    if (elapsed < delay) {
+                        late.add("таймер " + delay + " мс сработал через " + elapsed + " мс");
+                    }
+                    done.countDown();
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(late).isEmpty();
+        }
+    }
+
+    @Test
+    void cancelledTimersNeverFire() throws InterruptedException {
+        try (HashedTimerWheel wheel = new HashedTimerWheel("test-wheel", 5, TimeUnit.MILLISECONDS, 16, Runnable::run)) {
+            AtomicInteger fired = new AtomicInteger();
+            List<HashedTimerWheel.Timeout> timeouts = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                timeouts.add(wheel.schedule(fired::incrementAndGet, 500 + i % 50, TimeUnit.MILLISECONDS));
+            }
+            for (int i = 0; i < timeouts.size(); i += 2) {
+                assertThat(timeouts.get(i).cancel()).isTrue();
+            }
+
+            CountDownLatch last = new CountDownLatch(1);
+            wheel.schedule(last::countDown, 700, TimeUnit.MILLISECONDS);
+            assertThat(last.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(fired.get()).isEqualTo(5_000);
+            assertThat(timeouts.get(0).cancel()).isFalse();
+            assertThat(timeouts.get(1).isExpired()).isTrue();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.chessbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongBloomFilterTest {
+
+    @Test
+    void noFalseNegativesAndFalsePositivesNearTarget() {
+        LongBloomFilter filter = new LongBloomFilter(100_000, 0.01);
+        for (long key = 0; key < 100_000; key++) {
+            filter.add(key * 7 + 1_000_000_000L);
+        }
+        for (long key = 0; key < 100_000; key++) {
+            assertThat(filter.mightContain(key * 7 + 1_000_000_000L)).isTrue();
+        }
+
+        int falsePositives = 0;
+        for (long key = 0; key < 100_000; key++) {
+            if (filter.mightContain(-key - 1)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(2_000);
+        assertThat(filter.mightContain(LongBloomFilter.hash("ABC123"))).isFalse();
+    }
+}
@@ -0,0 +1,29 @@
+package com.chessbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageTemplateTest {
+
+    @Test
+    void textSlotsAreEscapedAndRawSlotsAreNot() {
+        MessageTemplate template = MessageTemplate.compile("*{name}* {{x}} `{id}` {markup:raw} ходов: {count}");
+
+        assertThat(template.slotCount()).isEqualTo(4);
+        assertThat(template.render("<Tom & Jerry>", "G-1", "<b>ok</b>", 12))
+                .isEqualTo("*&lt;Tom &amp; Jerry&gt;* {x} `G-1` <b>ok</b> ходов: 12");
+        assertThat(template.render(null, new StringBuilder("G-2"), "", 7L))
+                .isEqualTo("** {x} `G-2`  ходов: 7");
+    }
+
+    @Test
+    void malformedPatternsAndArgumentCountsAreRejected() {
+        assertThatThrownBy(() -> MessageTemplate.compile("{open")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MessageTemplate.compile("{x:bold}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MessageTemplate.compile("{a}").render("1", "2"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(MessageTemplate.escapeHtml("a<b")).isEqualTo("a&lt;b");
+    }
+}
@@ -0,0 +1,28 @@
+package com.chessbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void chargedRepliesHoldBackReservedBackgroundWork() {
+        AtomicLong nanos = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(10, 10, nanos::get);
+
+        // Ответы пользователям берут токены без ожидания, даже в долг
+        for (int i = 0; i < 15; i++) {
+            bucket.charge();
+        }
+        assertThat(bucket.tryAcquire(5)).isFalse();
+        // Долг 5 и запас 5 с одним токеном: 11 токенов, при 10 в секунду — 1.1 с
+        assertThat(bucket.millisUntilNextToken(5)).isEqualTo(1100);
+
+        nanos.addAndGet(1_100_000_000L);
+        assertThat(bucket.tryAcquire(5)).isTrue();
+        assertThat(bucket.tryAcquire(5)).isFalse();
+    }
+}